@@ -0,0 +1,142 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.delegates.AsyncAction1;
+import com.github.oxo42.stateless4j.delegates.Completion;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.TriggerArguments;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One transition fired by {@link StateMachine#fireAsync}, run as a pipeline of its exit actions, the state change and
+ * its entry actions.
+ * <p>
+ * Synchronous actions run on the thread that gets to them. An asynchronous action is started and the pipeline
+ * returns, to continue on the thread that completes the action; no thread waits for it. When an action completes
+ * before it returns, the pipeline continues in a loop rather than deeper in the stack.
+ */
+final class AsyncTransition<S, T, C> implements Completion {
+
+    private static final Object COMMIT = new Object();
+
+    // the states of the currently started asynchronous action
+    private static final int STARTING = 0;
+    private static final int WAITING = 1;
+    private static final int COMPLETED = 2;
+
+    private final StateMachine<S, T, C> machine;
+    private final Transition<S, T, C> transition;
+    private final TriggerArguments args;
+    private final Completion completion;
+    private final StateRepresentation<S, T, C> sourceRepresentation;
+    private final StateRepresentation<S, T, C> destinationRepresentation;
+    private final List<Object> steps = new ArrayList<>();
+    private final AtomicInteger action = new AtomicInteger();
+    private int next;
+    private volatile Throwable failure;
+
+    AsyncTransition(StateMachine<S, T, C> machine, StateRepresentation<S, T, C> sourceRepresentation,
+            StateRepresentation<S, T, C> destinationRepresentation, Transition<S, T, C> transition,
+            TriggerArguments args, Completion completion) {
+        this.machine = machine;
+        this.transition = transition;
+        this.args = args;
+        this.completion = completion;
+        this.sourceRepresentation = sourceRepresentation;
+        this.destinationRepresentation = destinationRepresentation;
+
+        StateRepresentation<S, T, C>[] exited = sourceRepresentation.getAncestors();
+        for (int i = 0, levels = sourceRepresentation.levelsExited(transition); i < levels; i++) {
+            steps.addAll(exited[i].getExitActions());
+        }
+        steps.add(COMMIT);
+        StateRepresentation<S, T, C>[] entered = destinationRepresentation.getAncestors();
+        for (int i = destinationRepresentation.levelsEntered(transition) - 1; i >= 0; i--) {
+            steps.addAll(entered[i].getEntryActions());
+        }
+    }
+
+    /**
+     * Run the steps until an asynchronous action is pending or all steps are done
+     */
+    @SuppressWarnings("unchecked")
+    void run() {
+        while (next < steps.size()) {
+            Object step = steps.get(next++);
+            try {
+                if (step == COMMIT) {
+                    machine.exited(sourceRepresentation, transition);
+                    machine.setState(transition.getDestination(), transition.getContext());
+                } else if (step instanceof StateRepresentation.AsyncExitAction) {
+                    if (!start(((StateRepresentation.AsyncExitAction<S, T, C>) step).action)) {
+                        return;
+                    }
+                } else if (step instanceof StateRepresentation.AsyncEntryAction) {
+                    if (!start(((StateRepresentation.AsyncEntryAction<S, T, C>) step).action)) {
+                        return;
+                    }
+                } else if (step instanceof Action1) {
+                    ((Action1<Transition<S, T, C>>) step).doIt(transition);
+                } else {
+                    StateRepresentation.execute((Action2<Transition<S, T, C>, Object[]>) step, transition, args);
+                }
+            } catch (RuntimeException | Error e) {
+                failure = e;
+            }
+            if (failure != null) {
+                fail(failure);
+                return;
+            }
+        }
+        try {
+            machine.entered(destinationRepresentation, transition);
+        } catch (RuntimeException | Error e) {
+            fail(e);
+            return;
+        }
+        machine.asyncFireEnded(transition.getContext());
+        completion.completed();
+    }
+
+    private void fail(Throwable e) {
+        machine.asyncFireEnded(transition.getContext());
+        completion.failed(e);
+    }
+
+    /**
+     * Start an asynchronous action
+     *
+     * @return True if it completed before returning, so the pipeline goes on in this call
+     */
+    private boolean start(AsyncAction1<Transition<S, T, C>> asyncAction) {
+        action.set(STARTING);
+        asyncAction.doIt(transition, this);
+        return !action.compareAndSet(STARTING, WAITING);
+    }
+
+    @Override
+    public void completed() {
+        resume();
+    }
+
+    @Override
+    public void failed(Throwable e) {
+        failure = e == null ? new IllegalStateException("An asynchronous action failed without a cause.") : e;
+        resume();
+    }
+
+    private void resume() {
+        if (action.compareAndSet(STARTING, COMPLETED)) {
+            // completed before the action returned: the loop in run() goes on
+            return;
+        }
+        if (failure != null) {
+            fail(failure);
+            return;
+        }
+        run();
+    }
+}
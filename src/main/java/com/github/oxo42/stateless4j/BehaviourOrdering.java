@@ -0,0 +1,167 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.triggers.TriggerBehaviour;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The order in which the guarded behaviours of the triggers of one state are evaluated, learned from which behaviour
+ * wins.
+ * <p>
+ * Each trigger with several behaviours counts the lookups it wins per behaviour. After a number of lookups it sorts
+ * its behaviours by their wins, most first, and stops counting. The learned order is only used when the state is
+ * trusted, where the first behaviour whose guard is met is taken; otherwise all guards are evaluated anyway to detect
+ * guards that are met together, and the order only serves to be exported.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ * @param <C> The type used to represent the context in which the state machine is being applied
+ */
+final class BehaviourOrdering<S, T, C> {
+
+    private final Map<T, Profile<S, T, C>> profiles = new HashMap<>();
+
+    /**
+     * @param behaviours The behaviours of the state, frozen
+     * @param warmUp     The number of lookups of a trigger after which its order is learned
+     */
+    BehaviourOrdering(Map<T, List<TriggerBehaviour<S, T, C>>> behaviours, long warmUp) {
+        for (Map.Entry<T, List<TriggerBehaviour<S, T, C>>> entry : behaviours.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                profiles.put(entry.getKey(), new Profile<>(entry.getValue(), warmUp));
+            }
+        }
+    }
+
+    /**
+     * The behaviours of a trigger in the order they should be evaluated
+     */
+    List<TriggerBehaviour<S, T, C>> order(T trigger, List<TriggerBehaviour<S, T, C>> behaviours) {
+        Profile<S, T, C> profile = profiles.get(trigger);
+        if (profile == null) {
+            return behaviours;
+        }
+        List<TriggerBehaviour<S, T, C>> learned = profile.learned;
+        return learned == null ? behaviours : learned;
+    }
+
+    /**
+     * Count a lookup of a trigger that found a behaviour
+     */
+    void record(T trigger, TriggerBehaviour<S, T, C> winner) {
+        Profile<S, T, C> profile = profiles.get(trigger);
+        if (profile != null && profile.learned == null) {
+            profile.record(winner);
+        }
+    }
+
+    /**
+     * @return The triggers whose order is learned, with the positions of their behaviours in configuration order,
+     * listed in the learned order
+     */
+    Map<T, List<Integer>> getLearned() {
+        Map<T, List<Integer>> learned = new HashMap<>();
+        for (Map.Entry<T, Profile<S, T, C>> entry : profiles.entrySet()) {
+            List<Integer> positions = entry.getValue().positions();
+            if (positions != null) {
+                learned.put(entry.getKey(), positions);
+            }
+        }
+        return learned;
+    }
+
+    /**
+     * Use an order learned earlier
+     *
+     * @param trigger   The trigger
+     * @param positions The positions of its behaviours in configuration order, listed in the order to use
+     */
+    void setLearned(T trigger, List<Integer> positions) {
+        Profile<S, T, C> profile = profiles.get(trigger);
+        if (profile == null) {
+            throw new IllegalArgumentException("The trigger '" + trigger + "' does not have several behaviours to order.");
+        }
+        profile.use(positions);
+    }
+
+    private static final class Profile<S, T, C> {
+
+        final List<TriggerBehaviour<S, T, C>> behaviours;
+        final long warmUp;
+        final AtomicLongArray wins;
+        final AtomicLong lookups = new AtomicLong();
+        volatile List<TriggerBehaviour<S, T, C>> learned; // null while counting
+
+        Profile(List<TriggerBehaviour<S, T, C>> behaviours, long warmUp) {
+            this.behaviours = behaviours;
+            this.warmUp = warmUp;
+            this.wins = new AtomicLongArray(behaviours.size());
+        }
+
+        void record(TriggerBehaviour<S, T, C> winner) {
+            for (int i = 0; i < behaviours.size(); i++) {
+                if (behaviours.get(i) == winner) {
+                    wins.incrementAndGet(i);
+                    break;
+                }
+            }
+            if (lookups.incrementAndGet() == warmUp) {
+                learn();
+            }
+        }
+
+        private void learn() {
+            List<Integer> positions = new ArrayList<>(behaviours.size());
+            for (int i = 0; i < behaviours.size(); i++) {
+                positions.add(i);
+            }
+            // stable, so behaviours that won equally keep their configuration order
+            Collections.sort(positions, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return Long.compare(wins.get(b), wins.get(a));
+                }
+            });
+            use(positions);
+        }
+
+        void use(List<Integer> positions) {
+            if (positions.size() != behaviours.size()) {
+                throw new IllegalArgumentException("An order must list each of the " + behaviours.size() + " behaviours once.");
+            }
+            boolean[] seen = new boolean[behaviours.size()];
+            List<TriggerBehaviour<S, T, C>> ordered = new ArrayList<>(behaviours.size());
+            for (Integer position : positions) {
+                if (position == null || position < 0 || position >= seen.length || seen[position]) {
+                    throw new IllegalArgumentException("An order must list each of the " + behaviours.size() + " behaviours once.");
+                }
+                seen[position] = true;
+                ordered.add(behaviours.get(position));
+            }
+            learned = Collections.unmodifiableList(ordered);
+        }
+
+        List<Integer> positions() {
+            List<TriggerBehaviour<S, T, C>> order = learned;
+            if (order == null) {
+                return null;
+            }
+            List<Integer> positions = new ArrayList<>(order.size());
+            for (TriggerBehaviour<S, T, C> behaviour : order) {
+                for (int i = 0; i < behaviours.size(); i++) {
+                    if (behaviours.get(i) == behaviour) {
+                        positions.add(i);
+                        break;
+                    }
+                }
+            }
+            return positions;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.AsyncAction1;
+import com.github.oxo42.stateless4j.delegates.Func2;
+import com.github.oxo42.stateless4j.delegates.FuncCondition;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Names the guards, actions, asynchronous actions, internal transition actions and destination selectors used by a StateMachineConfig, so that a serialized
+ * configuration can be bound back to code when it is read.
+ * <p>
+ * Register each delegate under a unique name and use the returned instance when configuring states.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ * @param <C> The type used to represent the context in which the state machine is being applied
+ */
+public class BindingRegistry<S, T, C> {
+
+    private final Map<String, Object> byName = new HashMap<>();
+    private final Map<Object, String> byInstance = new IdentityHashMap<>();
+
+    /**
+     * Register a guard under the given name
+     *
+     * @param name  Unique name of the guard
+     * @param guard The guard
+     * @return The registered guard
+     */
+    public FuncCondition<C> registerGuard(String name, FuncCondition<C> guard) {
+        register(name, guard);
+        return guard;
+    }
+
+    /**
+     * Register an entry or exit action under the given name
+     *
+     * @param name   Unique name of the action
+     * @param action The action
+     * @return The registered action
+     */
+    public Action1<Transition<S, T, C>> registerAction(String name, Action1<Transition<S, T, C>> action) {
+        register(name, action);
+        return action;
+    }
+
+    /**
+     * Register an asynchronous entry or exit action under the given name
+     *
+     * @param name   Unique name of the action
+     * @param action The action
+     * @return The registered action
+     */
+    public AsyncAction1<Transition<S, T, C>> registerAsyncAction(String name, AsyncAction1<Transition<S, T, C>> action) {
+        register(name, action);
+        return action;
+    }
+
+    /**
+     * Register the action of an internal transition under the given name
+     *
+     * @param name   Unique name of the action
+     * @param action The action
+     * @return The registered action
+     */
+    public Action1<C> registerInternalAction(String name, Action1<C> action) {
+        register(name, action);
+        return action;
+    }
+
+    /**
+     * Register a destination state selector under the given name
+     *
+     * @param name     Unique name of the selector
+     * @param selector The selector
+     * @return The registered selector
+     */
+    public Func2<C, S> registerSelector(String name, Func2<C, S> selector) {
+        register(name, selector);
+        return selector;
+    }
+
+    @SuppressWarnings("unchecked")
+    public FuncCondition<C> getGuard(String name) {
+        return (FuncCondition<C>) lookup(name, FuncCondition.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Action1<Transition<S, T, C>> getAction(String name) {
+        return (Action1<Transition<S, T, C>>) lookup(name, Action1.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    public AsyncAction1<Transition<S, T, C>> getAsyncAction(String name) {
+        return (AsyncAction1<Transition<S, T, C>>) lookup(name, AsyncAction1.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Action1<C> getInternalAction(String name) {
+        return (Action1<C>) lookup(name, Action1.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Func2<C, S> getSelector(String name) {
+        return (Func2<C, S>) lookup(name, Func2.class);
+    }
+
+    /**
+     * The name a delegate was registered under
+     *
+     * @param delegate The registered guard, action or selector
+     * @return The name of the delegate, or null if it was not registered
+     */
+    public String nameOf(Object delegate) {
+        return byInstance.get(delegate);
+    }
+
+    private void register(String name, Object delegate) {
+        assert name != null : "name is null";
+        assert delegate != null : "delegate is null";
+        if (byName.containsKey(name)) {
+            throw new IllegalStateException("A binding named '" + name + "' has already been registered.");
+        }
+        byName.put(name, delegate);
+        byInstance.put(delegate, name);
+    }
+
+    private Object lookup(String name, Class<?> kind) {
+        Object delegate = byName.get(name);
+        if (delegate == null) {
+            throw new IllegalStateException("No binding named '" + name + "' has been registered.");
+        }
+        if (!kind.isInstance(delegate)) {
+            throw new IllegalStateException("The binding named '" + name + "' is not a " + kind.getSimpleName() + ".");
+        }
+        return delegate;
+    }
+}
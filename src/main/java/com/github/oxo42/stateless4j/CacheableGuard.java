@@ -0,0 +1,41 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.FuncCondition;
+
+/**
+ * A guard whose result is remembered for the duration of one handler lookup.
+ * <p>
+ * While a state machine looks for the handler of a trigger, or collects the permitted triggers, each cacheable guard
+ * is evaluated at most once, however many triggers and superstate levels share it. The result is forgotten when the
+ * lookup ends, so the next fire evaluates the guard again. Outside a lookup the guard is simply evaluated.
+ *
+ * @param <C> The type used to represent the context in which the state machine is being applied
+ */
+public final class CacheableGuard<C> implements FuncCondition<C> {
+
+    private final FuncCondition<C> guard;
+
+    /**
+     * Make a guard cacheable
+     *
+     * @param guard The guard to evaluate at most once per lookup
+     */
+    public CacheableGuard(FuncCondition<C> guard) {
+        assert guard != null : "guard is null";
+        this.guard = guard;
+    }
+
+    @Override
+    public boolean check(C context) {
+        GuardScope scope = GuardScope.current();
+        if (scope == null) {
+            return guard.check(context);
+        }
+        Boolean cached = scope.get(this);
+        if (cached == null) {
+            cached = guard.check(context);
+            scope.put(this, cached);
+        }
+        return cached;
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.oxo42.stateless4j;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable map that keeps its entries in parallel arrays sorted by the hash codes of the keys.
+ * <p>
+ * Lookups are a binary search over the hash codes followed by an equality check, which for the handful of triggers a
+ * state usually handles is as fast as a hash table while taking a fraction of its memory.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+final class CompactMap<K, V> extends AbstractMap<K, V> {
+
+    private final int[] hashes;
+    private final Object[] keys;
+    private final Object[] values;
+
+    /**
+     * Copy a map
+     *
+     * @param map The entries
+     */
+    CompactMap(Map<? extends K, ? extends V> map) {
+        int size = map.size();
+        long[] order = new long[size];
+        Object[] unsortedKeys = new Object[size];
+        Object[] unsortedValues = new Object[size];
+        int i = 0;
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            unsortedKeys[i] = entry.getKey();
+            unsortedValues[i] = entry.getValue();
+            // the hash in the high bits and the position in the low bits, so that sorting keeps both together
+            order[i] = ((long) hash(entry.getKey()) << 32) | i;
+            i++;
+        }
+        Arrays.sort(order);
+        hashes = new int[size];
+        keys = new Object[size];
+        values = new Object[size];
+        for (i = 0; i < size; i++) {
+            int position = (int) order[i];
+            hashes[i] = (int) (order[i] >> 32);
+            keys[i] = unsortedKeys[position];
+            values[i] = unsortedValues[position];
+        }
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new Iterator<Map.Entry<K, V>>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < keys.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Map.Entry<K, V> next() {
+                        if (next >= keys.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Map.Entry<K, V> entry = new SimpleImmutableEntry<>((K) keys[next], (V) values[next]);
+                        next++;
+                        return entry;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+
+    private int indexOf(Object key) {
+        int hash = hash(key);
+        int index = Arrays.binarySearch(hashes, hash);
+        if (index < 0) {
+            return -1;
+        }
+        while (index > 0 && hashes[index - 1] == hash) {
+            index--;
+        }
+        for (; index < hashes.length && hashes[index] == hash; index++) {
+            if (key == null ? keys[index] == null : key.equals(keys[index])) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static int hash(Object key) {
+        return key == null ? 0 : key.hashCode();
+    }
+}
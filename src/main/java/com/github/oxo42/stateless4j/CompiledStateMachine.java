@@ -0,0 +1,360 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.delegates.Func2;
+import com.github.oxo42.stateless4j.delegates.FuncCondition;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.transitions.TransitioningTriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.IgnoredTriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.InternalTriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.TriggerArguments;
+import com.github.oxo42.stateless4j.triggers.TriggerBehaviour;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A state machine whose fire dispatcher is compiled from a frozen configuration.
+ * <p>
+ * When states and triggers are enums, the handlers of every state and trigger, including those inherited from
+ * superstates, are compiled into one {@link MethodHandle} tree per pair, looked up by ordinal. Static destinations,
+ * ignored triggers and internal transitions are folded into constants and every guard is bound into the tree, so a
+ * fire only evaluates the guards of the pair and does not search the superstates for a handler. Trusted
+ * configurations take the first behaviour whose guard is met, others check that the guards of a state are mutually
+ * exclusive, as the interpreter does; the states and triggers for which an adaptive order is enabled are looked up
+ * through their representation, which applies and learns the order.
+ * <p>
+ * The trees are read from a table when the trigger is fired, not from a constant, so the JIT compiles each tree on its
+ * own rather than inlining it into the caller. Any other configuration is run by the interpreting
+ * {@link StateMachine}.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ * @param <C> The type used to represent the context in which the state machine is being applied
+ */
+public class CompiledStateMachine<S, T, C> extends StateMachine<S, T, C> {
+
+    private static final Object UNHANDLED = new Object();
+    private static final Object IGNORED = new Object();
+    private static final Object HANDLED = new Object();
+
+    private static final MethodHandle CHECK;
+    private static final MethodHandle IS_ORDERED;
+    private static final MethodHandle RESOLVE_ORDERED;
+    private static final MethodHandle RESOLVE_BEHAVIOUR;
+    private static final MethodHandle AMBIGUOUS;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            CHECK = lookup.findVirtual(FuncCondition.class, "check", MethodType.methodType(boolean.class, Object.class));
+            IS_ORDERED = lookup.findStatic(CompiledStateMachine.class, "isOrdered", MethodType.methodType(
+                    boolean.class, StateRepresentation.class, Object.class, TriggerArguments.class));
+            RESOLVE_ORDERED = lookup.findStatic(CompiledStateMachine.class, "resolveOrdered", MethodType.methodType(
+                    Object.class, StateRepresentation.class, Object.class, Object.class, boolean.class, MethodHandle.class, Object.class, TriggerArguments.class));
+            RESOLVE_BEHAVIOUR = lookup.findStatic(CompiledStateMachine.class, "resolveBehaviour", MethodType.methodType(
+                    Object.class, TriggerBehaviour.class, Object.class, Object.class, TriggerArguments.class));
+            AMBIGUOUS = lookup.findStatic(CompiledStateMachine.class, "ambiguous", MethodType.methodType(
+                    Object.class, Object.class, Object.class, Object.class, TriggerArguments.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final MethodHandle[] dispatchers;
+    private final MethodHandle[] probes;
+    private final StateRepresentation<S, T, C>[] representations;
+    private final int triggerCount;
+
+    /**
+     * Construct a compiled state machine with external state storage.
+     *
+     * @param stateAccessor State accessor
+     * @param stateMutator  State mutator
+     * @param config        State machine configuration, which must be frozen
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public CompiledStateMachine(Func2<C, S> stateAccessor, Action2<S, C> stateMutator, StateMachineConfig<S, T, C> config) {
+        super(stateAccessor, stateMutator, config);
+        if (!config.isFrozen()) {
+            throw new IllegalStateException("The configuration must be frozen before it can be compiled.");
+        }
+
+        Class<?> stateType = enumTypeOfStates(config);
+        Class<?> triggerType = enumTypeOfTriggers(config);
+        if (stateType == null || triggerType == null) {
+            dispatchers = null;
+            probes = null;
+            representations = null;
+            triggerCount = 0;
+            return;
+        }
+
+        int stateCount = stateType.getEnumConstants().length;
+        triggerCount = triggerType.getEnumConstants().length;
+        representations = new StateRepresentation[stateCount];
+        dispatchers = new MethodHandle[stateCount * triggerCount];
+        probes = new MethodHandle[stateCount * triggerCount];
+        for (StateRepresentation<S, T, C> representation : config.getRepresentations()) {
+            int state = ((Enum<?>) representation.getUnderlyingState()).ordinal();
+            representations[state] = representation;
+            for (Object trigger : triggerType.getEnumConstants()) {
+                int index = state * triggerCount + ((Enum<?>) trigger).ordinal();
+                dispatchers[index] = compile(representation, (T) trigger, false);
+                probes[index] = compile(representation, (T) trigger, true);
+            }
+        }
+    }
+
+    /**
+     * True if the configuration could be compiled, false if it is interpreted
+     *
+     * @return True if the configuration could be compiled
+     */
+    public boolean isCompiled() {
+        return dispatchers != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void publicFire(T trigger, C context, TriggerArguments args) {
+        if (dispatchers == null) {
+            super.publicFire(trigger, context, args);
+            return;
+        }
+
+        validateParameters(trigger, args);
+
+        S source = getState(context);
+        Object result = dispatch(dispatchers, source, trigger, context, args);
+        if (result == UNHANDLED) {
+            unhandledTriggerAction.doIt(source, trigger, context);
+            return;
+        }
+        if (result == IGNORED) {
+            return;
+        }
+        if (result instanceof InternalTriggerBehaviour) {
+            // the lookup has closed, so guards the action evaluates are not answered from its cache
+            ((InternalTriggerBehaviour<S, T, C>) result).execute(context, args);
+            return;
+        }
+
+        S destination = (S) result;
+        Transition<S, T, C> transition = new Transition<>(source, destination, trigger, context);
+        StateRepresentation<S, T, C> sourceRepresentation = representations[((Enum<?>) source).ordinal()];
+        sourceRepresentation.exit(transition);
+        exited(sourceRepresentation, transition);
+        stateMutator.doIt(destination, context);
+        StateRepresentation<S, T, C> destinationRepresentation = representations[((Enum<?>) destination).ordinal()];
+        if (destinationRepresentation != null) {
+            destinationRepresentation.enter(transition, args);
+        }
+        entered(destinationRepresentation, transition);
+    }
+
+    @Override
+    public boolean canFire(T trigger, C context) {
+        if (dispatchers == null) {
+            return super.canFire(trigger, context);
+        }
+        return dispatch(probes, getState(context), trigger, context, TriggerArguments.NONE) != UNHANDLED;
+    }
+
+    private Object dispatch(MethodHandle[] table, S source, T trigger, C context, TriggerArguments args) {
+        MethodHandle dispatcher = table[((Enum<?>) source).ordinal() * triggerCount + ((Enum<?>) trigger).ordinal()];
+        if (dispatcher == null) {
+            return UNHANDLED;
+        }
+        GuardScope scope = GuardScope.open();
+        try {
+            return (Object) dispatcher.invokeExact((Object) context, args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        } finally {
+            scope.close();
+        }
+    }
+
+    /**
+     * Compile the handlers of a trigger in a state and its superstates into one dispatcher
+     *
+     * @param probe True to only find out whether the trigger is handled, without selecting a destination
+     * @return A handle of type {@code (Object context, TriggerArguments args) -> Object}, or null if the trigger is unhandled
+     */
+    private MethodHandle compile(StateRepresentation<S, T, C> representation, T trigger, boolean probe) {
+        List<StateRepresentation<S, T, C>> levels = new ArrayList<>();
+        for (StateRepresentation<S, T, C> level = representation; level != null; level = level.getSuperstate()) {
+            List<TriggerBehaviour<S, T, C>> behaviours = level.getTriggerBehaviours().get(trigger);
+            if (behaviours != null && !behaviours.isEmpty()) {
+                levels.add(level);
+            }
+        }
+        if (levels.isEmpty()) {
+            return null;
+        }
+
+        S source = representation.getUnderlyingState();
+        MethodHandle next = constant(UNHANDLED);
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            StateRepresentation<S, T, C> level = levels.get(i);
+            List<TriggerBehaviour<S, T, C>> behaviours = level.getTriggerBehaviours().get(trigger);
+            MethodHandle[] results = new MethodHandle[behaviours.size()];
+            for (int b = 0; b < results.length; b++) {
+                results[b] = probe ? constant(HANDLED) : result(source, behaviours.get(b));
+            }
+            MethodHandle compiled = level.isTrusted()
+                    ? firstMet(behaviours, results, 0, next)
+                    : exclusive(level.getUnderlyingState(), trigger, behaviours, results, 0, next);
+            if (behaviours.size() > 1) {
+                // the order of several behaviours can be learned once the machine runs
+                MethodHandle ordered = MethodHandles.insertArguments(RESOLVE_ORDERED, 0, level, trigger, source, probe, next);
+                compiled = MethodHandles.guardWithTest(IS_ORDERED.bindTo(level), ordered, compiled);
+            }
+            next = compiled;
+        }
+        return next;
+    }
+
+    /**
+     * The result of the first behaviour from the given one whose guard is met, or next if none is
+     */
+    private static MethodHandle firstMet(List<? extends TriggerBehaviour<?, ?, ?>> behaviours, MethodHandle[] results, int from, MethodHandle next) {
+        if (from == results.length) {
+            return next;
+        }
+        FuncCondition<?> guard = behaviours.get(from).getGuard();
+        if (guard == StateConfiguration.ALWAYS) {
+            return results[from];
+        }
+        return MethodHandles.guardWithTest(guard(guard), results[from], firstMet(behaviours, results, from + 1, next));
+    }
+
+    /**
+     * The result of the behaviour from the given one whose guard is met, or next if none is. Every guard is evaluated
+     * once, and a guard met together with a later one is an error
+     */
+    private static MethodHandle exclusive(Object state, Object trigger, List<? extends TriggerBehaviour<?, ?, ?>> behaviours,
+            MethodHandle[] results, int from, MethodHandle next) {
+        if (from == results.length) {
+            return next;
+        }
+        MethodHandle result = results[from];
+        if (from + 1 < results.length) {
+            result = MethodHandles.guardWithTest(anyMet(behaviours, from + 1),
+                    MethodHandles.insertArguments(AMBIGUOUS, 0, state, trigger), result);
+        }
+        FuncCondition<?> guard = behaviours.get(from).getGuard();
+        return guard == StateConfiguration.ALWAYS
+                ? result
+                : MethodHandles.guardWithTest(guard(guard), result, exclusive(state, trigger, behaviours, results, from + 1, next));
+    }
+
+    /**
+     * Whether the guard of any behaviour from the given one is met
+     */
+    private static MethodHandle anyMet(List<? extends TriggerBehaviour<?, ?, ?>> behaviours, int from) {
+        FuncCondition<?> guard = behaviours.get(from).getGuard();
+        MethodHandle met = guard == StateConfiguration.ALWAYS ? constant(true) : guard(guard);
+        return from + 1 == behaviours.size() ? met : MethodHandles.guardWithTest(met, constant(true), anyMet(behaviours, from + 1));
+    }
+
+    private static MethodHandle constant(Object value) {
+        return MethodHandles.dropArguments(MethodHandles.constant(Object.class, value), 0, Object.class, TriggerArguments.class);
+    }
+
+    private static MethodHandle constant(boolean value) {
+        return MethodHandles.dropArguments(MethodHandles.constant(boolean.class, value), 0, Object.class, TriggerArguments.class);
+    }
+
+    private static MethodHandle guard(FuncCondition<?> guard) {
+        return MethodHandles.dropArguments(CHECK.bindTo(guard), 1, TriggerArguments.class);
+    }
+
+    private static MethodHandle result(Object source, TriggerBehaviour<?, ?, ?> behaviour) {
+        if (behaviour instanceof TransitioningTriggerBehaviour) {
+            return constant(((TransitioningTriggerBehaviour<?, ?, ?>) behaviour).getDestination());
+        }
+        if (behaviour instanceof IgnoredTriggerBehaviour) {
+            return constant(IGNORED);
+        }
+        if (behaviour instanceof InternalTriggerBehaviour) {
+            return constant(behaviour);
+        }
+        return MethodHandles.insertArguments(RESOLVE_BEHAVIOUR, 0, behaviour, source);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object resolveBehaviour(TriggerBehaviour behaviour, Object source, Object context, TriggerArguments args) {
+        if (behaviour instanceof InternalTriggerBehaviour) {
+            return behaviour;
+        }
+        OutVar<Object> destination = new OutVar<>();
+        return behaviour.resultsInTransitionFrom(source, context, args, destination) ? destination.get() : IGNORED;
+    }
+
+    private static boolean isOrdered(StateRepresentation<?, ?, ?> level, Object context, TriggerArguments args) {
+        return level.getOrdering() != null;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object resolveOrdered(StateRepresentation level, Object trigger, Object source, boolean probe,
+            MethodHandle next, Object context, TriggerArguments args) throws Throwable {
+        TriggerBehaviour match = level.tryFindLocalHandler(trigger, context, true, null);
+        if (match == null) {
+            return (Object) next.invokeExact(context, args);
+        }
+        return probe ? HANDLED : resolveBehaviour(match, source, context, args);
+    }
+
+    private static Object ambiguous(Object state, Object trigger, Object context, TriggerArguments args) {
+        throw new IllegalStateException("Multiple permitted exit transitions are configured from state '" + state + "' for trigger '" + trigger + "'. Guard clauses must be mutually exclusive.");
+    }
+
+    private static Class<?> enumTypeOfStates(StateMachineConfig<?, ?, ?> config) {
+        Class<?> type = null;
+        for (StateRepresentation<?, ?, ?> representation : config.getRepresentations()) {
+            type = enumType(type, representation.getUnderlyingState());
+            for (List<? extends TriggerBehaviour<?, ?, ?>> behaviours : representation.getTriggerBehaviours().values()) {
+                for (TriggerBehaviour<?, ?, ?> behaviour : behaviours) {
+                    if (behaviour instanceof TransitioningTriggerBehaviour) {
+                        type = enumType(type, ((TransitioningTriggerBehaviour<?, ?, ?>) behaviour).getDestination());
+                    }
+                }
+            }
+            if (type == Object.class) {
+                return null;
+            }
+        }
+        return type;
+    }
+
+    private static Class<?> enumTypeOfTriggers(StateMachineConfig<?, ?, ?> config) {
+        Class<?> type = null;
+        for (StateRepresentation<?, ?, ?> representation : config.getRepresentations()) {
+            for (Object trigger : representation.getTriggerBehaviours().keySet()) {
+                type = enumType(type, trigger);
+            }
+            if (type == Object.class) {
+                return null;
+            }
+        }
+        return type;
+    }
+
+    /**
+     * @return The enum class shared by the value and the type found so far, or Object.class if there is none
+     */
+    private static Class<?> enumType(Class<?> type, Object value) {
+        if (type == Object.class || !(value instanceof Enum)) {
+            return Object.class;
+        }
+        Class<?> valueType = ((Enum<?>) value).getDeclaringClass();
+        return type == null || type == valueType ? valueType : Object.class;
+    }
+}
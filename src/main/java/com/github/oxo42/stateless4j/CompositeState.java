@@ -0,0 +1,52 @@
+package com.github.oxo42.stateless4j;
+
+import java.util.Arrays;
+
+/**
+ * The state of a context in a configuration with orthogonal regions: for each {@link Region}, the position of the
+ * current state within that region. Immutable
+ */
+public final class CompositeState {
+
+    private final int[] positions;
+
+    CompositeState(int[] positions) {
+        this.positions = positions;
+    }
+
+    /**
+     * @return The number of regions
+     */
+    public int size() {
+        return positions.length;
+    }
+
+    /**
+     * The position of the current state within a region
+     *
+     * @param region The index of the region
+     * @return The position of the current state
+     */
+    public int get(int region) {
+        return positions[region];
+    }
+
+    int[] positions() {
+        return positions.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CompositeState && Arrays.equals(positions, ((CompositeState) o).positions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(positions);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(positions);
+    }
+}
@@ -0,0 +1,253 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Func3;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of configurations keyed by definition id and version, for applications that build many variants of
+ * a workflow of which only some are in use at a time.
+ * <p>
+ * A configuration is built by the loader the first time it is asked for and frozen before it is handed out. When several
+ * threads ask for a configuration that is not cached yet, one of them builds it and the others wait for it. When the
+ * cache holds more than its maximum number of configurations, it discards one according to its eviction policy; a
+ * discarded configuration is built again when it is next asked for.
+ * <p>
+ * The configurations are kept in order of use under one lock, which is held only to look up, add or discard an entry.
+ * Under {@link EvictionPolicy#LRU} the least recently used configuration is discarded. Under
+ * {@link EvictionPolicy#LFU} the least frequently used of the {@value #LFU_SAMPLE} least recently used ones is, and
+ * the use counts are halved every time the cache has been asked {@value #AGING_PERIOD} times its maximum size, so
+ * that configurations that were popular once do not stay forever.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ * @param <C> The type used to represent the context in which the state machine is being applied
+ */
+public class ConfigCache<S, T, C> {
+
+    static final int LFU_SAMPLE = 16;
+    static final int AGING_PERIOD = 8;
+
+    private final int maximumSize;
+    private final EvictionPolicy evictionPolicy;
+    private final Func3<String, Long, StateMachineConfig<S, T, C>> loader;
+    private final Map<Key, Entry<S, T, C>> entries = new LinkedHashMap<>(16, 0.75f, true); // guarded by itself, least recently used first
+    private long usesUntilAging; // guarded by entries
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Construct a cache
+     *
+     * @param maximumSize    The maximum number of configurations to keep
+     * @param evictionPolicy Which configuration to discard when the cache is full
+     * @param loader         Builds the configuration of a definition id and version
+     */
+    public ConfigCache(int maximumSize, EvictionPolicy evictionPolicy, Func3<String, Long, StateMachineConfig<S, T, C>> loader) {
+        assert evictionPolicy != null : "evictionPolicy is null";
+        assert loader != null : "loader is null";
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("The maximum size must be at least 1.");
+        }
+        this.maximumSize = maximumSize;
+        this.evictionPolicy = evictionPolicy;
+        this.loader = loader;
+        this.usesUntilAging = (long) AGING_PERIOD * maximumSize;
+    }
+
+    /**
+     * The configuration of a definition, built if it is not cached
+     *
+     * @param definitionId The id of the definition
+     * @param version      The version of the definition
+     * @return The frozen configuration
+     */
+    public StateMachineConfig<S, T, C> get(String definitionId, long version) {
+        Key key = new Key(definitionId, version);
+        Entry<S, T, C> entry;
+        boolean created = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry<>(loadTask(definitionId, version));
+                entries.put(key, entry);
+                created = true;
+                evict();
+            }
+            entry.uses++;
+            age();
+        }
+        if (created) {
+            misses.incrementAndGet();
+            entry.task.run();
+        } else {
+            hits.incrementAndGet();
+        }
+        return await(key, entry);
+    }
+
+    /**
+     * Discard the configuration of a definition, so that it is built again when it is next asked for
+     *
+     * @param definitionId The id of the definition
+     * @param version      The version of the definition
+     */
+    public void invalidate(String definitionId, long version) {
+        synchronized (entries) {
+            entries.remove(new Key(definitionId, version));
+        }
+    }
+
+    /**
+     * @return The number of cached configurations, including those being built
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return The number of requests answered from the cache or by waiting for another thread to build the
+     * configuration
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of requests that built a configuration
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return The number of configurations discarded to keep the cache within its maximum size
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private FutureTask<StateMachineConfig<S, T, C>> loadTask(final String definitionId, final long version) {
+        return new FutureTask<>(new Callable<StateMachineConfig<S, T, C>>() {
+            @Override
+            public StateMachineConfig<S, T, C> call() {
+                StateMachineConfig<S, T, C> config = loader.call(definitionId, version);
+                if (config == null) {
+                    throw new IllegalStateException(String.format(
+                            "No configuration was built for definition '%s' version %d.", definitionId, version));
+                }
+                if (!config.isFrozen()) {
+                    config.freeze();
+                }
+                return config;
+            }
+        });
+    }
+
+    private StateMachineConfig<S, T, C> await(Key key, Entry<S, T, C> entry) {
+        try {
+            return entry.task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a configuration to be built.", e);
+        } catch (ExecutionException e) {
+            // a failed build is not cached, the next request tries again
+            synchronized (entries) {
+                if (entries.get(key) == entry) {
+                    entries.remove(key);
+                }
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Discard configurations until the cache is within its maximum size, never those still being built. Called
+     * holding the lock of the entries
+     */
+    private void evict() {
+        while (entries.size() > maximumSize) {
+            Map.Entry<Key, Entry<S, T, C>> victim = null;
+            int sampled = 0;
+            for (Map.Entry<Key, Entry<S, T, C>> candidate : entries.entrySet()) {
+                if (!candidate.getValue().task.isDone()) {
+                    continue;
+                }
+                if (victim == null || candidate.getValue().uses < victim.getValue().uses) {
+                    victim = candidate;
+                }
+                if (evictionPolicy == EvictionPolicy.LRU || ++sampled == LFU_SAMPLE) {
+                    break;
+                }
+            }
+            if (victim == null) {
+                return;
+            }
+            entries.remove(victim.getKey());
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Halve the use counts once per aging period. Called holding the lock of the entries
+     */
+    private void age() {
+        if (evictionPolicy != EvictionPolicy.LFU || --usesUntilAging > 0) {
+            return;
+        }
+        for (Entry<S, T, C> entry : entries.values()) {
+            entry.uses >>>= 1;
+        }
+        usesUntilAging = (long) AGING_PERIOD * maximumSize;
+    }
+
+    private static final class Key {
+
+        private final String definitionId;
+        private final long version;
+
+        Key(String definitionId, long version) {
+            assert definitionId != null : "definitionId is null";
+            this.definitionId = definitionId;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return version == other.version && definitionId.equals(other.definitionId);
+        }
+
+        @Override
+        public int hashCode() {
+            return definitionId.hashCode() * 31 + (int) (version ^ (version >>> 32));
+        }
+    }
+
+    private static final class Entry<S, T, C> {
+
+        final FutureTask<StateMachineConfig<S, T, C>> task;
+        long uses; // guarded by the entries of the cache
+
+        Entry(FutureTask<StateMachineConfig<S, T, C>> task) {
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Func2;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the live version of a state machine configuration, which can be replaced while state machines use it.
+ * <p>
+ * Each published configuration must be frozen, so a version never changes once it is visible. A state machine
+ * constructed with a holder reads the current version once at the start of each fire and uses that version until the
+ * fire is done, so a fire in progress while a new version is published finishes on the version it started with. Reading
+ * the version is a single volatile read; publishing never blocks a fire.
+ * <p>
+ * A new version may no longer configure some states. A context that is still in such a state is moved by the
+ * migration given when the version was published, the next time a trigger is fired for it. The migration is applied
+ * when the version is published, to every state of the earlier versions that the new one does not configure, on top
+ * of the migrations of those versions, so a context that missed several versions ends up in a state of the current
+ * one. A version therefore keeps one mapping per state it no longer configures, however many versions were
+ * published before it, and moving a context is a single map lookup.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ * @param <C> The type used to represent the context in which the state machine is being applied
+ */
+public final class ConfigHolder<S, T, C> {
+
+    private final AtomicReference<Version<S, T, C>> current;
+
+    /**
+     * Construct a holder
+     *
+     * @param config The first version of the configuration, which must be frozen
+     */
+    public ConfigHolder(StateMachineConfig<S, T, C> config) {
+        requireFrozen(config);
+        current = new AtomicReference<>(new Version<>(config, 1, states(config), Collections.<S, S>emptyMap()));
+    }
+
+    /**
+     * Make a configuration the current version, for configurations that keep all the states of the previous one
+     *
+     * @param config The new configuration, which must be frozen
+     * @return The number of the new version
+     */
+    public long publish(StateMachineConfig<S, T, C> config) {
+        return publish(config, null);
+    }
+
+    /**
+     * Make a configuration the current version
+     *
+     * @param config    The new configuration, which must be frozen
+     * @param migration Maps each state that the new configuration no longer configures to the state a context in it
+     *                  is moved to; returning the state unchanged keeps it. Called while publishing, for each such
+     *                  state of the earlier versions. Null to keep all states
+     * @return The number of the new version
+     */
+    public long publish(StateMachineConfig<S, T, C> config, Func2<S, S> migration) {
+        requireFrozen(config);
+        Set<S> states = states(config);
+        while (true) {
+            Version<S, T, C> previous = current.get();
+            Version<S, T, C> next = new Version<>(config, previous.number + 1, states,
+                    migrations(previous, states, migration));
+            if (current.compareAndSet(previous, next)) {
+                return next.number;
+            }
+        }
+    }
+
+    /**
+     * @return The current version
+     */
+    public Version<S, T, C> current() {
+        return current.get();
+    }
+
+    /**
+     * @return The configuration of the current version
+     */
+    public StateMachineConfig<S, T, C> getConfig() {
+        return current.get().config;
+    }
+
+    /**
+     * @return The number of the current version, starting at 1
+     */
+    public long getVersion() {
+        return current.get().number;
+    }
+
+    private static void requireFrozen(StateMachineConfig<?, ?, ?> config) {
+        assert config != null : "config is null";
+        if (!config.isFrozen()) {
+            throw new IllegalStateException("A configuration must be frozen before it can be published.");
+        }
+    }
+
+    /**
+     * Where each state of the earlier versions that a new version does not configure is moved to in it
+     */
+    private static <S, T, C> Map<S, S> migrations(Version<S, T, C> previous, Set<S> states, Func2<S, S> step) {
+        Map<S, S> migrations = new HashMap<>();
+        for (Map.Entry<S, S> migration : previous.migrations.entrySet()) {
+            migrate(migrations, migration.getKey(), migration.getValue(), states, step);
+        }
+        for (S state : previous.states) {
+            migrate(migrations, state, state, states, step);
+        }
+        return migrations;
+    }
+
+    private static <S> void migrate(Map<S, S> migrations, S state, S target, Set<S> states, Func2<S, S> step) {
+        if (states.contains(state)) {
+            // configured again, a context in it stays
+            return;
+        }
+        if (step != null && !states.contains(target)) {
+            target = step.call(target);
+        }
+        // kept even if unchanged, so that the migration of a later version still sees the state
+        migrations.put(state, target);
+    }
+
+    private static <S, T, C> Set<S> states(StateMachineConfig<S, T, C> config) {
+        Set<S> states = new HashSet<>();
+        for (StateRepresentation<S, T, C> representation : config.getRepresentations()) {
+            states.add(representation.getUnderlyingState());
+        }
+        return states;
+    }
+
+    /**
+     * One published configuration, together with the way to bring states of earlier versions into it
+     *
+     * @param <S> The type used to represent the states
+     * @param <T> The type used to represent the triggers that cause state transitions
+     * @param <C> The type used to represent the context in which the state machine is being applied
+     */
+    public static final class Version<S, T, C> {
+
+        private final StateMachineConfig<S, T, C> config;
+        private final long number;
+        private final Set<S> states;
+        private final Map<S, S> migrations; // never changed once published
+
+        Version(StateMachineConfig<S, T, C> config, long number, Set<S> states, Map<S, S> migrations) {
+            this.config = config;
+            this.number = number;
+            this.states = states;
+            this.migrations = migrations;
+        }
+
+        public StateMachineConfig<S, T, C> getConfig() {
+            return config;
+        }
+
+        public long getNumber() {
+            return number;
+        }
+
+        /**
+         * Map a state of an earlier version to the state of this version a context in it is moved to
+         *
+         * @param state The state
+         * @return The state to move to, or the given state if it is kept
+         */
+        public S migrate(S state) {
+            S migrated = migrations.get(state);
+            return migrated == null ? state : migrated;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.oxo42.stateless4j;
+
+/**
+ * A problem found in a state machine configuration by {@link ConfigurationValidator}
+ */
+public final class ConfigurationProblem {
+
+    /**
+     * The kinds of problems. Errors make a configuration invalid, warnings describe configurations that are legal but
+     * often unintended
+     */
+    public enum Kind {
+        /**
+         * A state is its own superstate, directly or through other states
+         */
+        HIERARCHY_CYCLE(true),
+        /**
+         * A state both ignores and permits a trigger
+         */
+        IGNORED_AND_PERMITTED(true),
+        /**
+         * A state has more than one unguarded behaviour for a trigger
+         */
+        AMBIGUOUS_TRIGGER(true),
+        /**
+         * An entry action expects other arguments than the trigger is configured with
+         */
+        ARITY_MISMATCH(true),
+        /**
+         * A configured state cannot be reached from the initial state
+         */
+        UNREACHABLE_STATE(false),
+        /**
+         * A reachable state has no transition out of it
+         */
+        DEAD_END_STATE(false);
+
+        private final boolean error;
+
+        Kind(boolean error) {
+            this.error = error;
+        }
+
+        public boolean isError() {
+            return error;
+        }
+    }
+
+    private final Kind kind;
+    private final Object state;
+    private final Object trigger;
+    private final String message;
+
+    ConfigurationProblem(Kind kind, Object state, Object trigger, String message) {
+        this.kind = kind;
+        this.state = state;
+        this.trigger = trigger;
+        this.message = message;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public boolean isError() {
+        return kind.isError();
+    }
+
+    /**
+     * @return The state the problem was found in
+     */
+    public Object getState() {
+        return state;
+    }
+
+    /**
+     * @return The trigger involved, or null
+     */
+    public Object getTrigger() {
+        return trigger;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return kind + ": " + message;
+    }
+}
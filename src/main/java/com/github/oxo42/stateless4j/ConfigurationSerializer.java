@@ -0,0 +1,454 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.delegates.Func2;
+import com.github.oxo42.stateless4j.delegates.Func3;
+import com.github.oxo42.stateless4j.delegates.FuncCondition;
+import com.github.oxo42.stateless4j.timers.StateTimeout;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.transitions.TransitioningTriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.DynamicTriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.IgnoredTriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.InternalTriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.TriggerArguments;
+import com.github.oxo42.stateless4j.triggers.TriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the static shape of a StateMachineConfig to a compact binary form and reads it back.
+ * <p>
+ * The states, the state hierarchy, trigger parameter types, permitted, re-entrant, internal and ignored triggers,
+ * dynamic transitions, state timeouts and orthogonal regions are stored. Guards, actions, including asynchronous
+ * ones, and destination selectors are stored by the name they were given in a {@link BindingRegistry} and are bound
+ * again from the registry when the configuration is read. Delegates that take trigger parameters cannot be named and
+ * are rejected.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ * @param <C> The type used to represent the context in which the state machine is being applied
+ */
+public class ConfigurationSerializer<S, T, C> {
+
+    private static final int MAGIC = 0x53344A43;
+    private static final byte VERSION = 1;
+
+    private static final byte ACTION = 0;
+    private static final byte ASYNC_ACTION = 1;
+
+    private static final byte TRANSITION = 0;
+    private static final byte IGNORE = 1;
+    private static final byte DYNAMIC = 2;
+    private static final byte INTERNAL = 3;
+
+    private static final Map<String, Class<?>> PRIMITIVES = new HashMap<>();
+
+    static {
+        for (Class<?> primitive : new Class<?>[]{boolean.class, byte.class, char.class, short.class, int.class,
+                long.class, float.class, double.class}) {
+            PRIMITIVES.put(primitive.getName(), primitive);
+        }
+    }
+
+    private final Func2<String, S> stateParser;
+    private final Func2<String, T> triggerParser;
+    private final BindingRegistry<S, T, C> registry;
+
+    /**
+     * Construct a serializer. States and triggers are written using {@code String.valueOf}
+     *
+     * @param stateParser   Converts a written state back to a state
+     * @param triggerParser Converts a written trigger back to a trigger
+     * @param registry      Names of the guards, actions and selectors used by the configuration
+     */
+    public ConfigurationSerializer(Func2<String, S> stateParser, Func2<String, T> triggerParser, BindingRegistry<S, T, C> registry) {
+        assert stateParser != null : "stateParser is null";
+        assert triggerParser != null : "triggerParser is null";
+        assert registry != null : "registry is null";
+        this.stateParser = stateParser;
+        this.triggerParser = triggerParser;
+        this.registry = registry;
+    }
+
+    /**
+     * Construct a serializer for enum states and triggers, which are written by name
+     *
+     * @param stateType   The state enum
+     * @param triggerType The trigger enum
+     * @param registry    Names of the guards, actions and selectors used by the configuration
+     * @param <S>         The type used to represent the states
+     * @param <T>         The type used to represent the triggers that cause state transitions
+     * @param <C>         The type used to represent the context in which the state machine is being applied
+     * @return A serializer for the enums
+     */
+    public static <S extends Enum<S>, T extends Enum<T>, C> ConfigurationSerializer<S, T, C> forEnums(
+            final Class<S> stateType, final Class<T> triggerType, BindingRegistry<S, T, C> registry) {
+        return new ConfigurationSerializer<S, T, C>(new Func2<String, S>() {
+            @Override
+            public S call(String name) {
+                return Enum.valueOf(stateType, name);
+            }
+        }, new Func2<String, T>() {
+            @Override
+            public T call(String name) {
+                return Enum.valueOf(triggerType, name);
+            }
+        }, registry) {
+            @Override
+            protected String encode(Object value) {
+                return ((Enum<?>) value).name();
+            }
+        };
+    }
+
+    /**
+     * Convert a state or trigger to the string that is written
+     *
+     * @param value The state or trigger
+     * @return The written form of the value
+     */
+    protected String encode(Object value) {
+        return String.valueOf(value);
+    }
+
+    /**
+     * Write the configuration
+     *
+     * @param config The configuration to write
+     * @param output The stream to write to. Not closed by this method
+     * @throws IOException On write failure
+     */
+    public void write(StateMachineConfig<S, T, C> config, OutputStream output) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+
+        Collection<TriggerWithParameters<T>> triggerConfigurations = config.getTriggerConfigurations();
+        out.writeInt(triggerConfigurations.size());
+        for (TriggerWithParameters<T> triggerConfiguration : triggerConfigurations) {
+            out.writeInt(index(strings, encode(triggerConfiguration.getTrigger())));
+            Class<?>[] argumentTypes = triggerConfiguration.getArgumentTypes();
+            out.writeByte(argumentTypes.length);
+            for (Class<?> argumentType : argumentTypes) {
+                out.writeInt(index(strings, argumentType.getName()));
+            }
+        }
+
+        Collection<StateRepresentation<S, T, C>> representations = config.getRepresentations();
+        out.writeInt(representations.size());
+        for (StateRepresentation<S, T, C> representation : representations) {
+            S state = representation.getUnderlyingState();
+            out.writeInt(index(strings, encode(state)));
+            StateRepresentation<S, T, C> superstate = representation.getSuperstate();
+            out.writeInt(superstate == null ? -1 : index(strings, encode(superstate.getUnderlyingState())));
+
+            List<Action2<Transition<S, T, C>, Object[]>> entryActions = representation.getEntryActions();
+            out.writeInt(entryActions.size());
+            for (Action2<Transition<S, T, C>, Object[]> entryAction : entryActions) {
+                int trigger = -1;
+                Action2<Transition<S, T, C>, Object[]> action = entryAction;
+                if (action instanceof StateRepresentation.TriggeredEntryAction) {
+                    StateRepresentation.TriggeredEntryAction<S, T, C> triggered = (StateRepresentation.TriggeredEntryAction<S, T, C>) action;
+                    trigger = index(strings, encode(triggered.trigger));
+                    action = triggered.action;
+                }
+                if (action instanceof StateRepresentation.AsyncEntryAction) {
+                    out.writeByte(ASYNC_ACTION);
+                    out.writeInt(trigger);
+                    out.writeInt(index(strings, nameOf(((StateRepresentation.AsyncEntryAction<S, T, C>) action).action, state)));
+                } else if (action instanceof StateConfiguration.EntryActionAdapter) {
+                    out.writeByte(ACTION);
+                    out.writeInt(trigger);
+                    out.writeInt(index(strings, nameOf(((StateConfiguration.EntryActionAdapter<S, T, C>) action).action, state)));
+                } else {
+                    throw new IllegalStateException("An entry action of state '" + state + "' takes trigger parameters and cannot be serialized.");
+                }
+            }
+
+            List<Action1<Transition<S, T, C>>> exitActions = representation.getExitActions();
+            out.writeInt(exitActions.size());
+            for (Action1<Transition<S, T, C>> exitAction : exitActions) {
+                if (exitAction instanceof StateRepresentation.AsyncExitAction) {
+                    out.writeByte(ASYNC_ACTION);
+                    out.writeInt(index(strings, nameOf(((StateRepresentation.AsyncExitAction<S, T, C>) exitAction).action, state)));
+                } else {
+                    out.writeByte(ACTION);
+                    out.writeInt(index(strings, nameOf(exitAction, state)));
+                }
+            }
+
+            List<TriggerBehaviour<S, T, C>> behaviours = new ArrayList<>();
+            for (List<TriggerBehaviour<S, T, C>> perTrigger : representation.getTriggerBehaviours().values()) {
+                behaviours.addAll(perTrigger);
+            }
+            out.writeInt(behaviours.size());
+            for (TriggerBehaviour<S, T, C> behaviour : behaviours) {
+                int target;
+                if (behaviour instanceof TransitioningTriggerBehaviour) {
+                    out.writeByte(TRANSITION);
+                    target = index(strings, encode(((TransitioningTriggerBehaviour<S, T, C>) behaviour).getDestination()));
+                } else if (behaviour instanceof IgnoredTriggerBehaviour) {
+                    out.writeByte(IGNORE);
+                    target = -1;
+                } else if (behaviour instanceof DynamicTriggerBehaviour) {
+                    Func3<C, Object[], S> selector = ((DynamicTriggerBehaviour<S, T, C>) behaviour).getDestinationSelector();
+                    if (!(selector instanceof StateConfiguration.SelectorAdapter)) {
+                        throw new IllegalStateException("A dynamic transition of state '" + state + "' takes trigger parameters and cannot be serialized.");
+                    }
+                    out.writeByte(DYNAMIC);
+                    target = index(strings, nameOf(((StateConfiguration.SelectorAdapter<C, S>) selector).selector, state));
+                } else if (behaviour instanceof InternalTriggerBehaviour) {
+                    Action2<C, TriggerArguments> action = ((InternalTriggerBehaviour<S, T, C>) behaviour).getAction();
+                    if (!(action instanceof StateConfiguration.InternalActionAdapter)) {
+                        throw new IllegalStateException("An internal transition of state '" + state + "' takes trigger parameters and cannot be serialized.");
+                    }
+                    out.writeByte(INTERNAL);
+                    target = index(strings, nameOf(((StateConfiguration.InternalActionAdapter<C>) action).action, state));
+                } else {
+                    throw new IllegalStateException("Trigger behaviour " + behaviour.getClass().getName() + " of state '" + state + "' cannot be serialized.");
+                }
+                out.writeInt(index(strings, encode(behaviour.getTrigger())));
+                out.writeInt(target);
+                FuncCondition<C> guard = behaviour.getGuard();
+                out.writeInt(guard == StateConfiguration.ALWAYS ? -1 : index(strings, nameOf(guard, state)));
+            }
+
+            List<StateTimeout<T>> timeouts = representation.getTimeouts();
+            out.writeInt(timeouts.size());
+            for (StateTimeout<T> timeout : timeouts) {
+                out.writeInt(index(strings, encode(timeout.getTrigger())));
+                out.writeLong(timeout.getDelay(TimeUnit.NANOSECONDS));
+            }
+        }
+
+        List<Region<S>> regions = config.getRegions();
+        out.writeInt(regions.size());
+        for (Region<S> region : regions) {
+            out.writeInt(index(strings, region.getName()));
+            out.writeInt(index(strings, encode(region.getInitialState())));
+            List<S> regionStates = region.getStates();
+            out.writeInt(regionStates.size());
+            for (S state : regionStates) {
+                out.writeInt(index(strings, encode(state)));
+            }
+        }
+        out.flush();
+
+        DataOutputStream header = new DataOutputStream(new BufferedOutputStream(output));
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        header.writeInt(strings.size());
+        for (String string : strings.keySet()) {
+            header.writeUTF(string);
+        }
+        body.writeTo(header);
+        header.flush();
+    }
+
+    /**
+     * Read a configuration written by {@link #write(StateMachineConfig, OutputStream)}
+     *
+     * @param input The stream to read from. Not closed by this method
+     * @return A new configuration, bound to the delegates of the registry
+     * @throws IOException On read failure, or if the stream does not hold a configuration
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public StateMachineConfig<S, T, C> read(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a serialized state machine configuration.");
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported configuration format version " + version + ".");
+        }
+
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        Object[] states = new Object[strings.length];
+        Object[] triggers = new Object[strings.length];
+
+        StateMachineConfig<S, T, C> config = new StateMachineConfig<>();
+
+        int triggerConfigurations = in.readInt();
+        for (int i = 0; i < triggerConfigurations; i++) {
+            T trigger = trigger(strings, triggers, in.readInt());
+            Class[] argumentTypes = new Class[in.readByte()];
+            for (int a = 0; a < argumentTypes.length; a++) {
+                argumentTypes[a] = classFor(strings[in.readInt()]);
+            }
+            switch (argumentTypes.length) {
+                case 1:
+                    config.setTriggerParameters(trigger, argumentTypes[0]);
+                    break;
+                case 2:
+                    config.setTriggerParameters(trigger, argumentTypes[0], argumentTypes[1]);
+                    break;
+                case 3:
+                    config.setTriggerParameters(trigger, argumentTypes[0], argumentTypes[1], argumentTypes[2]);
+                    break;
+                default:
+                    throw new IOException("Unsupported number of trigger parameters: " + argumentTypes.length + ".");
+            }
+        }
+
+        int representations = in.readInt();
+        for (int i = 0; i < representations; i++) {
+            S state = state(strings, states, in.readInt());
+            StateConfiguration<S, T, C> configuration = config.configure(state);
+            int superstate = in.readInt();
+            if (superstate >= 0) {
+                configuration.substateOf(state(strings, states, superstate));
+            }
+
+            int entryActions = in.readInt();
+            for (int a = 0; a < entryActions; a++) {
+                byte kind = in.readByte();
+                int trigger = in.readInt();
+                String name = strings[in.readInt()];
+                switch (kind) {
+                    case ACTION:
+                        if (trigger < 0) {
+                            configuration.onEntry(registry.getAction(name));
+                        } else {
+                            configuration.onEntryFrom(trigger(strings, triggers, trigger), registry.getAction(name));
+                        }
+                        break;
+                    case ASYNC_ACTION:
+                        configuration.onEntryAsync(registry.getAsyncAction(name));
+                        break;
+                    default:
+                        throw new IOException("Unknown entry action kind " + kind + ".");
+                }
+            }
+
+            int exitActions = in.readInt();
+            for (int a = 0; a < exitActions; a++) {
+                byte kind = in.readByte();
+                String name = strings[in.readInt()];
+                switch (kind) {
+                    case ACTION:
+                        configuration.onExit(registry.getAction(name));
+                        break;
+                    case ASYNC_ACTION:
+                        configuration.onExitAsync(registry.getAsyncAction(name));
+                        break;
+                    default:
+                        throw new IOException("Unknown exit action kind " + kind + ".");
+                }
+            }
+
+            int behaviours = in.readInt();
+            for (int b = 0; b < behaviours; b++) {
+                byte kind = in.readByte();
+                T trigger = trigger(strings, triggers, in.readInt());
+                int target = in.readInt();
+                int guardIndex = in.readInt();
+                FuncCondition<C> guard = guardIndex < 0 ? (FuncCondition<C>) StateConfiguration.ALWAYS : registry.getGuard(strings[guardIndex]);
+                switch (kind) {
+                    case TRANSITION:
+                        S destination = state(strings, states, target);
+                        if (destination.equals(state)) {
+                            configuration.permitReentryIf(trigger, guard);
+                        } else {
+                            configuration.permitIf(trigger, destination, guard);
+                        }
+                        break;
+                    case IGNORE:
+                        configuration.ignoreIf(trigger, guard);
+                        break;
+                    case DYNAMIC:
+                        configuration.permitDynamicIf(trigger, registry.getSelector(strings[target]), guard);
+                        break;
+                    case INTERNAL:
+                        configuration.permitInternalIf(trigger, registry.getInternalAction(strings[target]), guard);
+                        break;
+                    default:
+                        throw new IOException("Unknown trigger behaviour kind " + kind + ".");
+                }
+            }
+
+            int timeouts = in.readInt();
+            for (int t = 0; t < timeouts; t++) {
+                T trigger = trigger(strings, triggers, in.readInt());
+                configuration.timeout(in.readLong(), TimeUnit.NANOSECONDS, trigger);
+            }
+        }
+
+        int regions = in.readInt();
+        for (int r = 0; r < regions; r++) {
+            String name = strings[in.readInt()];
+            S initialState = state(strings, states, in.readInt());
+            Object[] regionStates = new Object[in.readInt()];
+            for (int i = 0; i < regionStates.length; i++) {
+                regionStates[i] = state(strings, states, in.readInt());
+            }
+            config.defineRegion(name, initialState, (S[]) regionStates);
+        }
+        return config;
+    }
+
+    private String nameOf(Object delegate, S state) {
+        String name = registry.nameOf(delegate);
+        if (name == null) {
+            throw new IllegalStateException("A guard, action or selector of state '" + state + "' has not been registered and cannot be serialized.");
+        }
+        return name;
+    }
+
+    @SuppressWarnings("unchecked")
+    private S state(String[] strings, Object[] states, int index) {
+        if (states[index] == null) {
+            states[index] = stateParser.call(strings[index]);
+        }
+        return (S) states[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    private T trigger(String[] strings, Object[] triggers, int index) {
+        if (triggers[index] == null) {
+            triggers[index] = triggerParser.call(strings[index]);
+        }
+        return (T) triggers[index];
+    }
+
+    private static int index(Map<String, Integer> strings, String value) {
+        Integer index = strings.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.put(value, index);
+        }
+        return index;
+    }
+
+    private Class<?> classFor(String name) throws IOException {
+        Class<?> primitive = PRIMITIVES.get(name);
+        if (primitive != null) {
+            return primitive;
+        }
+        try {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            return Class.forName(name, false, loader == null ? getClass().getClassLoader() : loader);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Trigger parameter type " + name + " cannot be loaded.", e);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.transitions.TransitioningTriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.DynamicTriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.IgnoredTriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.TriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Analyses a state machine configuration once, up front, instead of discovering its problems while firing triggers.
+ * <p>
+ * The validator reports hierarchy cycles, triggers that are both ignored and permitted by a state, triggers with more
+ * than one unguarded behaviour in a state, and entry actions whose arguments do not match the parameters of their
+ * trigger as errors. States that cannot be reached from the initial state and reachable states without a way out are
+ * reported as warnings. A dynamic transition may lead anywhere, so it makes every state reachable.
+ * <p>
+ * A configuration without errors can be trusted with {@link #trust}: it is frozen and its states then take the first
+ * behaviour whose guard is met rather than checking on every fire that exactly one guard is met. Guards are opaque
+ * functions, so keeping guarded behaviours of a trigger mutually exclusive remains the responsibility of the caller.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ * @param <C> The type used to represent the context in which the state machine is being applied
+ */
+public class ConfigurationValidator<S, T, C> {
+
+    private final StateMachineConfig<S, T, C> config;
+
+    public ConfigurationValidator(StateMachineConfig<S, T, C> config) {
+        assert config != null : "config is null";
+        this.config = config;
+    }
+
+    /**
+     * Analyse the configuration
+     *
+     * @param initialState The state machines using the configuration start in
+     * @return The problems found, errors first
+     */
+    public List<ConfigurationProblem> validate(S initialState) {
+        List<ConfigurationProblem> errors = new ArrayList<>();
+        List<ConfigurationProblem> warnings = new ArrayList<>();
+        Set<S> cyclic = new HashSet<>();
+        for (StateRepresentation<S, T, C> representation : config.getRepresentations()) {
+            S state = representation.getUnderlyingState();
+            if (isInCycle(representation)) {
+                cyclic.add(state);
+                errors.add(new ConfigurationProblem(ConfigurationProblem.Kind.HIERARCHY_CYCLE, state, null,
+                        "State '" + state + "' is its own superstate."));
+            }
+            checkBehaviours(representation, errors);
+            checkEntryActions(representation, errors);
+        }
+        if (cyclic.isEmpty()) {
+            checkReachability(initialState, warnings);
+        }
+        errors.addAll(warnings);
+        return errors;
+    }
+
+    /**
+     * Validate the configuration and, if it has no errors, freeze it and let it skip the per-fire guard exclusivity
+     * check
+     *
+     * @param initialState The state machines using the configuration start in
+     * @return The warnings found
+     * @throws IllegalStateException if the configuration has errors
+     */
+    public List<ConfigurationProblem> trust(S initialState) {
+        List<ConfigurationProblem> problems = validate(initialState);
+        StringBuilder errors = new StringBuilder();
+        for (ConfigurationProblem problem : problems) {
+            if (problem.isError()) {
+                errors.append(System.lineSeparator()).append(problem);
+            }
+        }
+        if (errors.length() > 0) {
+            throw new IllegalStateException("The configuration cannot be trusted:" + errors);
+        }
+        config.trust();
+        return problems;
+    }
+
+    private boolean isInCycle(StateRepresentation<S, T, C> representation) {
+        Set<StateRepresentation<S, T, C>> visited = new HashSet<>();
+        for (StateRepresentation<S, T, C> current = representation.getSuperstate(); current != null; current = current.getSuperstate()) {
+            if (current == representation) {
+                return true;
+            }
+            if (!visited.add(current)) {
+                // a cycle further up, reported for the states on it
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void checkBehaviours(StateRepresentation<S, T, C> representation, List<ConfigurationProblem> errors) {
+        S state = representation.getUnderlyingState();
+        for (Map.Entry<T, List<TriggerBehaviour<S, T, C>>> entry : representation.getTriggerBehaviours().entrySet()) {
+            boolean ignored = false;
+            boolean permitted = false;
+            int unguarded = 0;
+            for (TriggerBehaviour<S, T, C> behaviour : entry.getValue()) {
+                if (behaviour instanceof IgnoredTriggerBehaviour) {
+                    ignored = true;
+                } else {
+                    permitted = true;
+                }
+                if (behaviour.getGuard() == StateConfiguration.ALWAYS) {
+                    unguarded++;
+                }
+            }
+            if (ignored && permitted) {
+                errors.add(new ConfigurationProblem(ConfigurationProblem.Kind.IGNORED_AND_PERMITTED, state, entry.getKey(),
+                        "State '" + state + "' both ignores and permits trigger '" + entry.getKey() + "'."));
+            } else if (unguarded > 1) {
+                errors.add(new ConfigurationProblem(ConfigurationProblem.Kind.AMBIGUOUS_TRIGGER, state, entry.getKey(),
+                        "State '" + state + "' has " + unguarded + " unguarded behaviours for trigger '" + entry.getKey() + "'."));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void checkEntryActions(StateRepresentation<S, T, C> representation, List<ConfigurationProblem> errors) {
+        S state = representation.getUnderlyingState();
+        for (Action2<Transition<S, T, C>, Object[]> action : representation.getEntryActions()) {
+            if (!(action instanceof StateRepresentation.TriggeredEntryAction)) {
+                continue;
+            }
+            StateRepresentation.TriggeredEntryAction<S, T, C> triggered = (StateRepresentation.TriggeredEntryAction<S, T, C>) action;
+            Object unpacking = triggered.action;
+            if (!(unpacking instanceof StateConfiguration.ParameterisedEntryAction)) {
+                continue;
+            }
+            Class<?>[] expected = ((StateConfiguration.ParameterisedEntryAction<?, ?, ?>) unpacking).argumentTypes;
+            TriggerWithParameters<T> configuration = config.getTriggerConfiguration(triggered.trigger);
+            Class<?>[] actual = configuration == null ? new Class<?>[0] : configuration.getArgumentTypes();
+            if (!matches(expected, actual)) {
+                errors.add(new ConfigurationProblem(ConfigurationProblem.Kind.ARITY_MISMATCH, state, triggered.trigger,
+                        "An entry action of state '" + state + "' expects " + names(expected) + " from trigger '"
+                        + triggered.trigger + "', which is configured with " + names(actual) + "."));
+            }
+        }
+    }
+
+    private static boolean matches(Class<?>[] expected, Class<?>[] actual) {
+        if (expected.length != actual.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (!expected[i].isAssignableFrom(actual[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String names(Class<?>[] types) {
+        StringBuilder names = new StringBuilder("(");
+        for (int i = 0; i < types.length; i++) {
+            names.append(i == 0 ? "" : ", ").append(types[i].getSimpleName());
+        }
+        return names.append(")").toString();
+    }
+
+    private void checkReachability(S initialState, List<ConfigurationProblem> warnings) {
+        // states the machine can be in, and those plus their superstates
+        Set<S> current = new HashSet<>();
+        Set<S> reached = new HashSet<>();
+        Deque<S> pending = new ArrayDeque<>();
+        boolean dynamic = false;
+        pending.add(initialState);
+        while (!pending.isEmpty()) {
+            S state = pending.poll();
+            if (!current.add(state)) {
+                continue;
+            }
+            StateRepresentation<S, T, C> representation = config.getRepresentation(state);
+            boolean leaves = false;
+            for (StateRepresentation<S, T, C> level = representation; level != null; level = level.getSuperstate()) {
+                reached.add(level.getUnderlyingState());
+                for (List<TriggerBehaviour<S, T, C>> behaviours : level.getTriggerBehaviours().values()) {
+                    for (TriggerBehaviour<S, T, C> behaviour : behaviours) {
+                        if (behaviour instanceof TransitioningTriggerBehaviour) {
+                            S destination = ((TransitioningTriggerBehaviour<S, T, C>) behaviour).getDestination();
+                            pending.add(destination);
+                            leaves |= !destination.equals(state);
+                        } else if (behaviour instanceof DynamicTriggerBehaviour) {
+                            dynamic = true;
+                            leaves = true;
+                        }
+                    }
+                }
+            }
+            if (!leaves) {
+                warnings.add(new ConfigurationProblem(ConfigurationProblem.Kind.DEAD_END_STATE, state, null,
+                        "State '" + state + "' is reachable but has no transition out of it."));
+            }
+        }
+        if (dynamic) {
+            return;
+        }
+        for (StateRepresentation<S, T, C> representation : config.getRepresentations()) {
+            S state = representation.getUnderlyingState();
+            if (!current.contains(state) && !reached.contains(state)) {
+                warnings.add(new ConfigurationProblem(ConfigurationProblem.Kind.UNREACHABLE_STATE, state, null,
+                        "State '" + state + "' cannot be reached from initial state '" + initialState + "'."));
+            }
+        }
+    }
+}
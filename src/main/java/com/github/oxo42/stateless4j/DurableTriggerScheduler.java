@@ -0,0 +1,433 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.timers.HashedTimingWheel;
+import com.github.oxo42.stateless4j.timers.Timeout;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Schedules triggers to be fired on a state machine after a delay, keeping the pending triggers in a local
+ * append-only log so they survive a restart.
+ * <p>
+ * Every scheduled trigger appends a record to the log, and every fired or cancelled trigger appends a record marking
+ * it done. Each record is synced to the disk before the call that wrote it returns. A trigger is marked done only
+ * once it has been fired, so a trigger whose fire was interrupted by a crash is fired again after the restart:
+ * delivery is at least once. {@link #recover(int, long, TimeUnit)} replays the log at startup, compacts it down to
+ * the pending triggers, schedules those that are still in the future and delivers the overdue ones in throttled
+ * batches. The log is compacted again whenever enough triggers have been marked done since the last compaction.
+ * Triggers fire on the thread of the timing wheel.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ * @param <C> The type used to represent the context in which the state machine is being applied
+ */
+public class DurableTriggerScheduler<S, T, C> {
+
+    /**
+     * Converts triggers and contexts to and from the strings stored in the log
+     *
+     * @param <V> The type of the converted values
+     */
+    public interface Codec<V> {
+
+        String encode(V value);
+
+        V decode(String encoded);
+    }
+
+    private static final int MAGIC = 0x53344A54;
+    private static final byte SCHEDULED = 1;
+    private static final byte DONE = 2;
+    private static final int DEFAULT_COMPACTION_THRESHOLD = 1024;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final StateMachine<S, T, C> machine;
+    private final HashedTimingWheel wheel;
+    private final File file;
+    private final Codec<T> triggers;
+    private final Codec<C> contexts;
+    private final Map<Long, Entry> pending = new HashMap<>();
+    private FileOutputStream logFile;
+    private DataOutputStream log;
+    private boolean closed;
+    private long nextId;
+    private int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+    private int doneSinceCompaction;
+
+    /**
+     * Construct a scheduler. No trigger can be scheduled until {@link #recover(int, long, TimeUnit)} has opened the log
+     *
+     * @param machine  The state machine the triggers are fired on
+     * @param wheel    The timing wheel that runs the pending triggers
+     * @param file     The log file, created if it does not exist
+     * @param triggers Codec for the triggers
+     * @param contexts Codec for the contexts
+     */
+    public DurableTriggerScheduler(StateMachine<S, T, C> machine, HashedTimingWheel wheel, File file, Codec<T> triggers, Codec<C> contexts) {
+        assert machine != null : "machine is null";
+        assert wheel != null : "wheel is null";
+        assert file != null : "file is null";
+        assert triggers != null : "triggers is null";
+        assert contexts != null : "contexts is null";
+        this.machine = machine;
+        this.wheel = wheel;
+        this.file = file;
+        this.triggers = triggers;
+        this.contexts = contexts;
+    }
+
+    /**
+     * The current wall clock time in milliseconds. Deadlines are stored as wall clock time so that they keep their
+     * meaning across restarts. Overridable to drive the scheduler from another clock
+     *
+     * @return The current time in milliseconds
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Set how many triggers must be marked done since the last compaction before the log is compacted again. The log
+     * is only compacted once it also holds more done records than pending triggers
+     *
+     * @param threshold The number of done records, 1024 by default
+     */
+    public synchronized void setCompactionThreshold(int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold must be positive");
+        }
+        compactionThreshold = threshold;
+    }
+
+    /**
+     * Replay the log, compact it to the triggers still pending and open it for appending. Pending triggers whose
+     * deadline has not passed are scheduled normally; overdue triggers are delivered oldest first, batchSize at a
+     * time, one batch per interval
+     *
+     * @param batchSize Maximum number of overdue triggers fired together
+     * @param interval  Delay between two catch-up batches
+     * @param unit      Unit of the interval
+     * @return The number of pending triggers recovered
+     * @throws IOException if the log cannot be read or rewritten
+     */
+    public synchronized int recover(int batchSize, long interval, TimeUnit unit) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("The scheduler is closed");
+        }
+        if (log != null) {
+            throw new IllegalStateException("The scheduler has already been recovered");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        List<Entry> recovered = new ArrayList<>(replay().values());
+        replaceLog(writeCompacted(recovered));
+        openLog();
+
+        long now = currentTimeMillis();
+        List<Entry> overdue = new ArrayList<>();
+        for (Entry entry : recovered) {
+            pending.put(entry.id, entry);
+            if (entry.deadline <= now) {
+                overdue.add(entry);
+            } else {
+                entry.timeout = wheel.schedule(entry, entry.deadline - now, TimeUnit.MILLISECONDS);
+            }
+        }
+        Collections.sort(overdue, BY_DEADLINE);
+        for (int from = 0, batch = 0; from < overdue.size(); from += batchSize, batch++) {
+            List<Entry> entries = overdue.subList(from, Math.min(from + batchSize, overdue.size()));
+            wheel.schedule(new CatchUp(new ArrayList<>(entries)), batch * interval, unit);
+        }
+        if (!overdue.isEmpty()) {
+            logger.info("Recovered " + recovered.size() + " scheduled triggers, " + overdue.size() + " overdue");
+        }
+        return recovered.size();
+    }
+
+    /**
+     * Schedule a trigger to be fired after a delay
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire it in
+     * @param delay   Delay after which the trigger is fired
+     * @param unit    Unit of the delay
+     * @return The id of the scheduled trigger, used to cancel it
+     * @throws IOException if the schedule cannot be written to the log
+     */
+    public synchronized long schedule(T trigger, C context, long delay, TimeUnit unit) throws IOException {
+        enforceOpen();
+        Entry entry = new Entry(nextId++, currentTimeMillis() + unit.toMillis(Math.max(delay, 0)), trigger, context);
+        writeScheduled(log, entry);
+        sync();
+        pending.put(entry.id, entry);
+        entry.timeout = wheel.schedule(entry, delay, unit);
+        return entry.id;
+    }
+
+    /**
+     * Cancel a scheduled trigger
+     *
+     * @param id The id returned when the trigger was scheduled
+     * @return True if the trigger was still pending, false if it was cancelled or is being or has been fired
+     * @throws IOException if the cancellation cannot be written to the log
+     */
+    public synchronized boolean cancel(long id) throws IOException {
+        enforceOpen();
+        Entry entry = pending.get(id);
+        if (entry == null || entry.firing) {
+            return false;
+        }
+        pending.remove(id);
+        if (entry.timeout != null) {
+            entry.timeout.cancel();
+        }
+        writeDone(id);
+        return true;
+    }
+
+    /**
+     * @return The number of triggers scheduled and not yet fired or cancelled, including those being fired
+     */
+    public synchronized int pendingTriggers() {
+        return pending.size();
+    }
+
+    /**
+     * Close the log. Pending triggers stay in the wheel but are no longer fired
+     *
+     * @throws IOException if the log cannot be closed
+     */
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (log != null) {
+            try {
+                log.close();
+            } finally {
+                log = null;
+                logFile = null;
+                pending.clear();
+            }
+        }
+    }
+
+    private void enforceOpen() {
+        if (closed) {
+            throw new IllegalStateException("The scheduler is closed");
+        }
+        if (log == null) {
+            throw new IllegalStateException("The scheduler must be recovered before use");
+        }
+    }
+
+    /**
+     * Claim a pending trigger for firing, so that it can no longer be cancelled
+     */
+    private synchronized boolean claim(Entry entry) {
+        if (log == null || pending.get(entry.id) != entry || entry.firing) {
+            return false;
+        }
+        entry.firing = true;
+        return true;
+    }
+
+    private synchronized void complete(Entry entry) {
+        if (log == null || pending.remove(entry.id) == null) {
+            return;
+        }
+        try {
+            writeDone(entry.id);
+        } catch (IOException e) {
+            logger.warn("Could not mark scheduled trigger " + entry.id + " done", e);
+        }
+    }
+
+    private void fire(Entry entry) {
+        if (!claim(entry)) {
+            return;
+        }
+        try {
+            machine.fire(entry.trigger, entry.context);
+        } catch (RuntimeException e) {
+            logger.warn("Scheduled trigger " + entry.trigger + " failed", e);
+        }
+        // not reached if an error escapes the fire, so the trigger is fired again after a restart
+        complete(entry);
+    }
+
+    private void writeDone(long id) throws IOException {
+        log.writeByte(DONE);
+        log.writeLong(id);
+        sync();
+        if (++doneSinceCompaction >= compactionThreshold && doneSinceCompaction > pending.size()) {
+            try {
+                compactLog();
+            } catch (IOException e) {
+                // the records are already synced, so the uncompacted log is still correct; retried on the next done
+                logger.warn("Could not compact " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Replace the open log with one holding only the pending triggers. The current log is kept open until the
+     * compacted copy is complete, and is reopened even if the replacement fails
+     */
+    private void compactLog() throws IOException {
+        File compacted = writeCompacted(new ArrayList<>(pending.values()));
+        try {
+            log.close();
+            replaceLog(compacted);
+        } finally {
+            openLog();
+        }
+    }
+
+    private void openLog() throws IOException {
+        logFile = new FileOutputStream(file, true);
+        log = new DataOutputStream(new BufferedOutputStream(logFile));
+        doneSinceCompaction = 0;
+    }
+
+    /**
+     * Write the buffered records through to the disk
+     */
+    private void sync() throws IOException {
+        log.flush();
+        logFile.getFD().sync();
+    }
+
+    private void writeScheduled(DataOutputStream out, Entry entry) throws IOException {
+        out.writeByte(SCHEDULED);
+        out.writeLong(entry.id);
+        out.writeLong(entry.deadline);
+        out.writeUTF(triggers.encode(entry.trigger));
+        out.writeBoolean(entry.context != null);
+        if (entry.context != null) {
+            out.writeUTF(contexts.encode(entry.context));
+        }
+    }
+
+    private Map<Long, Entry> replay() throws IOException {
+        Map<Long, Entry> entries = new LinkedHashMap<>();
+        if (!file.exists()) {
+            return entries;
+        }
+        try (InputStream stream = new FileInputStream(file)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+            if (file.length() == 0) {
+                return entries;
+            }
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a trigger log");
+            }
+            nextId = in.readLong();
+            while (true) {
+                int kind = in.read();
+                if (kind == -1) {
+                    break;
+                }
+                long id = in.readLong();
+                if (kind == SCHEDULED) {
+                    long deadline = in.readLong();
+                    T trigger = triggers.decode(in.readUTF());
+                    C context = in.readBoolean() ? contexts.decode(in.readUTF()) : null;
+                    entries.put(id, new Entry(id, deadline, trigger, context));
+                } else if (kind == DONE) {
+                    entries.remove(id);
+                } else {
+                    throw new IOException("Unknown record " + kind + " in " + file);
+                }
+                nextId = Math.max(nextId, id + 1);
+            }
+        } catch (EOFException e) {
+            // a record torn by a crash was never acknowledged, drop it
+            logger.warn("Ignoring incomplete record at the end of " + file);
+        }
+        return entries;
+    }
+
+    private File writeCompacted(List<Entry> entries) throws IOException {
+        File compacted = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(compacted)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(MAGIC);
+            out.writeLong(nextId);
+            for (Entry entry : entries) {
+                writeScheduled(out, entry);
+            }
+            out.flush();
+            stream.getFD().sync();
+        }
+        return compacted;
+    }
+
+    private void replaceLog(File compacted) throws IOException {
+        Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static final Comparator<DurableTriggerScheduler<?, ?, ?>.Entry> BY_DEADLINE = new Comparator<DurableTriggerScheduler<?, ?, ?>.Entry>() {
+        @Override
+        public int compare(DurableTriggerScheduler<?, ?, ?>.Entry a, DurableTriggerScheduler<?, ?, ?>.Entry b) {
+            return a.deadline < b.deadline ? -1 : a.deadline > b.deadline ? 1 : Long.compare(a.id, b.id);
+        }
+    };
+
+    private final class Entry implements Runnable {
+
+        final long id;
+        final long deadline;
+        final T trigger;
+        final C context;
+        Timeout timeout;
+        boolean firing; // guarded by the scheduler
+
+        Entry(long id, long deadline, T trigger, C context) {
+            this.id = id;
+            this.deadline = deadline;
+            this.trigger = trigger;
+            this.context = context;
+        }
+
+        @Override
+        public void run() {
+            fire(this);
+        }
+    }
+
+    private final class CatchUp implements Runnable {
+
+        private final List<Entry> batch;
+
+        CatchUp(List<Entry> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            for (Entry entry : batch) {
+                fire(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.oxo42.stateless4j;
+
+/**
+ * Which entry a bounded cache discards when it is full
+ */
+public enum EvictionPolicy {
+    /**
+     * Discard the entry that was used least recently
+     */
+    LRU,
+    /**
+     * Discard the entry that was used least often lately, and of those the one used least recently
+     */
+    LFU
+}
@@ -0,0 +1,31 @@
+package com.github.oxo42.stateless4j;
+
+/**
+ * What firing a trigger with {@link StateMachine#tryFire} did
+ */
+public enum FireResult {
+    /**
+     * The state changed to another state
+     */
+    TRANSITIONED,
+    /**
+     * The state was exited and entered again
+     */
+    REENTERED,
+    /**
+     * An internal transition ran its action without leaving the state
+     */
+    INTERNAL,
+    /**
+     * The trigger is ignored in the current state, or its guard or selector chose not to transition
+     */
+    IGNORED,
+    /**
+     * No transition is permitted for the trigger in the current state
+     */
+    UNHANDLED,
+    /**
+     * More than one guard of the trigger was met in one state, so nothing was done
+     */
+    AMBIGUOUS
+}
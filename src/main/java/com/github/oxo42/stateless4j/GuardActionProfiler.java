@@ -0,0 +1,293 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.TriggerArguments;
+import com.github.oxo42.stateless4j.triggers.TriggerBehaviour;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the time spent in guards and in entry and exit actions, on a sample of the fires of the state machines it
+ * is enabled on, see {@link StateMachine#enableProfiling}.
+ * <p>
+ * One fire in a given number is chosen at random. Each guard evaluated and each action run while firing it is timed,
+ * both in wall clock time and, where the JVM supports it, in CPU time of the firing thread, and the times are added to
+ * counters kept per kind, state, trigger and name. The name of a guard or action is the one given with
+ * {@link #name}, or else the name of its class; anonymous classes are named after their enclosing class with a number.
+ * <p>
+ * The counters are updated without locks, so one profiler can be shared by state machines on many threads.
+ */
+public class GuardActionProfiler {
+
+    /**
+     * What was timed
+     */
+    public enum Kind {
+        GUARD, ENTRY_ACTION, EXIT_ACTION
+    }
+
+    private final int sampleEvery;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final boolean cpuTime;
+    private final ConcurrentMap<Object, String> names = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ThreadLocal<Key> probes = new ThreadLocal<Key>() {
+        @Override
+        protected Key initialValue() {
+            return new Key();
+        }
+    };
+
+    /**
+     * Construct a profiler
+     *
+     * @param sampleEvery One fire in this many is profiled, 1 to profile all
+     */
+    public GuardActionProfiler(int sampleEvery) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("sampleEvery must be at least 1.");
+        }
+        this.sampleEvery = sampleEvery;
+        this.cpuTime = threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+    }
+
+    /**
+     * Name a guard or action in the report, instead of the name of its class
+     *
+     * @param guardOrAction The guard or action, as passed to the configuration
+     * @param name          The name
+     */
+    public void name(Object guardOrAction, String name) {
+        assert guardOrAction != null : "guardOrAction is null";
+        assert name != null : "name is null";
+        names.put(guardOrAction, name);
+    }
+
+    /**
+     * The guards and actions that took the most wall clock time
+     *
+     * @param topN The number of entries to return
+     * @return The entries, the most expensive first
+     */
+    public List<Entry> report(int topN) {
+        List<Entry> report = new ArrayList<>(entries.values());
+        Collections.sort(report, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                return Long.compare(b.getWallNanos(), a.getWallNanos());
+            }
+        });
+        return report.size() > topN ? new ArrayList<>(report.subList(0, topN)) : report;
+    }
+
+    /**
+     * Discard the measurements
+     */
+    public void reset() {
+        entries.clear();
+    }
+
+    /**
+     * @return True if the fire about to start should be profiled
+     */
+    boolean sample() {
+        return sampleEvery == 1 || ThreadLocalRandom.current().nextInt(sampleEvery) == 0;
+    }
+
+    <S, T, C> boolean guard(S state, T trigger, TriggerBehaviour<S, T, C> behaviour, C context) {
+        if (behaviour.getGuard() == StateConfiguration.ALWAYS) {
+            return true;
+        }
+        long cpu = cpuNanos();
+        long wall = System.nanoTime();
+        try {
+            return behaviour.isGuardConditionMet(context);
+        } finally {
+            record(Kind.GUARD, state, trigger, behaviour.getGuard(), wall, cpu);
+        }
+    }
+
+    <S, T, C> void entryAction(S state, Transition<S, T, C> transition, Action2<Transition<S, T, C>, Object[]> action,
+            TriggerArguments args) {
+        if (action instanceof StateRepresentation.TriggeredEntryAction
+                && !transition.getTrigger().equals(((StateRepresentation.TriggeredEntryAction<?, ?, ?>) action).trigger)) {
+            // does not run for this trigger
+            return;
+        }
+        long cpu = cpuNanos();
+        long wall = System.nanoTime();
+        try {
+            StateRepresentation.execute(action, transition, args);
+        } finally {
+            record(Kind.ENTRY_ACTION, state, transition.getTrigger(), action, wall, cpu);
+        }
+    }
+
+    <S, T, C> void exitAction(S state, Transition<S, T, C> transition, Action1<Transition<S, T, C>> action) {
+        long cpu = cpuNanos();
+        long wall = System.nanoTime();
+        try {
+            action.doIt(transition);
+        } finally {
+            record(Kind.EXIT_ACTION, state, transition.getTrigger(), action, wall, cpu);
+        }
+    }
+
+    private void record(Kind kind, Object state, Object trigger, Object delegate, long wallStart, long cpuStart) {
+        long wall = System.nanoTime() - wallStart;
+        long cpu = cpuTime ? cpuNanos() - cpuStart : 0;
+        // look the entry up with a key reused by the thread, so that measuring allocates nothing once it exists
+        Key probe = probes.get().set(kind, state, trigger, nameOf(delegate));
+        Entry entry = entries.get(probe);
+        if (entry == null) {
+            Key key = new Key().set(kind, state, trigger, probe.name);
+            Entry created = new Entry(key);
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) {
+                entry = created;
+            }
+        }
+        entry.count.incrementAndGet();
+        entry.wallNanos.addAndGet(wall);
+        entry.cpuNanos.addAndGet(cpu);
+    }
+
+    private long cpuNanos() {
+        return cpuTime ? threads.getCurrentThreadCpuTime() : 0;
+    }
+
+    private String nameOf(Object delegate) {
+        Object unwrapped = unwrap(delegate);
+        String name = names.get(unwrapped);
+        return name != null ? name : unwrapped.getClass().getName();
+    }
+
+    /**
+     * The guard or action as it was passed to the configuration, rather than the adapter that calls it
+     */
+    private static Object unwrap(Object delegate) {
+        while (true) {
+            if (delegate instanceof StateRepresentation.TriggeredEntryAction) {
+                delegate = ((StateRepresentation.TriggeredEntryAction<?, ?, ?>) delegate).action;
+            } else if (delegate instanceof StateConfiguration.EntryActionAdapter) {
+                delegate = ((StateConfiguration.EntryActionAdapter<?, ?, ?>) delegate).action;
+            } else if (delegate instanceof StateConfiguration.ParameterisedEntryAction) {
+                delegate = ((StateConfiguration.ParameterisedEntryAction<?, ?, ?>) delegate).action;
+            } else if (delegate instanceof StateRepresentation.AsyncEntryAction) {
+                delegate = ((StateRepresentation.AsyncEntryAction<?, ?, ?>) delegate).action;
+            } else if (delegate instanceof StateRepresentation.AsyncExitAction) {
+                delegate = ((StateRepresentation.AsyncExitAction<?, ?, ?>) delegate).action;
+            } else {
+                return delegate;
+            }
+        }
+    }
+
+    private static final class Key {
+
+        Kind kind;
+        Object state;
+        Object trigger;
+        String name;
+        int hash;
+
+        Key set(Kind kind, Object state, Object trigger, String name) {
+            this.kind = kind;
+            this.state = state;
+            this.trigger = trigger;
+            this.name = name;
+            int h = kind.hashCode();
+            h = 31 * h + (state == null ? 0 : state.hashCode());
+            h = 31 * h + (trigger == null ? 0 : trigger.hashCode());
+            this.hash = 31 * h + name.hashCode();
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return kind == other.kind && Objects.equals(state, other.state) && Objects.equals(trigger, other.trigger)
+                    && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * The measurements of one guard or action
+     */
+    public static final class Entry {
+
+        private final Key key;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong wallNanos = new AtomicLong();
+        private final AtomicLong cpuNanos = new AtomicLong();
+
+        Entry(Key key) {
+            this.key = key;
+        }
+
+        public Kind getKind() {
+            return key.kind;
+        }
+
+        /**
+         * @return The state the guard or action is configured on
+         */
+        public Object getState() {
+            return key.state;
+        }
+
+        /**
+         * @return The trigger that was fired
+         */
+        public Object getTrigger() {
+            return key.trigger;
+        }
+
+        public String getName() {
+            return key.name;
+        }
+
+        /**
+         * @return The number of times the guard or action was timed
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getWallNanos() {
+            return wallNanos.get();
+        }
+
+        /**
+         * @return The CPU time of the firing thread, 0 if the JVM does not measure it
+         */
+        public long getCpuNanos() {
+            return cpuNanos.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s in '%s' on '%s': %d calls, %d us wall, %d us cpu",
+                    key.kind, key.name, key.state, key.trigger, getCount(), getWallNanos() / 1000, getCpuNanos() / 1000);
+        }
+    }
+}
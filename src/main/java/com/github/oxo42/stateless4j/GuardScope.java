@@ -0,0 +1,83 @@
+package com.github.oxo42.stateless4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The results of the cacheable guards evaluated during one handler lookup on the current thread. Lookups are opened
+ * with {@link #open()} and closed with {@link #close()}.
+ * <p>
+ * Each thread has one scope, which counts the lookups open on it, so opening and closing a lookup allocates nothing.
+ * The map of results is allocated the first time a cacheable guard is evaluated on the thread and emptied, not
+ * discarded, when the outermost lookup closes. A lookup nested in another, for example by a guard that fires
+ * another state machine, sets the results of the enclosing lookup aside until it closes.
+ */
+final class GuardScope {
+
+    private static final ThreadLocal<GuardScope> CURRENT = new ThreadLocal<GuardScope>() {
+        @Override
+        protected GuardScope initialValue() {
+            return new GuardScope();
+        }
+    };
+
+    private int depth;
+    private Map<CacheableGuard<?>, Boolean> results; // null until a cacheable guard is evaluated
+    private Deque<Map<CacheableGuard<?>, Boolean>> enclosing; // null until lookups are nested
+
+    private GuardScope() {
+    }
+
+    /**
+     * @return The scope of the current thread, or null if no lookup is open on it
+     */
+    static GuardScope current() {
+        GuardScope scope = CURRENT.get();
+        return scope.depth == 0 ? null : scope;
+    }
+
+    /**
+     * Open a lookup on the current thread
+     *
+     * @return The scope of the current thread, to be closed with {@link #close()}
+     */
+    static GuardScope open() {
+        GuardScope scope = CURRENT.get();
+        if (scope.depth > 0) {
+            if (scope.enclosing == null) {
+                scope.enclosing = new ArrayDeque<>();
+            }
+            scope.enclosing.push(scope.results == null
+                    ? new IdentityHashMap<CacheableGuard<?>, Boolean>()
+                    : scope.results);
+            scope.results = null;
+        }
+        scope.depth++;
+        return scope;
+    }
+
+    /**
+     * Close the innermost lookup, forgetting its results
+     */
+    void close() {
+        depth--;
+        if (depth > 0) {
+            results = enclosing.pop();
+        } else if (results != null) {
+            results.clear();
+        }
+    }
+
+    Boolean get(CacheableGuard<?> guard) {
+        return results == null ? null : results.get(guard);
+    }
+
+    void put(CacheableGuard<?> guard, Boolean result) {
+        if (results == null) {
+            results = new IdentityHashMap<>();
+        }
+        results.put(guard, result);
+    }
+}
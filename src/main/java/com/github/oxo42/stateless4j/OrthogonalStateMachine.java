@@ -0,0 +1,375 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.delegates.Action3;
+import com.github.oxo42.stateless4j.delegates.Func2;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.InternalTriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.TriggerArguments;
+import com.github.oxo42.stateless4j.triggers.TriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters2;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters3;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a configuration with orthogonal regions, in which a context is in one state of every region at once.
+ * <p>
+ * A trigger is dispatched to every region whose current state handles it. The handlers and destinations of all
+ * regions are determined first, so guards and destination selectors see the state before the trigger. Then the exit
+ * actions of all transitioning regions run, the new {@link CompositeState} is stored, and the entry actions run.
+ * Without an executor the regions take their turn in the order they were defined; with an executor the actions of
+ * the regions run concurrently, each phase completing before the next one starts, so they must be independent of
+ * each other.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ * @param <C> The type used to represent the context in which the state machine is being applied
+ */
+public class OrthogonalStateMachine<S, T, C> {
+
+    private final StateMachineConfig<S, T, C> config;
+    private final Func2<C, CompositeState> stateAccessor;
+    private final Action2<CompositeState, C> stateMutator;
+    private final Executor executor;
+    private final Region<S>[] regions;
+    private Action3<CompositeState, T, C> unhandledTriggerAction = new Action3<CompositeState, T, C>() {
+
+        @Override
+        public void doIt(CompositeState state, T trigger, C context) {
+            throw new IllegalStateException(
+                    String.format(
+                            "No region permits trigger '%s' in state %s in context '%s'. Consider ignoring the trigger.",
+                            trigger, state, context)
+            );
+        }
+    };
+
+    /**
+     * Construct a state machine that runs the regions one after the other
+     *
+     * @param stateAccessor State accessor
+     * @param stateMutator  State mutator
+     * @param config        State machine configuration with at least one region
+     */
+    public OrthogonalStateMachine(Func2<C, CompositeState> stateAccessor, Action2<CompositeState, C> stateMutator, StateMachineConfig<S, T, C> config) {
+        this(stateAccessor, stateMutator, config, null);
+    }
+
+    /**
+     * Construct a state machine that runs the actions of the regions concurrently
+     *
+     * @param stateAccessor State accessor
+     * @param stateMutator  State mutator
+     * @param config        State machine configuration with at least one region
+     * @param executor      Executor that runs the actions of the regions, or null to run them one after the other
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public OrthogonalStateMachine(Func2<C, CompositeState> stateAccessor, Action2<CompositeState, C> stateMutator, StateMachineConfig<S, T, C> config, Executor executor) {
+        assert stateAccessor != null : "stateAccessor is null";
+        assert stateMutator != null : "stateMutator is null";
+        assert config != null : "config is null";
+        List<Region<S>> defined = config.getRegions();
+        if (defined.isEmpty()) {
+            throw new IllegalStateException("The configuration does not define any regions.");
+        }
+        this.config = config;
+        this.stateAccessor = stateAccessor;
+        this.stateMutator = stateMutator;
+        this.executor = executor;
+        this.regions = defined.toArray(new Region[defined.size()]);
+    }
+
+    /**
+     * The composite state made of the initial states of all regions
+     *
+     * @return The initial state
+     */
+    public CompositeState getInitialState() {
+        int[] positions = new int[regions.length];
+        for (int i = 0; i < regions.length; i++) {
+            positions[i] = regions[i].getInitialIndex();
+        }
+        return new CompositeState(positions);
+    }
+
+    /**
+     * The current state of a context
+     *
+     * @param context The context to get the current state for
+     * @return The current composite state
+     */
+    public CompositeState getState(C context) {
+        return stateAccessor.call(context);
+    }
+
+    /**
+     * The current state of a context in one region
+     *
+     * @param region  The region
+     * @param context The context to get the current state for
+     * @return The current state in the region
+     */
+    public S getState(Region<S> region, C context) {
+        assert region != null : "region is null";
+        return regions[region.getIndex()].stateAt(getState(context).get(region.getIndex()));
+    }
+
+    /**
+     * Determine if the state machine is in the supplied state in any region
+     *
+     * @param state   The state to test for
+     * @param context The context to get the current state for
+     * @return True if the current state of a region is equal to, or a substate of, the supplied state
+     */
+    public boolean isInState(S state, C context) {
+        CompositeState current = getState(context);
+        for (Region<S> region : regions) {
+            if (representationOf(region.stateAt(current.get(region.getIndex()))).isIncludedIn(state)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if {@code trigger} is handled by at least one region in the current state
+     *
+     * @param trigger Trigger to test
+     * @param context The context to get the current state for
+     * @return True if the trigger can be fired, false otherwise
+     */
+    public boolean canFire(T trigger, C context) {
+        CompositeState current = getState(context);
+        GuardScope scope = GuardScope.open();
+        try {
+            for (Region<S> region : regions) {
+                S state = region.stateAt(current.get(region.getIndex()));
+                if (representationOf(state).tryFindHandler(trigger, context) != null) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            scope.close();
+        }
+    }
+
+    /**
+     * Fire a trigger in every region that handles it
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire the trigger for
+     */
+    public void fire(T trigger, C context) {
+        publicFire(trigger, context, TriggerArguments.NONE);
+    }
+
+    /**
+     * Fire a trigger with one parameter in every region that handles it
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire the trigger for
+     * @param arg     The argument
+     * @param <TArg>  Type of the trigger argument
+     */
+    public <TArg> void fire(TriggerWithParameters1<TArg, T> trigger, C context, TArg arg) {
+        assert trigger != null : "trigger is null";
+        publicFire(trigger.getTrigger(), context, TriggerArguments.of(arg));
+    }
+
+    /**
+     * Fire a trigger with two parameters in every region that handles it
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire the trigger for
+     * @param arg0    The first argument
+     * @param arg1    The second argument
+     * @param <TArg0> Type of the first trigger argument
+     * @param <TArg1> Type of the second trigger argument
+     */
+    public <TArg0, TArg1> void fire(TriggerWithParameters2<TArg0, TArg1, T> trigger, C context, TArg0 arg0, TArg1 arg1) {
+        assert trigger != null : "trigger is null";
+        publicFire(trigger.getTrigger(), context, TriggerArguments.of(arg0, arg1));
+    }
+
+    /**
+     * Fire a trigger with three parameters in every region that handles it
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire the trigger for
+     * @param arg0    The first argument
+     * @param arg1    The second argument
+     * @param arg2    The third argument
+     * @param <TArg0> Type of the first trigger argument
+     * @param <TArg1> Type of the second trigger argument
+     * @param <TArg2> Type of the third trigger argument
+     */
+    public <TArg0, TArg1, TArg2> void fire(TriggerWithParameters3<TArg0, TArg1, TArg2, T> trigger, C context, TArg0 arg0, TArg1 arg1, TArg2 arg2) {
+        assert trigger != null : "trigger is null";
+        publicFire(trigger.getTrigger(), context, TriggerArguments.of(arg0, arg1, arg2));
+    }
+
+    protected void publicFire(T trigger, C context, TriggerArguments args) {
+        if (config.isParameterValidationEnabled()) {
+            TriggerWithParameters<T> configuration = config.getTriggerConfiguration(trigger);
+            if (configuration != null) {
+                configuration.validateParameters(args);
+            }
+        }
+
+        CompositeState current = getState(context);
+        int[] positions = current.positions();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Transition<S, T, C>[] transitions = new Transition[regions.length];
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        InternalTriggerBehaviour<S, T, C>[] internal = new InternalTriggerBehaviour[regions.length];
+        int transitioning = 0;
+        boolean handled = false;
+        GuardScope scope = GuardScope.open();
+        try {
+            OutVar<S> destination = new OutVar<>();
+            for (Region<S> region : regions) {
+                S source = region.stateAt(positions[region.getIndex()]);
+                TriggerBehaviour<S, T, C> behaviour = representationOf(source).tryFindHandler(trigger, context);
+                if (behaviour == null) {
+                    continue;
+                }
+                handled = true;
+                if (behaviour instanceof InternalTriggerBehaviour) {
+                    internal[region.getIndex()] = (InternalTriggerBehaviour<S, T, C>) behaviour;
+                    continue;
+                }
+                if (!behaviour.resultsInTransitionFrom(source, context, args, destination)) {
+                    continue;
+                }
+                int position = region.indexOf(destination.get());
+                if (position < 0) {
+                    throw new IllegalStateException("Trigger '" + trigger + "' leads from state '" + source + "' of region '"
+                            + region.getName() + "' to state '" + destination.get() + "', which is not in the region.");
+                }
+                positions[region.getIndex()] = position;
+                transitions[region.getIndex()] = new Transition<>(source, destination.get(), trigger, context);
+                transitioning++;
+            }
+        } finally {
+            scope.close();
+        }
+
+        if (!handled) {
+            unhandledTriggerAction.doIt(current, trigger, context);
+            return;
+        }
+        for (InternalTriggerBehaviour<S, T, C> behaviour : internal) {
+            if (behaviour != null) {
+                behaviour.execute(context, args);
+            }
+        }
+        if (transitioning == 0) {
+            return;
+        }
+        run(transitions, transitioning, args, false);
+        stateMutator.doIt(new CompositeState(positions), context);
+        run(transitions, transitioning, args, true);
+    }
+
+    /**
+     * Override the default behaviour of throwing an exception when no region handles a trigger
+     *
+     * @param unhandledTriggerAction An action to call when an unhandled trigger is fired
+     */
+    public void onUnhandledTrigger(Action3<CompositeState, T, C> unhandledTriggerAction) {
+        if (unhandledTriggerAction == null) {
+            throw new IllegalStateException("unhandledTriggerAction");
+        }
+        this.unhandledTriggerAction = unhandledTriggerAction;
+    }
+
+    /**
+     * Run the exit or entry actions of the transitioning regions, concurrently if there is an executor and more
+     * than one of them
+     */
+    private void run(Transition<S, T, C>[] transitions, int transitioning, final TriggerArguments args, final boolean entering) {
+        if (executor == null || transitioning == 1) {
+            for (Transition<S, T, C> transition : transitions) {
+                if (transition != null) {
+                    step(transition, args, entering);
+                }
+            }
+            return;
+        }
+
+        final CountDownLatch done = new CountDownLatch(transitioning);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        RuntimeException rejected = null;
+        int submitted = 0;
+        try {
+            for (final Transition<S, T, C> transition : transitions) {
+                if (transition == null) {
+                    continue;
+                }
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            step(transition, args, entering);
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                });
+                submitted++;
+            }
+        } catch (RuntimeException e) {
+            // the regions that were never submitted will not count down, wait only for those that were
+            rejected = e;
+            for (int i = submitted; i < transitioning; i++) {
+                done.countDown();
+            }
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (rejected != null) {
+            throw rejected;
+        }
+        Throwable e = failure.get();
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        if (e != null) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void step(Transition<S, T, C> transition, TriggerArguments args, boolean entering) {
+        if (entering) {
+            representationOf(transition.getDestination()).enter(transition, args);
+        } else {
+            representationOf(transition.getSource()).exit(transition);
+        }
+    }
+
+    private StateRepresentation<S, T, C> representationOf(S state) {
+        StateRepresentation<S, T, C> representation = config.getRepresentation(state);
+        return representation == null ? new StateRepresentation<S, T, C>(state) : representation;
+    }
+}
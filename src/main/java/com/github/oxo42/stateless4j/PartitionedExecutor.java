@@ -0,0 +1,375 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.delegates.Func2;
+import com.github.oxo42.stateless4j.reactive.OverflowPolicy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fires trigger events on a fixed set of worker threads, each the single writer of the states of its contexts.
+ * <p>
+ * The context of each event is hashed to one partition. A partition has its own queue, its own slice of the state
+ * store and its own state machine over the shared configuration, and only its worker thread touches them, so all
+ * events of a context are fired in the order they were submitted without any locking around the fire. Contexts that
+ * have not been seen start in the initial state.
+ * <p>
+ * Events are submitted while the executor is started. Submitting does not block unless the overflow policy is
+ * {@link OverflowPolicy#BLOCK}: when the queue of a partition is full, {@link OverflowPolicy#DROP} rejects the new
+ * event and {@link OverflowPolicy#LATEST} discards the oldest waiting one. {@link #submitAll} groups the events by
+ * partition and queues each group under one lock, and workers take all the events that are waiting in their queue
+ * at once and fire them in a batch.
+ * <p>
+ * An event that fails, for example because its trigger is not permitted, is logged and counted and does not stop the
+ * worker. The workers are daemon threads, so events still waiting when the JVM exits without {@link #stop()} are lost.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ * @param <C> The type used to represent the context keys
+ */
+public class PartitionedExecutor<S, T, C> {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final StateMachineConfig<S, T, C> config;
+    private final S initialState;
+    private final OverflowPolicy overflowPolicy;
+    private final List<Partition> partitions;
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private Thread[] threads; // null while stopped
+
+    /**
+     * Construct an executor
+     *
+     * @param config         The configuration shared by all partitions; it must not change while events are fired
+     * @param initialState   The state of contexts that have not been seen
+     * @param partitions     The number of partitions, each with one worker thread
+     * @param queueCapacity  The number of events that may wait for each partition
+     * @param overflowPolicy What to do with an event when the queue of its partition is full
+     */
+    public PartitionedExecutor(StateMachineConfig<S, T, C> config, S initialState, int partitions, int queueCapacity,
+            OverflowPolicy overflowPolicy) {
+        assert config != null : "config is null";
+        assert initialState != null : "initialState is null";
+        assert overflowPolicy != null : "overflowPolicy is null";
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("partitions must be positive");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive");
+        }
+        this.config = config;
+        this.initialState = initialState;
+        this.overflowPolicy = overflowPolicy;
+        this.partitions = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            this.partitions.add(new Partition(queueCapacity));
+        }
+    }
+
+    /**
+     * Start the worker threads
+     *
+     * @param name The prefix of the names of the worker threads
+     */
+    public synchronized void start(String name) {
+        if (threads != null) {
+            throw new IllegalStateException("The executor has already been started.");
+        }
+        threads = new Thread[partitions.size()];
+        for (int i = 0; i < threads.length; i++) {
+            partitions.get(i).start();
+            threads[i] = new Thread(partitions.get(i), name + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    /**
+     * Let the workers fire the events that were queued before this call, then stop them. Events submitted from now
+     * on are rejected; a submit waiting for room in a full queue fails. The executor can be started again
+     *
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the workers
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (threads == null) {
+            return;
+        }
+        try {
+            for (Partition partition : partitions) {
+                partition.stop();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } finally {
+            threads = null;
+        }
+    }
+
+    /**
+     * Queue an event on the partition of its context
+     *
+     * @param event The event
+     * @return True if the event was queued, false if it was dropped because the queue was full
+     * @throws InterruptedException if the calling thread is interrupted while waiting for room in the queue
+     * @throws IllegalStateException if the executor is not started, or is stopped while waiting for room
+     */
+    public boolean submit(TriggerEvent<T, C> event) throws InterruptedException {
+        assert event != null : "event is null";
+        return partitions.get(indexOf(event.getContext())).offer(event);
+    }
+
+    /**
+     * Queue events on the partitions of their contexts, in order
+     *
+     * @param events The events
+     * @return The number of events that were queued
+     * @throws InterruptedException if the calling thread is interrupted while waiting for room in a queue
+     * @throws IllegalStateException if the executor is not started, or is stopped while waiting for room
+     */
+    public int submitAll(Iterable<? extends TriggerEvent<T, C>> events) throws InterruptedException {
+        assert events != null : "events is null";
+        List<List<TriggerEvent<T, C>>> batches = new ArrayList<>(partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            batches.add(null);
+        }
+        for (TriggerEvent<T, C> event : events) {
+            int index = indexOf(event.getContext());
+            List<TriggerEvent<T, C>> batch = batches.get(index);
+            if (batch == null) {
+                batch = new ArrayList<>();
+                batches.set(index, batch);
+            }
+            batch.add(event);
+        }
+        int queued = 0;
+        for (int i = 0; i < batches.size(); i++) {
+            if (batches.get(i) != null) {
+                queued += partitions.get(i).offerAll(batches.get(i));
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * The state of a context. Must not be called while the executor is started
+     *
+     * @param context The context
+     * @return The state of the context
+     */
+    public S getState(C context) {
+        S state = partitions.get(indexOf(context)).states.get(context);
+        return state == null ? initialState : state;
+    }
+
+    /**
+     * All contexts and their states. Must not be called while the executor is started
+     *
+     * @return The states of the contexts that have been seen
+     */
+    public Map<C, S> getStates() {
+        Map<C, S> states = new HashMap<>();
+        for (Partition partition : partitions) {
+            states.putAll(partition.states);
+        }
+        return states;
+    }
+
+    /**
+     * @return The number of events fired successfully
+     */
+    public long getProcessedCount() {
+        return processed.get();
+    }
+
+    /**
+     * @return The number of events that failed
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * @return The number of events dropped because a queue was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private int indexOf(C context) {
+        int hash = context == null ? 0 : context.hashCode();
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % partitions.size();
+    }
+
+    private final class Partition implements Runnable {
+
+        final int capacity;
+        final Lock lock = new ReentrantLock();
+        final Condition notEmpty = lock.newCondition();
+        final Condition notFull = lock.newCondition();
+        final Queue<TriggerEvent<T, C>> queue; // guarded by lock
+        boolean running; // guarded by lock
+        final List<TriggerEvent<T, C>> batch;
+        final Map<C, S> states = new HashMap<>();
+        final StateMachine<S, T, C> machine;
+
+        Partition(int capacity) {
+            this.capacity = capacity;
+            queue = new ArrayDeque<>(capacity);
+            batch = new ArrayList<>(capacity);
+            machine = new StateMachine<>(new Func2<C, S>() {
+                @Override
+                public S call(C context) {
+                    S state = states.get(context);
+                    return state == null ? initialState : state;
+                }
+            }, new Action2<S, C>() {
+                @Override
+                public void doIt(S state, C context) {
+                    states.put(context, state);
+                }
+            }, config);
+        }
+
+        void start() {
+            lock.lock();
+            try {
+                running = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void stop() {
+            lock.lock();
+            try {
+                running = false;
+                notEmpty.signalAll();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean offer(TriggerEvent<T, C> event) throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                enforceRunning();
+                boolean queued = enqueue(event);
+                notEmpty.signal();
+                return queued;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int offerAll(List<TriggerEvent<T, C>> events) throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                enforceRunning();
+                int queued = 0;
+                for (int i = 0; i < events.size(); i++) {
+                    if (enqueue(events.get(i))) {
+                        queued++;
+                    }
+                }
+                notEmpty.signal();
+                return queued;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean enqueue(TriggerEvent<T, C> event) throws InterruptedException {
+            if (queue.size() == capacity) {
+                switch (overflowPolicy) {
+                    case BLOCK:
+                        notEmpty.signal();
+                        do {
+                            notFull.await();
+                            enforceRunning();
+                        } while (queue.size() == capacity);
+                        break;
+                    case LATEST:
+                        queue.poll();
+                        dropped.incrementAndGet();
+                        break;
+                    default:
+                        dropped.incrementAndGet();
+                        return false;
+                }
+            }
+            queue.add(event);
+            return true;
+        }
+
+        private void enforceRunning() {
+            if (!running) {
+                throw new IllegalStateException("The executor is not started.");
+            }
+        }
+
+        /**
+         * Wait for events and move all the waiting ones to the batch
+         *
+         * @return False if the executor is stopped and no event is waiting
+         */
+        private boolean drain() throws InterruptedException {
+            lock.lock();
+            try {
+                while (queue.isEmpty()) {
+                    if (!running) {
+                        return false;
+                    }
+                    notEmpty.await();
+                }
+                for (TriggerEvent<T, C> event = queue.poll(); event != null; event = queue.poll()) {
+                    batch.add(event);
+                }
+                notFull.signalAll();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (drain()) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        fire(batch.get(i));
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                batch.clear();
+            }
+        }
+
+        private void fire(TriggerEvent<T, C> event) {
+            try {
+                machine.publicFire(event.getTrigger(), event.getContext(), event.getArgs());
+                processed.incrementAndGet();
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                logger.warn("Event " + event + " failed", e);
+            }
+        }
+    }
+}
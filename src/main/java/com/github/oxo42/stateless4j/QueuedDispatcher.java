@@ -0,0 +1,252 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters2;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters3;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Queues triggers and fires them on a state machine one at a time, in the order they were queued.
+ * <p>
+ * Triggers marked as coalescible with {@link #coalesce(Object)} are collapsed per context while they wait: queueing
+ * a trigger that is the last one waiting for the same context does not add a second entry, it replaces the arguments
+ * of the waiting one. A burst of identical triggers therefore causes a single transition, with the arguments of the
+ * last one. A trigger is not collapsed into one queued before another trigger of the same context, so the triggers of
+ * a context are still fired in the order they were queued.
+ * <p>
+ * The queue is drained either by calling {@link #drain()} or, when an executor is given, by a task submitted to the
+ * executor whenever triggers are queued. Only one thread drains at a time. If an error escapes a fire, the drain
+ * stops and, with an executor, a new task is submitted for the triggers still waiting.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ * @param <C> The type used to represent the context in which the state machine is being applied
+ */
+public class QueuedDispatcher<S, T, C> {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final StateMachine<S, T, C> machine;
+    private final Executor executor;
+    private final Set<T> coalescible = new HashSet<>();
+    private final Queue<Pending> queue = new ArrayDeque<>();
+    private final Map<C, Pending> lastQueued = new HashMap<>(); // per context with waiting triggers
+    private boolean draining;
+    private boolean drainScheduled; // a drain task was submitted and has not started yet
+    private long coalesced;
+
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    /**
+     * Construct a dispatcher that is drained by calling {@link #drain()}
+     *
+     * @param machine The state machine the triggers are fired on
+     */
+    public QueuedDispatcher(StateMachine<S, T, C> machine) {
+        this(machine, null);
+    }
+
+    /**
+     * Construct a dispatcher that drains itself on an executor
+     *
+     * @param machine  The state machine the triggers are fired on
+     * @param executor Executor that runs the draining task, or null to drain by calling {@link #drain()}
+     */
+    public QueuedDispatcher(StateMachine<S, T, C> machine, Executor executor) {
+        assert machine != null : "machine is null";
+        this.machine = machine;
+        this.executor = executor;
+    }
+
+    /**
+     * Mark a trigger as coalescible
+     *
+     * @param trigger The trigger
+     * @return The receiver
+     */
+    public synchronized QueuedDispatcher<S, T, C> coalesce(T trigger) {
+        assert trigger != null : "trigger is null";
+        coalescible.add(trigger);
+        return this;
+    }
+
+    /**
+     * Queue a trigger
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire it in
+     */
+    public void enqueue(T trigger, C context) {
+        publicEnqueue(trigger, context);
+    }
+
+    /**
+     * Queue a trigger with one parameter
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire it in
+     * @param arg     The argument
+     * @param <TArg>  Type of the argument
+     */
+    public <TArg> void enqueue(TriggerWithParameters1<TArg, T> trigger, C context, TArg arg) {
+        assert trigger != null : "trigger is null";
+        publicEnqueue(trigger.getTrigger(), context, arg);
+    }
+
+    /**
+     * Queue a trigger with two parameters
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire it in
+     * @param arg0    The first argument
+     * @param arg1    The second argument
+     * @param <TArg0> Type of the first argument
+     * @param <TArg1> Type of the second argument
+     */
+    public <TArg0, TArg1> void enqueue(TriggerWithParameters2<TArg0, TArg1, T> trigger, C context, TArg0 arg0, TArg1 arg1) {
+        assert trigger != null : "trigger is null";
+        publicEnqueue(trigger.getTrigger(), context, arg0, arg1);
+    }
+
+    /**
+     * Queue a trigger with three parameters
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire it in
+     * @param arg0    The first argument
+     * @param arg1    The second argument
+     * @param arg2    The third argument
+     * @param <TArg0> Type of the first argument
+     * @param <TArg1> Type of the second argument
+     * @param <TArg2> Type of the third argument
+     */
+    public <TArg0, TArg1, TArg2> void enqueue(TriggerWithParameters3<TArg0, TArg1, TArg2, T> trigger, C context, TArg0 arg0, TArg1 arg1, TArg2 arg2) {
+        assert trigger != null : "trigger is null";
+        publicEnqueue(trigger.getTrigger(), context, arg0, arg1, arg2);
+    }
+
+    /**
+     * Fire the queued triggers on the calling thread until the queue is empty. Returns at once if another thread
+     * is already draining
+     *
+     * @return The number of triggers fired
+     */
+    public int drain() {
+        synchronized (this) {
+            drainScheduled = false;
+            if (draining) {
+                return 0;
+            }
+            draining = true;
+        }
+        int fired = 0;
+        boolean drained = false;
+        try {
+            Pending next;
+            while ((next = poll()) != null) {
+                try {
+                    machine.publicFire(next.trigger, next.context, next.args);
+                } catch (RuntimeException e) {
+                    logger.warn("Queued trigger " + next.trigger + " failed", e);
+                }
+                fired++;
+            }
+            drained = true;
+        } finally {
+            if (!drained) {
+                boolean reschedule;
+                synchronized (this) {
+                    draining = false;
+                    reschedule = executor != null && !queue.isEmpty() && !drainScheduled;
+                    drainScheduled |= reschedule;
+                }
+                if (reschedule) {
+                    scheduleDrain();
+                }
+            }
+        }
+        return fired;
+    }
+
+    /**
+     * @return The number of triggers waiting to be fired
+     */
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    /**
+     * @return The number of triggers that were collapsed into a waiting one
+     */
+    public synchronized long getCoalescedCount() {
+        return coalesced;
+    }
+
+    private void publicEnqueue(T trigger, C context, Object... args) {
+        assert trigger != null : "trigger is null";
+        synchronized (this) {
+            Pending last = lastQueued.get(context);
+            if (last != null && last.trigger.equals(trigger) && coalescible.contains(trigger)) {
+                last.args = args;
+                coalesced++;
+                return;
+            }
+            Pending pending = new Pending(trigger, context, args);
+            lastQueued.put(context, pending);
+            queue.add(pending);
+            if (executor == null || draining || drainScheduled) {
+                return;
+            }
+            drainScheduled = true;
+        }
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        try {
+            executor.execute(drainTask);
+        } catch (RuntimeException e) {
+            // nothing was submitted, so let the next enqueue try again
+            synchronized (this) {
+                drainScheduled = false;
+            }
+            throw e;
+        }
+    }
+
+    private synchronized Pending poll() {
+        Pending next = queue.poll();
+        if (next == null) {
+            // release under the same lock that enqueue checks, so no queued trigger is left behind
+            draining = false;
+        } else if (lastQueued.get(next.context) == next) {
+            lastQueued.remove(next.context);
+        }
+        return next;
+    }
+
+    private final class Pending {
+
+        final T trigger;
+        final C context;
+        Object[] args;
+
+        Pending(T trigger, C context, Object[] args) {
+            this.trigger = trigger;
+            this.context = context;
+            this.args = args;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.oxo42.stateless4j;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An orthogonal region of a state machine configuration: a set of states of which a context is always in exactly
+ * one, independently of the states it is in in the other regions.
+ * <p>
+ * The states of a region are numbered by their position in the region. A {@link CompositeState} stores these
+ * numbers rather than the states themselves; when the states are constants of one enum, the number of a state is
+ * found through its ordinal.
+ *
+ * @param <S> The type used to represent the states
+ */
+public final class Region<S> {
+
+    private final String name;
+    private final int index;
+    private final Object[] states;
+    private final int initialState;
+    private final Class<?> enumType; // null unless all states are constants of one enum
+    private final int[] byOrdinal; // null unless enumType is set
+    private final Map<S, Integer> byState; // null if byOrdinal is used
+
+    Region(String name, int index, S initialState, S[] states) {
+        this.name = name;
+        this.index = index;
+        this.states = states.clone();
+        enumType = enumType(states);
+        if (enumType != null) {
+            byOrdinal = new int[enumType.getEnumConstants().length];
+            Arrays.fill(byOrdinal, -1);
+            for (int i = 0; i < states.length; i++) {
+                byOrdinal[((Enum<?>) states[i]).ordinal()] = i;
+            }
+            byState = null;
+        } else {
+            byOrdinal = null;
+            byState = new HashMap<>(states.length * 2);
+            for (int i = 0; i < states.length; i++) {
+                byState.put(states[i], i);
+            }
+        }
+        this.initialState = indexOf(initialState);
+        if (this.initialState < 0) {
+            throw new IllegalArgumentException("The initial state '" + initialState + "' of region '" + name + "' is not one of its states.");
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The position of the region in the configuration, which is its position in a {@link CompositeState}
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<S> getStates() {
+        return Collections.unmodifiableList(Arrays.asList((S[]) states));
+    }
+
+    @SuppressWarnings("unchecked")
+    public S getInitialState() {
+        return (S) states[initialState];
+    }
+
+    /**
+     * Whether a state belongs to this region
+     *
+     * @param state The state
+     * @return True if the state is one of the states of this region
+     */
+    public boolean contains(S state) {
+        return indexOf(state) >= 0;
+    }
+
+    int getInitialIndex() {
+        return initialState;
+    }
+
+    int indexOf(S state) {
+        if (byOrdinal != null) {
+            if (!(state instanceof Enum) || ((Enum<?>) state).getDeclaringClass() != enumType) {
+                return -1;
+            }
+            return byOrdinal[((Enum<?>) state).ordinal()];
+        }
+        Integer position = byState.get(state);
+        return position == null ? -1 : position;
+    }
+
+    @SuppressWarnings("unchecked")
+    S stateAt(int position) {
+        return (S) states[position];
+    }
+
+    private static Class<?> enumType(Object[] states) {
+        Class<?> type = null;
+        for (Object state : states) {
+            if (!(state instanceof Enum)) {
+                return null;
+            }
+            Class<?> stateType = ((Enum<?>) state).getDeclaringClass();
+            if (type != null && type != stateType) {
+                return null;
+            }
+            type = stateType;
+        }
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.oxo42.stateless4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a simulated fire: where a trigger would lead and which states would be exited and entered on the way.
+ * <p>
+ * A result can be passed back to {@link StateMachine#simulate(SimulationResult, Object, Object, Object...)} to be
+ * filled again, so evaluating many hypothetical triggers does not allocate a result per trigger.
+ *
+ * @param <S> The type used to represent the states
+ */
+public final class SimulationResult<S> {
+
+    final OutVar<S> destination = new OutVar<>();
+    private final ArrayList<S> exited = new ArrayList<>();
+    private final ArrayList<S> entered = new ArrayList<>();
+    private final List<S> exitedView = Collections.unmodifiableList(exited);
+    private final List<S> enteredView = Collections.unmodifiableList(entered);
+    private S source;
+    private boolean handled;
+    private boolean transitions;
+
+    void reset(S source) {
+        this.source = source;
+        handled = false;
+        transitions = false;
+        destination.set(null);
+        exited.clear();
+        entered.clear();
+    }
+
+    void handled(boolean transitions) {
+        this.handled = true;
+        this.transitions = transitions;
+    }
+
+    void exited(S state) {
+        exited.add(state);
+    }
+
+    void entered(S state) {
+        entered.add(state);
+    }
+
+    /**
+     * @return True if the current state or one of its superstates handles the trigger
+     */
+    public boolean isHandled() {
+        return handled;
+    }
+
+    /**
+     * @return True if the trigger would cause a transition, false if it is unhandled or ignored
+     */
+    public boolean isTransition() {
+        return transitions;
+    }
+
+    /**
+     * @return The state the simulation started from
+     */
+    public S getSource() {
+        return source;
+    }
+
+    /**
+     * @return The state the trigger would lead to, or the source state if it would not cause a transition
+     */
+    public S getDestination() {
+        return transitions ? destination.get() : source;
+    }
+
+    /**
+     * @return The states that would be exited, innermost first
+     */
+    public List<S> getExited() {
+        return exitedView;
+    }
+
+    /**
+     * @return The states that would be entered, outermost first
+     */
+    public List<S> getEntered() {
+        return enteredView;
+    }
+
+    @Override
+    public String toString() {
+        if (!handled) {
+            return "unhandled in " + source;
+        }
+        return transitions ? source + " -> " + destination.get() + " exiting " + exited + " entering " + entered : "ignored in " + source;
+    }
+}
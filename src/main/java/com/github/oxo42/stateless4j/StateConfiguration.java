@@ -1,18 +1,23 @@
 package com.github.oxo42.stateless4j;
 
 import com.github.oxo42.stateless4j.delegates.*;
+import com.github.oxo42.stateless4j.timers.StateTimeout;
 import com.github.oxo42.stateless4j.transitions.Transition;
 import com.github.oxo42.stateless4j.transitions.TransitioningTriggerBehaviour;
 import com.github.oxo42.stateless4j.triggers.*;
+import java.util.concurrent.TimeUnit;
 
 public class StateConfiguration<S, T, C> {
 
-    private final FuncCondition<C> NO_GUARD = new FuncCondition<C>() {
+    static final FuncCondition<Object> ALWAYS = new FuncCondition<Object>() {
         @Override
-        public boolean check(C context) {
+        public boolean check(Object context) {
             return true;
         }
     };
+
+    @SuppressWarnings("unchecked")
+    private final FuncCondition<C> NO_GUARD = (FuncCondition<C>) ALWAYS;
     private final StateRepresentation<S, T, C> representation;
     private final Func2<S, StateRepresentation<S, T, C>> lookup;
 
@@ -100,6 +105,67 @@ public class StateConfiguration<S, T, C> {
         return this;
     }
 
+    /**
+     * Accept the specified trigger and run an action without leaving the configured state. Unlike
+     * {@link #permitReentry}, no exit or entry action is executed
+     *
+     * @param trigger The accepted trigger
+     * @param action  Action to execute, with the context the trigger was fired in
+     * @return The receiver
+     */
+    public StateConfiguration<S, T, C> permitInternal(T trigger, Action1<C> action) {
+        return permitInternalIf(trigger, action, NO_GUARD);
+    }
+
+    /**
+     * Accept the specified trigger and run an action without leaving the configured state. Unlike
+     * {@link #permitReentryIf}, no exit or entry action is executed
+     *
+     * @param trigger The accepted trigger
+     * @param action  Action to execute, with the context the trigger was fired in
+     * @param guard   Function that must return true in order for the trigger to be accepted
+     * @return The receiver
+     */
+    public StateConfiguration<S, T, C> permitInternalIf(T trigger, Action1<C> action, FuncCondition<C> guard) {
+        assert action != null : "action is null";
+        return publicPermitInternalIf(trigger, new InternalActionAdapter<>(action), guard);
+    }
+
+    /**
+     * Accept the specified trigger and run an action with its argument without leaving the configured state. No exit
+     * or entry action is executed
+     *
+     * @param trigger The accepted trigger
+     * @param action  Action to execute, with the argument of the trigger and the context it was fired in
+     * @param <TArg>  Type of the trigger argument
+     * @return The receiver
+     */
+    public <TArg> StateConfiguration<S, T, C> permitInternal(TriggerWithParameters1<TArg, T> trigger, Action2<TArg, C> action) {
+        return permitInternalIf(trigger, action, NO_GUARD);
+    }
+
+    /**
+     * Accept the specified trigger and run an action with its argument without leaving the configured state. No exit
+     * or entry action is executed
+     *
+     * @param trigger The accepted trigger
+     * @param action  Action to execute, with the argument of the trigger and the context it was fired in
+     * @param guard   Function that must return true in order for the trigger to be accepted
+     * @param <TArg>  Type of the trigger argument
+     * @return The receiver
+     */
+    public <TArg> StateConfiguration<S, T, C> permitInternalIf(TriggerWithParameters1<TArg, T> trigger, final Action2<TArg, C> action, FuncCondition<C> guard) {
+        assert trigger != null : "trigger is null";
+        assert action != null : "action is null";
+        return publicPermitInternalIf(trigger.getTrigger(), new Action2<C, TriggerArguments>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public void doIt(C context, TriggerArguments args) {
+                action.doIt((TArg) args.get(0), context);
+            }
+        }, guard);
+    }
+
     /**
      * Specify an action that will execute when transitioning into the configured state
      *
@@ -108,12 +174,7 @@ public class StateConfiguration<S, T, C> {
      */
     public StateConfiguration<S, T, C> onEntry(final Action1<Transition<S, T, C>> entryAction) {
         assert entryAction != null : "entryAction is null";
-        representation.addEntryAction(new Action2<Transition<S, T, C>, Object[]>() {
-            @Override
-            public void doIt(Transition<S, T, C> arg1, Object[] arg2) {
-                entryAction.doIt(arg1);
-            }
-        });
+        representation.addEntryAction(new EntryActionAdapter<>(entryAction));
         return this;
     }
 
@@ -126,12 +187,7 @@ public class StateConfiguration<S, T, C> {
      */
     public StateConfiguration<S, T, C> onEntryFrom(T trigger, final Action1<Transition<S, T, C>> entryAction) {
         assert entryAction != null : "entryAction is null";
-        representation.addEntryAction(trigger, new Action2<Transition<S, T, C>, Object[]>() {
-            @Override
-            public void doIt(Transition<S, T, C> arg1, Object[] arg2) {
-                entryAction.doIt(arg1);
-            }
-        });
+        representation.addEntryAction(trigger, new EntryActionAdapter<>(entryAction));
         return this;
     }
 
@@ -147,11 +203,11 @@ public class StateConfiguration<S, T, C> {
     public <TArg> StateConfiguration<S, T, C> onEntryFrom(TriggerWithParameters1<TArg, T> trigger, final Action2<TArg, Transition<S, T, C>> entryAction, final Class<TArg> classe) {
         assert trigger != null : "trigger is null";
         assert entryAction != null : "entryAction is null";
-        representation.addEntryAction(trigger.getTrigger(), new Action2<Transition<S, T, C>, Object[]>() {
+        representation.addEntryAction(trigger.getTrigger(), new ParameterisedEntryAction<S, T, C>(entryAction, classe) {
             @SuppressWarnings("unchecked")
             @Override
-            public void doIt(Transition<S, T, C> t, Object[] arg2) {
-                entryAction.doIt((TArg) arg2[0], t);
+            void execute(Transition<S, T, C> t, TriggerArguments args) {
+                entryAction.doIt((TArg) args.get(0), t);
             }
         });
         return this;
@@ -171,13 +227,13 @@ public class StateConfiguration<S, T, C> {
     public <TArg0, TArg1> StateConfiguration<S, T, C> onEntryFrom(TriggerWithParameters2<TArg0, TArg1, T> trigger, final Action3<TArg0, TArg1, Transition<S, T, C>> entryAction, final Class<TArg0> classe0, final Class<TArg1> classe1) {
         assert trigger != null : "trigger is null";
         assert entryAction != null : "entryAction is null";
-        representation.addEntryAction(trigger.getTrigger(), new Action2<Transition<S, T, C>, Object[]>() {
+        representation.addEntryAction(trigger.getTrigger(), new ParameterisedEntryAction<S, T, C>(entryAction, classe0, classe1) {
             @SuppressWarnings("unchecked")
             @Override
-            public void doIt(Transition<S, T, C> t, Object[] args) {
+            void execute(Transition<S, T, C> t, TriggerArguments args) {
                 entryAction.doIt(
-                        (TArg0) args[0],
-                        (TArg1) args[1], t);
+                        (TArg0) args.get(0),
+                        (TArg1) args.get(1), t);
             }
         });
         return this;
@@ -199,14 +255,86 @@ public class StateConfiguration<S, T, C> {
     public <TArg0, TArg1, TArg2> StateConfiguration<S, T, C> onEntryFrom(TriggerWithParameters3<TArg0, TArg1, TArg2, T> trigger, final Action4<TArg0, TArg1, TArg2, Transition<S, T, C>> entryAction, final Class<TArg0> classe0, final Class<TArg1> classe1, final Class<TArg2> classe2) {
         assert trigger != null : "trigger is null";
         assert entryAction != null : "entryAction is null";
-        representation.addEntryAction(trigger.getTrigger(), new Action2<Transition<S, T, C>, Object[]>() {
+        representation.addEntryAction(trigger.getTrigger(), new ParameterisedEntryAction<S, T, C>(entryAction, classe0, classe1, classe2) {
             @SuppressWarnings("unchecked")
             @Override
-            public void doIt(Transition<S, T, C> t, Object[] args) {
+            void execute(Transition<S, T, C> t, TriggerArguments args) {
                 entryAction.doIt(
-                        (TArg0) args[0],
-                        (TArg1) args[1],
-                        (TArg2) args[2], t);
+                        (TArg0) args.get(0),
+                        (TArg1) args.get(1),
+                        (TArg2) args.get(2), t);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Specify an action that will execute when transitioning into the configured state, receiving the {@code int}
+     * argument of the trigger without boxing
+     *
+     * @param trigger     The trigger by which the state must be entered in order for the action to execute
+     * @param entryAction Action to execute, providing details of the transition
+     * @return The receiver
+     */
+    public StateConfiguration<S, T, C> onEntryFrom(TriggerWithIntParameter<T> trigger, final IntAction<Transition<S, T, C>> entryAction) {
+        assert trigger != null : "trigger is null";
+        assert entryAction != null : "entryAction is null";
+        representation.addEntryAction(trigger.getTrigger(), new ParameterisedEntryAction<S, T, C>(entryAction, int.class) {
+            @Override
+            void execute(Transition<S, T, C> t, TriggerArguments args) {
+                if (args.getPrimitiveType() == int.class) {
+                    entryAction.doIt(args.getInt(), t);
+                } else {
+                    entryAction.doIt((Integer) args.get(0), t);
+                }
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Specify an action that will execute when transitioning into the configured state, receiving the {@code long}
+     * argument of the trigger without boxing
+     *
+     * @param trigger     The trigger by which the state must be entered in order for the action to execute
+     * @param entryAction Action to execute, providing details of the transition
+     * @return The receiver
+     */
+    public StateConfiguration<S, T, C> onEntryFrom(TriggerWithLongParameter<T> trigger, final LongAction<Transition<S, T, C>> entryAction) {
+        assert trigger != null : "trigger is null";
+        assert entryAction != null : "entryAction is null";
+        representation.addEntryAction(trigger.getTrigger(), new ParameterisedEntryAction<S, T, C>(entryAction, long.class) {
+            @Override
+            void execute(Transition<S, T, C> t, TriggerArguments args) {
+                if (args.getPrimitiveType() == long.class) {
+                    entryAction.doIt(args.getLong(), t);
+                } else {
+                    entryAction.doIt((Long) args.get(0), t);
+                }
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Specify an action that will execute when transitioning into the configured state, receiving the {@code double}
+     * argument of the trigger without boxing
+     *
+     * @param trigger     The trigger by which the state must be entered in order for the action to execute
+     * @param entryAction Action to execute, providing details of the transition
+     * @return The receiver
+     */
+    public StateConfiguration<S, T, C> onEntryFrom(TriggerWithDoubleParameter<T> trigger, final DoubleAction<Transition<S, T, C>> entryAction) {
+        assert trigger != null : "trigger is null";
+        assert entryAction != null : "entryAction is null";
+        representation.addEntryAction(trigger.getTrigger(), new ParameterisedEntryAction<S, T, C>(entryAction, double.class) {
+            @Override
+            void execute(Transition<S, T, C> t, TriggerArguments args) {
+                if (args.getPrimitiveType() == double.class) {
+                    entryAction.doIt(args.getDouble(), t);
+                } else {
+                    entryAction.doIt((Double) args.get(0), t);
+                }
             }
         });
         return this;
@@ -224,6 +352,47 @@ public class StateConfiguration<S, T, C> {
         return this;
     }
 
+    /**
+     * Specify an asynchronous action that will execute when transitioning into the configured state. Actions run in
+     * the order they were specified, each starting once the previous one has completed
+     *
+     * @param entryAction Action to start, providing details of the transition
+     * @return The receiver
+     */
+    public StateConfiguration<S, T, C> onEntryAsync(AsyncAction1<Transition<S, T, C>> entryAction) {
+        assert entryAction != null : "entryAction is null";
+        representation.addEntryAction(new StateRepresentation.AsyncEntryAction<>(entryAction));
+        return this;
+    }
+
+    /**
+     * Specify an asynchronous action that will execute when transitioning from the configured state. Actions run in
+     * the order they were specified, each starting once the previous one has completed
+     *
+     * @param exitAction Action to start
+     * @return The receiver
+     */
+    public StateConfiguration<S, T, C> onExitAsync(AsyncAction1<Transition<S, T, C>> exitAction) {
+        assert exitAction != null : "exitAction is null";
+        representation.addExitAction(new StateRepresentation.AsyncExitAction<>(exitAction));
+        return this;
+    }
+
+    /**
+     * Fire the specified trigger if the state machine is still in the configured state after the delay.
+     * The timer starts when the state is entered and is cancelled when it is exited; it only runs on state machines
+     * with timeouts enabled
+     *
+     * @param delay   Time the state machine may stay in the configured state
+     * @param unit    Unit of the delay
+     * @param trigger The trigger to fire when the delay has passed
+     * @return The receiver
+     */
+    public StateConfiguration<S, T, C> timeout(long delay, TimeUnit unit, T trigger) {
+        representation.addTimeout(new StateTimeout<>(delay, unit, trigger));
+        return this;
+    }
+
     /**
      * Sets the superstate that the configured state is a substate of
      * <p>
@@ -311,12 +480,7 @@ public class StateConfiguration<S, T, C> {
      */
     public StateConfiguration<S, T, C> permitDynamicIf(T trigger, final Func2<C, S> destinationStateSelector, FuncCondition<C> guard) {
         assert destinationStateSelector != null : "destinationStateSelector is null";
-        return publicPermitDynamicIf(trigger, new Func3<C, Object[], S>() {
-            @Override
-            public S call(C context, Object[] args) {
-                return destinationStateSelector.call(context);
-            }
-        }, guard);
+        return publicPermitDynamicIf(trigger, new SelectorAdapter<>(destinationStateSelector), guard);
     }
 
     /**
@@ -333,11 +497,11 @@ public class StateConfiguration<S, T, C> {
         assert trigger != null : "trigger is null";
         assert destinationStateSelector != null : "destinationStateSelector is null";
         return publicPermitDynamicIf(
-                trigger.getTrigger(), new Func3<C, Object[], S>() {
+                trigger.getTrigger(), new ArgumentSelector<C, S>() {
                     @SuppressWarnings("unchecked")
                     @Override
-                    public S call(C context, Object[] args) {
-                        return destinationStateSelector.call((TArg) args[0], context);
+                    public S select(C context, TriggerArguments args) {
+                        return destinationStateSelector.call((TArg) args.get(0), context);
 
                     }
                 },
@@ -361,14 +525,14 @@ public class StateConfiguration<S, T, C> {
         assert trigger != null : "trigger is null";
         assert destinationStateSelector != null : "destinationStateSelector is null";
         return publicPermitDynamicIf(
-                trigger.getTrigger(), new Func3<C, Object[], S>() {
+                trigger.getTrigger(), new ArgumentSelector<C, S>() {
                     @SuppressWarnings("unchecked")
 
                     @Override
-                    public S call(C context, Object[] args) {
+                    public S select(C context, TriggerArguments args) {
                         return destinationStateSelector.call(
-                                (TArg0) args[0],
-                                (TArg1) args[1],
+                                (TArg0) args.get(0),
+                                (TArg1) args.get(1),
                                 context);
                     }
                 },
@@ -393,15 +557,15 @@ public class StateConfiguration<S, T, C> {
         assert trigger != null : "trigger is null";
         assert destinationStateSelector != null : "destinationStateSelector is null";
         return publicPermitDynamicIf(
-                trigger.getTrigger(), new Func3<C, Object[], S>() {
+                trigger.getTrigger(), new ArgumentSelector<C, S>() {
                     @SuppressWarnings("unchecked")
 
                     @Override
-                    public S call(C context, Object[] args) {
+                    public S select(C context, TriggerArguments args) {
                         return destinationStateSelector.call(
-                                (TArg0) args[0],
-                                (TArg1) args[1],
-                                (TArg2) args[2],
+                                (TArg0) args.get(0),
+                                (TArg1) args.get(1),
+                                (TArg2) args.get(2),
                                 context
                         );
                     }
@@ -409,6 +573,120 @@ public class StateConfiguration<S, T, C> {
         );
     }
 
+    /**
+     * Accept the specified trigger and transition to the destination state, calculated dynamically by the supplied
+     * function from the unboxed {@code int} argument
+     *
+     * @param trigger                  The accepted trigger
+     * @param destinationStateSelector Function to calculate the state that the trigger will cause a transition to
+     * @return The receiver
+     */
+    public StateConfiguration<S, T, C> permitDynamic(TriggerWithIntParameter<T> trigger, IntFunc<C, S> destinationStateSelector) {
+        return permitDynamicIf(trigger, destinationStateSelector, NO_GUARD);
+    }
+
+    /**
+     * Accept the specified trigger and transition to the destination state, calculated dynamically by the supplied
+     * function from the unboxed {@code int} argument
+     *
+     * @param trigger                  The accepted trigger
+     * @param destinationStateSelector Function to calculate the state that the trigger will cause a transition to
+     * @param guard                    Function that must return true in order for the  trigger to be accepted
+     * @return The receiver
+     */
+    public StateConfiguration<S, T, C> permitDynamicIf(TriggerWithIntParameter<T> trigger, final IntFunc<C, S> destinationStateSelector, FuncCondition<C> guard) {
+        assert trigger != null : "trigger is null";
+        assert destinationStateSelector != null : "destinationStateSelector is null";
+        return publicPermitDynamicIf(
+                trigger.getTrigger(), new ArgumentSelector<C, S>() {
+                    @Override
+                    public S select(C context, TriggerArguments args) {
+                        if (args.getPrimitiveType() == int.class) {
+                            return destinationStateSelector.call(args.getInt(), context);
+                        }
+                        return destinationStateSelector.call((Integer) args.get(0), context);
+                    }
+                },
+                guard
+        );
+    }
+
+    /**
+     * Accept the specified trigger and transition to the destination state, calculated dynamically by the supplied
+     * function from the unboxed {@code long} argument
+     *
+     * @param trigger                  The accepted trigger
+     * @param destinationStateSelector Function to calculate the state that the trigger will cause a transition to
+     * @return The receiver
+     */
+    public StateConfiguration<S, T, C> permitDynamic(TriggerWithLongParameter<T> trigger, LongFunc<C, S> destinationStateSelector) {
+        return permitDynamicIf(trigger, destinationStateSelector, NO_GUARD);
+    }
+
+    /**
+     * Accept the specified trigger and transition to the destination state, calculated dynamically by the supplied
+     * function from the unboxed {@code long} argument
+     *
+     * @param trigger                  The accepted trigger
+     * @param destinationStateSelector Function to calculate the state that the trigger will cause a transition to
+     * @param guard                    Function that must return true in order for the  trigger to be accepted
+     * @return The receiver
+     */
+    public StateConfiguration<S, T, C> permitDynamicIf(TriggerWithLongParameter<T> trigger, final LongFunc<C, S> destinationStateSelector, FuncCondition<C> guard) {
+        assert trigger != null : "trigger is null";
+        assert destinationStateSelector != null : "destinationStateSelector is null";
+        return publicPermitDynamicIf(
+                trigger.getTrigger(), new ArgumentSelector<C, S>() {
+                    @Override
+                    public S select(C context, TriggerArguments args) {
+                        if (args.getPrimitiveType() == long.class) {
+                            return destinationStateSelector.call(args.getLong(), context);
+                        }
+                        return destinationStateSelector.call((Long) args.get(0), context);
+                    }
+                },
+                guard
+        );
+    }
+
+    /**
+     * Accept the specified trigger and transition to the destination state, calculated dynamically by the supplied
+     * function from the unboxed {@code double} argument
+     *
+     * @param trigger                  The accepted trigger
+     * @param destinationStateSelector Function to calculate the state that the trigger will cause a transition to
+     * @return The receiver
+     */
+    public StateConfiguration<S, T, C> permitDynamic(TriggerWithDoubleParameter<T> trigger, DoubleFunc<C, S> destinationStateSelector) {
+        return permitDynamicIf(trigger, destinationStateSelector, NO_GUARD);
+    }
+
+    /**
+     * Accept the specified trigger and transition to the destination state, calculated dynamically by the supplied
+     * function from the unboxed {@code double} argument
+     *
+     * @param trigger                  The accepted trigger
+     * @param destinationStateSelector Function to calculate the state that the trigger will cause a transition to
+     * @param guard                    Function that must return true in order for the  trigger to be accepted
+     * @return The receiver
+     */
+    public StateConfiguration<S, T, C> permitDynamicIf(TriggerWithDoubleParameter<T> trigger, final DoubleFunc<C, S> destinationStateSelector, FuncCondition<C> guard) {
+        assert trigger != null : "trigger is null";
+        assert destinationStateSelector != null : "destinationStateSelector is null";
+        return publicPermitDynamicIf(
+                trigger.getTrigger(), new ArgumentSelector<C, S>() {
+                    @Override
+                    public S select(C context, TriggerArguments args) {
+                        if (args.getPrimitiveType() == double.class) {
+                            return destinationStateSelector.call(args.getDouble(), context);
+                        }
+                        return destinationStateSelector.call((Double) args.get(0), context);
+                    }
+                },
+                guard
+        );
+    }
+
     void enforceNotIdentityTransition(S destination) {
         if (destination.equals(representation.getUnderlyingState())) {
             throw new IllegalStateException("Permit() (and PermitIf()) require that the destination state is not equal to the source state. To accept a trigger without changing state, use either Ignore() or PermitReentry().");
@@ -425,6 +703,12 @@ public class StateConfiguration<S, T, C> {
         return this;
     }
 
+    StateConfiguration<S, T, C> publicPermitInternalIf(T trigger, Action2<C, TriggerArguments> action, FuncCondition<C> guard) {
+        assert guard != null : "guard is null";
+        representation.addTriggerBehaviour(new InternalTriggerBehaviour<S, T, C>(trigger, action, guard));
+        return this;
+    }
+
     StateConfiguration<S, T, C> publicPermitDynamic(T trigger, Func3<C, Object[], S> destinationStateSelector) {
         return publicPermitDynamicIf(trigger, destinationStateSelector, NO_GUARD);
     }
@@ -435,4 +719,70 @@ public class StateConfiguration<S, T, C> {
         representation.addTriggerBehaviour(new DynamicTriggerBehaviour<>(trigger, destinationStateSelector, guard));
         return this;
     }
+
+    /**
+     * Entry action that unpacks the arguments of a trigger with parameters, remembering the action it calls and the
+     * argument types it expects
+     */
+    abstract static class ParameterisedEntryAction<S, T, C> extends StateRepresentation.EntryAction<S, T, C> {
+
+        final Object action;
+        final Class<?>[] argumentTypes;
+
+        ParameterisedEntryAction(Object action, Class<?>... argumentTypes) {
+            this.action = action;
+            this.argumentTypes = argumentTypes;
+        }
+    }
+
+    /**
+     * Adapts a parameterless entry action, keeping it reachable for introspection
+     */
+    static final class EntryActionAdapter<S, T, C> extends StateRepresentation.EntryAction<S, T, C> {
+
+        final Action1<Transition<S, T, C>> action;
+
+        EntryActionAdapter(Action1<Transition<S, T, C>> action) {
+            this.action = action;
+        }
+
+        @Override
+        void execute(Transition<S, T, C> transition, TriggerArguments args) {
+            action.doIt(transition);
+        }
+    }
+
+    /**
+     * Adapts a parameterless destination selector, keeping it reachable for introspection
+     */
+    static final class SelectorAdapter<C, S> extends ArgumentSelector<C, S> {
+
+        final Func2<C, S> selector;
+
+        SelectorAdapter(Func2<C, S> selector) {
+            this.selector = selector;
+        }
+
+        @Override
+        public S select(C context, TriggerArguments args) {
+            return selector.call(context);
+        }
+    }
+
+    /**
+     * Adapts a parameterless internal transition action, keeping it reachable for introspection
+     */
+    static final class InternalActionAdapter<C> implements Action2<C, TriggerArguments> {
+
+        final Action1<C> action;
+
+        InternalActionAdapter(Action1<C> action) {
+            this.action = action;
+        }
+
+        @Override
+        public void doIt(C context, TriggerArguments args) {
+            action.doIt(context);
+        }
+    }
 }
@@ -1,11 +1,21 @@
 package com.github.oxo42.stateless4j;
 
+import com.github.oxo42.stateless4j.delegates.Action1;
 import com.github.oxo42.stateless4j.delegates.Action2;
 import com.github.oxo42.stateless4j.delegates.Action3;
+import com.github.oxo42.stateless4j.delegates.Completion;
 import com.github.oxo42.stateless4j.delegates.Func2;
+import com.github.oxo42.stateless4j.reactive.BufferedPublisher;
+import com.github.oxo42.stateless4j.reactive.OverflowPolicy;
+import com.github.oxo42.stateless4j.timers.HashedTimingWheel;
 import com.github.oxo42.stateless4j.transitions.Transition;
 import com.github.oxo42.stateless4j.triggers.*;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,10 +28,23 @@ import org.slf4j.LoggerFactory;
  */
 public class StateMachine<S, T, C> {
 
+    private static final Object NO_CONTEXT = new Object();
+
+    /**
+     * The configuration of a state machine constructed with a fixed one, null for a state machine constructed with a
+     * {@link ConfigHolder}, whose configuration is replaced while it runs; {@link #configuration()} returns the
+     * current configuration of either
+     */
     protected final StateMachineConfig<S, T, C> config;
+    private final ConfigHolder.Version<S, T, C> fixedVersion; // null when the configuration is held
+    private final ConfigHolder<S, T, C> holder; // null when the configuration is fixed
     protected final Func2<C, S> stateAccessor;
     protected final Action2<S, C> stateMutator;
     private final Logger logger = LoggerFactory.getLogger(getClass());
+    private TimeoutScheduler<S, T, C> timeouts; // null
+    private final List<Action1<Transition<S, T, C>>> transitionListeners = new CopyOnWriteArrayList<>();
+    private volatile GuardActionProfiler profiler; // null unless enabled
+    private final Set<Object> asyncFires = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>()); // contexts firing asynchronously
     protected Action3<S, T, C> unhandledTriggerAction = new Action3<S, T, C>() {
 
         @Override
@@ -44,16 +67,42 @@ public class StateMachine<S, T, C> {
      */
     public StateMachine(Func2<C, S> stateAccessor, Action2<S, C> stateMutator, StateMachineConfig<S, T, C> config) {
         this.config = config;
+        this.fixedVersion = new ConfigHolder.Version<>(config, 0, Collections.<S>emptySet(), Collections.<S, S>emptyMap());
+        this.holder = null;
+        this.stateAccessor = stateAccessor;
+        this.stateMutator = stateMutator;
+    }
+
+    /**
+     * Construct a state machine with external state storage whose configuration can be replaced while it runs.
+     * Each fire uses the version of the configuration that is current when it starts
+     *
+     * @param stateAccessor State accessor
+     * @param stateMutator  State mutator
+     * @param holder        Holder of the live configuration
+     */
+    public StateMachine(Func2<C, S> stateAccessor, Action2<S, C> stateMutator, ConfigHolder<S, T, C> holder) {
+        assert holder != null : "holder is null";
+        this.config = null;
+        this.fixedVersion = null;
+        this.holder = holder;
         this.stateAccessor = stateAccessor;
         this.stateMutator = stateMutator;
     }
 
     public StateConfiguration<S, T, C> configure(S state) {
-        return config.configure(state);
+        return configuration().configure(state);
     }
     
     public StateMachineConfig<S, T, C> configuration() {
-        return config;
+        return holder == null ? config : holder.getConfig();
+    }
+
+    /**
+     * The version of the configuration to use for one operation, read once so that the operation sees one version
+     */
+    ConfigHolder.Version<S, T, C> version() {
+        return holder == null ? fixedVersion : holder.current();
     }
 
     /**
@@ -72,7 +121,7 @@ public class StateMachine<S, T, C> {
      * @param value   The state to set
      * @param context The context to set the current state for
      */
-    private void setState(S value, C context) {
+    void setState(S value, C context) {
         stateMutator.doIt(value, context);
     }
 
@@ -83,7 +132,12 @@ public class StateMachine<S, T, C> {
      * @return The currently-permissible trigger values
      */
     public List<T> getPermittedTriggers(C context) {
-        return getCurrentRepresentation(context).getPermittedTriggers(context);
+        GuardScope scope = GuardScope.open();
+        try {
+            return getCurrentRepresentation(version(), context).getPermittedTriggers(context);
+        } finally {
+            scope.close();
+        }
     }
 
     /**
@@ -93,8 +147,53 @@ public class StateMachine<S, T, C> {
      * @return The configured representation of the current state
      */
     StateRepresentation<S, T, C> getCurrentRepresentation(C context) {
+        return getCurrentRepresentation(version(), context);
+    }
+
+    /**
+     * The representation of the current state in a version of the configuration. A state that the version no longer
+     * configures is seen as the state it migrates to, without changing the stored state
+     */
+    StateRepresentation<S, T, C> getCurrentRepresentation(ConfigHolder.Version<S, T, C> version, C context) {
         S state = getState(context);
-        StateRepresentation<S, T, C> representation = config.getRepresentation(state);
+        StateRepresentation<S, T, C> representation = version.getConfig().getRepresentation(state);
+        if (representation == null) {
+            state = version.migrate(state);
+            representation = version.getConfig().getRepresentation(state);
+        }
+        return representation == null ? new StateRepresentation<S, T, C>(state) : representation;
+    }
+
+    /**
+     * Store the state that the current state migrates to, if a version of the configuration no longer configures it
+     *
+     * @return The representation of the current state in the version, null if the version does not configure it
+     */
+    private StateRepresentation<S, T, C> migrateState(ConfigHolder.Version<S, T, C> version, C context) {
+        S state = getState(context);
+        StateRepresentation<S, T, C> representation = version.getConfig().getRepresentation(state);
+        if (representation == null && holder != null) {
+            S migrated = version.migrate(state);
+            if (!migrated.equals(state)) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Migrating to " + migrated + " in version " + version.getNumber());
+                }
+                setState(migrated, context);
+            }
+            representation = version.getConfig().getRepresentation(migrated);
+        }
+        return representation;
+    }
+
+    /**
+     * The state of a representation returned by {@link #migrateState}, read from the context if it is not configured
+     */
+    private S stateOf(StateRepresentation<S, T, C> representation, C context) {
+        return representation == null ? getState(context) : representation.getUnderlyingState();
+    }
+
+    private static <S, T, C> StateRepresentation<S, T, C> representationOf(ConfigHolder.Version<S, T, C> version, S state) {
+        StateRepresentation<S, T, C> representation = version.getConfig().getRepresentation(state);
         return representation == null ? new StateRepresentation<S, T, C>(state) : representation;
     }
 
@@ -124,7 +223,7 @@ public class StateMachine<S, T, C> {
      */
     public <TArg> void fire(TriggerWithParameters1<TArg, T> trigger, C context, TArg arg) {
         assert trigger != null : "trigger is null";
-        publicFire(trigger.getTrigger(), context, arg);
+        publicFire(trigger.getTrigger(), context, TriggerArguments.of(arg));
     }
 
     /**
@@ -142,7 +241,7 @@ public class StateMachine<S, T, C> {
      */
     public <TArg0, TArg1> void fire(TriggerWithParameters2<TArg0, TArg1, T> trigger, C context, TArg0 arg0, TArg1 arg1) {
         assert trigger != null : "trigger is null";
-        publicFire(trigger.getTrigger(), context, arg0, arg1);
+        publicFire(trigger.getTrigger(), context, TriggerArguments.of(arg0, arg1));
     }
 
     /**
@@ -162,31 +261,547 @@ public class StateMachine<S, T, C> {
      */
     public <TArg0, TArg1, TArg2> void fire(TriggerWithParameters3<TArg0, TArg1, TArg2, T> trigger, C context, TArg0 arg0, TArg1 arg1, TArg2 arg2) {
         assert trigger != null : "trigger is null";
-        publicFire(trigger.getTrigger(), context, arg0, arg1, arg2);
+        publicFire(trigger.getTrigger(), context, TriggerArguments.of(arg0, arg1, arg2));
+    }
+
+    /**
+     * Transition from the current state via the specified trigger, passing its {@code int} argument without boxing.
+     * The target state is determined by the configuration of the current state.
+     * Actions associated with leaving the current state and entering the new one
+     * will be invoked.
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire the trigger for
+     * @param arg     The argument
+     */
+    public void fire(TriggerWithIntParameter<T> trigger, C context, int arg) {
+        assert trigger != null : "trigger is null";
+        publicFire(trigger.getTrigger(), context, TriggerArguments.ofInt(arg));
+    }
+
+    /**
+     * Transition from the current state via the specified trigger, passing its {@code long} argument without boxing.
+     * The target state is determined by the configuration of the current state.
+     * Actions associated with leaving the current state and entering the new one
+     * will be invoked.
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire the trigger for
+     * @param arg     The argument
+     */
+    public void fire(TriggerWithLongParameter<T> trigger, C context, long arg) {
+        assert trigger != null : "trigger is null";
+        publicFire(trigger.getTrigger(), context, TriggerArguments.ofLong(arg));
+    }
+
+    /**
+     * Transition from the current state via the specified trigger, passing its {@code double} argument without boxing.
+     * The target state is determined by the configuration of the current state.
+     * Actions associated with leaving the current state and entering the new one
+     * will be invoked.
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire the trigger for
+     * @param arg     The argument
+     */
+    public void fire(TriggerWithDoubleParameter<T> trigger, C context, double arg) {
+        assert trigger != null : "trigger is null";
+        publicFire(trigger.getTrigger(), context, TriggerArguments.ofDouble(arg));
     }
 
     protected void publicFire(T trigger, C context, Object... args) {
-        logger.debug("Firing " + trigger);
-        TriggerWithParameters<T> configuration = config.getTriggerConfiguration(trigger);
-        if (configuration != null) {
-            configuration.validateParameters(args);
+        assert args != null : "args is null";
+        publicFire(trigger, context, TriggerArguments.fromArray(args));
+    }
+
+    /**
+     * Fire a trigger with its arguments carried in fields, the path taken by the typed fire methods
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire the trigger for
+     * @param args    The arguments of the trigger
+     */
+    protected void publicFire(T trigger, C context, TriggerArguments args) {
+        fire(trigger, context, args, true);
+    }
+
+    /**
+     * Transition from the current state via the specified trigger, without throwing when the trigger is not
+     * permitted. Unlike {@link #fire(Object, Object)}, an unhandled trigger does not call the unhandled trigger
+     * action and guards that are met together do not throw; both are reported in the result instead. Exceptions
+     * thrown by actions, guards and the state accessor or mutator, and invalid arguments, still propagate.
+     * <p>
+     * An unhandled, ignored or ambiguous trigger allocates nothing beyond the arguments of a parameterised trigger.
+     * A transition, including a reentry, allocates the {@link Transition} passed to the actions
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire the trigger for
+     * @return What firing the trigger did
+     */
+    public FireResult tryFire(T trigger, C context) {
+        return publicTryFire(trigger, context, TriggerArguments.NONE);
+    }
+
+    /**
+     * Transition from the current state via the specified trigger, without throwing when the trigger is not
+     * permitted, see {@link #tryFire(Object, Object)}
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire the trigger for
+     * @param arg     The argument
+     * @param <TArg>  Type of the trigger argument
+     * @return What firing the trigger did
+     */
+    public <TArg> FireResult tryFire(TriggerWithParameters1<TArg, T> trigger, C context, TArg arg) {
+        assert trigger != null : "trigger is null";
+        return publicTryFire(trigger.getTrigger(), context, TriggerArguments.of(arg));
+    }
+
+    /**
+     * Transition from the current state via the specified trigger, without throwing when the trigger is not
+     * permitted, see {@link #tryFire(Object, Object)}
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire the trigger for
+     * @param arg0    The first argument
+     * @param arg1    The second argument
+     * @param <TArg0> Type of the first trigger argument
+     * @param <TArg1> Type of the second trigger argument
+     * @return What firing the trigger did
+     */
+    public <TArg0, TArg1> FireResult tryFire(TriggerWithParameters2<TArg0, TArg1, T> trigger, C context, TArg0 arg0, TArg1 arg1) {
+        assert trigger != null : "trigger is null";
+        return publicTryFire(trigger.getTrigger(), context, TriggerArguments.of(arg0, arg1));
+    }
+
+    /**
+     * Transition from the current state via the specified trigger, without throwing when the trigger is not
+     * permitted, see {@link #tryFire(Object, Object)}
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire the trigger for
+     * @param arg0    The first argument
+     * @param arg1    The second argument
+     * @param arg2    The third argument
+     * @param <TArg0> Type of the first trigger argument
+     * @param <TArg1> Type of the second trigger argument
+     * @param <TArg2> Type of the third trigger argument
+     * @return What firing the trigger did
+     */
+    public <TArg0, TArg1, TArg2> FireResult tryFire(TriggerWithParameters3<TArg0, TArg1, TArg2, T> trigger, C context, TArg0 arg0, TArg1 arg1, TArg2 arg2) {
+        assert trigger != null : "trigger is null";
+        return publicTryFire(trigger.getTrigger(), context, TriggerArguments.of(arg0, arg1, arg2));
+    }
+
+    /**
+     * Transition from the current state via the specified trigger, passing its {@code int} argument without boxing,
+     * without throwing when the trigger is not permitted, see {@link #tryFire(Object, Object)}
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire the trigger for
+     * @param arg     The argument
+     * @return What firing the trigger did
+     */
+    public FireResult tryFire(TriggerWithIntParameter<T> trigger, C context, int arg) {
+        assert trigger != null : "trigger is null";
+        return publicTryFire(trigger.getTrigger(), context, TriggerArguments.ofInt(arg));
+    }
+
+    /**
+     * Transition from the current state via the specified trigger, passing its {@code long} argument without boxing,
+     * without throwing when the trigger is not permitted, see {@link #tryFire(Object, Object)}
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire the trigger for
+     * @param arg     The argument
+     * @return What firing the trigger did
+     */
+    public FireResult tryFire(TriggerWithLongParameter<T> trigger, C context, long arg) {
+        assert trigger != null : "trigger is null";
+        return publicTryFire(trigger.getTrigger(), context, TriggerArguments.ofLong(arg));
+    }
+
+    /**
+     * Transition from the current state via the specified trigger, passing its {@code double} argument without boxing,
+     * without throwing when the trigger is not permitted, see {@link #tryFire(Object, Object)}
+     *
+     * @param trigger The trigger to fire
+     * @param context The context to fire the trigger for
+     * @param arg     The argument
+     * @return What firing the trigger did
+     */
+    public FireResult tryFire(TriggerWithDoubleParameter<T> trigger, C context, double arg) {
+        assert trigger != null : "trigger is null";
+        return publicTryFire(trigger.getTrigger(), context, TriggerArguments.ofDouble(arg));
+    }
+
+    protected FireResult publicTryFire(T trigger, C context, TriggerArguments args) {
+        return fire(trigger, context, args, false);
+    }
+
+    /**
+     * @param strict True to call the unhandled trigger action and to throw on guards that are met together, false to
+     *               only report them
+     */
+    private FireResult fire(T trigger, C context, TriggerArguments args, boolean strict) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Firing " + trigger);
         }
+        ConfigHolder.Version<S, T, C> version = version();
+        validateParameters(version.getConfig(), trigger, args);
 
-        TriggerBehaviour<S, T, C> triggerBehaviour = getCurrentRepresentation(context).tryFindHandler(trigger, context);
+        GuardActionProfiler profiler = this.profiler;
+        if (profiler != null && !profiler.sample()) {
+            profiler = null;
+        }
+        StateRepresentation<S, T, C> sourceRepresentation = migrateState(version, context);
+        TriggerBehaviour<S, T, C> triggerBehaviour = sourceRepresentation == null
+                ? null
+                : findHandler(sourceRepresentation, trigger, context, strict, profiler);
         if (triggerBehaviour == null) {
-            unhandledTriggerAction.doIt(getCurrentRepresentation(context).getUnderlyingState(), trigger, context);
+            if (strict) {
+                unhandledTriggerAction.doIt(stateOf(sourceRepresentation, context), trigger, context);
+            }
+            return FireResult.UNHANDLED;
+        }
+        if (triggerBehaviour == StateRepresentation.AMBIGUOUS) {
+            return FireResult.AMBIGUOUS;
+        }
+
+        if (triggerBehaviour instanceof InternalTriggerBehaviour) {
+            ((InternalTriggerBehaviour<S, T, C>) triggerBehaviour).execute(context, args);
+            return FireResult.INTERNAL;
+        }
+        if (triggerBehaviour instanceof IgnoredTriggerBehaviour) {
+            return FireResult.IGNORED;
+        }
+
+        S source = sourceRepresentation.getUnderlyingState();
+        OutVar<S> destination = new OutVar<>();
+        if (!triggerBehaviour.resultsInTransitionFrom(source, context, args, destination)) {
+            return FireResult.IGNORED;
+        }
+        Transition<S, T, C> transition = new Transition<>(source, destination.get(), trigger, context);
+
+        sourceRepresentation.exit(transition, profiler);
+        exited(sourceRepresentation, transition);
+        setState(destination.get(), context);
+        StateRepresentation<S, T, C> destinationRepresentation = representationOf(version, destination.get());
+        destinationRepresentation.enter(transition, args, profiler);
+        entered(destinationRepresentation, transition);
+        return transition.isReentry() ? FireResult.REENTERED : FireResult.TRANSITIONED;
+    }
+
+    /**
+     * Transition from the current state via the specified trigger without waiting for asynchronous actions.
+     * The exit actions run first, then the state is changed and then the entry actions run, each action starting
+     * once the previous one has completed. The completion is told when the last action has completed or when one
+     * fails; if an exit action fails the state is not changed.
+     * <p>
+     * Only one asynchronous fire may be in progress for a context at a time: a fire made before the completion of
+     * the previous one is told fails with an {@link IllegalStateException}, passed to its completion, and changes
+     * nothing. Synchronous fires are not checked and must not be made for the context in the meantime either
+     *
+     * @param trigger    The trigger to fire
+     * @param context    The context to fire the trigger for
+     * @param completion Receives the outcome of the transition
+     */
+    public void fireAsync(T trigger, C context, Completion completion) {
+        publicFireAsync(trigger, context, TriggerArguments.NONE, completion);
+    }
+
+    /**
+     * Transition from the current state via the specified trigger without waiting for asynchronous actions, see
+     * {@link #fireAsync(Object, Object, Completion)}
+     *
+     * @param trigger    The trigger to fire
+     * @param context    The context to fire the trigger for
+     * @param arg        The argument
+     * @param completion Receives the outcome of the transition
+     * @param <TArg>     Type of the trigger argument
+     */
+    public <TArg> void fireAsync(TriggerWithParameters1<TArg, T> trigger, C context, TArg arg, Completion completion) {
+        assert trigger != null : "trigger is null";
+        publicFireAsync(trigger.getTrigger(), context, TriggerArguments.of(arg), completion);
+    }
+
+    /**
+     * Transition from the current state via the specified trigger without waiting for asynchronous actions, see
+     * {@link #fireAsync(Object, Object, Completion)}
+     *
+     * @param trigger    The trigger to fire
+     * @param context    The context to fire the trigger for
+     * @param arg0       The first argument
+     * @param arg1       The second argument
+     * @param completion Receives the outcome of the transition
+     * @param <TArg0>    Type of the first trigger argument
+     * @param <TArg1>    Type of the second trigger argument
+     */
+    public <TArg0, TArg1> void fireAsync(TriggerWithParameters2<TArg0, TArg1, T> trigger, C context, TArg0 arg0, TArg1 arg1,
+            Completion completion) {
+        assert trigger != null : "trigger is null";
+        publicFireAsync(trigger.getTrigger(), context, TriggerArguments.of(arg0, arg1), completion);
+    }
+
+    /**
+     * Transition from the current state via the specified trigger without waiting for asynchronous actions, see
+     * {@link #fireAsync(Object, Object, Completion)}
+     *
+     * @param trigger    The trigger to fire
+     * @param context    The context to fire the trigger for
+     * @param arg0       The first argument
+     * @param arg1       The second argument
+     * @param arg2       The third argument
+     * @param completion Receives the outcome of the transition
+     * @param <TArg0>    Type of the first trigger argument
+     * @param <TArg1>    Type of the second trigger argument
+     * @param <TArg2>    Type of the third trigger argument
+     */
+    public <TArg0, TArg1, TArg2> void fireAsync(TriggerWithParameters3<TArg0, TArg1, TArg2, T> trigger, C context,
+            TArg0 arg0, TArg1 arg1, TArg2 arg2, Completion completion) {
+        assert trigger != null : "trigger is null";
+        publicFireAsync(trigger.getTrigger(), context, TriggerArguments.of(arg0, arg1, arg2), completion);
+    }
+
+    protected void publicFireAsync(T trigger, C context, TriggerArguments args, Completion completion) {
+        assert completion != null : "completion is null";
+        if (logger.isDebugEnabled()) {
+            logger.debug("Firing " + trigger + " asynchronously");
+        }
+        Object key = context == null ? NO_CONTEXT : context;
+        if (!asyncFires.add(key)) {
+            completion.failed(new IllegalStateException(
+                    "Trigger '" + trigger + "' was fired asynchronously in context '" + context + "' before the previous asynchronous fire completed."));
+            return;
+        }
+        AsyncTransition<S, T, C> pipeline;
+        try {
+            pipeline = asyncTransition(trigger, context, args, completion);
+        } catch (RuntimeException e) {
+            asyncFires.remove(key);
+            completion.failed(e);
+            return;
+        }
+        if (pipeline == null) {
+            asyncFires.remove(key);
+            completion.completed();
             return;
         }
+        pipeline.run();
+    }
 
-        S source = getState(context);
+    /**
+     * @return The pipeline of the transition, or null if the fire does not transition and is already complete
+     */
+    private AsyncTransition<S, T, C> asyncTransition(T trigger, C context, TriggerArguments args, Completion completion) {
+        ConfigHolder.Version<S, T, C> version = version();
+        validateParameters(version.getConfig(), trigger, args);
+        StateRepresentation<S, T, C> sourceRepresentation = migrateState(version, context);
+        TriggerBehaviour<S, T, C> triggerBehaviour = sourceRepresentation == null
+                ? null
+                : findHandler(sourceRepresentation, trigger, context);
+        if (triggerBehaviour == null) {
+            unhandledTriggerAction.doIt(stateOf(sourceRepresentation, context), trigger, context);
+            return null;
+        }
+        if (triggerBehaviour instanceof InternalTriggerBehaviour) {
+            ((InternalTriggerBehaviour<S, T, C>) triggerBehaviour).execute(context, args);
+            return null;
+        }
+        S source = sourceRepresentation.getUnderlyingState();
         OutVar<S> destination = new OutVar<>();
-        if (triggerBehaviour.resultsInTransitionFrom(source, context, args, destination)) {
-            Transition<S, T, C> transition = new Transition<>(source, destination.get(), trigger, context);
+        if (!triggerBehaviour.resultsInTransitionFrom(source, context, args, destination)) {
+            return null;
+        }
+        StateRepresentation<S, T, C> destinationRepresentation = representationOf(version, destination.get());
+        return new AsyncTransition<>(this, sourceRepresentation, destinationRepresentation,
+                new Transition<>(source, destination.get(), trigger, context), args, completion);
+    }
+
+    /**
+     * Allow the next asynchronous fire of a context, once the pipeline of the previous one has ended
+     */
+    void asyncFireEnded(C context) {
+        asyncFires.remove(context == null ? NO_CONTEXT : context);
+    }
+
+    /**
+     * Determine what firing a trigger would do, without changing the state or running any action. Guards and dynamic
+     * destination selectors are evaluated, so they must be free of side effects
+     *
+     * @param trigger The trigger to simulate
+     * @param context The context to simulate it in
+     * @param args    The arguments of the trigger
+     * @return The destination and the states that would be exited and entered
+     */
+    public SimulationResult<S> simulate(T trigger, C context, Object... args) {
+        return simulate(new SimulationResult<S>(), trigger, context, args);
+    }
+
+    /**
+     * Determine what firing a trigger would do, without changing the state or running any action, reusing a result
+     *
+     * @param result  The result to fill, its previous content is discarded
+     * @param trigger The trigger to simulate
+     * @param context The context to simulate it in
+     * @param args    The arguments of the trigger
+     * @return The given result
+     */
+    public SimulationResult<S> simulate(SimulationResult<S> result, T trigger, C context, Object... args) {
+        assert result != null : "result is null";
+        ConfigHolder.Version<S, T, C> version = version();
+        validateParameters(version.getConfig(), trigger, TriggerArguments.fromArray(args));
+
+        StateRepresentation<S, T, C> sourceRepresentation = getCurrentRepresentation(version, context);
+        S source = sourceRepresentation.getUnderlyingState();
+        result.reset(source);
+        TriggerBehaviour<S, T, C> triggerBehaviour = findHandler(sourceRepresentation, trigger, context);
+        if (triggerBehaviour == null) {
+            return result;
+        }
+        boolean transitions = triggerBehaviour.resultsInTransitionFrom(source, context, args, result.destination);
+        result.handled(transitions);
+        if (!transitions) {
+            return result;
+        }
+
+        S destination = result.destination.get();
+        if (source.equals(destination)) {
+            result.exited(source);
+            result.entered(source);
+            return result;
+        }
+        for (StateRepresentation<S, T, C> representation = sourceRepresentation;
+                representation != null && !representation.includes(destination);
+                representation = representation.getSuperstate()) {
+            result.exited(representation.getUnderlyingState());
+        }
+        StateRepresentation<S, T, C> destinationRepresentation = version.getConfig().getRepresentation(destination);
+        if (destinationRepresentation == null) {
+            result.entered(destination);
+        } else {
+            enterFromOutermost(result, destinationRepresentation, source);
+        }
+        return result;
+    }
+
+    private void enterFromOutermost(SimulationResult<S> result, StateRepresentation<S, T, C> representation, S source) {
+        StateRepresentation<S, T, C>[] ancestors = representation.getAncestors();
+        int entered = 0;
+        while (entered < ancestors.length && !ancestors[entered].includes(source)) {
+            entered++;
+        }
+        for (int i = entered - 1; i >= 0; i--) {
+            result.entered(ancestors[i].getUnderlyingState());
+        }
+    }
+
+    void exited(StateRepresentation<S, T, C> source, Transition<S, T, C> transition) {
+        if (timeouts != null) {
+            timeouts.exited(source, transition);
+        }
+    }
+
+    void entered(StateRepresentation<S, T, C> destination, Transition<S, T, C> transition) {
+        if (timeouts != null && destination != null) {
+            timeouts.entered(destination, transition);
+        }
+        for (Action1<Transition<S, T, C>> listener : transitionListeners) {
+            listener.doIt(transition);
+        }
+    }
+
+    /**
+     * Register an action that is called after every completed transition, once the entry actions have run
+     *
+     * @param listener The action to call with the transition
+     */
+    public void onTransitioned(Action1<Transition<S, T, C>> listener) {
+        assert listener != null : "listener is null";
+        transitionListeners.add(listener);
+    }
+
+    /**
+     * Unregister an action registered with {@link #onTransitioned}
+     *
+     * @param listener The action
+     * @return True if the action was registered
+     */
+    public boolean removeTransitionListener(Action1<Transition<S, T, C>> listener) {
+        return transitionListeners.remove(listener);
+    }
+
+    /**
+     * Publish the completed transitions to subscribers that consume them at their own pace. Each subscriber has its
+     * own buffer, so a slow subscriber only slows down the state machine when the overflow policy is
+     * {@link OverflowPolicy#BLOCK}. Closing the publisher detaches it from the state machine
+     *
+     * @param executor       Executor on which the transitions are delivered
+     * @param bufferSize     Maximum number of transitions buffered for each subscriber
+     * @param overflowPolicy What to do with a transition when a buffer is full
+     * @return The publisher of the transitions
+     */
+    public BufferedPublisher<Transition<S, T, C>> publishTransitions(Executor executor, int bufferSize, OverflowPolicy overflowPolicy) {
+        TransitionPublisher publisher = new TransitionPublisher(executor, bufferSize, overflowPolicy);
+        onTransitioned(publisher);
+        return publisher;
+    }
+
+    private final class TransitionPublisher extends BufferedPublisher<Transition<S, T, C>> implements Action1<Transition<S, T, C>> {
+
+        TransitionPublisher(Executor executor, int bufferSize, OverflowPolicy overflowPolicy) {
+            super(executor, bufferSize, overflowPolicy);
+        }
+
+        @Override
+        public void doIt(Transition<S, T, C> transition) {
+            publish(transition);
+        }
+
+        @Override
+        public void close() {
+            removeTransitionListener(this);
+            super.close();
+        }
+    }
 
-            getCurrentRepresentation(context).exit(transition);
-            setState(destination.get(), context);
-            getCurrentRepresentation(context).enter(transition, args);
+    /**
+     * Enable the timeouts configured with {@link StateConfiguration#timeout}. Timers are scheduled on the given wheel
+     * and expired timeouts fire their trigger on the thread that advances the wheel, so the state accessor, mutator and
+     * actions must tolerate being called from that thread.
+     *
+     * @param wheel The timing wheel on which to schedule the timers
+     */
+    public void enableTimeouts(HashedTimingWheel wheel) {
+        assert wheel != null : "wheel is null";
+        if (timeouts != null) {
+            throw new IllegalStateException("Timeouts have already been enabled.");
         }
+        timeouts = new TimeoutScheduler<>(this, wheel);
+    }
+
+    /**
+     * (Re)start the timeouts of the current state and its superstates, for a context that was put in its state
+     * without firing a trigger, for example when it was loaded from storage
+     *
+     * @param context The context to start the timeouts for
+     */
+    public void startTimeouts(C context) {
+        if (timeouts == null) {
+            throw new IllegalStateException("Timeouts have not been enabled.");
+        }
+        timeouts.start(getCurrentRepresentation(context), context);
+    }
+
+    /**
+     * Time the guards and the entry and exit actions on a sample of the fires, see {@link GuardActionProfiler}. Only
+     * {@link #fire} and {@link #tryFire} are profiled, not {@link #fireAsync} nor the dispatch of a
+     * {@link CompiledStateMachine}
+     *
+     * @param profiler The profiler to add the measurements to, null to stop profiling
+     */
+    public void enableProfiling(GuardActionProfiler profiler) {
+        this.profiler = profiler;
     }
 
     /**
@@ -220,6 +835,44 @@ public class StateMachine<S, T, C> {
      * @return True if the trigger can be fired, false otherwise
      */
     public boolean canFire(T trigger, C context) {
-        return getCurrentRepresentation(context).canHandle(trigger, context);
+        return findHandler(getCurrentRepresentation(context), trigger, context) != null;
+    }
+
+    /**
+     * Check the arguments of a trigger against its parameters, unless the configuration has disabled the check
+     */
+    void validateParameters(T trigger, Object[] args) {
+        validateParameters(configuration(), trigger, TriggerArguments.fromArray(args));
+    }
+
+    void validateParameters(T trigger, TriggerArguments args) {
+        validateParameters(configuration(), trigger, args);
+    }
+
+    private static <T> void validateParameters(StateMachineConfig<?, T, ?> config, T trigger, TriggerArguments args) {
+        if (!config.isParameterValidationEnabled()) {
+            return;
+        }
+        TriggerWithParameters<T> configuration = config.getTriggerConfiguration(trigger);
+        if (configuration != null) {
+            configuration.validateParameters(args);
+        }
+    }
+
+    /**
+     * Find the handler of a trigger, evaluating each {@link CacheableGuard} at most once
+     */
+    TriggerBehaviour<S, T, C> findHandler(StateRepresentation<S, T, C> representation, T trigger, C context) {
+        return findHandler(representation, trigger, context, true, null);
+    }
+
+    private TriggerBehaviour<S, T, C> findHandler(StateRepresentation<S, T, C> representation, T trigger, C context,
+            boolean failIfAmbiguous, GuardActionProfiler profiler) {
+        GuardScope scope = GuardScope.open();
+        try {
+            return representation.findHandler(trigger, context, failIfAmbiguous, profiler);
+        } finally {
+            scope.close();
+        }
     }
 }
@@ -2,7 +2,11 @@ package com.github.oxo42.stateless4j;
 
 import com.github.oxo42.stateless4j.delegates.Func2;
 import com.github.oxo42.stateless4j.transitions.TransitioningTriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.TriggerArguments;
 import com.github.oxo42.stateless4j.triggers.TriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.TriggerWithDoubleParameter;
+import com.github.oxo42.stateless4j.triggers.TriggerWithIntParameter;
+import com.github.oxo42.stateless4j.triggers.TriggerWithLongParameter;
 import com.github.oxo42.stateless4j.triggers.TriggerWithParameters;
 import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
 import com.github.oxo42.stateless4j.triggers.TriggerWithParameters2;
@@ -12,6 +16,9 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,7 +34,12 @@ import java.util.Map;
 public class StateMachineConfig<S, T, C> {
 
     private final Map<S, StateRepresentation<S, T, C>> stateConfiguration = new HashMap<>();
+    private final StateRepresentation.Registry<S, T, C> registry = new StateRepresentation.Registry<>(stateConfiguration);
     private final Map<T, TriggerWithParameters<T>> triggerConfiguration = new HashMap<>();
+    private final List<Region<S>> regions = new ArrayList<>();
+    private boolean frozen;
+    private boolean trusted;
+    private boolean parameterValidation = true;
     
     /**
      * Return StateRepresentation for the specified state. May return null.
@@ -48,7 +60,8 @@ public class StateMachineConfig<S, T, C> {
     private StateRepresentation<S, T, C> getOrCreateRepresentation(S state) {
         StateRepresentation<S, T, C> result = stateConfiguration.get(state);
         if (result == null) {
-            result = new StateRepresentation<>(state);
+            enforceNotFrozen();
+            result = new StateRepresentation<>(state, registry);
             stateConfiguration.put(state, result);
         }
 
@@ -59,6 +72,14 @@ public class StateMachineConfig<S, T, C> {
         return triggerConfiguration.get(trigger);
     }
 
+    Collection<StateRepresentation<S, T, C>> getRepresentations() {
+        return stateConfiguration.values();
+    }
+
+    Collection<TriggerWithParameters<T>> getTriggerConfigurations() {
+        return triggerConfiguration.values();
+    }
+
     /**
      * Begin configuration of the entry/exit actions and allowed transitions
      * when the state machine is in a particular state
@@ -67,6 +88,7 @@ public class StateMachineConfig<S, T, C> {
      * @return A configuration object through which the state can be configured
      */
     public StateConfiguration<S, T, C> configure(S state) {
+        enforceNotFrozen();
         return new StateConfiguration<>(getOrCreateRepresentation(state), new Func2<S, StateRepresentation<S, T, C>>() {
 
             @Override
@@ -77,6 +99,7 @@ public class StateMachineConfig<S, T, C> {
     }
 
     private void saveTriggerConfiguration(TriggerWithParameters<T> trigger) {
+        enforceNotFrozen();
         if (triggerConfiguration.containsKey(trigger.getTrigger())) {
             throw new IllegalStateException("Parameters for the trigger '" + trigger + "' have already been configured.");
         }
@@ -132,6 +155,200 @@ public class StateMachineConfig<S, T, C> {
         return configuration;
     }
 
+    /**
+     * Specify that a single {@code int} argument must be supplied when a specific trigger is fired. The argument is
+     * passed to typed entry actions and destination selectors without boxing
+     *
+     * @param trigger The underlying trigger value
+     * @return An object that can be passed to the fire() method in order to fire the parameterised trigger
+     */
+    public TriggerWithIntParameter<T> setIntTriggerParameter(T trigger) {
+        TriggerWithIntParameter<T> configuration = new TriggerWithIntParameter<>(trigger);
+        saveTriggerConfiguration(configuration);
+        return configuration;
+    }
+
+    /**
+     * Specify that a single {@code long} argument must be supplied when a specific trigger is fired. The argument is
+     * passed to typed entry actions and destination selectors without boxing
+     *
+     * @param trigger The underlying trigger value
+     * @return An object that can be passed to the fire() method in order to fire the parameterised trigger
+     */
+    public TriggerWithLongParameter<T> setLongTriggerParameter(T trigger) {
+        TriggerWithLongParameter<T> configuration = new TriggerWithLongParameter<>(trigger);
+        saveTriggerConfiguration(configuration);
+        return configuration;
+    }
+
+    /**
+     * Specify that a single {@code double} argument must be supplied when a specific trigger is fired. The argument is
+     * passed to typed entry actions and destination selectors without boxing
+     *
+     * @param trigger The underlying trigger value
+     * @return An object that can be passed to the fire() method in order to fire the parameterised trigger
+     */
+    public TriggerWithDoubleParameter<T> setDoubleTriggerParameter(T trigger) {
+        TriggerWithDoubleParameter<T> configuration = new TriggerWithDoubleParameter<>(trigger);
+        saveTriggerConfiguration(configuration);
+        return configuration;
+    }
+
+    /**
+     * Define an orthogonal region, a set of states of which a context is always in exactly one independently of the
+     * other regions. Configurations with regions are run by an {@link OrthogonalStateMachine}
+     *
+     * @param name         The name of the region
+     * @param initialState The state a context starts in in this region
+     * @param states       The states of the region, including its superstates
+     * @return The region
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs") // states is copied by the region, never exposed
+    public final Region<S> defineRegion(String name, S initialState, S... states) {
+        enforceNotFrozen();
+        assert name != null : "name is null";
+        assert states != null : "states is null";
+        for (Region<S> region : regions) {
+            if (region.getName().equals(name)) {
+                throw new IllegalStateException("Region '" + name + "' has already been defined.");
+            }
+            for (S state : states) {
+                if (region.contains(state)) {
+                    throw new IllegalStateException("State '" + state + "' already belongs to region '" + region.getName() + "'.");
+                }
+            }
+        }
+        Region<S> region = new Region<>(name, regions.size(), initialState, states);
+        regions.add(region);
+        return region;
+    }
+
+    /**
+     * @return The regions defined with {@link #defineRegion}, in the order of their index
+     */
+    public List<Region<S>> getRegions() {
+        return Collections.unmodifiableList(regions);
+    }
+
+    /**
+     * Prevent any further changes to this configuration, so that it can be safely shared and compiled.
+     * Configuring a state after this call throws an exception
+     */
+    public void freeze() {
+        frozen = true;
+        for (StateRepresentation<S, T, C> representation : stateConfiguration.values()) {
+            representation.freeze();
+        }
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Freeze this configuration and let it skip the per-fire guard exclusivity check. Set by
+     * {@link ConfigurationValidator#trust} once the configuration has been validated
+     */
+    void trust() {
+        freeze();
+        trusted = true;
+        for (StateRepresentation<S, T, C> representation : stateConfiguration.values()) {
+            representation.trust();
+        }
+    }
+
+    public boolean isTrusted() {
+        return trusted;
+    }
+
+    /**
+     * Count which guarded behaviour of a trigger wins in each state and, after a number of lookups, evaluate the
+     * behaviours in the order of their wins. The order is applied in trusted configurations, see
+     * {@link ConfigurationValidator#trust}, where the first behaviour whose guard is met is taken; in others it is
+     * only learned, to be exported with {@link #getBehaviourOrder()}. Enabling again discards what was learned
+     *
+     * @param warmUp The number of lookups of a trigger in a state after which its order is learned
+     */
+    public void enableAdaptiveOrdering(long warmUp) {
+        if (!frozen) {
+            throw new IllegalStateException("The configuration must be frozen before its behaviour order can be learned.");
+        }
+        if (warmUp <= 0) {
+            throw new IllegalArgumentException("The warm-up must be a positive number of lookups.");
+        }
+        for (StateRepresentation<S, T, C> representation : stateConfiguration.values()) {
+            representation.learnOrdering(warmUp);
+        }
+    }
+
+    /**
+     * The learned behaviour orders, to be passed to {@link #setBehaviourOrder} of the configuration of a later run
+     *
+     * @return For each state and trigger whose order has been learned, the positions of its behaviours in
+     * configuration order, listed in the learned order
+     */
+    public Map<S, Map<T, List<Integer>>> getBehaviourOrder() {
+        Map<S, Map<T, List<Integer>>> orders = new HashMap<>();
+        for (StateRepresentation<S, T, C> representation : stateConfiguration.values()) {
+            BehaviourOrdering<S, T, C> ordering = representation.getOrdering();
+            if (ordering != null) {
+                Map<T, List<Integer>> learned = ordering.getLearned();
+                if (!learned.isEmpty()) {
+                    orders.put(representation.getUnderlyingState(), learned);
+                }
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * Evaluate guarded behaviours in orders learned earlier, without a warm-up. The behaviours must be configured in
+     * the same order as in the configuration the orders were learned from
+     *
+     * @param orders The orders, as returned by {@link #getBehaviourOrder()}
+     */
+    public void setBehaviourOrder(Map<S, Map<T, List<Integer>>> orders) {
+        assert orders != null : "orders is null";
+        if (!frozen) {
+            throw new IllegalStateException("The configuration must be frozen before its behaviour order can be set.");
+        }
+        for (Map.Entry<S, Map<T, List<Integer>>> state : orders.entrySet()) {
+            StateRepresentation<S, T, C> representation = stateConfiguration.get(state.getKey());
+            if (representation == null) {
+                throw new IllegalArgumentException("The state '" + state.getKey() + "' is not configured.");
+            }
+            BehaviourOrdering<S, T, C> ordering = representation.getOrdering();
+            if (ordering == null) {
+                ordering = representation.learnOrdering(Long.MAX_VALUE);
+            }
+            for (Map.Entry<T, List<Integer>> trigger : state.getValue().entrySet()) {
+                ordering.setLearned(trigger.getKey(), trigger.getValue());
+            }
+        }
+    }
+
+    /**
+     * Stop checking the arguments of fired triggers against their configured parameter types. Meant for production
+     * builds whose callers only fire through the typed {@link TriggerWithParameters1}, {@link TriggerWithParameters2}
+     * and {@link TriggerWithParameters3} overloads; a wrong argument then surfaces as a
+     * {@link ClassCastException} in an entry action instead of an {@link IllegalStateException} before the transition
+     */
+    public void disableParameterValidation() {
+        enforceNotFrozen();
+        parameterValidation = false;
+    }
+
+    public boolean isParameterValidationEnabled() {
+        return parameterValidation;
+    }
+
+    private void enforceNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("The configuration is frozen and can no longer be changed.");
+        }
+    }
+
     public void generateDotFileInto(final OutputStream dotFile) throws IOException {
         try (OutputStreamWriter w = new OutputStreamWriter(dotFile, "UTF-8")) {
             PrintWriter writer = new PrintWriter(w);
@@ -143,7 +360,7 @@ public class StateMachineConfig<S, T, C> {
                     for (TriggerBehaviour<S, T, C> triggerBehaviour : behaviour) {
                         if (triggerBehaviour instanceof TransitioningTriggerBehaviour) {
                             destination.set(null);
-                            triggerBehaviour.resultsInTransitionFrom(null, null, null, destination);
+                            triggerBehaviour.resultsInTransitionFrom(null, null, TriggerArguments.NONE, destination);
                             writer.write(String.format("\t%s -> %s;\n", entry.getKey(), destination));
                         }
                     }
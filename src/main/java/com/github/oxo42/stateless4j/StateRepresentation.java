@@ -2,14 +2,26 @@ package com.github.oxo42.stateless4j;
 
 import com.github.oxo42.stateless4j.delegates.Action1;
 import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.delegates.AsyncAction1;
+import com.github.oxo42.stateless4j.delegates.Completion;
+import com.github.oxo42.stateless4j.timers.StateTimeout;
 import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.IgnoredTriggerBehaviour;
+import com.github.oxo42.stateless4j.triggers.TriggerArguments;
 import com.github.oxo42.stateless4j.triggers.TriggerBehaviour;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The configuration of a single state in a StateMachineConfig.
@@ -21,130 +33,296 @@ import java.util.Set;
  */
 public class StateRepresentation<S, T, C> {
 
+    /**
+     * The most triggers a frozen state keeps in sorted arrays rather than in a hash table
+     */
+    private static final int COMPACT_TRIGGER_LIMIT = 16;
+
+    /**
+     * Returned by {@link #findHandler} instead of throwing when more than one guard of a state is met
+     */
+    static final TriggerBehaviour<?, ?, ?> AMBIGUOUS = new IgnoredTriggerBehaviour<>(null, StateConfiguration.ALWAYS);
+
     private final S state;
 
-    private final Map<T, List<TriggerBehaviour<S, T, C>>> triggerBehaviours = new HashMap<>();
-    private final List<Action2<Transition<S, T, C>, Object[]>> entryActions = new ArrayList<>();
-    private final List<Action1<Transition<S, T, C>>> exitActions = new ArrayList<>();
-    private final List<StateRepresentation<S, T, C>> substates = new ArrayList<>();
+    // shared empty collections until something is added, compacted when the configuration is frozen
+    private Map<T, List<TriggerBehaviour<S, T, C>>> triggerBehaviours = Collections.emptyMap();
+    private List<Action2<Transition<S, T, C>, Object[]>> entryActions = Collections.emptyList();
+    private List<Action1<Transition<S, T, C>>> exitActions = Collections.emptyList();
+    private List<StateRepresentation<S, T, C>> substates = Collections.emptyList();
+    private List<StateTimeout<T>> timeouts = Collections.emptyList();
     private StateRepresentation<S, T, C> superstate; // null
+    private boolean frozen;
+    private boolean trusted;
+    private volatile BehaviourOrdering<S, T, C> ordering; // null unless learning is enabled
+    private final Registry<S, T, C> registry; // null outside a configuration
+    private Hierarchy<S, T, C> hierarchy; // built on first use, pinned when frozen
 
     public StateRepresentation(S state) {
+        this(state, null);
+    }
+
+    /**
+     * @param registry The representations of the configuration this state belongs to
+     */
+    StateRepresentation(S state, Registry<S, T, C> registry) {
         this.state = state;
+        this.registry = registry;
     }
 
     protected Map<T, List<TriggerBehaviour<S, T, C>>> getTriggerBehaviours() {
         return triggerBehaviours;
     }
 
+    List<Action2<Transition<S, T, C>, Object[]>> getEntryActions() {
+        return entryActions;
+    }
+
+    List<Action1<Transition<S, T, C>>> getExitActions() {
+        return exitActions;
+    }
+
     public Boolean canHandle(T trigger, C context) {
         return tryFindHandler(trigger, context) != null;
     }
 
     public TriggerBehaviour<S, T, C> tryFindHandler(T trigger, C context) {
-        TriggerBehaviour<S, T, C> result = tryFindLocalHandler(trigger, context);
-        if (result == null && superstate != null) {
-            result = superstate.tryFindHandler(trigger, context);
+        return findHandler(trigger, context, true);
+    }
+
+    /**
+     * Find the handler of a trigger in this state or its superstates
+     *
+     * @param failIfAmbiguous True to throw when more than one guard of a state is met, false to return
+     *                        {@link #AMBIGUOUS} instead
+     * @return The handler, or null if the trigger is not handled
+     */
+    TriggerBehaviour<S, T, C> findHandler(T trigger, C context, boolean failIfAmbiguous) {
+        return findHandler(trigger, context, failIfAmbiguous, null);
+    }
+
+    /**
+     * @param profiler Times the guards, null if the fire is not profiled
+     */
+    TriggerBehaviour<S, T, C> findHandler(T trigger, C context, boolean failIfAmbiguous, GuardActionProfiler profiler) {
+        for (StateRepresentation<S, T, C> level : getAncestors()) {
+            TriggerBehaviour<S, T, C> result = level.tryFindLocalHandler(trigger, context, failIfAmbiguous, profiler);
+            if (result != null) {
+                return result;
+            }
         }
-        return result;
+        return null;
     }
 
-    TriggerBehaviour<S, T, C> tryFindLocalHandler(T trigger, C context) {
+    @SuppressWarnings("unchecked")
+    TriggerBehaviour<S, T, C> tryFindLocalHandler(T trigger, C context, boolean failIfAmbiguous, GuardActionProfiler profiler) {
         List<TriggerBehaviour<S, T, C>> possible = triggerBehaviours.get(trigger);
         if (possible == null) {
             return null;
         }
 
-        List<TriggerBehaviour<S, T, C>> actual = new ArrayList<>();
-        for (TriggerBehaviour<S, T, C> triggerBehaviour : possible) {
-            if (triggerBehaviour.isGuardConditionMet(context)) {
-                actual.add(triggerBehaviour);
+        BehaviourOrdering<S, T, C> ordering = this.ordering;
+        if (ordering != null && trusted) {
+            possible = ordering.order(trigger, possible);
+        }
+        TriggerBehaviour<S, T, C> match = null;
+        // indexed rather than iterated, so that a lookup does not allocate an iterator
+        for (int i = 0, size = possible.size(); i < size; i++) {
+            TriggerBehaviour<S, T, C> triggerBehaviour = possible.get(i);
+            boolean met = profiler == null
+                    ? triggerBehaviour.isGuardConditionMet(context)
+                    : profiler.guard(state, trigger, triggerBehaviour, context);
+            if (met) {
+                if (match != null) {
+                    if (!failIfAmbiguous) {
+                        return (TriggerBehaviour<S, T, C>) AMBIGUOUS;
+                    }
+                    throw new IllegalStateException("Multiple permitted exit transitions are configured from state '" + state + "' for trigger '" + trigger + "'. Guard clauses must be mutually exclusive.");
+                }
+                match = triggerBehaviour;
+                if (trusted) {
+                    break;
+                }
             }
         }
-
-        if (actual.size() > 1) {
-            throw new IllegalStateException("Multiple permitted exit transitions are configured from state '" + state + "' for trigger '" + trigger + "'. Guard clauses must be mutually exclusive.");
+        if (ordering != null && match != null) {
+            ordering.record(trigger, match);
         }
+        return match;
+    }
 
-        return actual.isEmpty() ? null : actual.get(0);
+    /**
+     * Start learning the order in which to evaluate the guarded behaviours of each trigger, discarding what was
+     * learned before
+     *
+     * @param warmUp The number of lookups of a trigger after which its order is learned
+     * @return The ordering
+     */
+    BehaviourOrdering<S, T, C> learnOrdering(long warmUp) {
+        assert frozen : "representation is not frozen";
+        BehaviourOrdering<S, T, C> result = new BehaviourOrdering<>(triggerBehaviours, warmUp);
+        ordering = result;
+        return result;
+    }
+
+    BehaviourOrdering<S, T, C> getOrdering() {
+        return ordering;
     }
 
     public void addEntryAction(final T trigger, final Action2<Transition<S, T, C>, Object[]> action) {
+        enforceNotFrozen();
         assert action != null : "action is null";
-
-        entryActions.add(new Action2<Transition<S, T, C>, Object[]>() {
-            @Override
-            public void doIt(Transition<S, T, C> t, Object[] args) {
-                if (t.getTrigger().equals(trigger)) {
-                    action.doIt(t, args);
-                }
-            }
-        });
+        entryActions = add(entryActions, new TriggeredEntryAction<>(trigger, action));
     }
 
     public void addEntryAction(Action2<Transition<S, T, C>, Object[]> action) {
+        enforceNotFrozen();
         assert action != null : "action is null";
-        entryActions.add(action);
+        entryActions = add(entryActions, action);
     }
 
     public void insertEntryAction(Action2<Transition<S, T, C>, Object[]> action) {
+        enforceNotFrozen();
         assert action != null : "action is null";
+        if (entryActions.isEmpty()) {
+            entryActions = new ArrayList<>(2);
+        }
         entryActions.add(0, action);
     }
 
     public void addExitAction(Action1<Transition<S, T, C>> action) {
+        enforceNotFrozen();
         assert action != null : "action is null";
-        exitActions.add(action);
+        exitActions = add(exitActions, action);
     }
 
     public void enter(Transition<S, T, C> transition, Object... entryArgs) {
-        assert transition != null : "transition is null";
+        assert entryArgs != null : "entryArgs is null";
+        enter(transition, TriggerArguments.fromArray(entryArgs));
+    }
 
-        if (transition.isReentry()) {
-            executeEntryActions(transition, entryArgs);
-        } else if (!includes(transition.getSource())) {
-            if (superstate != null) {
-                superstate.enter(transition, entryArgs);
-            }
+    public void enter(Transition<S, T, C> transition, TriggerArguments entryArgs) {
+        enter(transition, entryArgs, null);
+    }
 
-            executeEntryActions(transition, entryArgs);
+    /**
+     * @param profiler Times the entry actions, null if the fire is not profiled
+     */
+    void enter(Transition<S, T, C> transition, TriggerArguments entryArgs, GuardActionProfiler profiler) {
+        assert transition != null : "transition is null";
+
+        StateRepresentation<S, T, C>[] ancestors = getAncestors();
+        for (int i = levelsEntered(transition) - 1; i >= 0; i--) {
+            ancestors[i].executeEntryActions(transition, entryArgs, profiler);
         }
     }
 
     public void exit(Transition<S, T, C> transition) {
+        exit(transition, null);
+    }
+
+    /**
+     * @param profiler Times the exit actions, null if the fire is not profiled
+     */
+    void exit(Transition<S, T, C> transition, GuardActionProfiler profiler) {
         assert transition != null : "transition is null";
 
+        StateRepresentation<S, T, C>[] ancestors = getAncestors();
+        for (int i = 0, exited = levelsExited(transition); i < exited; i++) {
+            ancestors[i].executeExitActions(transition, profiler);
+        }
+    }
+
+    /**
+     * The number of levels of this state, counted from the innermost, that are entered by a transition into it
+     */
+    int levelsEntered(Transition<S, T, C> transition) {
         if (transition.isReentry()) {
-            executeExitActions(transition);
-        } else if (!includes(transition.getDestination())) {
-            executeExitActions(transition);
-            if (superstate != null) {
-                superstate.exit(transition);
-            }
+            return 1;
+        }
+        StateRepresentation<S, T, C>[] ancestors = getAncestors();
+        int entered = 0;
+        while (entered < ancestors.length && !ancestors[entered].includes(transition.getSource())) {
+            entered++;
+        }
+        return entered;
+    }
+
+    /**
+     * The number of levels of this state, counted from the innermost, that are exited by a transition out of it
+     */
+    int levelsExited(Transition<S, T, C> transition) {
+        if (transition.isReentry()) {
+            return 1;
         }
+        StateRepresentation<S, T, C>[] ancestors = getAncestors();
+        int exited = 0;
+        while (exited < ancestors.length && !ancestors[exited].includes(transition.getDestination())) {
+            exited++;
+        }
+        return exited;
+    }
+
+    void executeEntryActions(Transition<S, T, C> transition, TriggerArguments entryArgs) {
+        executeEntryActions(transition, entryArgs, null);
     }
 
-    void executeEntryActions(Transition<S, T, C> transition, Object[] entryArgs) {
+    private void executeEntryActions(Transition<S, T, C> transition, TriggerArguments entryArgs, GuardActionProfiler profiler) {
         assert transition != null : "transition is null";
         assert entryArgs != null : "entryArgs is null";
         for (Action2<Transition<S, T, C>, Object[]> action : entryActions) {
-            action.doIt(transition, entryArgs);
+            if (profiler == null) {
+                execute(action, transition, entryArgs);
+            } else {
+                profiler.entryAction(state, transition, action, entryArgs);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <S, T, C> void execute(Action2<Transition<S, T, C>, Object[]> action, Transition<S, T, C> transition, TriggerArguments entryArgs) {
+        if (action instanceof EntryAction) {
+            ((EntryAction<S, T, C>) action).execute(transition, entryArgs);
+        } else {
+            action.doIt(transition, entryArgs.toArray());
         }
     }
 
     void executeExitActions(Transition<S, T, C> transition) {
+        executeExitActions(transition, null);
+    }
+
+    private void executeExitActions(Transition<S, T, C> transition, GuardActionProfiler profiler) {
         assert transition != null : "transition is null";
         for (Action1<Transition<S, T, C>> action : exitActions) {
-            action.doIt(transition);
+            if (profiler == null) {
+                action.doIt(transition);
+            } else {
+                profiler.exitAction(state, transition, action);
+            }
         }
     }
 
+    public void addTimeout(StateTimeout<T> timeout) {
+        enforceNotFrozen();
+        assert timeout != null : "timeout is null";
+        timeouts = add(timeouts, timeout);
+    }
+
+    public List<StateTimeout<T>> getTimeouts() {
+        return timeouts;
+    }
+
     public void addTriggerBehaviour(TriggerBehaviour<S, T, C> triggerBehaviour) {
+        enforceNotFrozen();
+        if (triggerBehaviours.isEmpty()) {
+            triggerBehaviours = new HashMap<>(4);
+        }
         List<TriggerBehaviour<S, T, C>> allowed;
         if (triggerBehaviours.containsKey(triggerBehaviour.getTrigger())) {
             allowed = triggerBehaviours.get(triggerBehaviour.getTrigger());
         } else {
-            allowed = new ArrayList<>();
+            allowed = new ArrayList<>(1);
             triggerBehaviours.put(triggerBehaviour.getTrigger(), allowed);
         }
         allowed.add(triggerBehaviour);
@@ -155,7 +333,74 @@ public class StateRepresentation<S, T, C> {
     }
 
     public void setSuperstate(StateRepresentation<S, T, C> value) {
+        enforceNotFrozen();
         superstate = value;
+        hierarchyChanged();
+    }
+
+    /**
+     * Prevent any further changes to the configuration of this state, and trim its collections to their size
+     */
+    public void freeze() {
+        if (frozen) {
+            return;
+        }
+        frozen = true;
+        hierarchy = null; // rebuilt on next use and kept from then on
+        entryActions = compact(entryActions);
+        exitActions = compact(exitActions);
+        substates = compact(substates);
+        timeouts = compact(timeouts);
+        if (triggerBehaviours.isEmpty()) {
+            triggerBehaviours = Collections.emptyMap();
+        } else {
+            Map<T, List<TriggerBehaviour<S, T, C>>> compacted = new HashMap<>(triggerBehaviours.size() * 2);
+            for (Map.Entry<T, List<TriggerBehaviour<S, T, C>>> entry : triggerBehaviours.entrySet()) {
+                compacted.put(entry.getKey(), compact(entry.getValue()));
+            }
+            triggerBehaviours = compacted.size() <= COMPACT_TRIGGER_LIMIT ? new CompactMap<>(compacted) : compacted;
+        }
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Take the first behaviour whose guard is met instead of checking that guards are mutually exclusive. Only set
+     * for frozen configurations that passed {@link ConfigurationValidator}
+     */
+    void trust() {
+        assert frozen : "representation is not frozen";
+        trusted = true;
+    }
+
+    public boolean isTrusted() {
+        return trusted;
+    }
+
+    private static <E> List<E> add(List<E> list, E element) {
+        List<E> result = list.isEmpty() ? new ArrayList<E>(2) : list;
+        result.add(element);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> List<E> compact(List<E> list) {
+        switch (list.size()) {
+            case 0:
+                return Collections.emptyList();
+            case 1:
+                return Collections.singletonList(list.get(0));
+            default:
+                return Arrays.asList((E[]) list.toArray());
+        }
+    }
+
+    private void enforceNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("The configuration of state '" + state + "' is frozen and can no longer be changed.");
+        }
     }
 
     public S getUnderlyingState() {
@@ -163,40 +408,257 @@ public class StateRepresentation<S, T, C> {
     }
 
     public void addSubstate(StateRepresentation<S, T, C> substate) {
+        enforceNotFrozen();
         assert substate != null : "substate is null";
-        substates.add(substate);
+        substates = add(substates, substate);
+        hierarchyChanged();
+    }
+
+    private void hierarchyChanged() {
+        if (registry != null) {
+            registry.hierarchyChanges++;
+        }
     }
 
     public boolean includes(S stateToCheck) {
-        for (StateRepresentation<S, T, C> s : substates) {
-            if (s.includes(stateToCheck)) {
+        if (state.equals(stateToCheck)) {
+            return true;
+        }
+        if (registry == null) {
+            return substatesInclude(stateToCheck);
+        }
+        StateRepresentation<S, T, C> other = registry.representations.get(stateToCheck);
+        if (other == null) {
+            return false;
+        }
+        for (StateRepresentation<S, T, C> level : other.getAncestors()) {
+            if (level == this) {
                 return true;
             }
         }
-        return this.state.equals(stateToCheck);
+        return false;
+    }
+
+    /**
+     * Search the substates of a representation outside a configuration, which cannot look up the representations of
+     * other states
+     */
+    private boolean substatesInclude(S stateToCheck) {
+        Set<StateRepresentation<S, T, C>> visited = Collections.newSetFromMap(new IdentityHashMap<StateRepresentation<S, T, C>, Boolean>());
+        Deque<StateRepresentation<S, T, C>> pending = new ArrayDeque<>(substates);
+        while (!pending.isEmpty()) {
+            StateRepresentation<S, T, C> next = pending.pop();
+            if (visited.add(next)) {
+                if (next.state.equals(stateToCheck)) {
+                    return true;
+                }
+                pending.addAll(next.substates);
+            }
+        }
+        return false;
     }
 
     public boolean isIncludedIn(S stateToCheck) {
-        return this.state.equals(stateToCheck) || (superstate != null && superstate.isIncludedIn(stateToCheck));
+        for (StateRepresentation<S, T, C> level : getAncestors()) {
+            if (level.state.equals(stateToCheck)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This state followed by its superstates, innermost first
+     *
+     * @return The ancestors, which must not be modified
+     */
+    StateRepresentation<S, T, C>[] getAncestors() {
+        return hierarchy().ancestors;
+    }
+
+    private Hierarchy<S, T, C> hierarchy() {
+        Hierarchy<S, T, C> result = hierarchy;
+        if (result != null && (frozen || registry != null && result.changes == registry.hierarchyChanges)) {
+            return result;
+        }
+        result = new Hierarchy<>(this, registry == null ? 0 : registry.hierarchyChanges);
+        if (frozen || registry != null) {
+            // a representation outside a configuration cannot tell when a superstate above it changes
+            hierarchy = result;
+        }
+        return result;
     }
 
     @SuppressWarnings("unchecked")
     public List<T> getPermittedTriggers(C context) {
         Set<T> result = new HashSet<>();
 
-        for (Map.Entry<T, List<TriggerBehaviour<S, T, C>>> t : triggerBehaviours.entrySet()) {
-            for (TriggerBehaviour<S, T, C> v : t.getValue()) {
-                if (v.isGuardConditionMet(context)) {
-                    result.add(t.getKey());
-                    break;
+        for (StateRepresentation<S, T, C> level : getAncestors()) {
+            for (Map.Entry<T, List<TriggerBehaviour<S, T, C>>> t : level.triggerBehaviours.entrySet()) {
+                for (TriggerBehaviour<S, T, C> v : t.getValue()) {
+                    if (v.isGuardConditionMet(context)) {
+                        result.add(t.getKey());
+                        break;
+                    }
                 }
             }
         }
 
-        if (getSuperstate() != null) {
-            result.addAll(getSuperstate().getPermittedTriggers(context));
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Entry action that reads the trigger arguments from their fields, so that no argument array is built for it
+     */
+    abstract static class EntryAction<S, T, C> implements Action2<Transition<S, T, C>, Object[]> {
+
+        abstract void execute(Transition<S, T, C> transition, TriggerArguments args);
+
+        @Override
+        public final void doIt(Transition<S, T, C> transition, Object[] args) {
+            execute(transition, TriggerArguments.fromArray(args));
+        }
+    }
+
+    /**
+     * Entry action that only runs when the state is entered by a specific trigger
+     */
+    static final class TriggeredEntryAction<S, T, C> extends EntryAction<S, T, C> {
+
+        final T trigger;
+        final Action2<Transition<S, T, C>, Object[]> action;
+
+        TriggeredEntryAction(T trigger, Action2<Transition<S, T, C>, Object[]> action) {
+            this.trigger = trigger;
+            this.action = action;
         }
 
-        return new ArrayList<>(result);
+        @Override
+        void execute(Transition<S, T, C> t, TriggerArguments args) {
+            if (t.getTrigger().equals(trigger)) {
+                StateRepresentation.execute(action, t, args);
+            }
+        }
+    }
+
+    /**
+     * Entry action that completes asynchronously. When a trigger is fired synchronously the firing thread waits for
+     * it; {@link StateMachine#fireAsync} carries on when it completes instead
+     */
+    static final class AsyncEntryAction<S, T, C> extends EntryAction<S, T, C> {
+
+        final AsyncAction1<Transition<S, T, C>> action;
+
+        AsyncEntryAction(AsyncAction1<Transition<S, T, C>> action) {
+            this.action = action;
+        }
+
+        @Override
+        void execute(Transition<S, T, C> transition, TriggerArguments args) {
+            await(action, transition);
+        }
+    }
+
+    /**
+     * Exit action that completes asynchronously, see {@link AsyncEntryAction}
+     */
+    static final class AsyncExitAction<S, T, C> implements Action1<Transition<S, T, C>> {
+
+        final AsyncAction1<Transition<S, T, C>> action;
+
+        AsyncExitAction(AsyncAction1<Transition<S, T, C>> action) {
+            this.action = action;
+        }
+
+        @Override
+        public void doIt(Transition<S, T, C> transition) {
+            await(action, transition);
+        }
+    }
+
+    private static <S, T, C> void await(AsyncAction1<Transition<S, T, C>> action, Transition<S, T, C> transition) {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        action.doIt(transition, new Completion() {
+            @Override
+            public void completed() {
+                done.countDown();
+            }
+
+            @Override
+            public void failed(Throwable e) {
+                failure.set(e);
+                done.countDown();
+            }
+        });
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        Throwable e = failure.get();
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        if (e != null) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The representations of the states of one configuration, shared by them so that a state can look up another and
+     * tell when the hierarchy of the configuration has changed
+     */
+    static final class Registry<S, T, C> {
+
+        final Map<S, StateRepresentation<S, T, C>> representations;
+        int hierarchyChanges; // only changed while configuring, which is not thread safe anyway
+
+        Registry(Map<S, StateRepresentation<S, T, C>> representations) {
+            this.representations = representations;
+        }
+    }
+
+    /**
+     * The superstates of a state, flattened so that walking the hierarchy needs neither recursion nor pointer chasing.
+     * Immutable, so that it can be shared between threads once built
+     */
+    private static final class Hierarchy<S, T, C> {
+
+        final int changes;
+        final StateRepresentation<S, T, C>[] ancestors;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Hierarchy(StateRepresentation<S, T, C> representation, int changes) {
+            this.changes = changes;
+            int depth = 0;
+            StateRepresentation<S, T, C> behind = representation; // climbs at half the speed, meets a cycle
+            for (StateRepresentation<S, T, C> level = representation; level != null; level = level.superstate) {
+                if (depth > 0) {
+                    if (depth % 2 == 0) {
+                        behind = behind.superstate;
+                    }
+                    if (behind == level) {
+                        throw new IllegalStateException("State '" + level.state + "' is its own superstate.");
+                    }
+                }
+                depth++;
+            }
+            ancestors = new StateRepresentation[depth];
+            int i = 0;
+            for (StateRepresentation<S, T, C> level = representation; level != null; level = level.superstate) {
+                ancestors[i++] = level;
+            }
+        }
     }
 }
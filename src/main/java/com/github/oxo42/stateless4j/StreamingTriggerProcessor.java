@@ -0,0 +1,140 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Func2;
+import com.github.oxo42.stateless4j.reactive.OverflowPolicy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Applies a stream of trigger events to a keyed state store, in parallel.
+ * <p>
+ * The context of each event is its key. Events are partitioned by key over a fixed number of worker threads by a
+ * {@link PartitionedExecutor}, each worker owning the states of its keys and a state machine over the shared
+ * configuration. All events of a key are handled by the same worker in the order they were read, so per-key ordering
+ * is preserved while different keys proceed in parallel. Keys that have not been seen start in the initial state.
+ * <p>
+ * An event that fails, for example because its trigger is not permitted, is logged and counted and does not stop the
+ * stream.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ * @param <C> The type used to represent the context keys
+ */
+public class StreamingTriggerProcessor<S, T, C> {
+
+    private final PartitionedExecutor<S, T, C> executor;
+
+    /**
+     * Construct a processor
+     *
+     * @param config        The configuration shared by all workers; it must not change while events are processed
+     * @param initialState  The state of keys that have not been seen
+     * @param workers       The number of worker threads
+     * @param queueCapacity The number of events that may wait for each worker before reading blocks
+     */
+    public StreamingTriggerProcessor(StateMachineConfig<S, T, C> config, S initialState, int workers, int queueCapacity) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("workers must be positive");
+        }
+        executor = new PartitionedExecutor<>(config, initialState, workers, queueCapacity, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Apply every event of the stream and wait until all of them have been handled
+     *
+     * @param events The events, in order
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the workers
+     */
+    public void process(Iterator<? extends TriggerEvent<T, C>> events) throws InterruptedException {
+        assert events != null : "events is null";
+        executor.start("stateless4j-stream-");
+        try {
+            while (events.hasNext()) {
+                executor.submit(events.next());
+            }
+        } finally {
+            executor.stop();
+        }
+    }
+
+    /**
+     * The state of a key. Must not be called while events are processed
+     *
+     * @param context The key
+     * @return The state of the key
+     */
+    public S getState(C context) {
+        return executor.getState(context);
+    }
+
+    /**
+     * All keys and their states. Must not be called while events are processed
+     *
+     * @return The states of the keys that have been seen
+     */
+    public Map<C, S> getStates() {
+        return executor.getStates();
+    }
+
+    /**
+     * @return The number of events handled successfully
+     */
+    public long getProcessedCount() {
+        return executor.getProcessedCount();
+    }
+
+    /**
+     * @return The number of events that failed
+     */
+    public long getFailedCount() {
+        return executor.getFailedCount();
+    }
+
+    /**
+     * Read events from the lines of a reader, for example an event log file
+     *
+     * @param reader The reader
+     * @param parser Parses one line into an event
+     * @param <T>    The type of the triggers
+     * @param <C>    The type of the context keys
+     * @return The events, read lazily; I/O failures are rethrown as {@link IllegalStateException}
+     */
+    public static <T, C> Iterator<TriggerEvent<T, C>> lines(final BufferedReader reader, final Func2<String, TriggerEvent<T, C>> parser) {
+        assert reader != null : "reader is null";
+        assert parser != null : "parser is null";
+        return new Iterator<TriggerEvent<T, C>>() {
+
+            private String next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = reader.readLine();
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Could not read the next event", e);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public TriggerEvent<T, C> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String line = next;
+                next = null;
+                return parser.call(line);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
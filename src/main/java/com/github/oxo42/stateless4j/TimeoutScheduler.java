@@ -0,0 +1,175 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.timers.HashedTimingWheel;
+import com.github.oxo42.stateless4j.timers.StateTimeout;
+import com.github.oxo42.stateless4j.timers.Timeout;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules the timeouts of the states a state machine enters and cancels them when the states are exited.
+ * The pending timeouts of each context are kept in a short linked list, so a context without timeouts costs nothing.
+ * <p>
+ * The lists are spread over a fixed number of stripes by context, each with its own lock, so machines firing for
+ * different contexts on different threads rarely wait for each other. Entering or leaving a state without timeouts
+ * takes no lock at all.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ * @param <C> The type used to represent the context in which the state machine is being applied
+ */
+final class TimeoutScheduler<S, T, C> {
+
+    private static final Object NULL_CONTEXT = new Object();
+    private static final int STRIPES = 16; // a power of two
+
+    private final StateMachine<S, T, C> machine;
+    private final HashedTimingWheel wheel;
+    private final List<Stripe> stripes = new ArrayList<>(STRIPES);
+
+    TimeoutScheduler(StateMachine<S, T, C> machine, HashedTimingWheel wheel) {
+        this.machine = machine;
+        this.wheel = wheel;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes.add(new Stripe());
+        }
+    }
+
+    void exited(StateRepresentation<S, T, C> source, Transition<S, T, C> transition) {
+        if (transition.isReentry()) {
+            cancel(source, transition.getContext());
+            return;
+        }
+        for (StateRepresentation<S, T, C> representation = source;
+                representation != null && !representation.includes(transition.getDestination());
+                representation = representation.getSuperstate()) {
+            cancel(representation, transition.getContext());
+        }
+    }
+
+    void entered(StateRepresentation<S, T, C> destination, Transition<S, T, C> transition) {
+        if (transition.isReentry()) {
+            schedule(destination, transition.getContext());
+            return;
+        }
+        for (StateRepresentation<S, T, C> representation = destination;
+                representation != null && !representation.includes(transition.getSource());
+                representation = representation.getSuperstate()) {
+            schedule(representation, transition.getContext());
+        }
+    }
+
+    void start(StateRepresentation<S, T, C> current, C context) {
+        for (StateRepresentation<S, T, C> representation = current; representation != null; representation = representation.getSuperstate()) {
+            cancel(representation, context);
+            schedule(representation, context);
+        }
+    }
+
+    private void schedule(StateRepresentation<S, T, C> representation, C context) {
+        List<StateTimeout<T>> timeouts = representation.getTimeouts();
+        if (timeouts.isEmpty()) {
+            return;
+        }
+        Object key = keyOf(context);
+        Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            for (int i = 0; i < timeouts.size(); i++) {
+                StateTimeout<T> timeout = timeouts.get(i);
+                Expiry expiry = new Expiry(representation.getUnderlyingState(), timeout.getTrigger(), context);
+                expiry.next = stripe.pending.get(key);
+                stripe.pending.put(key, expiry);
+                expiry.timeout = wheel.schedule(expiry, timeout.getDelay(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void cancel(StateRepresentation<S, T, C> representation, C context) {
+        if (representation.getTimeouts().isEmpty()) {
+            return;
+        }
+        Object key = keyOf(context);
+        Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            Expiry previous = null;
+            for (Expiry expiry = stripe.pending.get(key); expiry != null; expiry = expiry.next) {
+                if (expiry.state.equals(representation.getUnderlyingState())) {
+                    expiry.timeout.cancel();
+                    stripe.unlink(key, previous, expiry);
+                } else {
+                    previous = expiry;
+                }
+            }
+        }
+    }
+
+    private boolean remove(Expiry removed) {
+        Object key = keyOf(removed.context);
+        Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            Expiry previous = null;
+            for (Expiry expiry = stripe.pending.get(key); expiry != null; expiry = expiry.next) {
+                if (expiry == removed) {
+                    stripe.unlink(key, previous, expiry);
+                    return true;
+                }
+                previous = expiry;
+            }
+            return false;
+        }
+    }
+
+    private Stripe stripeOf(Object key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return stripes.get(hash & (STRIPES - 1));
+    }
+
+    private static Object keyOf(Object context) {
+        return context == null ? NULL_CONTEXT : context;
+    }
+
+    /**
+     * The pending timeouts of the contexts that hash to one stripe, guarded by the stripe's monitor
+     */
+    private final class Stripe {
+
+        final Map<Object, Expiry> pending = new HashMap<>();
+
+        void unlink(Object key, Expiry previous, Expiry expiry) {
+            if (previous != null) {
+                previous.next = expiry.next;
+            } else if (expiry.next != null) {
+                pending.put(key, expiry.next);
+            } else {
+                pending.remove(key);
+            }
+        }
+    }
+
+    private final class Expiry implements Runnable {
+
+        final S state;
+        final T trigger;
+        final C context;
+        Timeout timeout;
+        Expiry next;
+
+        Expiry(S state, T trigger, C context) {
+            this.state = state;
+            this.trigger = trigger;
+            this.context = context;
+        }
+
+        @Override
+        public void run() {
+            if (remove(this) && machine.isInState(state, context)) {
+                machine.fire(trigger, context);
+            }
+        }
+    }
+}
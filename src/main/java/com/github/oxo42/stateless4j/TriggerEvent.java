@@ -0,0 +1,49 @@
+package com.github.oxo42.stateless4j;
+
+import java.util.Arrays;
+
+/**
+ * A trigger to be fired in a context, with its arguments, as read from an event log
+ *
+ * @param <T> The type used to represent the triggers that cause state transitions
+ * @param <C> The type used to represent the context in which the state machine is being applied
+ */
+public final class TriggerEvent<T, C> {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final C context;
+    private final T trigger;
+    private final Object[] args;
+
+    /**
+     * Construct an event
+     *
+     * @param context The context to fire the trigger in
+     * @param trigger The trigger
+     * @param args    The arguments of the trigger
+     */
+    public TriggerEvent(C context, T trigger, Object... args) {
+        assert trigger != null : "trigger is null";
+        this.context = context;
+        this.trigger = trigger;
+        this.args = args == null || args.length == 0 ? NO_ARGS : args;
+    }
+
+    public C getContext() {
+        return context;
+    }
+
+    public T getTrigger() {
+        return trigger;
+    }
+
+    Object[] getArgs() {
+        return args;
+    }
+
+    @Override
+    public String toString() {
+        return trigger + " in " + context + (args.length == 0 ? "" : " with " + Arrays.toString(args));
+    }
+}
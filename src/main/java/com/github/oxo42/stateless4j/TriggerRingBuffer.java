@@ -0,0 +1,329 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.triggers.TriggerArguments;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Feeds triggers to a state machine through a preallocated ring of reusable event slots, for the paths where the
+ * allocation and locking of a queue matter.
+ * <p>
+ * Any number of producers publish events. A producer claims the next sequence number with a compare-and-set, writes
+ * the context, trigger and up to three arguments into the slot of that sequence and marks the slot as published; no
+ * object is allocated per event. The consumer passes the arguments of every event in the same reusable
+ * {@link TriggerArguments}, so they are only valid while the event is fired. A single consumer fires the published events in sequence order, taking every event
+ * that is available at once; it runs either on a thread of its own, see {@link #start}, or on the thread that calls
+ * {@link #drain}. A slot is reused once its event has been fired, so a producer that gets a full lap ahead of the
+ * consumer waits, or fails with {@link #tryPublish}.
+ * <p>
+ * An event that fails, for example because its trigger is not permitted, is logged and counted and does not stop the
+ * consumer. An error escaping an event stops the consumer, but the event is not fired again.
+ *
+ * @param <S> The type used to represent the states
+ * @param <T> The type used to represent the triggers that cause state transitions
+ * @param <C> The type used to represent the context in which the state machine is being applied
+ */
+public class TriggerRingBuffer<S, T, C> {
+
+    private static final int SPINS = 100;
+    private static final long PARK_NANOS = 50000;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final StateMachine<S, T, C> machine;
+    private final Slot<T, C>[] slots;
+    private final int mask;
+    // the sequence of the event each slot holds once it is published
+    private final AtomicLongArray published;
+    // the last claimed and the last fired sequence
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong fired = new AtomicLong(-1);
+    private final AtomicLong failed = new AtomicLong();
+    private final TriggerArguments arguments = TriggerArguments.reusable(); // used by the consumer only
+    private volatile Thread consumer; // null unless started
+    private volatile boolean running;
+
+    /**
+     * Construct a ring buffer
+     *
+     * @param machine  The state machine the events are fired on, typically a {@link CompiledStateMachine}
+     * @param capacity The number of slots, a power of two
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TriggerRingBuffer(StateMachine<S, T, C> machine, int capacity) {
+        assert machine != null : "machine is null";
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        this.machine = machine;
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot<>();
+        }
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * Publish an event, waiting while the ring is full
+     *
+     * @param context The context to fire the trigger for
+     * @param trigger The trigger to fire
+     */
+    public void publish(C context, T trigger) {
+        commit(claim(true), context, trigger, 0, null, null, null);
+    }
+
+    /**
+     * Publish an event with one argument, waiting while the ring is full
+     *
+     * @param context The context to fire the trigger for
+     * @param trigger The trigger to fire
+     * @param arg0    The argument
+     */
+    public void publish(C context, T trigger, Object arg0) {
+        commit(claim(true), context, trigger, 1, arg0, null, null);
+    }
+
+    /**
+     * Publish an event with two arguments, waiting while the ring is full
+     *
+     * @param context The context to fire the trigger for
+     * @param trigger The trigger to fire
+     * @param arg0    The first argument
+     * @param arg1    The second argument
+     */
+    public void publish(C context, T trigger, Object arg0, Object arg1) {
+        commit(claim(true), context, trigger, 2, arg0, arg1, null);
+    }
+
+    /**
+     * Publish an event with three arguments, waiting while the ring is full
+     *
+     * @param context The context to fire the trigger for
+     * @param trigger The trigger to fire
+     * @param arg0    The first argument
+     * @param arg1    The second argument
+     * @param arg2    The third argument
+     */
+    public void publish(C context, T trigger, Object arg0, Object arg1, Object arg2) {
+        commit(claim(true), context, trigger, 3, arg0, arg1, arg2);
+    }
+
+    /**
+     * Publish an event unless the ring is full
+     *
+     * @param context The context to fire the trigger for
+     * @param trigger The trigger to fire
+     * @return True if the event was published, false if the ring was full
+     */
+    public boolean tryPublish(C context, T trigger) {
+        return commit(claim(false), context, trigger, 0, null, null, null);
+    }
+
+    /**
+     * Publish an event with one argument unless the ring is full
+     *
+     * @param context The context to fire the trigger for
+     * @param trigger The trigger to fire
+     * @param arg0    The argument
+     * @return True if the event was published, false if the ring was full
+     */
+    public boolean tryPublish(C context, T trigger, Object arg0) {
+        return commit(claim(false), context, trigger, 1, arg0, null, null);
+    }
+
+    /**
+     * Publish an event with two arguments unless the ring is full
+     *
+     * @param context The context to fire the trigger for
+     * @param trigger The trigger to fire
+     * @param arg0    The first argument
+     * @param arg1    The second argument
+     * @return True if the event was published, false if the ring was full
+     */
+    public boolean tryPublish(C context, T trigger, Object arg0, Object arg1) {
+        return commit(claim(false), context, trigger, 2, arg0, arg1, null);
+    }
+
+    /**
+     * Publish an event with three arguments unless the ring is full
+     *
+     * @param context The context to fire the trigger for
+     * @param trigger The trigger to fire
+     * @param arg0    The first argument
+     * @param arg1    The second argument
+     * @param arg2    The third argument
+     * @return True if the event was published, false if the ring was full
+     */
+    public boolean tryPublish(C context, T trigger, Object arg0, Object arg1, Object arg2) {
+        return commit(claim(false), context, trigger, 3, arg0, arg1, arg2);
+    }
+
+    /**
+     * Fire the events that have been published and not fired yet, on the calling thread. Must not be called while
+     * the consumer thread is started, nor from two threads at once
+     *
+     * @return The number of events fired
+     */
+    public int drain() {
+        long next = fired.get() + 1;
+        long last = next - 1;
+        long end = claimed.get();
+        // only up to the first slot that is claimed but not yet written
+        while (last < end && published.get(index(last + 1)) == last + 1) {
+            last++;
+        }
+        long sequence = next;
+        try {
+            for (; sequence <= last; sequence++) {
+                Slot<T, C> slot = slots[index(sequence)];
+                try {
+                    machine.publicFire(slot.trigger, slot.context, slot.size == 0
+                            ? TriggerArguments.NONE
+                            : arguments.set(slot.size, slot.arg0, slot.arg1, slot.arg2));
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    logger.warn("Event " + slot.trigger + " in " + slot.context + " failed", e);
+                } finally {
+                    slot.clear();
+                }
+            }
+        } finally {
+            // frees the slots for the producers, including that of an event an error escaped from
+            fired.lazySet(Math.min(sequence, last));
+        }
+        return (int) (last - next + 1);
+    }
+
+    /**
+     * Start a thread that fires the events as they are published
+     *
+     * @param name The name of the thread
+     */
+    public synchronized void start(String name) {
+        if (consumer != null) {
+            throw new IllegalStateException("The consumer has already been started.");
+        }
+        running = true;
+        consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int idle = 0;
+                while (running) {
+                    if (drain() > 0) {
+                        idle = 0;
+                    } else if (++idle < SPINS) {
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(PARK_NANOS);
+                    }
+                }
+                // the events published before stop() was called
+                drain();
+            }
+        }, name);
+        consumer.start();
+    }
+
+    /**
+     * Fire the events published before this call, then stop the consumer thread
+     *
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the consumer
+     */
+    public synchronized void stop() throws InterruptedException {
+        Thread thread = consumer;
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+        consumer = null;
+    }
+
+    /**
+     * @return The number of events published and not fired yet
+     */
+    public long getBacklog() {
+        return claimed.get() - fired.get();
+    }
+
+    /**
+     * @return The number of events that failed
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Claim the next sequence
+     *
+     * @param wait True to wait while the ring is full
+     * @return The sequence, or -1 if the ring is full and not waiting
+     */
+    private long claim(boolean wait) {
+        int spins = 0;
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            if (next - slots.length > fired.get()) {
+                if (!wait) {
+                    return -1;
+                }
+                if (++spins < SPINS) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+                continue;
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private boolean commit(long sequence, C context, T trigger, int size, Object arg0, Object arg1, Object arg2) {
+        if (sequence < 0) {
+            return false;
+        }
+        Slot<T, C> slot = slots[index(sequence)];
+        slot.context = context;
+        slot.trigger = trigger;
+        slot.size = size;
+        slot.arg0 = arg0;
+        slot.arg1 = arg1;
+        slot.arg2 = arg2;
+        // makes the writes above visible to the consumer that sees the sequence
+        published.lazySet(index(sequence), sequence);
+        return true;
+    }
+
+    private int index(long sequence) {
+        return (int) sequence & mask;
+    }
+
+    private static final class Slot<T, C> {
+
+        C context;
+        T trigger;
+        int size;
+        Object arg0;
+        Object arg1;
+        Object arg2;
+
+        void clear() {
+            context = null;
+            trigger = null;
+            arg0 = null;
+            arg1 = null;
+            arg2 = null;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.oxo42.stateless4j.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Ignore a trigger in a state
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target({})
+public @interface Ignore {
+
+    /**
+     * @return Name of the configured state
+     */
+    String state();
+
+    /**
+     * @return Name of the ignored trigger
+     */
+    String trigger();
+
+    /**
+     * @return Name of the guard method that must return true in order for the trigger to be ignored
+     */
+    String guard() default "";
+}
@@ -0,0 +1,25 @@
+package com.github.oxo42.stateless4j.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@code void name(Transition<S, T, C> transition)} method of a {@link StateMachineDefinition} as an action
+ * that will execute when transitioning into a state
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface OnEntry {
+
+    /**
+     * @return Name of the state
+     */
+    String state();
+
+    /**
+     * @return Name of the trigger by which the state must be entered in order for the action to execute, or empty
+     */
+    String trigger() default "";
+}
@@ -0,0 +1,20 @@
+package com.github.oxo42.stateless4j.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@code void name(Transition<S, T, C> transition)} method of a {@link StateMachineDefinition} as an action
+ * that will execute when transitioning from a state
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface OnExit {
+
+    /**
+     * @return Name of the state
+     */
+    String state();
+}
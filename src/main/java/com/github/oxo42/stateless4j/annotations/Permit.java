@@ -0,0 +1,34 @@
+package com.github.oxo42.stateless4j.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Accept a trigger in a state and transition to the destination state.
+ * A destination equal to the state is a reentry
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target({})
+public @interface Permit {
+
+    /**
+     * @return Name of the configured state
+     */
+    String state();
+
+    /**
+     * @return Name of the accepted trigger
+     */
+    String trigger();
+
+    /**
+     * @return Name of the destination state
+     */
+    String destination();
+
+    /**
+     * @return Name of the guard method that must return true in order for the trigger to be accepted
+     */
+    String guard() default "";
+}
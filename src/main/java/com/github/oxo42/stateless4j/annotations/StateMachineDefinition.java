@@ -0,0 +1,55 @@
+package com.github.oxo42.stateless4j.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a state machine over enum states and triggers, from which a switch-based StateMachine subclass is
+ * generated at build time.
+ * <p>
+ * The annotated type is the specification: guards are referenced by the name of a {@code boolean name(C context)}
+ * method and entry/exit actions are methods annotated with {@link OnEntry} and {@link OnExit}. The generated class is
+ * named after the specification with the suffix {@code StateMachine}, unless {@link #name()} is given, and calls
+ * these methods directly on the specification instance it is constructed with.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface StateMachineDefinition {
+
+    /**
+     * @return The enum used to represent the states
+     */
+    Class<? extends Enum<?>> states();
+
+    /**
+     * @return The enum used to represent the triggers that cause state transitions
+     */
+    Class<? extends Enum<?>> triggers();
+
+    /**
+     * @return The type used to represent the context in which the state machine is being applied
+     */
+    Class<?> context();
+
+    /**
+     * @return Simple name of the generated class
+     */
+    String name() default "";
+
+    /**
+     * @return Superstates of the states
+     */
+    Substate[] substates() default {};
+
+    /**
+     * @return Accepted triggers and their destination states
+     */
+    Permit[] permits() default {};
+
+    /**
+     * @return Ignored triggers
+     */
+    Ignore[] ignores() default {};
+}
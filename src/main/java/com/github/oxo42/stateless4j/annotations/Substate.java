@@ -0,0 +1,23 @@
+package com.github.oxo42.stateless4j.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the superstate that a state is a substate of
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target({})
+public @interface Substate {
+
+    /**
+     * @return Name of the substate
+     */
+    String state();
+
+    /**
+     * @return Name of the superstate
+     */
+    String superstate();
+}
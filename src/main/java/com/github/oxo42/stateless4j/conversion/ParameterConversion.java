@@ -15,7 +15,7 @@ public final class ParameterConversion {
 
         Object arg = args[index];
 
-        if (arg != null && !argType.isAssignableFrom(arg.getClass())) {
+        if (arg != null && !wrap(argType).isAssignableFrom(arg.getClass())) {
             throw new IllegalStateException(
                     String.format("The argument in position %s is of type %s but must be of type %s.", index, arg.getClass(), argType));
         }
@@ -33,4 +33,38 @@ public final class ParameterConversion {
             unpack(args, expected[i], i);
         }
     }
+
+    /**
+     * The class of the boxed values of a type, so that a parameter of a primitive type accepts its wrapper
+     *
+     * @param type A type
+     * @return The wrapper class of a primitive type, otherwise the type itself
+     */
+    public static Class<?> wrap(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == int.class) {
+            return Integer.class;
+        }
+        if (type == long.class) {
+            return Long.class;
+        }
+        if (type == double.class) {
+            return Double.class;
+        }
+        if (type == boolean.class) {
+            return Boolean.class;
+        }
+        if (type == float.class) {
+            return Float.class;
+        }
+        if (type == short.class) {
+            return Short.class;
+        }
+        if (type == byte.class) {
+            return Byte.class;
+        }
+        return type == char.class ? Character.class : Void.class;
+    }
 }
@@ -0,0 +1,98 @@
+package com.github.oxo42.stateless4j.conversion;
+
+import com.github.oxo42.stateless4j.triggers.TriggerArguments;
+import java.lang.reflect.Modifier;
+
+/**
+ * Checks the arguments of a trigger against its parameter types, prepared once per trigger.
+ * <p>
+ * An argument whose class is exactly the parameter type, or the class last accepted for that position, passes with a
+ * reference comparison. Other classes are checked with {@link Class#isAssignableFrom} once and then remembered, and
+ * parameter types that are final classes need no such check at all. Only when an argument is rejected is the error
+ * message built, by {@link ParameterConversion}.
+ */
+public final class ParameterValidator {
+
+    private final Class<?>[] declared;
+    private final Class<?>[] expected;
+    private final boolean[] exact;
+    private final Class<?>[] accepted;
+
+    /**
+     * Prepare the checks for a list of parameter types
+     *
+     * @param expected The parameter types, in order
+     */
+    public ParameterValidator(Class<?>... expected) {
+        assert expected != null : "expected is null";
+        this.declared = expected.clone();
+        this.expected = new Class<?>[expected.length];
+        this.exact = new boolean[expected.length];
+        this.accepted = new Class<?>[expected.length];
+        for (int i = 0; i < expected.length; i++) {
+            this.expected[i] = ParameterConversion.wrap(expected[i]);
+            exact[i] = Modifier.isFinal(this.expected[i].getModifiers());
+        }
+    }
+
+    /**
+     * Ensure that the arguments are compatible with the parameter types
+     *
+     * @param args The arguments
+     * @throws IllegalStateException if an argument is missing, superfluous or of the wrong type
+     */
+    public void validate(Object[] args) {
+        assert args != null : "args is null";
+        if (args.length != expected.length) {
+            ParameterConversion.validate(args, declared);
+            return;
+        }
+        for (int i = 0; i < args.length; i++) {
+            if (!accepts(i, args[i])) {
+                ParameterConversion.validate(args, declared);
+            }
+        }
+    }
+
+    /**
+     * Ensure that the arguments are compatible with the parameter types, without building an argument array unless an
+     * argument is rejected
+     *
+     * @param args The arguments
+     * @throws IllegalStateException if an argument is missing, superfluous or of the wrong type
+     */
+    public void validate(TriggerArguments args) {
+        assert args != null : "args is null";
+        if (args.size() != expected.length) {
+            ParameterConversion.validate(args.toArray(), declared);
+            return;
+        }
+        if (args.getPrimitiveType() != null) {
+            if (declared[0] != args.getPrimitiveType() && expected[0] != ParameterConversion.wrap(args.getPrimitiveType())) {
+                ParameterConversion.validate(args.toArray(), declared);
+            }
+            return;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (!accepts(i, args.get(i))) {
+                ParameterConversion.validate(args.toArray(), declared);
+            }
+        }
+    }
+
+    private boolean accepts(int i, Object arg) {
+        if (arg == null) {
+            return true;
+        }
+        Class<?> type = arg.getClass();
+        if (type == expected[i] || type == accepted[i]) {
+            return true;
+        }
+        if (!exact[i] && expected[i].isAssignableFrom(type)) {
+            // a benign race: another thread may overwrite this with another accepted class
+            accepted[i] = type;
+            return true;
+        }
+        return false;
+    }
+}
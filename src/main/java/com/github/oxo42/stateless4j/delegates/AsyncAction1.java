@@ -0,0 +1,18 @@
+package com.github.oxo42.stateless4j.delegates;
+
+/**
+ * Represents an asynchronous operation that accepts an input and reports its outcome to a {@link Completion}
+ * instead of returning
+ *
+ * @param <T> The type of the input to the operation
+ */
+public interface AsyncAction1<T> {
+
+    /**
+     * Starts this operation on the given input. The operation may complete on another thread, or before returning
+     *
+     * @param arg1       Input argument
+     * @param completion Receives the outcome of the operation
+     */
+    void doIt(T arg1, Completion completion);
+}
@@ -0,0 +1,19 @@
+package com.github.oxo42.stateless4j.delegates;
+
+/**
+ * Receives the outcome of an asynchronous operation. Exactly one of the methods is called, once
+ */
+public interface Completion {
+
+    /**
+     * The operation completed normally
+     */
+    void completed();
+
+    /**
+     * The operation failed
+     *
+     * @param failure The cause of the failure
+     */
+    void failed(Throwable failure);
+}
@@ -0,0 +1,17 @@
+package com.github.oxo42.stateless4j.delegates;
+
+/**
+ * Represents an operation that accepts a {@code double} and one other input argument and returns no result
+ *
+ * @param <T1> The type of the other input argument
+ */
+public interface DoubleAction<T1> {
+
+    /**
+     * Performs this operation on the given input
+     *
+     * @param value The {@code double} argument
+     * @param arg1  The other input argument
+     */
+    void doIt(double value, T1 arg1);
+}
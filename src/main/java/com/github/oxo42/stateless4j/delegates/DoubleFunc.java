@@ -0,0 +1,19 @@
+package com.github.oxo42.stateless4j.delegates;
+
+/**
+ * Represents a function that accepts a {@code double} and one other input argument and produces a result
+ *
+ * @param <T1> The type of the other input argument
+ * @param <R>  Result type
+ */
+public interface DoubleFunc<T1, R> {
+
+    /**
+     * Applies this function to the given input
+     *
+     * @param value The {@code double} argument
+     * @param arg1  The other input argument
+     * @return Result
+     */
+    R call(double value, T1 arg1);
+}
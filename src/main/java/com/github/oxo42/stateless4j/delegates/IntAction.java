@@ -0,0 +1,17 @@
+package com.github.oxo42.stateless4j.delegates;
+
+/**
+ * Represents an operation that accepts a {@code int} and one other input argument and returns no result
+ *
+ * @param <T1> The type of the other input argument
+ */
+public interface IntAction<T1> {
+
+    /**
+     * Performs this operation on the given input
+     *
+     * @param value The {@code int} argument
+     * @param arg1  The other input argument
+     */
+    void doIt(int value, T1 arg1);
+}
@@ -0,0 +1,19 @@
+package com.github.oxo42.stateless4j.delegates;
+
+/**
+ * Represents a function that accepts a {@code int} and one other input argument and produces a result
+ *
+ * @param <T1> The type of the other input argument
+ * @param <R>  Result type
+ */
+public interface IntFunc<T1, R> {
+
+    /**
+     * Applies this function to the given input
+     *
+     * @param value The {@code int} argument
+     * @param arg1  The other input argument
+     * @return Result
+     */
+    R call(int value, T1 arg1);
+}
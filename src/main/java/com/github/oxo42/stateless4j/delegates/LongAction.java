@@ -0,0 +1,17 @@
+package com.github.oxo42.stateless4j.delegates;
+
+/**
+ * Represents an operation that accepts a {@code long} and one other input argument and returns no result
+ *
+ * @param <T1> The type of the other input argument
+ */
+public interface LongAction<T1> {
+
+    /**
+     * Performs this operation on the given input
+     *
+     * @param value The {@code long} argument
+     * @param arg1  The other input argument
+     */
+    void doIt(long value, T1 arg1);
+}
@@ -0,0 +1,643 @@
+package com.github.oxo42.stateless4j.processor;
+
+import com.github.oxo42.stateless4j.annotations.Ignore;
+import com.github.oxo42.stateless4j.annotations.OnEntry;
+import com.github.oxo42.stateless4j.annotations.OnExit;
+import com.github.oxo42.stateless4j.annotations.Permit;
+import com.github.oxo42.stateless4j.annotations.StateMachineDefinition;
+import com.github.oxo42.stateless4j.annotations.Substate;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a switch-based StateMachine subclass for each type annotated with {@link StateMachineDefinition}.
+ * <p>
+ * The generated class resolves transitions with nested {@code switch} statements over the state and trigger enums,
+ * walks precomputed ancestor chains to run exit and entry actions and calls guards and actions directly on the
+ * specification instance. Trigger parameters are accepted but neither validated, since the specification declares
+ * no parameter types, nor passed to the specification. The generated class does not support
+ * {@link com.github.oxo42.stateless4j.StateMachine#fireAsync}, {@link com.github.oxo42.stateless4j.StateMachine#simulate},
+ * transition listeners and publishers nor timeouts, whose methods throw.
+ */
+@SupportedAnnotationTypes({
+        "com.github.oxo42.stateless4j.annotations.StateMachineDefinition",
+        "com.github.oxo42.stateless4j.annotations.Substate",
+        "com.github.oxo42.stateless4j.annotations.Permit",
+        "com.github.oxo42.stateless4j.annotations.Ignore",
+        "com.github.oxo42.stateless4j.annotations.OnEntry",
+        "com.github.oxo42.stateless4j.annotations.OnExit"})
+public class StateMachineProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(StateMachineDefinition.class)) {
+            if (!(element instanceof TypeElement)) {
+                continue;
+            }
+            TypeElement spec = (TypeElement) element;
+            try {
+                Definition definition = new Definition(spec);
+                if (definition.validate()) {
+                    generate(definition);
+                }
+            } catch (IOException e) {
+                error(spec, "Could not generate state machine: " + e.getMessage());
+            }
+        }
+        // only the annotations of this library are passed in, and they are all read from their definitions
+        return true;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static TypeMirror typeOf(ClassValue value) {
+        try {
+            value.get();
+        } catch (MirroredTypeException e) {
+            return e.getTypeMirror();
+        }
+        throw new IllegalStateException("Class values are only readable as type mirrors during annotation processing.");
+    }
+
+    private interface ClassValue {
+
+        void get();
+    }
+
+    private static final class Behaviour {
+
+        final String destination;
+        final String guard;
+
+        Behaviour(String destination, String guard) {
+            this.destination = destination;
+            this.guard = guard;
+        }
+    }
+
+    private static final class EntryAction {
+
+        final String method;
+        final String trigger;
+
+        EntryAction(String method, String trigger) {
+            this.method = method;
+            this.trigger = trigger;
+        }
+    }
+
+    /**
+     * The machine described by one annotated specification
+     */
+    private final class Definition {
+
+        final TypeElement spec;
+        final String packageName;
+        final String className;
+        final String stateType;
+        final String triggerType;
+        final String contextType;
+        final List<String> states;
+        final List<String> triggers;
+        final Map<String, String> superstates = new HashMap<>();
+        final Map<String, Map<String, List<Behaviour>>> behaviours = new HashMap<>();
+        final Map<String, List<EntryAction>> entryActions = new HashMap<>();
+        final Map<String, List<String>> exitActions = new HashMap<>();
+        boolean valid = true;
+
+        Definition(TypeElement spec) {
+            final StateMachineDefinition annotation = spec.getAnnotation(StateMachineDefinition.class);
+            this.spec = spec;
+            this.packageName = processingEnv.getElementUtils().getPackageOf(spec).getQualifiedName().toString();
+            this.className = annotation.name().isEmpty() ? spec.getSimpleName() + "StateMachine" : annotation.name();
+
+            TypeMirror states = typeOf(new ClassValue() {
+                @Override
+                public void get() {
+                    annotation.states();
+                }
+            });
+            TypeMirror triggers = typeOf(new ClassValue() {
+                @Override
+                public void get() {
+                    annotation.triggers();
+                }
+            });
+            TypeMirror context = typeOf(new ClassValue() {
+                @Override
+                public void get() {
+                    annotation.context();
+                }
+            });
+            this.stateType = states.toString();
+            this.triggerType = triggers.toString();
+            this.contextType = context.toString();
+            this.states = constantsOf(states);
+            this.triggers = constantsOf(triggers);
+
+            for (Substate substate : annotation.substates()) {
+                state(substate.state());
+                state(substate.superstate());
+                superstates.put(substate.state(), substate.superstate());
+            }
+            for (Permit permit : annotation.permits()) {
+                state(permit.destination());
+                behaviour(permit.state(), permit.trigger(), new Behaviour(permit.destination(), guard(permit.guard())));
+            }
+            for (Ignore ignore : annotation.ignores()) {
+                behaviour(ignore.state(), ignore.trigger(), new Behaviour(null, guard(ignore.guard())));
+            }
+            for (Element member : spec.getEnclosedElements()) {
+                OnEntry onEntry = member.getAnnotation(OnEntry.class);
+                if (onEntry != null && action(member)) {
+                    String trigger = onEntry.trigger().isEmpty() ? null : trigger(onEntry.trigger());
+                    listFor(entryActions, state(onEntry.state())).add(new EntryAction(member.getSimpleName().toString(), trigger));
+                }
+                OnExit onExit = member.getAnnotation(OnExit.class);
+                if (onExit != null && action(member)) {
+                    listFor(exitActions, state(onExit.state())).add(member.getSimpleName().toString());
+                }
+            }
+        }
+
+        private List<String> constantsOf(TypeMirror type) {
+            List<String> constants = new ArrayList<>();
+            Element element = processingEnv.getTypeUtils().asElement(type);
+            if (element == null || element.getKind() != ElementKind.ENUM) {
+                fail(type + " must be an enum.");
+                return constants;
+            }
+            for (Element constant : element.getEnclosedElements()) {
+                if (constant.getKind() == ElementKind.ENUM_CONSTANT) {
+                    constants.add(constant.getSimpleName().toString());
+                }
+            }
+            return constants;
+        }
+
+        private String state(String name) {
+            if (!states.contains(name)) {
+                fail("'" + name + "' is not a constant of " + stateType + ".");
+            }
+            return name;
+        }
+
+        private String trigger(String name) {
+            if (!triggers.contains(name)) {
+                fail("'" + name + "' is not a constant of " + triggerType + ".");
+            }
+            return name;
+        }
+
+        private String guard(String name) {
+            if (name.isEmpty()) {
+                return null;
+            }
+            ExecutableElement method = method(name);
+            if (method == null || method.getParameters().size() != 1 || method.getReturnType().getKind() != TypeKind.BOOLEAN) {
+                fail("Guard '" + name + "' must be a non-private method 'boolean " + name + "(" + contextType + ")'.");
+            }
+            return name;
+        }
+
+        private boolean action(Element member) {
+            if (member.getKind() != ElementKind.METHOD || member.getModifiers().contains(Modifier.PRIVATE)
+                    || ((ExecutableElement) member).getParameters().size() != 1) {
+                fail("Action '" + member.getSimpleName() + "' must be a non-private method taking the transition.");
+                return false;
+            }
+            return true;
+        }
+
+        private ExecutableElement method(String name) {
+            for (Element member : processingEnv.getElementUtils().getAllMembers(spec)) {
+                if (member.getKind() == ElementKind.METHOD && member.getSimpleName().contentEquals(name)
+                        && !member.getModifiers().contains(Modifier.PRIVATE)) {
+                    return (ExecutableElement) member;
+                }
+            }
+            return null;
+        }
+
+        private void behaviour(String state, String trigger, Behaviour behaviour) {
+            state(state);
+            trigger(trigger);
+            Map<String, List<Behaviour>> perTrigger = behaviours.get(state);
+            if (perTrigger == null) {
+                perTrigger = new LinkedHashMap<>();
+                behaviours.put(state, perTrigger);
+            }
+            listFor(perTrigger, trigger).add(behaviour);
+        }
+
+        private <V> List<V> listFor(Map<String, List<V>> map, String key) {
+            List<V> list = map.get(key);
+            if (list == null) {
+                list = new ArrayList<>();
+                map.put(key, list);
+            }
+            return list;
+        }
+
+        private void fail(String message) {
+            valid = false;
+            error(spec, message);
+        }
+
+        boolean validate() {
+            for (String state : superstates.keySet()) {
+                Set<String> seen = new HashSet<>();
+                for (String current = state; current != null; current = superstates.get(current)) {
+                    if (!seen.add(current)) {
+                        fail("The superstates of '" + state + "' form a cycle.");
+                        break;
+                    }
+                }
+            }
+            if (spec.getModifiers().contains(Modifier.PRIVATE)) {
+                fail(spec.getSimpleName() + " must not be private.");
+            }
+            return valid;
+        }
+
+        /**
+         * @param state A state
+         * @return The state followed by its superstates, innermost first
+         */
+        List<String> ancestors(String state) {
+            List<String> chain = new ArrayList<>();
+            for (String current = state; current != null; current = superstates.get(current)) {
+                chain.add(current);
+            }
+            return chain;
+        }
+    }
+
+    private void generate(Definition d) throws IOException {
+        String qualifiedName = d.packageName.isEmpty() ? d.className : d.packageName + "." + d.className;
+        String specType = d.spec.getQualifiedName().toString();
+        String sm = "com.github.oxo42.stateless4j.StateMachine<" + d.stateType + ", " + d.triggerType + ", " + d.contextType + ">";
+        String transition = "com.github.oxo42.stateless4j.transitions.Transition<" + d.stateType + ", " + d.triggerType + ", " + d.contextType + ">";
+        String fireResult = "com.github.oxo42.stateless4j.FireResult";
+
+        try (PrintWriter w = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedName, d.spec).openWriter())) {
+            if (!d.packageName.isEmpty()) {
+                w.println("package " + d.packageName + ";");
+                w.println();
+            }
+            w.println("/**");
+            w.println(" * Switch-based state machine generated from {@link " + specType + "}. Do not edit.");
+            w.println(" */");
+            w.println("public class " + d.className + " extends " + sm + " {");
+            w.println();
+            w.println("    private static final int UNHANDLED = -1;");
+            w.println("    private static final int IGNORED = -2;");
+            w.println("    private static final int AMBIGUOUS = -3;");
+            w.println("    private static final " + d.stateType + "[] STATES = " + d.stateType + ".values();");
+            w.println("    private static final " + d.stateType + "[][] ANCESTORS = new " + d.stateType + "[STATES.length][];");
+            w.println();
+            w.println("    static {");
+            for (String state : d.states) {
+                StringBuilder chain = new StringBuilder();
+                for (String ancestor : d.ancestors(state)) {
+                    chain.append(chain.length() == 0 ? "" : ", ").append(d.stateType).append('.').append(ancestor);
+                }
+                w.println("        ANCESTORS[" + d.stateType + "." + state + ".ordinal()] = new " + d.stateType + "[]{" + chain + "};");
+            }
+            w.println("    }");
+            w.println();
+            w.println("    private final " + specType + " spec;");
+            w.println();
+            w.println("    public " + d.className + "(" + specType + " spec,");
+            w.println("            com.github.oxo42.stateless4j.delegates.Func2<" + d.contextType + ", " + d.stateType + "> stateAccessor,");
+            w.println("            com.github.oxo42.stateless4j.delegates.Action2<" + d.stateType + ", " + d.contextType + "> stateMutator) {");
+            w.println("        super(stateAccessor, stateMutator, new com.github.oxo42.stateless4j.StateMachineConfig<" + d.stateType + ", " + d.triggerType + ", " + d.contextType + ">());");
+            w.println("        this.spec = spec;");
+            w.println("    }");
+            w.println();
+            w.println("    @Override");
+            w.println("    public com.github.oxo42.stateless4j.StateConfiguration<" + d.stateType + ", " + d.triggerType + ", " + d.contextType + "> configure(" + d.stateType + " state) {");
+            w.println("        throw new IllegalStateException(\"Generated state machines cannot be configured at runtime.\");");
+            w.println("    }");
+            w.println();
+            w.println("    @Override");
+            w.println("    protected void publicFire(" + d.triggerType + " trigger, " + d.contextType + " context, com.github.oxo42.stateless4j.triggers.TriggerArguments args) {");
+            w.println("        dispatch(trigger, context, true);");
+            w.println("    }");
+            w.println();
+            w.println("    @Override");
+            w.println("    protected " + fireResult + " publicTryFire(" + d.triggerType + " trigger, " + d.contextType + " context, com.github.oxo42.stateless4j.triggers.TriggerArguments args) {");
+            w.println("        return dispatch(trigger, context, false);");
+            w.println("    }");
+            w.println();
+            w.println("    @Override");
+            w.println("    protected void publicFireAsync(" + d.triggerType + " trigger, " + d.contextType + " context, com.github.oxo42.stateless4j.triggers.TriggerArguments args, com.github.oxo42.stateless4j.delegates.Completion completion) {");
+            w.println("        throw new IllegalStateException(\"Generated state machines cannot fire triggers asynchronously.\");");
+            w.println("    }");
+            w.println();
+            w.println("    @Override");
+            w.println("    public com.github.oxo42.stateless4j.SimulationResult<" + d.stateType + "> simulate(com.github.oxo42.stateless4j.SimulationResult<" + d.stateType + "> result, " + d.triggerType + " trigger, " + d.contextType + " context, Object... args) {");
+            w.println("        throw new IllegalStateException(\"Generated state machines cannot simulate triggers.\");");
+            w.println("    }");
+            w.println();
+            w.println("    @Override");
+            w.println("    public void onTransitioned(com.github.oxo42.stateless4j.delegates.Action1<" + transition + "> listener) {");
+            w.println("        throw new IllegalStateException(\"Generated state machines do not notify transition listeners.\");");
+            w.println("    }");
+            w.println();
+            w.println("    @Override");
+            w.println("    public com.github.oxo42.stateless4j.reactive.BufferedPublisher<" + transition + "> publishTransitions(java.util.concurrent.Executor executor, int bufferSize, com.github.oxo42.stateless4j.reactive.OverflowPolicy overflowPolicy) {");
+            w.println("        throw new IllegalStateException(\"Generated state machines do not publish transitions.\");");
+            w.println("    }");
+            w.println();
+            w.println("    @Override");
+            w.println("    public void enableTimeouts(com.github.oxo42.stateless4j.timers.HashedTimingWheel wheel) {");
+            w.println("        throw new IllegalStateException(\"Generated state machines do not support timeouts.\");");
+            w.println("    }");
+            w.println();
+            w.println("    private " + fireResult + " dispatch(" + d.triggerType + " trigger, " + d.contextType + " context, boolean strict) {");
+            w.println("        " + d.stateType + " source = getState(context);");
+            w.println("        int target = resolve(source, trigger, context, strict);");
+            w.println("        if (target == UNHANDLED) {");
+            w.println("            if (strict) {");
+            w.println("                unhandledTriggerAction.doIt(source, trigger, context);");
+            w.println("            }");
+            w.println("            return " + fireResult + ".UNHANDLED;");
+            w.println("        }");
+            w.println("        if (target == IGNORED) {");
+            w.println("            return " + fireResult + ".IGNORED;");
+            w.println("        }");
+            w.println("        if (target == AMBIGUOUS) {");
+            w.println("            return " + fireResult + ".AMBIGUOUS;");
+            w.println("        }");
+            w.println("        " + d.stateType + " destination = STATES[target];");
+            w.println("        " + transition + " transition = new com.github.oxo42.stateless4j.transitions.Transition<>(source, destination, trigger, context);");
+            w.println("        exitStates(source, destination, transition);");
+            w.println("        stateMutator.doIt(destination, context);");
+            w.println("        enterStates(source, destination, transition);");
+            w.println("        return source == destination ? " + fireResult + ".REENTERED : " + fireResult + ".TRANSITIONED;");
+            w.println("    }");
+            w.println();
+            w.println("    @Override");
+            w.println("    public boolean canFire(" + d.triggerType + " trigger, " + d.contextType + " context) {");
+            w.println("        return resolve(getState(context), trigger, context, true) != UNHANDLED;");
+            w.println("    }");
+            w.println();
+            w.println("    @Override");
+            w.println("    public boolean isInState(" + d.stateType + " state, " + d.contextType + " context) {");
+            w.println("        return includes(state, getState(context));");
+            w.println("    }");
+            w.println();
+            writePermittedTriggers(w, d);
+            writeResolve(w, d);
+            w.println("    private static boolean includes(" + d.stateType + " ancestor, " + d.stateType + " state) {");
+            w.println("        for (" + d.stateType + " s : ANCESTORS[state.ordinal()]) {");
+            w.println("            if (s == ancestor) {");
+            w.println("                return true;");
+            w.println("            }");
+            w.println("        }");
+            w.println("        return false;");
+            w.println("    }");
+            w.println();
+            w.println("    private void exitStates(" + d.stateType + " source, " + d.stateType + " destination, " + transition + " transition) {");
+            w.println("        if (source == destination) {");
+            w.println("            exitActions(source, transition);");
+            w.println("            return;");
+            w.println("        }");
+            w.println("        for (" + d.stateType + " state : ANCESTORS[source.ordinal()]) {");
+            w.println("            if (includes(state, destination)) {");
+            w.println("                return;");
+            w.println("            }");
+            w.println("            exitActions(state, transition);");
+            w.println("        }");
+            w.println("    }");
+            w.println();
+            w.println("    private void enterStates(" + d.stateType + " source, " + d.stateType + " destination, " + transition + " transition) {");
+            w.println("        if (source == destination) {");
+            w.println("            entryActions(destination, transition);");
+            w.println("            return;");
+            w.println("        }");
+            w.println("        " + d.stateType + "[] chain = ANCESTORS[destination.ordinal()];");
+            w.println("        int depth = 0;");
+            w.println("        while (depth < chain.length && !includes(chain[depth], source)) {");
+            w.println("            depth++;");
+            w.println("        }");
+            w.println("        for (int i = depth - 1; i >= 0; i--) {");
+            w.println("            entryActions(chain[i], transition);");
+            w.println("        }");
+            w.println("    }");
+            w.println();
+            writeActions(w, d, transition);
+            w.println("}");
+        }
+    }
+
+    private void writePermittedTriggers(PrintWriter w, Definition d) {
+        w.println("    @Override");
+        w.println("    public java.util.List<" + d.triggerType + "> getPermittedTriggers(" + d.contextType + " context) {");
+        w.println("        java.util.List<" + d.triggerType + "> result = new java.util.ArrayList<>();");
+        w.println("        switch (getState(context)) {");
+        for (String state : d.states) {
+            Map<String, List<String>> guardsByTrigger = new LinkedHashMap<>();
+            for (String ancestor : d.ancestors(state)) {
+                Map<String, List<Behaviour>> perTrigger = d.behaviours.get(ancestor);
+                if (perTrigger == null) {
+                    continue;
+                }
+                for (Map.Entry<String, List<Behaviour>> entry : perTrigger.entrySet()) {
+                    for (Behaviour behaviour : entry.getValue()) {
+                        d.listFor(guardsByTrigger, entry.getKey()).add(behaviour.guard);
+                    }
+                }
+            }
+            if (guardsByTrigger.isEmpty()) {
+                continue;
+            }
+            w.println("            case " + state + ":");
+            for (Map.Entry<String, List<String>> entry : guardsByTrigger.entrySet()) {
+                String add = "result.add(" + d.triggerType + "." + entry.getKey() + ");";
+                StringBuilder condition = new StringBuilder();
+                for (String guard : entry.getValue()) {
+                    if (guard == null) {
+                        condition.setLength(0);
+                        break;
+                    }
+                    condition.append(condition.length() == 0 ? "" : " || ").append("spec.").append(guard).append("(context)");
+                }
+                if (condition.length() == 0) {
+                    w.println("                " + add);
+                } else {
+                    w.println("                if (" + condition + ") {");
+                    w.println("                    " + add);
+                    w.println("                }");
+                }
+            }
+            w.println("                break;");
+        }
+        w.println("            default:");
+        w.println("                break;");
+        w.println("        }");
+        w.println("        return result;");
+        w.println("    }");
+        w.println();
+    }
+
+    private void writeResolve(PrintWriter w, Definition d) {
+        w.println("    private int resolve(" + d.stateType + " source, " + d.triggerType + " trigger, " + d.contextType + " context, boolean strict) {");
+        w.println("        switch (source) {");
+        for (String state : d.states) {
+            Map<String, List<List<Behaviour>>> levelsByTrigger = new LinkedHashMap<>();
+            for (String ancestor : d.ancestors(state)) {
+                Map<String, List<Behaviour>> perTrigger = d.behaviours.get(ancestor);
+                if (perTrigger == null) {
+                    continue;
+                }
+                for (Map.Entry<String, List<Behaviour>> entry : perTrigger.entrySet()) {
+                    d.listFor(levelsByTrigger, entry.getKey()).add(entry.getValue());
+                }
+            }
+            if (levelsByTrigger.isEmpty()) {
+                continue;
+            }
+            w.println("            case " + state + ":");
+            w.println("                switch (trigger) {");
+            for (Map.Entry<String, List<List<Behaviour>>> entry : levelsByTrigger.entrySet()) {
+                w.println("                    case " + entry.getKey() + ":");
+                boolean reachable = true;
+                for (List<Behaviour> level : entry.getValue()) {
+                    if (!reachable) {
+                        break;
+                    }
+                    reachable = writeLevel(w, d, state, level);
+                }
+                if (reachable) {
+                    w.println("                        return UNHANDLED;");
+                }
+            }
+            w.println("                    default:");
+            w.println("                        return UNHANDLED;");
+            w.println("                }");
+        }
+        w.println("            default:");
+        w.println("                return UNHANDLED;");
+        w.println("        }");
+        w.println("    }");
+        w.println();
+    }
+
+    /**
+     * Write the checks of the behaviours configured on one level of the hierarchy
+     *
+     * @return True if the code following the level is reachable
+     */
+    private boolean writeLevel(PrintWriter w, Definition d, String state, List<Behaviour> level) {
+        String indent = "                        ";
+        if (level.size() == 1) {
+            Behaviour behaviour = level.get(0);
+            if (behaviour.guard == null) {
+                w.println(indent + "return " + result(d, state, behaviour) + ";");
+                return false;
+            }
+            w.println(indent + "if (spec." + behaviour.guard + "(context)) {");
+            w.println(indent + "    return " + result(d, state, behaviour) + ";");
+            w.println(indent + "}");
+            return true;
+        }
+        w.println(indent + "{");
+        w.println(indent + "    int match = UNHANDLED;");
+        w.println(indent + "    int matches = 0;");
+        for (Behaviour behaviour : level) {
+            w.println(indent + "    if (" + (behaviour.guard == null ? "true" : "spec." + behaviour.guard + "(context)") + ") {");
+            w.println(indent + "        match = " + result(d, state, behaviour) + ";");
+            w.println(indent + "        matches++;");
+            w.println(indent + "    }");
+        }
+        w.println(indent + "    if (matches > 1) {");
+        w.println(indent + "        if (!strict) {");
+        w.println(indent + "            return AMBIGUOUS;");
+        w.println(indent + "        }");
+        w.println(indent + "        throw new IllegalStateException(\"Multiple permitted exit transitions are configured from state '\" + source + \"' for trigger '\" + trigger + \"'. Guard clauses must be mutually exclusive.\");");
+        w.println(indent + "    }");
+        w.println(indent + "    if (matches == 1) {");
+        w.println(indent + "        return match;");
+        w.println(indent + "    }");
+        w.println(indent + "}");
+        return true;
+    }
+
+    private String result(Definition d, String state, Behaviour behaviour) {
+        return behaviour.destination == null ? "IGNORED" : d.stateType + "." + behaviour.destination + ".ordinal()";
+    }
+
+    private void writeActions(PrintWriter w, Definition d, String transition) {
+        w.println("    private void entryActions(" + d.stateType + " state, " + transition + " transition) {");
+        w.println("        switch (state) {");
+        for (String state : d.states) {
+            List<EntryAction> actions = d.entryActions.get(state);
+            if (actions == null) {
+                continue;
+            }
+            w.println("            case " + state + ":");
+            for (EntryAction action : actions) {
+                if (action.trigger == null) {
+                    w.println("                spec." + action.method + "(transition);");
+                } else {
+                    w.println("                if (transition.getTrigger() == " + d.triggerType + "." + action.trigger + ") {");
+                    w.println("                    spec." + action.method + "(transition);");
+                    w.println("                }");
+                }
+            }
+            w.println("                break;");
+        }
+        w.println("            default:");
+        w.println("                break;");
+        w.println("        }");
+        w.println("    }");
+        w.println();
+        w.println("    private void exitActions(" + d.stateType + " state, " + transition + " transition) {");
+        w.println("        switch (state) {");
+        for (String state : d.states) {
+            List<String> actions = d.exitActions.get(state);
+            if (actions == null) {
+                continue;
+            }
+            w.println("            case " + state + ":");
+            for (String action : actions) {
+                w.println("                spec." + action + "(transition);");
+            }
+            w.println("                break;");
+        }
+        w.println("            default:");
+        w.println("                break;");
+        w.println("        }");
+        w.println("    }");
+    }
+}
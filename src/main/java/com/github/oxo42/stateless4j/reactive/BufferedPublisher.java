@@ -0,0 +1,242 @@
+package com.github.oxo42.stateless4j.reactive;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * A publisher that buffers items separately for each subscriber and delivers them on an executor as they are
+ * requested.
+ * <p>
+ * The buffer of each subscriber holds at most bufferSize items. When it is full, the {@link OverflowPolicy} decides
+ * whether a new item is dropped, replaces the oldest one, or blocks {@link #publish} until the subscriber catches
+ * up. A slow subscriber therefore never holds back the others unless the policy is {@link OverflowPolicy#BLOCK}.
+ *
+ * @param <T> The type of the published items
+ */
+public class BufferedPublisher<T> implements Publisher<T> {
+
+    private final Executor executor;
+    private final int bufferSize;
+    private final OverflowPolicy overflowPolicy;
+    private final CopyOnWriteArrayList<BufferedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * Construct a publisher
+     *
+     * @param executor       Executor on which items are delivered
+     * @param bufferSize     Maximum number of items buffered for each subscriber
+     * @param overflowPolicy What to do with a new item when a buffer is full
+     */
+    public BufferedPublisher(Executor executor, int bufferSize, OverflowPolicy overflowPolicy) {
+        assert executor != null : "executor is null";
+        assert overflowPolicy != null : "overflowPolicy is null";
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        assert subscriber != null : "subscriber is null";
+        BufferedSubscription subscription = new BufferedSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        subscriptions.add(subscription);
+        if (closed) {
+            // close() may have run before the add and missed this subscription
+            subscriptions.remove(subscription);
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Offer an item to every subscriber. Items published after {@link #close()} are discarded
+     *
+     * @param item The item
+     */
+    public void publish(T item) {
+        assert item != null : "item is null";
+        if (closed) {
+            return;
+        }
+        for (BufferedSubscription subscription : subscriptions) {
+            subscription.offer(item);
+        }
+    }
+
+    /**
+     * Complete every subscriber once it has received its buffered items
+     */
+    public void close() {
+        closed = true;
+        for (BufferedSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+        subscriptions.clear();
+    }
+
+    /**
+     * @return The number of current subscribers
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * @return The number of items dropped by the overflow policy, over all current subscribers
+     */
+    public long getDroppedCount() {
+        long dropped = 0;
+        for (BufferedSubscription subscription : subscriptions) {
+            dropped += subscription.getDropped();
+        }
+        return dropped;
+    }
+
+    private final class BufferedSubscription implements Subscription, Runnable {
+
+        private final Subscriber<? super T> subscriber;
+        private final Queue<T> buffer = new ArrayDeque<>();
+        private long demand;
+        private long dropped;
+        private boolean cancelled;
+        private boolean completed;
+        private boolean scheduled;
+        private Throwable failure;
+
+        BufferedSubscription(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public synchronized void request(long n) {
+            if (cancelled) {
+                return;
+            }
+            if (n <= 0) {
+                failure = new IllegalArgumentException("request must be positive, was " + n);
+                cancelled = true;
+                buffer.clear();
+                subscriptions.remove(this);
+                notifyAll();
+            } else {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+            schedule();
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            buffer.clear();
+            subscriptions.remove(this);
+            notifyAll();
+        }
+
+        synchronized void offer(T item) {
+            if (cancelled) {
+                return;
+            }
+            if (buffer.size() == bufferSize) {
+                switch (overflowPolicy) {
+                    case DROP:
+                        dropped++;
+                        return;
+                    case LATEST:
+                        buffer.poll();
+                        dropped++;
+                        break;
+                    case BLOCK:
+                        boolean interrupted = false;
+                        while (buffer.size() == bufferSize && !cancelled) {
+                            try {
+                                wait();
+                            } catch (InterruptedException e) {
+                                interrupted = true;
+                            }
+                        }
+                        if (interrupted) {
+                            Thread.currentThread().interrupt();
+                        }
+                        if (cancelled) {
+                            return;
+                        }
+                        break;
+                }
+            }
+            buffer.add(item);
+            schedule();
+        }
+
+        synchronized void complete() {
+            completed = true;
+            schedule();
+        }
+
+        synchronized long getDropped() {
+            return dropped;
+        }
+
+        private void schedule() {
+            if (!scheduled) {
+                scheduled = true;
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                T item;
+                Throwable error = null;
+                boolean done = false;
+                synchronized (this) {
+                    if (failure != null) {
+                        error = failure;
+                        failure = null;
+                        scheduled = false;
+                    } else if (cancelled) {
+                        scheduled = false;
+                        return;
+                    } else if (demand == 0 || buffer.isEmpty()) {
+                        scheduled = false;
+                        if (!completed || !buffer.isEmpty()) {
+                            return;
+                        }
+                        cancelled = true;
+                        done = true;
+                    }
+                    item = error == null && !done ? buffer.poll() : null;
+                    if (item != null) {
+                        demand--;
+                        notifyAll();
+                    }
+                }
+                if (error != null) {
+                    subscriber.onError(error);
+                    return;
+                }
+                if (done) {
+                    subscriber.onComplete();
+                    return;
+                }
+                try {
+                    subscriber.onNext(item);
+                } catch (Throwable t) {
+                    // cancel, so that a publisher blocked on this buffer is released, and let the next drain start
+                    synchronized (this) {
+                        cancel();
+                        scheduled = false;
+                    }
+                    subscriber.onError(t);
+                    return;
+                }
+            }
+        }
+    }
+}
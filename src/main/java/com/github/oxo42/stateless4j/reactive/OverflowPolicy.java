@@ -0,0 +1,19 @@
+package com.github.oxo42.stateless4j.reactive;
+
+/**
+ * What a publisher does with a new item when the buffer of a subscriber is full
+ */
+public enum OverflowPolicy {
+    /**
+     * Discard the new item
+     */
+    DROP,
+    /**
+     * Discard the oldest buffered item to make room for the new one
+     */
+    LATEST,
+    /**
+     * Wait until the subscriber has taken an item from the buffer
+     */
+    BLOCK
+}
@@ -0,0 +1,16 @@
+package com.github.oxo42.stateless4j.reactive;
+
+/**
+ * A producer of items that are delivered to subscribers on demand, following the reactive streams protocol
+ *
+ * @param <T> The type of the published items
+ */
+public interface Publisher<T> {
+
+    /**
+     * Add a subscriber. The subscriber is handed its {@link Subscription} through {@link Subscriber#onSubscribe}
+     *
+     * @param subscriber The subscriber
+     */
+    void subscribe(Subscriber<? super T> subscriber);
+}
@@ -0,0 +1,35 @@
+package com.github.oxo42.stateless4j.reactive;
+
+/**
+ * A receiver of the items of a {@link Publisher}. The methods of one subscriber are never called concurrently
+ *
+ * @param <T> The type of the received items
+ */
+public interface Subscriber<T> {
+
+    /**
+     * Called once before any other method, with the subscription through which items are requested
+     *
+     * @param subscription The subscription
+     */
+    void onSubscribe(Subscription subscription);
+
+    /**
+     * Called for each item, never more often than requested
+     *
+     * @param item The item
+     */
+    void onNext(T item);
+
+    /**
+     * Called when the subscription fails. No other method is called afterwards
+     *
+     * @param throwable The failure
+     */
+    void onError(Throwable throwable);
+
+    /**
+     * Called when the publisher has no more items. No other method is called afterwards
+     */
+    void onComplete();
+}
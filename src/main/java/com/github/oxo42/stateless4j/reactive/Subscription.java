@@ -0,0 +1,19 @@
+package com.github.oxo42.stateless4j.reactive;
+
+/**
+ * The link between a {@link Publisher} and one of its subscribers
+ */
+public interface Subscription {
+
+    /**
+     * Request more items
+     *
+     * @param n The number of additional items the subscriber is ready to receive, must be positive
+     */
+    void request(long n);
+
+    /**
+     * Stop receiving items
+     */
+    void cancel();
+}
@@ -0,0 +1,198 @@
+package com.github.oxo42.stateless4j.timers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hashed timing wheel for large numbers of timers with coarse precision.
+ * <p>
+ * Scheduling and cancelling a task are O(1). The wheel advances one bucket per tick and runs the tasks whose
+ * deadline has passed on the thread that advances it, either the worker thread started by {@link #start()} or a
+ * caller of {@link #advance()}. Each pending task costs a single small node, so memory grows only with the number of
+ * pending timers.
+ */
+public class HashedTimingWheel {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final long startTime;
+    private long currentTick;
+    private int pending;
+    private Thread worker;
+
+    /**
+     * Construct a timing wheel
+     *
+     * @param tickDuration  Duration of one tick, the precision of the timers
+     * @param unit          Unit of the tick duration
+     * @param ticksPerWheel Number of buckets, rounded up to a power of two
+     */
+    public HashedTimingWheel(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive");
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > 1 << 30) {
+            throw new IllegalArgumentException("ticksPerWheel must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(ticksPerWheel);
+        if (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+        this.startTime = currentTime();
+    }
+
+    /**
+     * The current time in nanoseconds. Overridable to drive the wheel from another clock
+     *
+     * @return The current time in nanoseconds
+     */
+    protected long currentTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Schedule a task to run once after the given delay
+     *
+     * @param task  The task to run
+     * @param delay Delay after which the task runs
+     * @param unit  Unit of the delay
+     * @return A handle through which the task can be cancelled
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        assert task != null : "task is null";
+        Timeout timeout = new Timeout(this, task, currentTime() + unit.toNanos(Math.max(delay, 0)));
+        synchronized (this) {
+            long ticks = (timeout.deadline - startTime + tickNanos - 1) / tickNanos;
+            long tick = Math.max(ticks, currentTick);
+            timeout.remainingRounds = (tick - currentTick) / buckets.length;
+            timeout.bucket = (int) (tick & mask);
+            link(timeout);
+            pending++;
+        }
+        return timeout;
+    }
+
+    synchronized boolean cancel(Timeout timeout) {
+        if (!timeout.isPending()) {
+            return false;
+        }
+        timeout.markCancelled();
+        unlink(timeout);
+        pending--;
+        return true;
+    }
+
+    /**
+     * The number of tasks that are scheduled and have not run or been cancelled
+     *
+     * @return The number of pending tasks
+     */
+    public synchronized int pendingTimeouts() {
+        return pending;
+    }
+
+    /**
+     * Process all ticks up to the current time and run the expired tasks on the calling thread
+     *
+     * @return The number of tasks that ran
+     */
+    public int advance() {
+        List<Timeout> expired = new ArrayList<>();
+        synchronized (this) {
+            long now = currentTime();
+            while (startTime + currentTick * tickNanos <= now) {
+                Timeout timeout = buckets[(int) (currentTick & mask)];
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    if (timeout.remainingRounds <= 0) {
+                        unlink(timeout);
+                        timeout.markExpired();
+                        pending--;
+                        expired.add(timeout);
+                    } else {
+                        timeout.remainingRounds--;
+                    }
+                    timeout = next;
+                }
+                currentTick++;
+            }
+        }
+        for (Timeout timeout : expired) {
+            try {
+                timeout.task.run();
+            } catch (RuntimeException e) {
+                logger.warn("Timer task threw an exception", e);
+            }
+        }
+        return expired.size();
+    }
+
+    /**
+     * Start a daemon worker thread that advances the wheel every tick
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            throw new IllegalStateException("The timing wheel has already been started.");
+        }
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!Thread.currentThread().isInterrupted()) {
+                    advance();
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(tickNanos);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }, "stateless4j-timing-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stop the worker thread. Pending tasks stay scheduled
+     */
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            thread = worker;
+            worker = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void link(Timeout timeout) {
+        Timeout head = buckets[timeout.bucket];
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        buckets[timeout.bucket] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.oxo42.stateless4j.timers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A trigger to fire when a state machine stays in a state for longer than a delay
+ *
+ * @param <T> The type used to represent the triggers that cause state transitions
+ */
+public final class StateTimeout<T> {
+
+    private final long delayNanos;
+    private final T trigger;
+
+    public StateTimeout(long delay, TimeUnit unit, T trigger) {
+        assert unit != null : "unit is null";
+        this.delayNanos = unit.toNanos(delay);
+        this.trigger = trigger;
+    }
+
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public T getTrigger() {
+        return trigger;
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.oxo42.stateless4j.timers;
+
+/**
+ * Handle of a task scheduled on a {@link HashedTimingWheel}
+ */
+public final class Timeout {
+
+    final HashedTimingWheel wheel;
+    final Runnable task;
+    final long deadline;
+    long remainingRounds;
+    int bucket = -1;
+    Timeout prev;
+    Timeout next;
+    private boolean cancelled;
+    private boolean expired;
+
+    Timeout(HashedTimingWheel wheel, Runnable task, long deadline) {
+        this.wheel = wheel;
+        this.task = task;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Cancel the task if it has not run yet
+     *
+     * @return True if the task was cancelled, false if it already ran or was cancelled before
+     */
+    public boolean cancel() {
+        return wheel.cancel(this);
+    }
+
+    public boolean isCancelled() {
+        synchronized (wheel) {
+            return cancelled;
+        }
+    }
+
+    public boolean isExpired() {
+        synchronized (wheel) {
+            return expired;
+        }
+    }
+
+    void markCancelled() {
+        cancelled = true;
+    }
+
+    void markExpired() {
+        expired = true;
+    }
+
+    boolean isPending() {
+        return !cancelled && !expired;
+    }
+}
@@ -2,6 +2,7 @@ package com.github.oxo42.stateless4j.transitions;
 
 import com.github.oxo42.stateless4j.OutVar;
 import com.github.oxo42.stateless4j.delegates.FuncCondition;
+import com.github.oxo42.stateless4j.triggers.TriggerArguments;
 import com.github.oxo42.stateless4j.triggers.TriggerBehaviour;
 
 public class TransitioningTriggerBehaviour<S, T, C> extends TriggerBehaviour<S, T, C> {
@@ -13,9 +14,19 @@ public class TransitioningTriggerBehaviour<S, T, C> extends TriggerBehaviour<S,
         this.destination = destination;
     }
 
+    public S getDestination() {
+        return destination;
+    }
+
     @Override
     public boolean resultsInTransitionFrom(S source, C context, Object[] args, OutVar<S> dest) {
         dest.set(destination);
         return true;
     }
+
+    @Override
+    public boolean resultsInTransitionFrom(S source, C context, TriggerArguments args, OutVar<S> dest) {
+        dest.set(destination);
+        return true;
+    }
 }
@@ -0,0 +1,26 @@
+package com.github.oxo42.stateless4j.triggers;
+
+import com.github.oxo42.stateless4j.delegates.Func3;
+
+/**
+ * A destination selector that reads the trigger arguments from their fields, so that no argument array is built
+ *
+ * @param <C> The type used to represent the context in which the state machine is being applied
+ * @param <S> The type used to represent the states
+ */
+public abstract class ArgumentSelector<C, S> implements Func3<C, Object[], S> {
+
+    /**
+     * Select the destination state
+     *
+     * @param context The context
+     * @param args    The arguments of the trigger
+     * @return The destination state
+     */
+    public abstract S select(C context, TriggerArguments args);
+
+    @Override
+    public final S call(C context, Object[] args) {
+        return select(context, TriggerArguments.fromArray(args));
+    }
+}
@@ -14,9 +14,24 @@ public class DynamicTriggerBehaviour<S, T, C> extends TriggerBehaviour<S, T, C>
         this.destination = destination;
     }
 
+    public Func3<C, Object[], S> getDestinationSelector() {
+        return destination;
+    }
+
     @Override
     public boolean resultsInTransitionFrom(S source, C context, Object[] args, OutVar<S> dest) {
         dest.set(destination.call(context, args));
         return true;
     }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean resultsInTransitionFrom(S source, C context, TriggerArguments args, OutVar<S> dest) {
+        if (destination instanceof ArgumentSelector) {
+            dest.set(((ArgumentSelector<C, S>) destination).select(context, args));
+        } else {
+            dest.set(destination.call(context, args.toArray()));
+        }
+        return true;
+    }
 }
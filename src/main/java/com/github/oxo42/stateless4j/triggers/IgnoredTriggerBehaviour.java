@@ -13,4 +13,9 @@ public class IgnoredTriggerBehaviour<S, T, C> extends TriggerBehaviour<S, T, C>
     public boolean resultsInTransitionFrom(S source, C context, Object[] args, OutVar<S> dest) {
         return false;
     }
+
+    @Override
+    public boolean resultsInTransitionFrom(S source, C context, TriggerArguments args, OutVar<S> dest) {
+        return false;
+    }
 }
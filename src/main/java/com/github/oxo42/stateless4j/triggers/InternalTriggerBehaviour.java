@@ -0,0 +1,43 @@
+package com.github.oxo42.stateless4j.triggers;
+
+import com.github.oxo42.stateless4j.OutVar;
+import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.delegates.FuncCondition;
+
+/**
+ * Handles a trigger by running an action, without leaving the state and without running any exit or entry action
+ */
+public class InternalTriggerBehaviour<S, T, C> extends TriggerBehaviour<S, T, C> {
+
+    private final Action2<C, TriggerArguments> action;
+
+    public InternalTriggerBehaviour(T trigger, Action2<C, TriggerArguments> action, FuncCondition<C> guard) {
+        super(trigger, guard);
+        assert action != null : "action is null";
+        this.action = action;
+    }
+
+    public Action2<C, TriggerArguments> getAction() {
+        return action;
+    }
+
+    @Override
+    public boolean resultsInTransitionFrom(S source, C context, Object[] args, OutVar<S> dest) {
+        return false;
+    }
+
+    @Override
+    public boolean resultsInTransitionFrom(S source, C context, TriggerArguments args, OutVar<S> dest) {
+        return false;
+    }
+
+    /**
+     * Run the action of the internal transition
+     *
+     * @param context The context the trigger was fired in
+     * @param args    The arguments of the trigger
+     */
+    public void execute(C context, TriggerArguments args) {
+        action.doIt(context, args);
+    }
+}
@@ -0,0 +1,206 @@
+package com.github.oxo42.stateless4j.triggers;
+
+/**
+ * The arguments of one fired trigger, carried as fields rather than in an array.
+ * <p>
+ * Triggers with up to three parameters keep their arguments in fields, and triggers with a single {@code int},
+ * {@code long} or {@code double} parameter keep it unboxed. Entry actions and destination selectors configured
+ * through the typed {@link com.github.oxo42.stateless4j.StateConfiguration} methods read the fields directly; an array
+ * is only built, once, for actions and selectors that take the arguments as {@code Object[]}.
+ * <p>
+ * Arguments are immutable, except those created with {@link #reusable()}, which a caller that fires one trigger at a
+ * time refills with {@link #set} before each fire instead of allocating new ones.
+ */
+public final class TriggerArguments {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    /**
+     * The arguments of a trigger without parameters
+     */
+    public static final TriggerArguments NONE = new TriggerArguments(0, null, null, null, null, 0L, 0.0, NO_ARGS);
+
+    private final boolean reusable;
+    private int size;
+    private Object arg0;
+    private Object arg1;
+    private Object arg2;
+    private final Class<?> primitiveType;
+    private final long longValue;
+    private final double doubleValue;
+    private Object[] array;
+
+    private TriggerArguments(int size, Object arg0, Object arg1, Object arg2, Class<?> primitiveType, long longValue, double doubleValue, Object[] array) {
+        this(false, size, arg0, arg1, arg2, primitiveType, longValue, doubleValue, array);
+    }
+
+    private TriggerArguments(boolean reusable, int size, Object arg0, Object arg1, Object arg2, Class<?> primitiveType, long longValue, double doubleValue, Object[] array) {
+        this.reusable = reusable;
+        this.size = size;
+        this.arg0 = arg0;
+        this.arg1 = arg1;
+        this.arg2 = arg2;
+        this.primitiveType = primitiveType;
+        this.longValue = longValue;
+        this.doubleValue = doubleValue;
+        this.array = array;
+    }
+
+    /**
+     * Wrap arguments passed as an array. The array is not copied
+     *
+     * @param args The arguments
+     * @return The arguments
+     */
+    public static TriggerArguments fromArray(Object[] args) {
+        assert args != null : "args is null";
+        if (args.length == 0) {
+            return NONE;
+        }
+        return new TriggerArguments(args.length, args[0], args.length > 1 ? args[1] : null, args.length > 2 ? args[2] : null,
+                null, 0L, 0.0, args);
+    }
+
+    public static TriggerArguments of(Object arg0) {
+        return new TriggerArguments(1, arg0, null, null, null, 0L, 0.0, null);
+    }
+
+    public static TriggerArguments of(Object arg0, Object arg1) {
+        return new TriggerArguments(2, arg0, arg1, null, null, 0L, 0.0, null);
+    }
+
+    public static TriggerArguments of(Object arg0, Object arg1, Object arg2) {
+        return new TriggerArguments(3, arg0, arg1, arg2, null, 0L, 0.0, null);
+    }
+
+    /**
+     * Create arguments to be refilled with {@link #set} before each fire. They hold the values last set until they are
+     * set again, so they must not be kept beyond the fire they are passed to
+     *
+     * @return Arguments without any value
+     */
+    public static TriggerArguments reusable() {
+        return new TriggerArguments(true, 0, null, null, null, null, 0L, 0.0, NO_ARGS);
+    }
+
+    public static TriggerArguments ofInt(int value) {
+        return new TriggerArguments(1, null, null, null, int.class, value, 0.0, null);
+    }
+
+    public static TriggerArguments ofLong(long value) {
+        return new TriggerArguments(1, null, null, null, long.class, value, 0.0, null);
+    }
+
+    public static TriggerArguments ofDouble(double value) {
+        return new TriggerArguments(1, null, null, null, double.class, 0L, value, null);
+    }
+
+    /**
+     * Replace the values of arguments created with {@link #reusable()}
+     *
+     * @param size The number of arguments, at most three
+     * @param arg0 The first argument, if any
+     * @param arg1 The second argument, if any
+     * @param arg2 The third argument, if any
+     * @return The receiver
+     */
+    public TriggerArguments set(int size, Object arg0, Object arg1, Object arg2) {
+        if (!reusable) {
+            throw new IllegalStateException("Only reusable arguments can be set.");
+        }
+        if (size < 0 || size > 3) {
+            throw new IllegalArgumentException("size must be between 0 and 3");
+        }
+        this.size = size;
+        this.arg0 = arg0;
+        this.arg1 = arg1;
+        this.arg2 = arg2;
+        // an array built for the previous values may still be held by an action
+        this.array = size == 0 ? NO_ARGS : null;
+        return this;
+    }
+
+    /**
+     * @return The number of arguments
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The primitive type of the single argument, if it is carried unboxed
+     *
+     * @return {@code int.class}, {@code long.class}, {@code double.class} or null
+     */
+    public Class<?> getPrimitiveType() {
+        return primitiveType;
+    }
+
+    /**
+     * An argument, boxed if it is carried unboxed
+     *
+     * @param index The position of the argument
+     * @return The argument
+     */
+    public Object get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("There is no argument in position " + index + ".");
+        }
+        if (primitiveType != null) {
+            return box();
+        }
+        switch (index) {
+            case 0:
+                return arg0;
+            case 1:
+                return arg1;
+            case 2:
+                return arg2;
+            default:
+                return array[index];
+        }
+    }
+
+    public int getInt() {
+        enforcePrimitive(int.class);
+        return (int) longValue;
+    }
+
+    public long getLong() {
+        enforcePrimitive(long.class);
+        return longValue;
+    }
+
+    public double getDouble() {
+        enforcePrimitive(double.class);
+        return doubleValue;
+    }
+
+    /**
+     * The arguments as an array, built on first use
+     *
+     * @return The arguments
+     */
+    public Object[] toArray() {
+        if (array == null) {
+            array = primitiveType != null ? new Object[]{box()}
+                    : size == 1 ? new Object[]{arg0}
+                    : size == 2 ? new Object[]{arg0, arg1}
+                    : new Object[]{arg0, arg1, arg2};
+        }
+        return array;
+    }
+
+    private Object box() {
+        if (primitiveType == int.class) {
+            return (int) longValue;
+        }
+        return primitiveType == long.class ? (Object) longValue : (Object) doubleValue;
+    }
+
+    private void enforcePrimitive(Class<?> type) {
+        if (primitiveType != type) {
+            throw new IllegalStateException("The argument is not carried as " + type + ".");
+        }
+    }
+}
@@ -17,9 +17,27 @@ public abstract class TriggerBehaviour<S, T, C> {
         return trigger;
     }
 
+    public FuncCondition<C> getGuard() {
+        return guard;
+    }
+
     public boolean isGuardConditionMet(C context) {
         return guard.check(context);
     }
 
     public abstract boolean resultsInTransitionFrom(S source, C context, Object[] args, OutVar<S> dest);
+
+    /**
+     * Determine the destination of the trigger from arguments carried in fields. Behaviours that do not look at the
+     * arguments override this to avoid building an argument array
+     *
+     * @param source  The current state
+     * @param context The context
+     * @param args    The arguments of the trigger
+     * @param dest    Receives the destination state
+     * @return True if the trigger causes a transition
+     */
+    public boolean resultsInTransitionFrom(S source, C context, TriggerArguments args, OutVar<S> dest) {
+        return resultsInTransitionFrom(source, context, args.toArray(), dest);
+    }
 }
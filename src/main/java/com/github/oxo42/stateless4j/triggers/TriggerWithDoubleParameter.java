@@ -0,0 +1,18 @@
+package com.github.oxo42.stateless4j.triggers;
+
+/**
+ * A trigger with a single {@code double} parameter, fired without boxing the argument
+ *
+ * @param <T> The type used to represent the triggers that cause state transitions
+ */
+public class TriggerWithDoubleParameter<T> extends TriggerWithParameters<T> {
+
+    /**
+     * Create a configured trigger
+     *
+     * @param underlyingTrigger Trigger represented by this trigger configuration
+     */
+    public TriggerWithDoubleParameter(T underlyingTrigger) {
+        super(underlyingTrigger, double.class);
+    }
+}
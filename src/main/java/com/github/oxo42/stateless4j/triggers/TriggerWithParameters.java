@@ -1,6 +1,6 @@
 package com.github.oxo42.stateless4j.triggers;
 
-import com.github.oxo42.stateless4j.conversion.ParameterConversion;
+import com.github.oxo42.stateless4j.conversion.ParameterValidator;
 
 /**
  * Abstract class for a parameterised trigger.
@@ -11,6 +11,7 @@ public abstract class TriggerWithParameters<T> {
 
     private final T underlyingTrigger;
     private final Class<?>[] argumentTypes;
+    private final ParameterValidator validator;
 
     /**
      * Create a configured trigger
@@ -23,6 +24,7 @@ public abstract class TriggerWithParameters<T> {
 
         this.underlyingTrigger = underlyingTrigger;
         this.argumentTypes = argumentTypes;
+        this.validator = new ParameterValidator(argumentTypes);
     }
 
     /**
@@ -34,6 +36,15 @@ public abstract class TriggerWithParameters<T> {
         return underlyingTrigger;
     }
 
+    /**
+     * Gets the argument types expected by the trigger
+     *
+     * @return A copy of the argument types expected by the trigger
+     */
+    public Class<?>[] getArgumentTypes() {
+        return argumentTypes.clone();
+    }
+
     /**
      * Ensure that the supplied arguments are compatible with those configured for this trigger
      *
@@ -41,6 +52,16 @@ public abstract class TriggerWithParameters<T> {
      */
     public void validateParameters(Object[] args) {
         assert args != null : "args is null";
-        ParameterConversion.validate(args, argumentTypes);
+        validator.validate(args);
+    }
+
+    /**
+     * Ensure that the supplied arguments are compatible with those configured for this trigger
+     *
+     * @param args parameters to validate
+     */
+    public void validateParameters(TriggerArguments args) {
+        assert args != null : "args is null";
+        validator.validate(args);
     }
 }
@@ -0,0 +1,143 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.FuncCondition;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class AdaptiveOrderingTests {
+
+    int mChecks;
+    int nChecks;
+
+    final FuncCondition<Context> isM = new FuncCondition<Context>() {
+        @Override
+        public boolean check(Context context) {
+            mChecks++;
+            return context == Context.M;
+        }
+    };
+
+    final FuncCondition<Context> isN = new FuncCondition<Context>() {
+        @Override
+        public boolean check(Context context) {
+            nChecks++;
+            return context == Context.N;
+        }
+    };
+
+    StateMachineConfig<State, Trigger, Context> createConfig() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permitIf(Trigger.X, State.B, isM)
+                .permitIf(Trigger.X, State.C, isN);
+        config.configure(State.B).permit(Trigger.Y, State.A);
+        config.configure(State.C).permit(Trigger.Y, State.A);
+        return config;
+    }
+
+    void fireN(StateMachine<State, Trigger, Context> sm, int times) {
+        for (int i = 0; i < times; i++) {
+            sm.fire(Trigger.X, Context.N);
+            sm.fire(Trigger.Y, Context.N);
+        }
+    }
+
+    @Test
+    public void MostFrequentWinnerIsCheckedFirstAfterWarmUp() {
+        StateMachineConfig<State, Trigger, Context> config = createConfig();
+        new ConfigurationValidator<>(config).trust(State.A);
+        config.enableAdaptiveOrdering(10);
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        fireN(sm, 10);
+        assertEquals(10, mChecks);
+
+        mChecks = 0;
+        fireN(sm, 5);
+
+        assertEquals(0, mChecks);
+        assertEquals(State.A, sm.getState(Context.N));
+        sm.fire(Trigger.X, Context.M);
+        assertEquals(State.B, sm.getState(Context.M));
+    }
+
+    @Test
+    public void LearnedOrderIsExported() {
+        StateMachineConfig<State, Trigger, Context> config = createConfig();
+        config.freeze();
+        config.enableAdaptiveOrdering(4);
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        assertTrue(config.getBehaviourOrder().isEmpty());
+
+        fireN(sm, 4);
+
+        Map<State, Map<Trigger, List<Integer>>> order = config.getBehaviourOrder();
+        assertEquals(Arrays.asList(1, 0), order.get(State.A).get(Trigger.X));
+    }
+
+    @Test
+    public void UntrustedConfigurationKeepsCheckingAllGuards() {
+        StateMachineConfig<State, Trigger, Context> config = createConfig();
+        config.freeze();
+        config.enableAdaptiveOrdering(4);
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        fireN(sm, 4);
+
+        mChecks = 0;
+        fireN(sm, 3);
+
+        assertEquals(3, mChecks);
+    }
+
+    @Test
+    public void ExportedOrderIsUsedWithoutWarmUp() {
+        StateMachineConfig<State, Trigger, Context> config = createConfig();
+        new ConfigurationValidator<>(config).trust(State.A);
+        config.setBehaviourOrder(Collections.singletonMap(State.A,
+                Collections.singletonMap(Trigger.X, Arrays.asList(1, 0))));
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+
+        fireN(sm, 3);
+
+        assertEquals(0, mChecks);
+    }
+
+    @Test
+    public void CompiledMachineLearnsAndAppliesTheOrder() {
+        StateMachineConfig<State, Trigger, Context> config = createConfig();
+        new ConfigurationValidator<>(config).trust(State.A);
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        CompiledStateMachine<State, Trigger, Context> sm = new CompiledStateMachine<>(reference, reference, config);
+        config.enableAdaptiveOrdering(10);
+        fireN(sm, 10);
+
+        mChecks = 0;
+        fireN(sm, 5);
+
+        assertEquals(0, mChecks);
+        assertEquals(Arrays.asList(1, 0), config.getBehaviourOrder().get(State.A).get(Trigger.X));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void OrderMustListEachBehaviourOnce() {
+        StateMachineConfig<State, Trigger, Context> config = createConfig();
+        config.freeze();
+        config.setBehaviourOrder(Collections.singletonMap(State.A,
+                Collections.singletonMap(Trigger.X, Arrays.asList(1, 1))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void WarmUpMustBePositive() {
+        StateMachineConfig<State, Trigger, Context> config = createConfig();
+        config.freeze();
+        config.enableAdaptiveOrdering(0);
+    }
+}
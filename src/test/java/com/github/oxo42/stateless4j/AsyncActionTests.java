@@ -0,0 +1,223 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Action3;
+import com.github.oxo42.stateless4j.delegates.Action4;
+import com.github.oxo42.stateless4j.delegates.AsyncAction1;
+import com.github.oxo42.stateless4j.delegates.Completion;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters2;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters3;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class AsyncActionTests {
+
+    final List<Completion> pending = new ArrayList<>();
+    final List<String> log = new ArrayList<>();
+
+    boolean completed;
+    Throwable failure;
+
+    final Completion outcome = new Completion() {
+        @Override
+        public void completed() {
+            completed = true;
+        }
+
+        @Override
+        public void failed(Throwable e) {
+            failure = e;
+        }
+    };
+
+    AsyncAction1<Transition<State, Trigger, Context>> later(final String name) {
+        return new AsyncAction1<Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(Transition<State, Trigger, Context> transition, Completion completion) {
+                log.add(name);
+                pending.add(completion);
+            }
+        };
+    }
+
+    AsyncAction1<Transition<State, Trigger, Context>> now(final String name) {
+        return new AsyncAction1<Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(Transition<State, Trigger, Context> transition, Completion completion) {
+                log.add(name);
+                completion.completed();
+            }
+        };
+    }
+
+    Action1<Transition<State, Trigger, Context>> sync(final String name) {
+        return new Action1<Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(Transition<State, Trigger, Context> transition) {
+                log.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void StateChangesOnceExitActionsHaveCompleted() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B).onExitAsync(later("exitA"));
+        config.configure(State.B).onEntryAsync(later("enterB")).onEntry(sync("enteredB"));
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+
+        sm.fireAsync(Trigger.X, Context.M, outcome);
+        assertEquals(State.A, sm.getState(Context.M));
+        assertEquals(1, pending.size());
+
+        pending.get(0).completed();
+        assertEquals(State.B, sm.getState(Context.M));
+        assertEquals(2, pending.size());
+        assertFalse(completed);
+
+        pending.get(1).completed();
+        assertTrue(completed);
+        assertNull(failure);
+        assertEquals("[exitA, enterB, enteredB]", log.toString());
+    }
+
+    @Test
+    public void ActionsCompletingAtOnceRunInOrder() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        StateConfiguration<State, Trigger, Context> b = config.configure(State.B);
+        for (int i = 0; i < 5000; i++) {
+            b.onEntryAsync(now("b"));
+        }
+        config.configure(State.A).permit(Trigger.X, State.B).onExit(sync("exitA"));
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+
+        sm.fireAsync(Trigger.X, Context.M, outcome);
+
+        assertTrue(completed);
+        assertEquals(5001, log.size());
+        assertEquals("exitA", log.get(0));
+    }
+
+    @Test
+    public void FailedExitActionLeavesStateUnchanged() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B).onExitAsync(later("exitA"));
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        IllegalStateException cause = new IllegalStateException("unavailable");
+
+        sm.fireAsync(Trigger.X, Context.M, outcome);
+        pending.get(0).failed(cause);
+
+        assertEquals(State.A, sm.getState(Context.M));
+        assertSame(cause, failure);
+        assertFalse(completed);
+    }
+
+    @Test
+    public void UnhandledTriggerFailsCompletion() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+
+        sm.fireAsync(Trigger.X, Context.M, outcome);
+
+        assertTrue(failure instanceof IllegalStateException);
+    }
+
+    @Test
+    public void OverlappingAsyncFiresOfAContextAreRejected() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B).onExitAsync(later("exitA"));
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        final List<Throwable> rejected = new ArrayList<>();
+        Completion second = new Completion() {
+            @Override
+            public void completed() {
+            }
+
+            @Override
+            public void failed(Throwable e) {
+                rejected.add(e);
+            }
+        };
+
+        sm.fireAsync(Trigger.X, Context.M, outcome);
+        sm.fireAsync(Trigger.X, Context.M, second);
+        sm.fireAsync(Trigger.X, Context.N, second);
+
+        assertEquals(1, rejected.size());
+        assertTrue(rejected.get(0) instanceof IllegalStateException);
+        assertEquals(2, pending.size());
+
+        pending.get(0).completed();
+        assertTrue(completed);
+        assertEquals(State.B, sm.getState(Context.M));
+        sm.fireAsync(Trigger.X, Context.M, second);
+        assertEquals(2, rejected.size());
+        assertFalse(rejected.get(1).getMessage().contains("previous"));
+    }
+
+    @Test
+    public void AsyncFireCarriesArguments() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        TriggerWithParameters2<String, Integer, Trigger> x = config.setTriggerParameters(Trigger.X, String.class, Integer.class);
+        TriggerWithParameters3<String, Integer, Boolean, Trigger> y =
+                config.setTriggerParameters(Trigger.Y, String.class, Integer.class, Boolean.class);
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.B).permit(Trigger.Y, State.A).onEntryFrom(x, new Action3<String, Integer, Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(String s, Integer i, Transition<State, Trigger, Context> transition) {
+                log.add(s + i);
+            }
+        }, String.class, Integer.class);
+        config.configure(State.A).onEntryFrom(y, new Action4<String, Integer, Boolean, Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(String s, Integer i, Boolean b, Transition<State, Trigger, Context> transition) {
+                log.add(s + i + b);
+            }
+        }, String.class, Integer.class, Boolean.class);
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+
+        sm.fireAsync(x, Context.M, "x", 1, outcome);
+        sm.fireAsync(y, Context.M, "y", 2, true, outcome);
+
+        assertNull(failure);
+        assertEquals("[x1, y2true]", log.toString());
+    }
+
+    @Test
+    public void SynchronousFireWaitsForAsyncAction() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.B).onEntryAsync(new AsyncAction1<Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(Transition<State, Trigger, Context> transition, final Completion completion) {
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        log.add("enterB");
+                        completion.completed();
+                    }
+                }).start();
+            }
+        });
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+
+        sm.fire(Trigger.X, Context.M);
+
+        assertEquals("[enterB]", log.toString());
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.FuncCondition;
+import java.util.Collections;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class CacheableGuardTests {
+
+    int evaluations;
+
+    final FuncCondition<Context> risky = new FuncCondition<Context>() {
+        @Override
+        public boolean check(Context context) {
+            evaluations++;
+            return false;
+        }
+    };
+
+    StateMachineConfig<State, Trigger, Context> createConfig(FuncCondition<Context> guard) {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .substateOf(State.C)
+                .permitIf(Trigger.X, State.B, guard)
+                .permitIf(Trigger.Y, State.B, guard);
+        config.configure(State.C)
+                .permitIf(Trigger.X, State.B, guard)
+                .permitIf(Trigger.Z, State.B, guard)
+                .permit(Trigger.X, State.B);
+        return config;
+    }
+
+    @Test
+    public void GuardIsEvaluatedOncePerFire() {
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, createConfig(new CacheableGuard<>(risky)));
+
+        sm.fire(Trigger.X, Context.M);
+
+        assertEquals(State.B, sm.getState(Context.M));
+        assertEquals(1, evaluations);
+    }
+
+    @Test
+    public void GuardIsEvaluatedOncePerPermittedTriggersQuery() {
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, createConfig(new CacheableGuard<>(risky)));
+
+        assertEquals(1, sm.getPermittedTriggers(Context.M).size());
+        assertEquals(1, evaluations);
+        assertTrue(sm.canFire(Trigger.X, Context.M));
+        assertEquals(2, evaluations);
+    }
+
+    @Test
+    public void PlainGuardIsEvaluatedEveryTime() {
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, createConfig(risky));
+
+        sm.getPermittedTriggers(Context.M);
+
+        assertEquals(4, evaluations);
+    }
+
+    @Test
+    public void CacheableGuardOutsideLookupIsEvaluated() {
+        CacheableGuard<Context> guard = new CacheableGuard<>(risky);
+        guard.check(Context.M);
+        guard.check(Context.M);
+
+        assertEquals(2, evaluations);
+    }
+
+    @Test
+    public void NestedLookupDoesNotSeeResultsOfEnclosingLookup() {
+        final CacheableGuard<Context> isM = new CacheableGuard<>(new FuncCondition<Context>() {
+            @Override
+            public boolean check(Context context) {
+                evaluations++;
+                return context == Context.M;
+            }
+        });
+        StateMachineConfig<State, Trigger, Context> innerConfig = new StateMachineConfig<>();
+        innerConfig.configure(State.A).permitIf(Trigger.X, State.B, isM);
+        StateReference<State, Context> innerReference = new StateReference<>(State.A);
+        final StateMachine<State, Trigger, Context> inner = new StateMachine<>(innerReference, innerReference, innerConfig);
+
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permitIf(Trigger.X, State.B, isM)
+                .permitIf(Trigger.Y, State.B, new FuncCondition<Context>() {
+                    @Override
+                    public boolean check(Context context) {
+                        return isM.check(context) && inner.canFire(Trigger.X, Context.N);
+                    }
+                });
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+
+        assertEquals(Collections.singletonList(Trigger.X), sm.getPermittedTriggers(Context.M));
+        assertEquals(2, evaluations);
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.oxo42.stateless4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class CompactRepresentationTests {
+
+    @Test
+    public void EmptyStatesShareEmptyCollections() {
+        StateRepresentation<State, Trigger, Context> a = new StateRepresentation<>(State.A);
+        StateRepresentation<State, Trigger, Context> b = new StateRepresentation<>(State.B);
+
+        assertSame(a.getEntryActions(), b.getEntryActions());
+        assertSame(a.getTriggerBehaviours(), b.getTriggerBehaviours());
+        assertSame(a.getTimeouts(), b.getTimeouts());
+    }
+
+    @Test
+    public void FrozenStateKeepsFewTriggersInSortedArrays() {
+        StateMachineConfig<Integer, Integer, Object> config = createConfig(3);
+        config.freeze();
+
+        assertTrue(config.getRepresentation(0).getTriggerBehaviours() instanceof CompactMap);
+        assertFireAll(config, 3);
+    }
+
+    @Test
+    public void FrozenStateKeepsManyTriggersInHashTable() {
+        StateMachineConfig<Integer, Integer, Object> config = createConfig(40);
+        config.freeze();
+
+        assertFalse(config.getRepresentation(0).getTriggerBehaviours() instanceof CompactMap);
+        assertFireAll(config, 40);
+    }
+
+    @Test
+    public void KeysWithEqualHashCodesAreToldApart() {
+        Map<String, Integer> entries = new HashMap<>();
+        entries.put("Aa", 1);
+        entries.put("BB", 2);
+        entries.put("C", 3);
+        entries.put(null, 4);
+
+        CompactMap<String, Integer> map = new CompactMap<>(entries);
+
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertEquals(Integer.valueOf(1), map.get("Aa"));
+        assertEquals(Integer.valueOf(2), map.get("BB"));
+        assertEquals(Integer.valueOf(3), map.get("C"));
+        assertEquals(Integer.valueOf(4), map.get(null));
+        assertNull(map.get("D"));
+        assertEquals(entries, map);
+    }
+
+    /**
+     * Trigger i takes state 0 to state i + 1
+     */
+    StateMachineConfig<Integer, Integer, Object> createConfig(int triggers) {
+        StateMachineConfig<Integer, Integer, Object> config = new StateMachineConfig<>();
+        for (int i = 0; i < triggers; i++) {
+            config.configure(0).permit(i, i + 1);
+            config.configure(i + 1);
+        }
+        return config;
+    }
+
+    void assertFireAll(StateMachineConfig<Integer, Integer, Object> config, int triggers) {
+        for (int i = 0; i < triggers; i++) {
+            StateReference<Integer, Object> reference = new StateReference<>(0);
+            StateMachine<Integer, Integer, Object> sm = new StateMachine<>(reference, reference, config);
+            sm.fire(i, null);
+            assertEquals(Integer.valueOf(i + 1), sm.getState(null));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Func3;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class CompiledStateMachineTests {
+
+    final List<String> actions = new ArrayList<>();
+
+    Action1<Transition<State, Trigger, Context>> record(final String action) {
+        return new Action1<Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(Transition<State, Trigger, Context> t) {
+                actions.add(action);
+            }
+        };
+    }
+
+    CompiledStateMachine<State, Trigger, Context> compile(StateMachineConfig<State, Trigger, Context> config, State initial) {
+        config.freeze();
+        StateReference<State, Context> reference = new StateReference<>(initial);
+        return new CompiledStateMachine<>(reference, reference, config);
+    }
+
+    @Test
+    public void EnumConfigurationsAreCompiled() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+
+        assertTrue(compile(config, State.A).isCompiled());
+    }
+
+    @Test
+    public void NonEnumConfigurationsAreInterpreted() {
+        StateMachineConfig<String, String, Context> config = new StateMachineConfig<>();
+        config.configure("A").permit("X", "B");
+        config.freeze();
+        StateReference<String, Context> reference = new StateReference<>("A");
+        CompiledStateMachine<String, String, Context> sm = new CompiledStateMachine<>(reference, reference, config);
+
+        assertFalse(sm.isCompiled());
+        sm.fire("X", Context.M);
+        assertEquals("B", sm.getState(Context.M));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void ConfigurationMustBeFrozen() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        new CompiledStateMachine<>(reference, reference, config);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void FrozenConfigurationCannotBeChanged() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        StateConfiguration<State, Trigger, Context> a = config.configure(State.A);
+        config.freeze();
+        a.permit(Trigger.X, State.B);
+    }
+
+    @Test
+    public void GuardsAndSuperstateHandlersAreCompiled() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .onExit(record("exitA"))
+                .permitIf(Trigger.X, State.B, IgnoredTriggerBehaviourTests.returnFalse)
+                .ignore(Trigger.Y);
+        config.configure(State.B)
+                .substateOf(State.C)
+                .onEntry(record("enterB"));
+        config.configure(State.C)
+                .onEntry(record("enterC"))
+                .permit(Trigger.Z, State.A);
+        config.configure(State.A)
+                .permitIf(Trigger.Z, State.C, IgnoredTriggerBehaviourTests.returnTrue);
+
+        CompiledStateMachine<State, Trigger, Context> sm = compile(config, State.A);
+
+        assertFalse(sm.canFire(Trigger.X, Context.M));
+        assertTrue(sm.canFire(Trigger.Y, Context.M));
+        sm.fire(Trigger.Y, Context.M);
+        assertEquals(State.A, sm.getState(Context.M));
+
+        sm.fire(Trigger.Z, Context.M);
+        assertEquals(State.C, sm.getState(Context.M));
+        assertEquals(Arrays.asList("exitA", "enterC"), actions);
+    }
+
+    @Test
+    public void SubstateFallsBackToSuperstateHandler() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.B)
+                .substateOf(State.C)
+                .permitIf(Trigger.X, State.A, IgnoredTriggerBehaviourTests.returnFalse);
+        config.configure(State.C)
+                .permit(Trigger.X, State.A);
+
+        CompiledStateMachine<State, Trigger, Context> sm = compile(config, State.B);
+        sm.fire(Trigger.X, Context.M);
+
+        assertEquals(State.A, sm.getState(Context.M));
+    }
+
+    @Test
+    public void DynamicDestinationsAreSelectedFromArguments() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        TriggerWithParameters1<Integer, Trigger> trigger = config.setTriggerParameters(Trigger.X, Integer.class);
+        config.configure(State.A).permitDynamic(trigger, new Func3<Integer, Context, State>() {
+            @Override
+            public State call(Integer i, Context context) {
+                return i == 1 ? State.B : State.C;
+            }
+        });
+
+        CompiledStateMachine<State, Trigger, Context> sm = compile(config, State.A);
+        assertTrue(sm.canFire(Trigger.X, Context.M));
+        sm.fire(trigger, Context.M, 2);
+
+        assertEquals(State.C, sm.getState(Context.M));
+    }
+
+    @Test
+    public void InternalActionsRunAfterTheGuardLookupHasClosed() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permitInternalIf(Trigger.X, new Action1<Context>() {
+                    @Override
+                    public void doIt(Context context) {
+                        actions.add(GuardScope.current() == null ? "closed" : "open");
+                    }
+                }, IgnoredTriggerBehaviourTests.returnTrue)
+                .permitInternal(Trigger.Y, new Action1<Context>() {
+                    @Override
+                    public void doIt(Context context) {
+                        actions.add(GuardScope.current() == null ? "closed" : "open");
+                    }
+                });
+
+        CompiledStateMachine<State, Trigger, Context> sm = compile(config, State.A);
+        sm.fire(Trigger.X, Context.M);
+        sm.fire(Trigger.Y, Context.M);
+
+        assertEquals(Arrays.asList("closed", "closed"), actions);
+        assertEquals(State.A, sm.getState(Context.M));
+    }
+
+    @Test
+    public void TransitionsIntoUnconfiguredStatesAreCompleted() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).onExit(record("exitA")).permit(Trigger.X, State.B);
+
+        CompiledStateMachine<State, Trigger, Context> sm = compile(config, State.A);
+        sm.onTransitioned(record("transitioned"));
+        sm.fire(Trigger.X, Context.M);
+
+        assertEquals(State.B, sm.getState(Context.M));
+        assertEquals(Arrays.asList("exitA", "transitioned"), actions);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void OverlappingGuardsAreRejected() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permitIf(Trigger.X, State.B, IgnoredTriggerBehaviourTests.returnTrue)
+                .permitIf(Trigger.X, State.C, IgnoredTriggerBehaviourTests.returnTrue);
+
+        compile(config, State.A).fire(Trigger.X, Context.M);
+    }
+
+    @Test
+    public void TrustedConfigurationsTakeTheFirstMetGuard() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permitIf(Trigger.X, State.B, IgnoredTriggerBehaviourTests.returnFalse)
+                .permitIf(Trigger.X, State.C, IgnoredTriggerBehaviourTests.returnTrue)
+                .permitIf(Trigger.X, State.B, IgnoredTriggerBehaviourTests.returnTrue);
+        new ConfigurationValidator<>(config).trust(State.A);
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        CompiledStateMachine<State, Trigger, Context> sm = new CompiledStateMachine<>(reference, reference, config);
+
+        sm.fire(Trigger.X, Context.M);
+
+        assertEquals(State.C, sm.getState(Context.M));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void UnhandledTriggerThrows() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+
+        compile(config, State.B).fire(Trigger.X, Context.M);
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Func3;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ConfigCacheTests {
+
+    enum State {
+        A, B
+    }
+
+    enum Trigger {
+        X
+    }
+
+    final AtomicInteger loads = new AtomicInteger();
+
+    final Func3<String, Long, StateMachineConfig<State, Trigger, Object>> loader = new Func3<String, Long, StateMachineConfig<State, Trigger, Object>>() {
+        @Override
+        public StateMachineConfig<State, Trigger, Object> call(String definitionId, Long version) {
+            loads.incrementAndGet();
+            StateMachineConfig<State, Trigger, Object> config = new StateMachineConfig<>();
+            config.configure(State.A).permit(Trigger.X, State.B);
+            return config;
+        }
+    };
+
+    @Test
+    public void ConfigurationIsBuiltOnceAndFrozen() {
+        ConfigCache<State, Trigger, Object> cache = new ConfigCache<>(10, EvictionPolicy.LRU, loader);
+
+        StateMachineConfig<State, Trigger, Object> config = cache.get("order", 1);
+
+        assertTrue(config.isFrozen());
+        assertSame(config, cache.get("order", 1));
+        assertNotSame(config, cache.get("order", 2));
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void MaximumSizeMustBePositive() {
+        new ConfigCache<>(0, EvictionPolicy.LRU, loader);
+    }
+
+    @Test
+    public void LeastRecentlyUsedIsEvicted() {
+        ConfigCache<State, Trigger, Object> cache = new ConfigCache<>(2, EvictionPolicy.LRU, loader);
+        cache.get("a", 1);
+        cache.get("b", 1);
+        cache.get("a", 1);
+
+        cache.get("c", 1);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        cache.get("a", 1);
+        assertEquals(3, loads.get());
+        cache.get("b", 1);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void LeastFrequentlyUsedIsEvicted() {
+        ConfigCache<State, Trigger, Object> cache = new ConfigCache<>(2, EvictionPolicy.LFU, loader);
+        cache.get("a", 1);
+        cache.get("a", 1);
+        cache.get("b", 1);
+
+        cache.get("c", 1);
+
+        assertEquals(1, cache.getEvictionCount());
+        cache.get("a", 1);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void FrequencyOfOldUsesDecays() {
+        ConfigCache<State, Trigger, Object> cache = new ConfigCache<>(2, EvictionPolicy.LFU, loader);
+        for (int i = 0; i < 100; i++) {
+            cache.get("a", 1);
+        }
+        for (int i = 0; i < 50; i++) {
+            cache.get("b", 1);
+            cache.get("c", 1);
+        }
+
+        int before = loads.get();
+        cache.get("a", 1);
+        assertEquals(before + 1, loads.get());
+    }
+
+    @Test
+    public void ConcurrentMissesBuildOnce() throws Exception {
+        final CountDownLatch building = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ConfigCache<State, Trigger, Object> cache = new ConfigCache<>(10, EvictionPolicy.LRU,
+                new Func3<String, Long, StateMachineConfig<State, Trigger, Object>>() {
+                    @Override
+                    public StateMachineConfig<State, Trigger, Object> call(String definitionId, Long version) {
+                        building.countDown();
+                        try {
+                            release.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return loader.call(definitionId, version);
+                    }
+                });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<StateMachineConfig<State, Trigger, Object>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(new Callable<StateMachineConfig<State, Trigger, Object>>() {
+                    @Override
+                    public StateMachineConfig<State, Trigger, Object> call() {
+                        return cache.get("order", 1);
+                    }
+                }));
+            }
+            building.await(5, TimeUnit.SECONDS);
+            release.countDown();
+
+            for (Future<StateMachineConfig<State, Trigger, Object>> result : results) {
+                assertSame(results.get(0).get(), result.get());
+            }
+            assertEquals(1, loads.get());
+            assertEquals(1, cache.getMissCount());
+            assertEquals(3, cache.getHitCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void FailedBuildIsNotCached() {
+        ConfigCache<State, Trigger, Object> cache = new ConfigCache<>(10, EvictionPolicy.LRU,
+                new Func3<String, Long, StateMachineConfig<State, Trigger, Object>>() {
+                    @Override
+                    public StateMachineConfig<State, Trigger, Object> call(String definitionId, Long version) {
+                        if (loads.incrementAndGet() == 1) {
+                            throw new IllegalStateException("unavailable");
+                        }
+                        return new StateMachineConfig<>();
+                    }
+                });
+        try {
+            cache.get("order", 1);
+        } catch (IllegalStateException e) {
+            assertEquals("unavailable", e.getMessage());
+        }
+
+        cache.get("order", 1);
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,303 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.delegates.AsyncAction1;
+import com.github.oxo42.stateless4j.delegates.Completion;
+import com.github.oxo42.stateless4j.delegates.Func2;
+import com.github.oxo42.stateless4j.delegates.Func3;
+import com.github.oxo42.stateless4j.delegates.FuncCondition;
+import com.github.oxo42.stateless4j.timers.StateTimeout;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ConfigurationSerializerTests {
+
+    final List<String> actions = new ArrayList<>();
+    boolean open = true;
+
+    BindingRegistry<State, Trigger, Context> createRegistry() {
+        BindingRegistry<State, Trigger, Context> registry = new BindingRegistry<>();
+        registry.registerGuard("isOpen", new FuncCondition<Context>() {
+            @Override
+            public boolean check(Context context) {
+                return open;
+            }
+        });
+        registry.registerAction("enterB", new Action1<Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(Transition<State, Trigger, Context> t) {
+                actions.add("enterB");
+            }
+        });
+        registry.registerAction("exitA", new Action1<Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(Transition<State, Trigger, Context> t) {
+                actions.add("exitA");
+            }
+        });
+        registry.registerAsyncAction("enterBLater", new AsyncAction1<Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(Transition<State, Trigger, Context> t, Completion completion) {
+                actions.add("enterBLater");
+                completion.completed();
+            }
+        });
+        registry.registerAsyncAction("exitALater", new AsyncAction1<Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(Transition<State, Trigger, Context> t, Completion completion) {
+                actions.add("exitALater");
+                completion.completed();
+            }
+        });
+        registry.registerInternalAction("count", new Action1<Context>() {
+            @Override
+            public void doIt(Context context) {
+                actions.add("count");
+            }
+        });
+        registry.registerSelector("toA", new Func2<Context, State>() {
+            @Override
+            public State call(Context context) {
+                return State.A;
+            }
+        });
+        return registry;
+    }
+
+    StateMachineConfig<State, Trigger, Context> roundTrip(StateMachineConfig<State, Trigger, Context> config, BindingRegistry<State, Trigger, Context> registry) throws IOException {
+        ConfigurationSerializer<State, Trigger, Context> serializer = ConfigurationSerializer.forEnums(State.class, Trigger.class, registry);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.write(config, out);
+        return serializer.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test
+    public void ReadConfigurationBehavesLikeOriginal() throws IOException {
+        BindingRegistry<State, Trigger, Context> registry = createRegistry();
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .onExit(registry.getAction("exitA"))
+                .permitIf(Trigger.X, State.B, registry.getGuard("isOpen"))
+                .ignore(Trigger.Y);
+        config.configure(State.B)
+                .substateOf(State.C)
+                .onEntryFrom(Trigger.X, registry.getAction("enterB"))
+                .permitDynamic(Trigger.Y, registry.getSelector("toA"));
+        config.configure(State.C)
+                .permitReentry(Trigger.Z);
+
+        StateMachineConfig<State, Trigger, Context> read = roundTrip(config, registry);
+
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, read);
+
+        open = false;
+        assertFalse(sm.canFire(Trigger.X, Context.M));
+        sm.fire(Trigger.Y, Context.M);
+        assertEquals(State.A, sm.getState(Context.M));
+
+        open = true;
+        sm.fire(Trigger.X, Context.M);
+        assertEquals(State.B, sm.getState(Context.M));
+        assertTrue(sm.isInState(State.C, Context.M));
+        assertTrue(sm.canFire(Trigger.Z, Context.M));
+
+        sm.fire(Trigger.Y, Context.M);
+        assertEquals(State.A, sm.getState(Context.M));
+
+        List<String> expected = new ArrayList<>();
+        expected.add("exitA");
+        expected.add("enterB");
+        assertEquals(expected, actions);
+    }
+
+    @Test
+    public void TriggerParametersAreRestored() throws IOException {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.setTriggerParameters(Trigger.X, String.class, int.class);
+        config.configure(State.A).permit(Trigger.X, State.B);
+
+        StateMachineConfig<State, Trigger, Context> read = roundTrip(config, createRegistry());
+
+        Class<?>[] types = read.getTriggerConfiguration(Trigger.X).getArgumentTypes();
+        assertEquals(2, types.length);
+        assertEquals(String.class, types[0]);
+        assertEquals(int.class, types[1]);
+    }
+
+    @Test
+    public void StateTimeoutsAreRestored() throws IOException {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit(Trigger.X, State.B)
+                .timeout(250, TimeUnit.MILLISECONDS, Trigger.X)
+                .timeout(3, TimeUnit.SECONDS, Trigger.Y);
+        config.configure(State.B).permit(Trigger.Y, State.A);
+
+        StateMachineConfig<State, Trigger, Context> read = roundTrip(config, createRegistry());
+
+        List<StateTimeout<Trigger>> timeouts = read.getRepresentation(State.A).getTimeouts();
+        assertEquals(2, timeouts.size());
+        assertEquals(Trigger.X, timeouts.get(0).getTrigger());
+        assertEquals(250, timeouts.get(0).getDelay(TimeUnit.MILLISECONDS));
+        assertEquals(Trigger.Y, timeouts.get(1).getTrigger());
+        assertEquals(3, timeouts.get(1).getDelay(TimeUnit.SECONDS));
+        assertTrue(read.getRepresentation(State.B).getTimeouts().isEmpty());
+    }
+
+    @Test
+    public void RegionsAreRestored() throws IOException {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.defineRegion("first", State.A, State.A, State.B);
+        config.defineRegion("second", State.C, State.C);
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.C).ignore(Trigger.X);
+
+        StateMachineConfig<State, Trigger, Context> read = roundTrip(config, createRegistry());
+
+        List<Region<State>> regions = read.getRegions();
+        assertEquals(2, regions.size());
+        assertEquals("first", regions.get(0).getName());
+        assertEquals(State.A, regions.get(0).getInitialState());
+        assertEquals(Arrays.asList(State.A, State.B), regions.get(0).getStates());
+        assertEquals("second", regions.get(1).getName());
+        assertEquals(Arrays.asList(State.C), regions.get(1).getStates());
+        StateReference<CompositeState, Context> reference = new StateReference<>(null);
+        OrthogonalStateMachine<State, Trigger, Context> sm = new OrthogonalStateMachine<>(reference, reference, read);
+        reference.setState(sm.getInitialState());
+        sm.fire(Trigger.X, Context.M);
+        assertEquals(State.B, sm.getState(regions.get(0), Context.M));
+    }
+
+    @Test
+    public void InternalTransitionsAreRestored() throws IOException {
+        BindingRegistry<State, Trigger, Context> registry = createRegistry();
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .onExit(registry.getAction("exitA"))
+                .permitInternalIf(Trigger.X, registry.getInternalAction("count"), registry.getGuard("isOpen"))
+                .permit(Trigger.Y, State.B);
+
+        StateMachineConfig<State, Trigger, Context> read = roundTrip(config, registry);
+
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, read);
+        sm.fire(Trigger.X, Context.M);
+        assertEquals(State.A, sm.getState(Context.M));
+        open = false;
+        assertFalse(sm.canFire(Trigger.X, Context.M));
+        assertEquals(Arrays.asList("count"), actions);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void ParameterisedInternalActionsCannotBeWritten() throws IOException {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        TriggerWithParameters1<String, Trigger> trigger = config.setTriggerParameters(Trigger.X, String.class);
+        config.configure(State.A).permitInternal(trigger, new Action2<String, Context>() {
+            @Override
+            public void doIt(String arg, Context context) {
+            }
+        });
+
+        roundTrip(config, createRegistry());
+    }
+
+    @Test
+    public void AsyncActionsAreRestored() throws IOException {
+        BindingRegistry<State, Trigger, Context> registry = createRegistry();
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .onExitAsync(registry.getAsyncAction("exitALater"))
+                .onExit(registry.getAction("exitA"))
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .onEntry(registry.getAction("enterB"))
+                .onEntryAsync(registry.getAsyncAction("enterBLater"));
+
+        StateMachineConfig<State, Trigger, Context> read = roundTrip(config, registry);
+
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, read);
+        sm.fire(Trigger.X, Context.M);
+        assertEquals(State.B, sm.getState(Context.M));
+        assertEquals(Arrays.asList("exitALater", "exitA", "enterB", "enterBLater"), actions);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void UnregisteredAsyncActionsCannotBeWritten() throws IOException {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.B).onEntryAsync(new AsyncAction1<Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(Transition<State, Trigger, Context> t, Completion completion) {
+                completion.completed();
+            }
+        });
+
+        roundTrip(config, createRegistry());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void UnregisteredGuardsCannotBeWritten() throws IOException {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permitIf(Trigger.X, State.B, IgnoredTriggerBehaviourTests.returnTrue);
+
+        roundTrip(config, createRegistry());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void ParameterisedEntryActionsCannotBeWritten() throws IOException {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        TriggerWithParameters1<String, Trigger> trigger = config.setTriggerParameters(Trigger.X, String.class);
+        config.configure(State.B).onEntryFrom(trigger, new Action2<String, Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(String arg, Transition<State, Trigger, Context> t) {
+            }
+        }, String.class);
+
+        roundTrip(config, createRegistry());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void ParameterisedSelectorsCannotBeWritten() throws IOException {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        TriggerWithParameters1<String, Trigger> trigger = config.setTriggerParameters(Trigger.X, String.class);
+        config.configure(State.A).permitDynamic(trigger, new Func3<String, Context, State>() {
+            @Override
+            public State call(String arg, Context context) {
+                return State.B;
+            }
+        });
+
+        roundTrip(config, createRegistry());
+    }
+
+    @Test(expected = IOException.class)
+    public void RejectsOtherFormatVersions() throws IOException {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+        ConfigurationSerializer<State, Trigger, Context> serializer = ConfigurationSerializer.forEnums(State.class, Trigger.class, createRegistry());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.write(config, out);
+        byte[] written = out.toByteArray();
+        written[4]++;
+        serializer.read(new ByteArrayInputStream(written));
+    }
+
+    @Test(expected = IOException.class)
+    public void RejectsForeignInput() throws IOException {
+        ConfigurationSerializer<State, Trigger, Context> serializer = ConfigurationSerializer.forEnums(State.class, Trigger.class, createRegistry());
+        serializer.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5}));
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ConfigurationValidatorTests {
+
+    static List<ConfigurationProblem.Kind> kinds(List<ConfigurationProblem> problems) {
+        List<ConfigurationProblem.Kind> kinds = new ArrayList<>();
+        for (ConfigurationProblem problem : problems) {
+            kinds.add(problem.getKind());
+        }
+        return kinds;
+    }
+
+    @Test
+    public void ValidConfigurationHasNoProblems() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.B).substateOf(State.C);
+        config.configure(State.C).permit(Trigger.Y, State.A);
+
+        assertTrue(new ConfigurationValidator<>(config).validate(State.A).isEmpty());
+    }
+
+    @Test
+    public void UnreachableAndDeadEndStatesAreWarnings() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.C).permit(Trigger.X, State.A);
+
+        List<ConfigurationProblem> problems = new ConfigurationValidator<>(config).validate(State.A);
+
+        assertEquals(2, problems.size());
+        assertEquals(ConfigurationProblem.Kind.DEAD_END_STATE, problems.get(0).getKind());
+        assertEquals(State.B, problems.get(0).getState());
+        assertEquals(ConfigurationProblem.Kind.UNREACHABLE_STATE, problems.get(1).getKind());
+        assertEquals(State.C, problems.get(1).getState());
+    }
+
+    @Test
+    public void HierarchyCyclesAreErrors() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).substateOf(State.B);
+        config.configure(State.B).substateOf(State.A);
+
+        List<ConfigurationProblem> problems = new ConfigurationValidator<>(config).validate(State.A);
+
+        assertEquals(2, problems.size());
+        assertEquals(ConfigurationProblem.Kind.HIERARCHY_CYCLE, problems.get(0).getKind());
+        assertTrue(problems.get(0).isError());
+    }
+
+    @Test
+    public void IgnoredAndPermittedTriggerIsAnError() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .ignore(Trigger.X)
+                .permitIf(Trigger.X, State.B, IgnoredTriggerBehaviourTests.returnTrue)
+                .permit(Trigger.Y, State.B)
+                .permit(Trigger.Y, State.C);
+        config.configure(State.B).permit(Trigger.X, State.A);
+        config.configure(State.C).permit(Trigger.X, State.A);
+
+        List<ConfigurationProblem> problems = new ConfigurationValidator<>(config).validate(State.A);
+
+        assertEquals(2, problems.size());
+        assertTrue(kinds(problems).contains(ConfigurationProblem.Kind.IGNORED_AND_PERMITTED));
+        assertTrue(kinds(problems).contains(ConfigurationProblem.Kind.AMBIGUOUS_TRIGGER));
+    }
+
+    @Test
+    public void EntryActionArityMustMatchTrigger() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.setTriggerParameters(Trigger.X, String.class, Integer.class);
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .permit(Trigger.Y, State.A)
+                .onEntryFrom(new TriggerWithParameters1<String, Trigger>(Trigger.X, String.class), new Action2<String, Transition<State, Trigger, Context>>() {
+                    @Override
+                    public void doIt(String arg1, Transition<State, Trigger, Context> arg2) {
+                    }
+                }, String.class);
+
+        List<ConfigurationProblem> problems = new ConfigurationValidator<>(config).validate(State.A);
+
+        assertEquals(1, problems.size());
+        assertEquals(ConfigurationProblem.Kind.ARITY_MISMATCH, problems.get(0).getKind());
+        assertEquals(Trigger.X, problems.get(0).getTrigger());
+    }
+
+    @Test
+    public void TrustedConfigurationTakesFirstMatchingGuard() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permitIf(Trigger.X, State.B, IgnoredTriggerBehaviourTests.returnTrue)
+                .permitIf(Trigger.X, State.C, IgnoredTriggerBehaviourTests.returnTrue);
+        config.configure(State.B).permit(Trigger.Y, State.A);
+        config.configure(State.C).permit(Trigger.Y, State.A);
+
+        new ConfigurationValidator<>(config).trust(State.A);
+        assertTrue(config.isTrusted());
+        assertTrue(config.isFrozen());
+
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        sm.fire(Trigger.X, Context.M);
+        assertEquals(State.B, sm.getState(Context.M));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void ConfigurationWithErrorsCannotBeTrusted() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).ignore(Trigger.X).permit(Trigger.X, State.B);
+
+        new ConfigurationValidator<>(config).trust(State.A);
+    }
+}
@@ -0,0 +1,173 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class DeepHierarchyTests {
+
+    static final int DEPTH = 100;
+    static final Integer OUTSIDE = -1;
+    static final String UP = "Up";
+    static final String DOWN = "Down";
+
+    final List<Integer> entered = new ArrayList<>();
+    final List<Integer> exited = new ArrayList<>();
+
+    /**
+     * State 0 is the innermost state, each state i is a substate of i + 1 and the outermost state handles UP
+     */
+    StateMachineConfig<Integer, String, Object> createConfig(int depth) {
+        StateMachineConfig<Integer, String, Object> config = new StateMachineConfig<>();
+        for (int i = 0; i < depth; i++) {
+            final int state = i;
+            StateConfiguration<Integer, String, Object> configuration = config.configure(i)
+                    .onEntry(new Action1<Transition<Integer, String, Object>>() {
+                        @Override
+                        public void doIt(Transition<Integer, String, Object> transition) {
+                            entered.add(state);
+                        }
+                    })
+                    .onExit(new Action1<Transition<Integer, String, Object>>() {
+                        @Override
+                        public void doIt(Transition<Integer, String, Object> transition) {
+                            exited.add(state);
+                        }
+                    });
+            if (i + 1 < depth) {
+                configuration.substateOf(i + 1);
+            }
+        }
+        config.configure(depth - 1).permit(UP, OUTSIDE);
+        config.configure(OUTSIDE).permit(DOWN, 0);
+        return config;
+    }
+
+    @Test
+    public void TriggerOfOutermostStateIsHandledInInnermostState() {
+        StateReference<Integer, Object> reference = new StateReference<>(0);
+        StateMachine<Integer, String, Object> sm = new StateMachine<>(reference, reference, createConfig(DEPTH));
+
+        assertTrue(sm.canFire(UP, null));
+        assertEquals(1, sm.getPermittedTriggers(null).size());
+        assertTrue(sm.isInState(DEPTH - 1, null));
+        assertFalse(sm.isInState(OUTSIDE, null));
+    }
+
+    @Test
+    public void AllLevelsAreExitedInnermostFirst() {
+        StateReference<Integer, Object> reference = new StateReference<>(0);
+        StateMachine<Integer, String, Object> sm = new StateMachine<>(reference, reference, createConfig(DEPTH));
+
+        sm.fire(UP, null);
+
+        assertEquals(OUTSIDE, sm.getState(null));
+        assertEquals(DEPTH, exited.size());
+        for (int i = 0; i < DEPTH; i++) {
+            assertEquals(Integer.valueOf(i), exited.get(i));
+        }
+    }
+
+    @Test
+    public void AllLevelsAreEnteredOutermostFirst() {
+        StateReference<Integer, Object> reference = new StateReference<>(OUTSIDE);
+        StateMachine<Integer, String, Object> sm = new StateMachine<>(reference, reference, createConfig(DEPTH));
+
+        sm.fire(DOWN, null);
+
+        assertEquals(Integer.valueOf(0), sm.getState(null));
+        assertEquals(DEPTH, entered.size());
+        for (int i = 0; i < DEPTH; i++) {
+            assertEquals(Integer.valueOf(DEPTH - 1 - i), entered.get(i));
+        }
+    }
+
+    @Test
+    public void SimulationEntersAllLevelsOutermostFirst() {
+        StateReference<Integer, Object> reference = new StateReference<>(OUTSIDE);
+        StateMachine<Integer, String, Object> sm = new StateMachine<>(reference, reference, createConfig(DEPTH));
+
+        SimulationResult<Integer> result = sm.simulate(DOWN, null);
+
+        assertEquals(DEPTH, result.getEntered().size());
+        assertEquals(Integer.valueOf(DEPTH - 1), result.getEntered().get(0));
+        assertTrue(entered.isEmpty());
+    }
+
+    @Test
+    public void HierarchyChangesAreSeenAfterFirstUse() {
+        StateMachineConfig<Integer, String, Object> config = createConfig(DEPTH);
+        StateReference<Integer, Object> reference = new StateReference<>(0);
+        StateMachine<Integer, String, Object> sm = new StateMachine<>(reference, reference, config);
+        assertFalse(sm.isInState(DEPTH, null));
+
+        config.configure(DEPTH - 1).substateOf(DEPTH);
+
+        assertTrue(sm.isInState(DEPTH, null));
+    }
+
+    @Test
+    public void VeryDeepHierarchyDoesNotNeedStack() throws InterruptedException {
+        final StateMachineConfig<Integer, String, Object> config = createConfig(2000);
+        config.freeze();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(null, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    StateReference<Integer, Object> reference = new StateReference<>(0);
+                    StateMachine<Integer, String, Object> sm = new StateMachine<>(reference, reference, config);
+                    sm.fire(UP, null);
+                    sm.fire(DOWN, null);
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }
+        }, "small-stack", 64 * 1024);
+        thread.start();
+        thread.join();
+
+        assertNull(failure.get());
+        assertEquals(2000, entered.size());
+    }
+
+    @Test
+    public void FrozenHierarchyIsKeptWhenAnotherConfigurationChanges() {
+        StateMachineConfig<Integer, String, Object> config = createConfig(DEPTH);
+        config.freeze();
+        StateRepresentation<Integer, String, Object> innermost = config.getRepresentation(0);
+        StateRepresentation<Integer, String, Object>[] ancestors = innermost.getAncestors();
+
+        createConfig(DEPTH).configure(DEPTH - 1).substateOf(DEPTH);
+
+        assertSame(ancestors, innermost.getAncestors());
+        assertEquals(DEPTH, ancestors.length);
+    }
+
+    @Test
+    public void SubstatesAreIncludedThroughTheirAncestors() {
+        StateMachineConfig<Integer, String, Object> config = createConfig(DEPTH);
+        StateRepresentation<Integer, String, Object> outermost = config.getRepresentation(DEPTH - 1);
+
+        assertTrue(outermost.includes(0));
+        assertFalse(config.getRepresentation(0).includes(DEPTH - 1));
+        assertFalse(outermost.includes(OUTSIDE));
+        assertFalse(outermost.includes(DEPTH + 1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void SuperstateCycleIsReported() {
+        StateMachineConfig<Integer, String, Object> config = createConfig(DEPTH);
+        config.configure(DEPTH - 1).substateOf(DEPTH / 2);
+
+        config.getRepresentation(0).getAncestors();
+    }
+}
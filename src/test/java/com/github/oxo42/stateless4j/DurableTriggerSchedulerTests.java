@@ -0,0 +1,243 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.helpers.StateStore;
+import com.github.oxo42.stateless4j.timers.ManualTimingWheel;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DurableTriggerSchedulerTests {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    long now = 1000000;
+
+    final DurableTriggerScheduler.Codec<Trigger> triggerCodec = new DurableTriggerScheduler.Codec<Trigger>() {
+        @Override
+        public String encode(Trigger value) {
+            return value.name();
+        }
+
+        @Override
+        public Trigger decode(String encoded) {
+            return Trigger.valueOf(encoded);
+        }
+    };
+
+    final DurableTriggerScheduler.Codec<Context> contextCodec = new DurableTriggerScheduler.Codec<Context>() {
+        @Override
+        public String encode(Context value) {
+            return value.name();
+        }
+
+        @Override
+        public Context decode(String encoded) {
+            return Context.valueOf(encoded);
+        }
+    };
+
+    StateMachine<State, Trigger, Context> createMachine() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.B).permit(Trigger.X, State.C);
+        StateStore<State, Context> states = new StateStore<>(State.A);
+        return new StateMachine<>(states, states, config);
+    }
+
+    DurableTriggerScheduler<State, Trigger, Context> createScheduler(StateMachine<State, Trigger, Context> sm, ManualTimingWheel wheel, File file) {
+        return new DurableTriggerScheduler<State, Trigger, Context>(sm, wheel, file, triggerCodec, contextCodec) {
+            @Override
+            protected long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void ScheduledTriggerIsFired() throws IOException {
+        StateMachine<State, Trigger, Context> sm = createMachine();
+        ManualTimingWheel wheel = new ManualTimingWheel(1, TimeUnit.SECONDS, 64);
+        DurableTriggerScheduler<State, Trigger, Context> scheduler = createScheduler(sm, wheel, folder.newFile());
+        scheduler.recover(10, 1, TimeUnit.SECONDS);
+
+        scheduler.schedule(Trigger.X, Context.M, 5, TimeUnit.SECONDS);
+        wheel.advanceBy(5, TimeUnit.SECONDS);
+
+        assertEquals(State.B, sm.getState(Context.M));
+        assertEquals(0, scheduler.pendingTriggers());
+    }
+
+    @Test
+    public void CancelledTriggerIsNotFired() throws IOException {
+        StateMachine<State, Trigger, Context> sm = createMachine();
+        ManualTimingWheel wheel = new ManualTimingWheel(1, TimeUnit.SECONDS, 64);
+        DurableTriggerScheduler<State, Trigger, Context> scheduler = createScheduler(sm, wheel, folder.newFile());
+        scheduler.recover(10, 1, TimeUnit.SECONDS);
+
+        long id = scheduler.schedule(Trigger.X, Context.M, 5, TimeUnit.SECONDS);
+        assertTrue(scheduler.cancel(id));
+        assertFalse(scheduler.cancel(id));
+        wheel.advanceBy(5, TimeUnit.SECONDS);
+
+        assertEquals(State.A, sm.getState(Context.M));
+    }
+
+    @Test
+    public void PendingTriggersSurviveRestart() throws IOException {
+        File file = folder.newFile();
+        StateMachine<State, Trigger, Context> sm = createMachine();
+        DurableTriggerScheduler<State, Trigger, Context> before = createScheduler(sm, new ManualTimingWheel(1, TimeUnit.SECONDS, 64), file);
+        before.recover(10, 1, TimeUnit.SECONDS);
+        long cancelled = before.schedule(Trigger.X, Context.M, 5, TimeUnit.SECONDS);
+        before.schedule(Trigger.X, Context.N, 60, TimeUnit.SECONDS);
+        before.cancel(cancelled);
+        before.close();
+
+        now += 10000;
+        ManualTimingWheel wheel = new ManualTimingWheel(1, TimeUnit.SECONDS, 64);
+        DurableTriggerScheduler<State, Trigger, Context> after = createScheduler(sm, wheel, file);
+        assertEquals(1, after.recover(10, 1, TimeUnit.SECONDS));
+
+        wheel.advanceBy(49, TimeUnit.SECONDS);
+        assertEquals(State.A, sm.getState(Context.N));
+        wheel.advanceBy(1, TimeUnit.SECONDS);
+        assertEquals(State.B, sm.getState(Context.N));
+        assertEquals(State.A, sm.getState(Context.M));
+    }
+
+    @Test
+    public void OverdueTriggersAreDeliveredInBatches() throws IOException {
+        File file = folder.newFile();
+        StateMachine<State, Trigger, Context> sm = createMachine();
+        DurableTriggerScheduler<State, Trigger, Context> before = createScheduler(sm, new ManualTimingWheel(1, TimeUnit.SECONDS, 64), file);
+        before.recover(10, 1, TimeUnit.SECONDS);
+        before.schedule(Trigger.X, Context.M, 1, TimeUnit.SECONDS);
+        before.schedule(Trigger.X, Context.N, 2, TimeUnit.SECONDS);
+        before.schedule(Trigger.X, Context.M, 3, TimeUnit.SECONDS);
+        before.close();
+
+        now += 60000;
+        ManualTimingWheel wheel = new ManualTimingWheel(1, TimeUnit.SECONDS, 64);
+        DurableTriggerScheduler<State, Trigger, Context> after = createScheduler(sm, wheel, file);
+        after.recover(2, 10, TimeUnit.SECONDS);
+
+        wheel.advanceBy(0, TimeUnit.SECONDS);
+        assertEquals(State.B, sm.getState(Context.M));
+        assertEquals(State.B, sm.getState(Context.N));
+        assertEquals(1, after.pendingTriggers());
+
+        wheel.advanceBy(10, TimeUnit.SECONDS);
+        assertEquals(State.C, sm.getState(Context.M));
+        assertEquals(0, after.pendingTriggers());
+    }
+
+    @Test
+    public void TornRecordIsIgnored() throws IOException {
+        File file = folder.newFile();
+        StateMachine<State, Trigger, Context> sm = createMachine();
+        DurableTriggerScheduler<State, Trigger, Context> before = createScheduler(sm, new ManualTimingWheel(1, TimeUnit.SECONDS, 64), file);
+        before.recover(10, 1, TimeUnit.SECONDS);
+        before.schedule(Trigger.X, Context.M, 5, TimeUnit.SECONDS);
+        before.close();
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[]{1, 0, 0});
+        }
+
+        DurableTriggerScheduler<State, Trigger, Context> after = createScheduler(sm, new ManualTimingWheel(1, TimeUnit.SECONDS, 64), file);
+        assertEquals(1, after.recover(10, 1, TimeUnit.SECONDS));
+        long id = after.schedule(Trigger.X, Context.N, 5, TimeUnit.SECONDS);
+        assertEquals(1, id);
+    }
+
+    @Test
+    public void TriggerWhoseFireDidNotCompleteIsFiredAgainAfterRestart() throws IOException {
+        File file = folder.newFile();
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.B).onEntry(new Action1<Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(Transition<State, Trigger, Context> transition) {
+                throw new Error("crash");
+            }
+        });
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        ManualTimingWheel wheel = new ManualTimingWheel(1, TimeUnit.SECONDS, 64);
+        DurableTriggerScheduler<State, Trigger, Context> before = createScheduler(sm, wheel, file);
+        before.recover(10, 1, TimeUnit.SECONDS);
+        before.schedule(Trigger.X, Context.M, 1, TimeUnit.SECONDS);
+        try {
+            wheel.advanceBy(1, TimeUnit.SECONDS);
+            fail("The crash was swallowed");
+        } catch (Error e) {
+            assertEquals("crash", e.getMessage());
+        }
+        before.close();
+
+        DurableTriggerScheduler<State, Trigger, Context> after = createScheduler(createMachine(), new ManualTimingWheel(1, TimeUnit.SECONDS, 64), file);
+        assertEquals(1, after.recover(10, 1, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void ScheduleAfterCloseIsRejected() throws IOException {
+        DurableTriggerScheduler<State, Trigger, Context> scheduler = createScheduler(createMachine(), new ManualTimingWheel(1, TimeUnit.SECONDS, 64), folder.newFile());
+        scheduler.recover(10, 1, TimeUnit.SECONDS);
+        scheduler.close();
+
+        scheduler.schedule(Trigger.X, Context.M, 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void LogIsCompactedOnceEnoughTriggersAreDone() throws IOException {
+        File file = folder.newFile();
+        ManualTimingWheel wheel = new ManualTimingWheel(1, TimeUnit.SECONDS, 64);
+        DurableTriggerScheduler<State, Trigger, Context> scheduler = createScheduler(createMachine(), wheel, file);
+        scheduler.setCompactionThreshold(10);
+        scheduler.recover(10, 1, TimeUnit.SECONDS);
+        scheduler.schedule(Trigger.X, Context.N, 60, TimeUnit.SECONDS);
+        long empty = file.length();
+
+        for (int i = 0; i < 9; i++) {
+            scheduler.cancel(scheduler.schedule(Trigger.X, Context.M, 5, TimeUnit.SECONDS));
+        }
+        assertTrue(file.length() > empty);
+        scheduler.cancel(scheduler.schedule(Trigger.X, Context.M, 5, TimeUnit.SECONDS));
+
+        assertEquals(empty, file.length());
+        scheduler.close();
+        DurableTriggerScheduler<State, Trigger, Context> after = createScheduler(createMachine(), new ManualTimingWheel(1, TimeUnit.SECONDS, 64), file);
+        assertEquals(1, after.recover(10, 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void FailedCompactionKeepsTheLogUsable() throws IOException {
+        File file = folder.newFile();
+        ManualTimingWheel wheel = new ManualTimingWheel(1, TimeUnit.SECONDS, 64);
+        DurableTriggerScheduler<State, Trigger, Context> scheduler = createScheduler(createMachine(), wheel, file);
+        scheduler.setCompactionThreshold(1);
+        scheduler.recover(10, 1, TimeUnit.SECONDS);
+        // the compacted copy cannot be written where a directory is in the way
+        File blocker = new File(file.getPath() + ".tmp");
+        assertTrue(blocker.mkdir());
+
+        scheduler.cancel(scheduler.schedule(Trigger.X, Context.M, 5, TimeUnit.SECONDS));
+        scheduler.schedule(Trigger.X, Context.N, 60, TimeUnit.SECONDS);
+        assertTrue(blocker.delete());
+        scheduler.cancel(scheduler.schedule(Trigger.X, Context.M, 5, TimeUnit.SECONDS));
+        scheduler.close();
+
+        DurableTriggerScheduler<State, Trigger, Context> after = createScheduler(createMachine(), new ManualTimingWheel(1, TimeUnit.SECONDS, 64), file);
+        assertEquals(1, after.recover(10, 1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.FuncCondition;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class GuardActionProfilerTests {
+
+    final FuncCondition<Context> slowGuard = new FuncCondition<Context>() {
+        @Override
+        public boolean check(Context context) {
+            sleep();
+            return true;
+        }
+    };
+
+    final Action1<Transition<State, Trigger, Context>> slowEntry = new Action1<Transition<State, Trigger, Context>>() {
+        @Override
+        public void doIt(Transition<State, Trigger, Context> transition) {
+            sleep();
+            sleep();
+        }
+    };
+
+    final Action1<Transition<State, Trigger, Context>> fastExit = new Action1<Transition<State, Trigger, Context>>() {
+        @Override
+        public void doIt(Transition<State, Trigger, Context> transition) {
+        }
+    };
+
+    static void sleep() {
+        try {
+            Thread.sleep(2);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    StateMachine<State, Trigger, Context> createMachine() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permitIf(Trigger.X, State.B, slowGuard).onExit(fastExit);
+        config.configure(State.B).permit(Trigger.Y, State.A).onEntry(slowEntry);
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        return new StateMachine<>(reference, reference, config);
+    }
+
+    @Test
+    public void GuardsAndActionsAreRankedByWallTime() {
+        GuardActionProfiler profiler = new GuardActionProfiler(1);
+        profiler.name(slowEntry, "slowEntry");
+        StateMachine<State, Trigger, Context> sm = createMachine();
+        sm.enableProfiling(profiler);
+
+        for (int i = 0; i < 3; i++) {
+            sm.fire(Trigger.X, Context.M);
+            sm.fire(Trigger.Y, Context.M);
+        }
+
+        List<GuardActionProfiler.Entry> report = profiler.report(10);
+        assertEquals(3, report.size());
+        GuardActionProfiler.Entry top = report.get(0);
+        assertEquals(GuardActionProfiler.Kind.ENTRY_ACTION, top.getKind());
+        assertEquals("slowEntry", top.getName());
+        assertEquals(State.B, top.getState());
+        assertEquals(Trigger.X, top.getTrigger());
+        assertEquals(3, top.getCount());
+        assertTrue(top.getWallNanos() >= 12000000);
+
+        GuardActionProfiler.Entry guard = report.get(1);
+        assertEquals(GuardActionProfiler.Kind.GUARD, guard.getKind());
+        assertEquals(slowGuard.getClass().getName(), guard.getName());
+        assertEquals(GuardActionProfiler.Kind.EXIT_ACTION, report.get(2).getKind());
+        assertEquals(1, profiler.report(1).size());
+    }
+
+    @Test
+    public void FiresAfterProfilingIsDisabledAreNotProfiled() {
+        GuardActionProfiler profiler = new GuardActionProfiler(1);
+        StateMachine<State, Trigger, Context> sm = createMachine();
+        sm.enableProfiling(profiler);
+        sm.fire(Trigger.X, Context.M);
+        sm.fire(Trigger.Y, Context.M);
+
+        sm.enableProfiling(null);
+        sm.fire(Trigger.X, Context.M);
+
+        for (GuardActionProfiler.Entry entry : profiler.report(10)) {
+            assertEquals(1, entry.getCount());
+        }
+    }
+
+    @Test
+    public void ResetDiscardsMeasurements() {
+        GuardActionProfiler profiler = new GuardActionProfiler(1);
+        StateMachine<State, Trigger, Context> sm = createMachine();
+        sm.enableProfiling(profiler);
+        sm.fire(Trigger.X, Context.M);
+
+        profiler.reset();
+
+        assertTrue(profiler.report(10).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void SampleRateMustBePositive() {
+        new GuardActionProfiler(0);
+    }
+}
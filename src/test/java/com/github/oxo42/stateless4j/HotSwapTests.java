@@ -0,0 +1,178 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Func2;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class HotSwapTests {
+
+    enum State {
+        A, B, C
+    }
+
+    enum Trigger {
+        X, Y, Z
+    }
+
+    static StateMachineConfig<State, Trigger, Object> version1() {
+        StateMachineConfig<State, Trigger, Object> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.B).permit(Trigger.Y, State.A);
+        config.freeze();
+        return config;
+    }
+
+    /**
+     * Drops B in favour of C
+     */
+    static StateMachineConfig<State, Trigger, Object> version2() {
+        StateMachineConfig<State, Trigger, Object> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.C);
+        config.configure(State.C).permit(Trigger.Y, State.A);
+        config.freeze();
+        return config;
+    }
+
+    static final Func2<State, State> B_TO_C = new Func2<State, State>() {
+        @Override
+        public State call(State state) {
+            return state == State.B ? State.C : state;
+        }
+    };
+
+    @Test
+    public void FiresUseThePublishedVersion() {
+        ConfigHolder<State, Trigger, Object> holder = new ConfigHolder<>(version1());
+        StateReference<State, Object> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Object> sm = new StateMachine<>(reference, reference, holder);
+        sm.fire(Trigger.X, null);
+        assertEquals(State.B, sm.getState(null));
+        sm.fire(Trigger.Y, null);
+
+        assertEquals(2, holder.publish(version2(), B_TO_C));
+        sm.fire(Trigger.X, null);
+
+        assertEquals(State.C, sm.getState(null));
+        assertEquals(2, holder.getVersion());
+    }
+
+    @Test
+    public void HeldMachineReportsTheCurrentConfiguration() {
+        ConfigHolder<State, Trigger, Object> holder = new ConfigHolder<>(version1());
+        StateReference<State, Object> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Object> sm = new StateMachine<>(reference, reference, holder);
+        StateMachineConfig<State, Trigger, Object> published = version2();
+
+        holder.publish(published, B_TO_C);
+
+        assertNull(sm.config);
+        assertSame(published, sm.configuration());
+    }
+
+    @Test
+    public void RemovedStateIsMigratedOnNextFire() {
+        ConfigHolder<State, Trigger, Object> holder = new ConfigHolder<>(version1());
+        StateReference<State, Object> reference = new StateReference<>(State.B);
+        StateMachine<State, Trigger, Object> sm = new StateMachine<>(reference, reference, holder);
+
+        holder.publish(version2(), B_TO_C);
+        assertTrue(sm.isInState(State.C, null));
+        assertEquals(State.B, sm.getState(null));
+
+        sm.fire(Trigger.Y, null);
+
+        assertEquals(State.A, sm.getState(null));
+    }
+
+    @Test
+    public void MigrationsOfSkippedVersionsAreChained() {
+        ConfigHolder<State, Trigger, Object> holder = new ConfigHolder<>(version1());
+        StateReference<State, Object> reference = new StateReference<>(State.B);
+        StateMachine<State, Trigger, Object> sm = new StateMachine<>(reference, reference, holder);
+        holder.publish(version2(), B_TO_C);
+        StateMachineConfig<State, Trigger, Object> version3 = new StateMachineConfig<>();
+        version3.configure(State.A).permitReentry(Trigger.X);
+        version3.freeze();
+
+        holder.publish(version3, new Func2<State, State>() {
+            @Override
+            public State call(State state) {
+                assertEquals(State.C, state);
+                return State.A;
+            }
+        });
+        sm.fire(Trigger.X, null);
+
+        assertEquals(State.A, sm.getState(null));
+    }
+
+    @Test
+    public void MigrationIsAppliedWhenPublishedNotOnEachFire() {
+        ConfigHolder<State, Trigger, Object> holder = new ConfigHolder<>(version1());
+        final List<State> migrated = new ArrayList<>();
+        holder.publish(version2(), new Func2<State, State>() {
+            @Override
+            public State call(State state) {
+                migrated.add(state);
+                return B_TO_C.call(state);
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            StateReference<State, Object> reference = new StateReference<>(State.B);
+            StateMachine<State, Trigger, Object> sm = new StateMachine<>(reference, reference, holder);
+            sm.fire(Trigger.Y, null);
+            assertEquals(State.A, sm.getState(null));
+        }
+
+        assertEquals(Arrays.asList(State.B), migrated);
+        assertEquals(State.C, holder.current().migrate(State.B));
+    }
+
+    @Test
+    public void FireInProgressFinishesOnItsVersion() {
+        final ConfigHolder<State, Trigger, Object> holder = new ConfigHolder<>(version1());
+        final List<State> entered = new ArrayList<>();
+        StateMachineConfig<State, Trigger, Object> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B).onExit(new Action1<Transition<State, Trigger, Object>>() {
+            @Override
+            public void doIt(Transition<State, Trigger, Object> transition) {
+                holder.publish(version2(), B_TO_C);
+            }
+        });
+        config.configure(State.B).permit(Trigger.Y, State.A).onEntry(new Action1<Transition<State, Trigger, Object>>() {
+            @Override
+            public void doIt(Transition<State, Trigger, Object> transition) {
+                entered.add(transition.getDestination());
+            }
+        });
+        config.freeze();
+        holder.publish(config);
+        StateReference<State, Object> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Object> sm = new StateMachine<>(reference, reference, holder);
+
+        sm.fire(Trigger.X, null);
+
+        assertEquals(State.B, sm.getState(null));
+        assertEquals(1, entered.size());
+        assertEquals(3, holder.getVersion());
+
+        sm.fire(Trigger.Y, null);
+
+        assertEquals(State.A, sm.getState(null));
+        assertEquals(1, entered.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void OnlyFrozenConfigurationsArePublished() {
+        ConfigHolder<State, Trigger, Object> holder = new ConfigHolder<>(version1());
+        holder.publish(new StateMachineConfig<State, Trigger, Object>());
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class InternalTransitionTests {
+
+    int counted;
+    int entered;
+    int exited;
+
+    StateMachineConfig<State, Trigger, Context> createConfig() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.B).permit(Trigger.Y, State.C);
+        config.configure(State.A)
+                .substateOf(State.B)
+                .permitInternal(Trigger.X, new Action1<Context>() {
+                    @Override
+                    public void doIt(Context context) {
+                        counted++;
+                    }
+                })
+                .onEntry(new Action1<Transition<State, Trigger, Context>>() {
+                    @Override
+                    public void doIt(Transition<State, Trigger, Context> transition) {
+                        entered++;
+                    }
+                })
+                .onExit(new Action1<Transition<State, Trigger, Context>>() {
+                    @Override
+                    public void doIt(Transition<State, Trigger, Context> transition) {
+                        exited++;
+                    }
+                });
+        return config;
+    }
+
+    @Test
+    public void InternalTransitionRunsOnlyItsAction() {
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, createConfig());
+
+        sm.fire(Trigger.X, Context.M);
+        sm.fire(Trigger.X, Context.M);
+
+        assertEquals(State.A, sm.getState(Context.M));
+        assertEquals(2, counted);
+        assertEquals(0, entered);
+        assertEquals(0, exited);
+    }
+
+    @Test
+    public void InternalTransitionOfCompiledMachineRunsOnlyItsAction() {
+        StateMachineConfig<State, Trigger, Context> config = createConfig();
+        config.freeze();
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        CompiledStateMachine<State, Trigger, Context> sm = new CompiledStateMachine<>(reference, reference, config);
+
+        sm.fire(Trigger.X, Context.M);
+
+        assertTrue(sm.isCompiled());
+        assertEquals(State.A, sm.getState(Context.M));
+        assertEquals(1, counted);
+        assertEquals(0, entered + exited);
+    }
+
+    @Test
+    public void InternalTransitionIsHandledButDoesNotTransition() {
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, createConfig());
+
+        SimulationResult<State> result = sm.simulate(Trigger.X, Context.M);
+
+        assertTrue(sm.canFire(Trigger.X, Context.M));
+        assertTrue(result.isHandled());
+        assertFalse(result.isTransition());
+        assertEquals(0, counted);
+    }
+
+    @Test
+    public void InternalTransitionReceivesArgument() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        TriggerWithParameters1<Integer, Trigger> x = config.setTriggerParameters(Trigger.X, Integer.class);
+        config.configure(State.A).permitInternalIf(x, new Action2<Integer, Context>() {
+            @Override
+            public void doIt(Integer amount, Context context) {
+                counted += amount;
+            }
+        }, IgnoredTriggerBehaviourTests.returnTrue);
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+
+        sm.fire(x, Context.M, 5);
+        sm.fire(x, Context.M, 3);
+
+        assertEquals(8, counted);
+    }
+}
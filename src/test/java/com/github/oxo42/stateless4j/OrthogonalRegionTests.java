@@ -0,0 +1,184 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class OrthogonalRegionTests {
+
+    enum Device {
+        Off, On, Offline, Online, Idle, Updating
+    }
+
+    enum Event {
+        PowerOn, PowerOff, Connect, Update, Done
+    }
+
+    final List<Device> entered = Collections.synchronizedList(new ArrayList<Device>());
+
+    Region<Device> power;
+    Region<Device> connectivity;
+    Region<Device> firmware;
+
+    StateMachineConfig<Device, Event, Object> createConfig() {
+        StateMachineConfig<Device, Event, Object> config = new StateMachineConfig<>();
+        power = config.defineRegion("power", Device.Off, Device.Off, Device.On);
+        connectivity = config.defineRegion("connectivity", Device.Offline, Device.Offline, Device.Online);
+        firmware = config.defineRegion("firmware", Device.Idle, Device.Idle, Device.Updating);
+        config.configure(Device.Off).permit(Event.PowerOn, Device.On);
+        config.configure(Device.On).permit(Event.PowerOff, Device.Off);
+        config.configure(Device.Offline).permit(Event.Connect, Device.Online);
+        config.configure(Device.Online).permit(Event.PowerOff, Device.Offline);
+        config.configure(Device.Idle).permit(Event.Update, Device.Updating).ignore(Event.PowerOff);
+        config.configure(Device.Updating).permit(Event.Done, Device.Idle);
+        for (final Device device : Device.values()) {
+            config.configure(device).onEntry(new Action1<Transition<Device, Event, Object>>() {
+                @Override
+                public void doIt(Transition<Device, Event, Object> transition) {
+                    entered.add(device);
+                }
+            });
+        }
+        return config;
+    }
+
+    @Test
+    public void TriggerIsDispatchedToEveryRegionThatHandlesIt() {
+        StateMachineConfig<Device, Event, Object> config = createConfig();
+        StateReference<CompositeState, Object> reference = new StateReference<>(null);
+        OrthogonalStateMachine<Device, Event, Object> sm = new OrthogonalStateMachine<>(reference, reference, config);
+        reference.setState(sm.getInitialState());
+
+        sm.fire(Event.PowerOn, null);
+        sm.fire(Event.Connect, null);
+        assertEquals(Device.On, sm.getState(power, null));
+        assertEquals(Device.Online, sm.getState(connectivity, null));
+
+        sm.fire(Event.PowerOff, null);
+
+        assertEquals(Device.Off, sm.getState(power, null));
+        assertEquals(Device.Offline, sm.getState(connectivity, null));
+        assertEquals(Device.Idle, sm.getState(firmware, null));
+        assertTrue(sm.isInState(Device.Idle, null));
+        assertFalse(sm.isInState(Device.On, null));
+    }
+
+    @Test
+    public void CompositeStateHoldsPositionsWithinRegions() {
+        StateMachineConfig<Device, Event, Object> config = createConfig();
+        StateReference<CompositeState, Object> reference = new StateReference<>(null);
+        OrthogonalStateMachine<Device, Event, Object> sm = new OrthogonalStateMachine<>(reference, reference, config);
+        reference.setState(sm.getInitialState());
+
+        sm.fire(Event.Update, null);
+
+        assertEquals(3, reference.getState().size());
+        assertEquals(0, reference.getState().get(power.getIndex()));
+        assertEquals(1, reference.getState().get(firmware.getIndex()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void TriggerHandledByNoRegionIsUnhandled() {
+        StateMachineConfig<Device, Event, Object> config = createConfig();
+        StateReference<CompositeState, Object> reference = new StateReference<>(null);
+        OrthogonalStateMachine<Device, Event, Object> sm = new OrthogonalStateMachine<>(reference, reference, config);
+        reference.setState(sm.getInitialState());
+
+        assertFalse(sm.canFire(Event.Done, null));
+        sm.fire(Event.Done, null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void StatesBelongToOneRegion() {
+        StateMachineConfig<Device, Event, Object> config = new StateMachineConfig<>();
+        config.defineRegion("power", Device.Off, Device.Off, Device.On);
+        config.defineRegion("other", Device.Idle, Device.Idle, Device.On);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void InitialStateBelongsToTheRegion() {
+        StateMachineConfig<Device, Event, Object> config = new StateMachineConfig<>();
+        config.defineRegion("power", Device.Idle, Device.Off, Device.On);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void TransitionMustStayInItsRegion() {
+        StateMachineConfig<Device, Event, Object> config = createConfig();
+        config.configure(Device.Off).permit(Event.Done, Device.Online);
+        StateReference<CompositeState, Object> reference = new StateReference<>(null);
+        OrthogonalStateMachine<Device, Event, Object> sm = new OrthogonalStateMachine<>(reference, reference, config);
+        reference.setState(sm.getInitialState());
+
+        sm.fire(Event.Done, null);
+    }
+
+    @Test
+    public void RegionsTransitionConcurrentlyOnExecutor() throws Exception {
+        StateMachineConfig<Device, Event, Object> config = createConfig();
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        Action1<Transition<Device, Event, Object>> meet = new Action1<Transition<Device, Event, Object>>() {
+            @Override
+            public void doIt(Transition<Device, Event, Object> transition) {
+                try {
+                    // only returns if the other region enters its state at the same time
+                    barrier.await(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        config.configure(Device.On).permitReentry(Event.Connect).onEntryFrom(Event.Connect, meet);
+        config.configure(Device.Online).onEntryFrom(Event.Connect, meet);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            StateReference<CompositeState, Object> reference = new StateReference<>(null);
+            OrthogonalStateMachine<Device, Event, Object> sm = new OrthogonalStateMachine<>(reference, reference, config, executor);
+            reference.setState(sm.getInitialState());
+            sm.fire(Event.PowerOn, null);
+            entered.clear();
+
+            sm.fire(Event.Connect, null);
+
+            assertEquals(Device.On, sm.getState(power, null));
+            assertEquals(Device.Online, sm.getState(connectivity, null));
+            assertEquals(2, entered.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 5000, expected = RejectedExecutionException.class)
+    public void RejectedRegionTaskDoesNotHangTheFire() {
+        StateMachineConfig<Device, Event, Object> config = createConfig();
+        StateReference<CompositeState, Object> reference = new StateReference<>(null);
+        OrthogonalStateMachine<Device, Event, Object> sm = new OrthogonalStateMachine<>(reference, reference, config, new Executor() {
+            boolean saturated;
+
+            @Override
+            public void execute(Runnable command) {
+                if (saturated) {
+                    throw new RejectedExecutionException("saturated");
+                }
+                saturated = true;
+                command.run();
+            }
+        });
+        reference.setState(sm.getInitialState());
+        sm.fire(Event.PowerOn, null);
+        sm.fire(Event.Connect, null);
+
+        sm.fire(Event.PowerOff, null);
+    }
+}
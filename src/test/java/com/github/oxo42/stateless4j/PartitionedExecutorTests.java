@@ -0,0 +1,154 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.reactive.OverflowPolicy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class PartitionedExecutorTests {
+
+    final CountDownLatch holding = new CountDownLatch(1);
+    final CountDownLatch released = new CountDownLatch(1);
+
+    final Action1<Integer> hold = new Action1<Integer>() {
+        @Override
+        public void doIt(Integer context) {
+            holding.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    };
+
+    StateMachineConfig<State, Trigger, Integer> createConfig() {
+        StateMachineConfig<State, Trigger, Integer> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B).permitInternal(Trigger.Z, hold);
+        config.configure(State.B).permit(Trigger.Y, State.C);
+        config.configure(State.C).permit(Trigger.X, State.A);
+        return config;
+    }
+
+    @Test
+    public void BatchesKeepPerContextOrder() throws InterruptedException {
+        List<TriggerEvent<Trigger, Integer>> events = new ArrayList<>();
+        for (int key = 0; key < 20; key++) {
+            events.add(new TriggerEvent<>(key, Trigger.X));
+            events.add(new TriggerEvent<>(key, Trigger.Y));
+        }
+        PartitionedExecutor<State, Trigger, Integer> executor = new PartitionedExecutor<>(createConfig(), State.A, 3, 64, OverflowPolicy.BLOCK);
+
+        executor.start("partition-");
+        assertEquals(events.size(), executor.submitAll(events));
+        executor.stop();
+
+        assertEquals(events.size(), executor.getProcessedCount());
+        for (int key = 0; key < 20; key++) {
+            assertEquals(State.C, executor.getState(key));
+        }
+    }
+
+    @Test
+    public void StatesSurviveRestart() throws InterruptedException {
+        PartitionedExecutor<State, Trigger, Integer> executor = new PartitionedExecutor<>(createConfig(), State.A, 2, 8, OverflowPolicy.BLOCK);
+        executor.start("partition-");
+        executor.submit(new TriggerEvent<>(1, Trigger.X));
+        executor.stop();
+
+        executor.start("partition-");
+        executor.submit(new TriggerEvent<>(1, Trigger.Y));
+        executor.stop();
+
+        assertEquals(State.C, executor.getState(1));
+    }
+
+    /**
+     * Start an executor with one partition whose worker is held up by an event, so that its queue fills up
+     */
+    PartitionedExecutor<State, Trigger, Integer> startHeld(int queueCapacity, OverflowPolicy overflowPolicy) throws InterruptedException {
+        PartitionedExecutor<State, Trigger, Integer> executor = new PartitionedExecutor<>(createConfig(), State.A, 1, queueCapacity, overflowPolicy);
+        executor.start("partition-");
+        executor.submit(new TriggerEvent<>(0, Trigger.Z));
+        holding.await();
+        return executor;
+    }
+
+    @Test
+    public void DropRejectsEventsWhenQueueIsFull() throws InterruptedException {
+        PartitionedExecutor<State, Trigger, Integer> executor = startHeld(2, OverflowPolicy.DROP);
+
+        assertTrue(executor.submit(new TriggerEvent<>(1, Trigger.X)));
+        assertTrue(executor.submit(new TriggerEvent<>(1, Trigger.Y)));
+        assertFalse(executor.submit(new TriggerEvent<>(1, Trigger.X)));
+        released.countDown();
+        executor.stop();
+
+        assertEquals(1, executor.getDroppedCount());
+        assertEquals(State.C, executor.getState(1));
+    }
+
+    @Test
+    public void LatestDiscardsOldestWaitingEvent() throws InterruptedException {
+        PartitionedExecutor<State, Trigger, Integer> executor = startHeld(2, OverflowPolicy.LATEST);
+
+        assertEquals(3, executor.submitAll(Arrays.asList(
+                new TriggerEvent<>(1, Trigger.Y),
+                new TriggerEvent<>(2, Trigger.X),
+                new TriggerEvent<>(3, Trigger.X))));
+        released.countDown();
+        executor.stop();
+
+        assertEquals(1, executor.getDroppedCount());
+        assertEquals(0, executor.getFailedCount());
+        assertEquals(State.B, executor.getState(2));
+        assertEquals(State.B, executor.getState(3));
+    }
+
+    @Test
+    public void StopWithLatestFiresQueuedEventsAndRejectsNewOnes() throws InterruptedException {
+        final PartitionedExecutor<State, Trigger, Integer> executor = startHeld(1, OverflowPolicy.LATEST);
+
+        executor.submit(new TriggerEvent<>(1, Trigger.X));
+        Thread stopper = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    executor.stop();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        stopper.start();
+        while (stopper.getState() != Thread.State.WAITING) {
+            Thread.yield();
+        }
+        try {
+            executor.submit(new TriggerEvent<>(2, Trigger.X));
+            fail("A submit after stop() must be rejected.");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        released.countDown();
+        stopper.join(10000);
+
+        assertFalse(stopper.isAlive());
+        assertEquals(State.B, executor.getState(1));
+        assertEquals(State.A, executor.getState(2));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void SubmitBeforeStartIsRejected() throws InterruptedException {
+        PartitionedExecutor<State, Trigger, Integer> executor = new PartitionedExecutor<>(createConfig(), State.A, 1, 1, OverflowPolicy.BLOCK);
+
+        executor.submit(new TriggerEvent<>(1, Trigger.X));
+    }
+}
@@ -0,0 +1,224 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class QueuedDispatcherTests {
+
+    final List<String> entries = new ArrayList<>();
+
+    StateMachineConfig<State, Trigger, Context> createConfig() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permitReentry(Trigger.X)
+                .permit(Trigger.Y, State.B)
+                .onEntry(new Action1<Transition<State, Trigger, Context>>() {
+                    @Override
+                    public void doIt(Transition<State, Trigger, Context> t) {
+                        entries.add(t.getTrigger().toString());
+                    }
+                });
+        config.configure(State.B)
+                .permit(Trigger.Y, State.A);
+        return config;
+    }
+
+    @Test
+    public void TriggersAreFiredInOrder() {
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, createConfig());
+        QueuedDispatcher<State, Trigger, Context> dispatcher = new QueuedDispatcher<>(sm);
+
+        dispatcher.enqueue(Trigger.X, Context.M);
+        dispatcher.enqueue(Trigger.Y, Context.M);
+        dispatcher.enqueue(Trigger.Y, Context.M);
+        assertEquals(State.A, sm.getState(Context.M));
+
+        assertEquals(3, dispatcher.drain());
+        assertEquals(Arrays.asList("X", "Y"), entries);
+        assertEquals(0, dispatcher.size());
+    }
+
+    @Test
+    public void CoalescibleTriggersCauseOneTransition() {
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, createConfig());
+        QueuedDispatcher<State, Trigger, Context> dispatcher = new QueuedDispatcher<>(sm);
+        dispatcher.coalesce(Trigger.X);
+
+        for (int i = 0; i < 1000; i++) {
+            dispatcher.enqueue(Trigger.X, Context.M);
+        }
+        dispatcher.enqueue(Trigger.X, Context.N);
+
+        assertEquals(2, dispatcher.size());
+        assertEquals(999, dispatcher.getCoalescedCount());
+        dispatcher.drain();
+        assertEquals(Arrays.asList("X", "X"), entries);
+    }
+
+    @Test
+    public void LastArgumentsWin() {
+        final List<String> args = new ArrayList<>();
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        TriggerWithParameters1<String, Trigger> update = config.setTriggerParameters(Trigger.Z, String.class);
+        config.configure(State.A)
+                .permitReentry(Trigger.Z)
+                .onEntryFrom(update, new Action2<String, Transition<State, Trigger, Context>>() {
+                    @Override
+                    public void doIt(String arg, Transition<State, Trigger, Context> t) {
+                        args.add(arg);
+                    }
+                }, String.class);
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        QueuedDispatcher<State, Trigger, Context> dispatcher = new QueuedDispatcher<>(new StateMachine<>(reference, reference, config));
+        dispatcher.coalesce(Trigger.Z);
+
+        dispatcher.enqueue(update, Context.M, "first");
+        dispatcher.enqueue(update, Context.M, "second");
+        dispatcher.enqueue(update, Context.M, "third");
+        dispatcher.drain();
+
+        assertEquals(Arrays.asList("third"), args);
+    }
+
+    @Test
+    public void TriggersQueuedAfterDequeueAreNotCoalesced() {
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, createConfig());
+        QueuedDispatcher<State, Trigger, Context> dispatcher = new QueuedDispatcher<>(sm);
+        dispatcher.coalesce(Trigger.X);
+
+        dispatcher.enqueue(Trigger.X, Context.M);
+        dispatcher.drain();
+        dispatcher.enqueue(Trigger.X, Context.M);
+        dispatcher.drain();
+
+        assertEquals(Arrays.asList("X", "X"), entries);
+    }
+
+    @Test
+    public void ExecutorDrainsQueue() {
+        final List<Runnable> tasks = new ArrayList<>();
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, createConfig());
+        QueuedDispatcher<State, Trigger, Context> dispatcher = new QueuedDispatcher<>(sm, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+
+        dispatcher.enqueue(Trigger.Y, Context.M);
+        dispatcher.enqueue(Trigger.Y, Context.M);
+        assertEquals(1, tasks.size());
+
+        tasks.get(0).run();
+        assertEquals(State.A, sm.getState(Context.M));
+        assertEquals(0, dispatcher.size());
+    }
+
+    @Test
+    public void TriggerIsNotCoalescedAcrossAnotherTriggerOfTheSameContext() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permitReentry(Trigger.X)
+                .permit(Trigger.Y, State.B);
+        config.configure(State.B)
+                .permit(Trigger.X, State.C);
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        QueuedDispatcher<State, Trigger, Context> dispatcher = new QueuedDispatcher<>(sm);
+        dispatcher.coalesce(Trigger.X);
+
+        dispatcher.enqueue(Trigger.X, Context.M);
+        dispatcher.enqueue(Trigger.Y, Context.M);
+        dispatcher.enqueue(Trigger.X, Context.M);
+        dispatcher.enqueue(Trigger.X, Context.M);
+
+        assertEquals(3, dispatcher.size());
+        assertEquals(1, dispatcher.getCoalescedCount());
+        assertEquals(3, dispatcher.drain());
+        assertEquals(State.C, sm.getState(Context.M));
+    }
+
+    @Test
+    public void DrainIsRescheduledWhenAnErrorEscapesAFire() {
+        final List<Runnable> tasks = new ArrayList<>();
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .permit(Trigger.Y, State.A)
+                .onEntry(new Action1<Transition<State, Trigger, Context>>() {
+                    @Override
+                    public void doIt(Transition<State, Trigger, Context> t) {
+                        throw new AssertionError("entry failed");
+                    }
+                });
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        QueuedDispatcher<State, Trigger, Context> dispatcher = new QueuedDispatcher<>(sm, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+        dispatcher.enqueue(Trigger.X, Context.M);
+        dispatcher.enqueue(Trigger.Y, Context.M);
+
+        try {
+            tasks.get(0).run();
+            fail("The error was swallowed");
+        } catch (AssertionError e) {
+            assertEquals("entry failed", e.getMessage());
+        }
+
+        assertEquals(2, tasks.size());
+        tasks.get(1).run();
+        assertEquals(State.A, sm.getState(Context.M));
+        assertEquals(0, dispatcher.size());
+    }
+
+    @Test
+    public void RejectedDrainIsSubmittedAgainOnNextEnqueue() {
+        final List<Runnable> tasks = new ArrayList<>();
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, createConfig());
+        QueuedDispatcher<State, Trigger, Context> dispatcher = new QueuedDispatcher<>(sm, new Executor() {
+            boolean rejected;
+
+            @Override
+            public void execute(Runnable command) {
+                if (!rejected) {
+                    rejected = true;
+                    throw new RejectedExecutionException("saturated");
+                }
+                tasks.add(command);
+            }
+        });
+
+        try {
+            dispatcher.enqueue(Trigger.Y, Context.M);
+            fail("The rejection was swallowed");
+        } catch (RejectedExecutionException e) {
+            assertEquals("saturated", e.getMessage());
+        }
+        dispatcher.enqueue(Trigger.Y, Context.M);
+        assertEquals(1, tasks.size());
+
+        tasks.get(0).run();
+        assertEquals(State.A, sm.getState(Context.M));
+        assertEquals(0, dispatcher.size());
+    }
+}
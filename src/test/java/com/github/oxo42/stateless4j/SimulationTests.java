@@ -0,0 +1,121 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Func3;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
+import java.util.Arrays;
+import java.util.Collections;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class SimulationTests {
+
+    boolean actionRan;
+
+    final Action1<Transition<State, Trigger, Context>> action = new Action1<Transition<State, Trigger, Context>>() {
+        @Override
+        public void doIt(Transition<State, Trigger, Context> t) {
+            actionRan = true;
+        }
+    };
+
+    @Test
+    public void TransitionIsReportedWithoutSideEffects() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .substateOf(State.C)
+                .onExit(action)
+                .permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .onEntry(action);
+
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        SimulationResult<State> result = sm.simulate(Trigger.X, Context.M);
+
+        assertTrue(result.isHandled());
+        assertTrue(result.isTransition());
+        assertEquals(State.B, result.getDestination());
+        assertEquals(Arrays.asList(State.A, State.C), result.getExited());
+        assertEquals(Arrays.asList(State.B), result.getEntered());
+        assertEquals(State.A, sm.getState(Context.M));
+        assertFalse(actionRan);
+    }
+
+    @Test
+    public void SuperstatesAreEnteredOutermostFirst() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).substateOf(State.B);
+        config.configure(State.B).permit(Trigger.Y, State.A);
+        config.configure(State.C).permit(Trigger.X, State.A);
+
+        StateReference<State, Context> reference = new StateReference<>(State.C);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        SimulationResult<State> result = sm.simulate(Trigger.X, Context.M);
+
+        assertEquals(Arrays.asList(State.C), result.getExited());
+        assertEquals(Arrays.asList(State.B, State.A), result.getEntered());
+
+        reference.setState(State.B);
+        sm.simulate(result, Trigger.Y, Context.M);
+        assertEquals(Collections.<State>emptyList(), result.getExited());
+        assertEquals(Arrays.asList(State.A), result.getEntered());
+    }
+
+    @Test
+    public void ReentryExitsAndEntersTheState() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).substateOf(State.B).permitReentry(Trigger.X);
+
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        SimulationResult<State> result = sm.simulate(Trigger.X, Context.M);
+
+        assertEquals(Arrays.asList(State.A), result.getExited());
+        assertEquals(Arrays.asList(State.A), result.getEntered());
+    }
+
+    @Test
+    public void DynamicDestinationIsSelected() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        TriggerWithParameters1<Integer, Trigger> trigger = config.setTriggerParameters(Trigger.X, Integer.class);
+        config.configure(State.A).permitDynamic(trigger, new Func3<Integer, Context, State>() {
+            @Override
+            public State call(Integer i, Context context) {
+                return i > 0 ? State.B : State.C;
+            }
+        });
+
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        SimulationResult<State> result = new SimulationResult<>();
+
+        assertSame(result, sm.simulate(result, Trigger.X, Context.M, 1));
+        assertEquals(State.B, result.getDestination());
+        sm.simulate(result, Trigger.X, Context.M, -1);
+        assertEquals(State.C, result.getDestination());
+        assertEquals(Arrays.asList(State.C), result.getEntered());
+    }
+
+    @Test
+    public void IgnoredAndUnhandledTriggersDoNotTransition() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).ignore(Trigger.X);
+
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+
+        SimulationResult<State> ignored = sm.simulate(Trigger.X, Context.M);
+        assertTrue(ignored.isHandled());
+        assertFalse(ignored.isTransition());
+        assertEquals(State.A, ignored.getDestination());
+        assertEquals(Collections.<State>emptyList(), ignored.getExited());
+
+        SimulationResult<State> unhandled = sm.simulate(Trigger.Y, Context.M);
+        assertFalse(unhandled.isHandled());
+    }
+}
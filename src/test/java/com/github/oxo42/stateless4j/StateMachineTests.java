@@ -2,10 +2,16 @@ package com.github.oxo42.stateless4j;
 
 import com.github.oxo42.stateless4j.delegates.Action1;
 import com.github.oxo42.stateless4j.delegates.FuncCondition;
+import com.github.oxo42.stateless4j.reactive.BufferedPublisher;
+import com.github.oxo42.stateless4j.reactive.OverflowPolicy;
+import com.github.oxo42.stateless4j.reactive.Subscriber;
+import com.github.oxo42.stateless4j.reactive.Subscription;
 import com.github.oxo42.stateless4j.transitions.Transition;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import static org.junit.Assert.*;
 
@@ -223,4 +229,71 @@ public class StateMachineTests {
         config.setTriggerParameters(Trigger.X, String.class, int.class);
         config.setTriggerParameters(Trigger.X, String.class);
     }
+
+    @Test
+    public void RemovedTransitionListenersAreNotCalled() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.B).permit(Trigger.X, State.A);
+
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        final List<Transition<State, Trigger, Context>> transitions = new ArrayList<>();
+        Action1<Transition<State, Trigger, Context>> listener = new Action1<Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(Transition<State, Trigger, Context> transition) {
+                transitions.add(transition);
+            }
+        };
+        sm.onTransitioned(listener);
+
+        sm.fire(Trigger.X, Context.M);
+        assertTrue(sm.removeTransitionListener(listener));
+        assertFalse(sm.removeTransitionListener(listener));
+        sm.fire(Trigger.X, Context.M);
+
+        assertEquals(1, transitions.size());
+    }
+
+    @Test
+    public void TransitionsArePublishedAfterEntry() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B).ignore(Trigger.Y);
+
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        BufferedPublisher<Transition<State, Trigger, Context>> publisher = sm.publishTransitions(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        }, 10, OverflowPolicy.DROP);
+        final List<Transition<State, Trigger, Context>> transitions = new ArrayList<>();
+        publisher.subscribe(new Subscriber<Transition<State, Trigger, Context>>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Transition<State, Trigger, Context> item) {
+                transitions.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        sm.fire(Trigger.Y, Context.M);
+        sm.fire(Trigger.X, Context.M);
+
+        assertEquals(1, transitions.size());
+        assertEquals(State.A, transitions.get(0).getSource());
+        assertEquals(State.B, transitions.get(0).getDestination());
+    }
 }
@@ -0,0 +1,94 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.timers.ManualTimingWheel;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class StateTimeoutTests {
+
+    final ManualTimingWheel wheel = new ManualTimingWheel(1, TimeUnit.SECONDS, 64);
+
+    StateMachine<State, Trigger, Context> createMachine(StateMachineConfig<State, Trigger, Context> config, State initial) {
+        StateReference<State, Context> reference = new StateReference<>(initial);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        sm.enableTimeouts(wheel);
+        return sm;
+    }
+
+    @Test
+    public void TimeoutFiresTriggerWhenStillInState() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .timeout(30, TimeUnit.SECONDS, Trigger.Z)
+                .permit(Trigger.Z, State.C);
+
+        StateMachine<State, Trigger, Context> sm = createMachine(config, State.A);
+        sm.fire(Trigger.X, Context.M);
+        wheel.advanceBy(29, TimeUnit.SECONDS);
+        assertEquals(State.B, sm.getState(Context.M));
+
+        wheel.advanceBy(1, TimeUnit.SECONDS);
+        assertEquals(State.C, sm.getState(Context.M));
+    }
+
+    @Test
+    public void LeavingStateCancelsTimeout() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.B)
+                .timeout(30, TimeUnit.SECONDS, Trigger.Z)
+                .permit(Trigger.Y, State.A)
+                .permit(Trigger.Z, State.C);
+
+        StateMachine<State, Trigger, Context> sm = createMachine(config, State.A);
+        sm.fire(Trigger.X, Context.M);
+        sm.fire(Trigger.Y, Context.M);
+
+        assertEquals(0, wheel.pendingTimeouts());
+        wheel.advanceBy(1, TimeUnit.MINUTES);
+        assertEquals(State.A, sm.getState(Context.M));
+    }
+
+    @Test
+    public void MovingBetweenSubstatesKeepsSuperstateTimeout() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.C)
+                .timeout(30, TimeUnit.SECONDS, Trigger.Z)
+                .permit(Trigger.Z, State.B);
+        config.configure(State.A)
+                .substateOf(State.C)
+                .permit(Trigger.X, State.C);
+        config.configure(State.B)
+                .permit(Trigger.X, State.A);
+
+        StateMachine<State, Trigger, Context> sm = createMachine(config, State.B);
+        sm.fire(Trigger.X, Context.M);
+        assertEquals(1, wheel.pendingTimeouts());
+
+        wheel.advanceBy(10, TimeUnit.SECONDS);
+        sm.fire(Trigger.X, Context.M);
+        assertEquals(State.C, sm.getState(Context.M));
+        assertEquals(1, wheel.pendingTimeouts());
+
+        wheel.advanceBy(20, TimeUnit.SECONDS);
+        assertEquals(State.B, sm.getState(Context.M));
+    }
+
+    @Test
+    public void TimeoutsCanBeStartedForLoadedState() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.B)
+                .timeout(5, TimeUnit.SECONDS, Trigger.Z)
+                .permit(Trigger.Z, State.C);
+
+        StateMachine<State, Trigger, Context> sm = createMachine(config, State.B);
+        sm.startTimeouts(Context.M);
+        sm.startTimeouts(Context.M);
+        assertEquals(1, wheel.pendingTimeouts());
+
+        wheel.advanceBy(5, TimeUnit.SECONDS);
+        assertEquals(State.C, sm.getState(Context.M));
+    }
+}
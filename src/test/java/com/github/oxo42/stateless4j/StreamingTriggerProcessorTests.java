@@ -0,0 +1,84 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Func2;
+import com.github.oxo42.stateless4j.delegates.Func3;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class StreamingTriggerProcessorTests {
+
+    StateMachineConfig<State, Trigger, Integer> createConfig() {
+        StateMachineConfig<State, Trigger, Integer> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.B).permit(Trigger.Y, State.C);
+        config.configure(State.C).permit(Trigger.X, State.A);
+        return config;
+    }
+
+    @Test
+    public void PerKeyOrderIsPreserved() throws InterruptedException {
+        List<TriggerEvent<Trigger, Integer>> events = new ArrayList<>();
+        for (int round = 0; round < 100; round++) {
+            for (int key = 0; key < 50; key++) {
+                events.add(new TriggerEvent<>(key, Trigger.X));
+                events.add(new TriggerEvent<>(key, Trigger.Y));
+                events.add(new TriggerEvent<>(key, Trigger.X));
+            }
+        }
+        events.add(new TriggerEvent<>(7, Trigger.X));
+
+        StreamingTriggerProcessor<State, Trigger, Integer> processor = new StreamingTriggerProcessor<>(createConfig(), State.A, 4, 16);
+        processor.process(events.iterator());
+
+        assertEquals(events.size(), processor.getProcessedCount());
+        assertEquals(0, processor.getFailedCount());
+        Map<Integer, State> states = processor.getStates();
+        assertEquals(50, states.size());
+        assertEquals(State.B, states.get(7));
+        assertEquals(State.A, processor.getState(8));
+    }
+
+    @Test
+    public void FailedEventsAreCountedAndSkipped() throws InterruptedException {
+        StreamingTriggerProcessor<State, Trigger, Integer> processor = new StreamingTriggerProcessor<>(createConfig(), State.A, 2, 4);
+        processor.process(Arrays.asList(
+                new TriggerEvent<>(1, Trigger.Y),
+                new TriggerEvent<>(1, Trigger.X)).iterator());
+
+        assertEquals(1, processor.getFailedCount());
+        assertEquals(State.B, processor.getState(1));
+    }
+
+    @Test
+    public void EventsAreReadFromLines() throws InterruptedException {
+        StateMachineConfig<State, Trigger, Integer> config = createConfig();
+        final TriggerWithParameters1<String, Trigger> route = config.setTriggerParameters(Trigger.Z, String.class);
+        config.configure(State.B).permitDynamic(route, new Func3<String, Integer, State>() {
+            @Override
+            public State call(String destination, Integer context) {
+                return State.valueOf(destination);
+            }
+        });
+
+        String log = "1 X\n2 X\n1 Z A\n2 Z C\n";
+        StreamingTriggerProcessor<State, Trigger, Integer> processor = new StreamingTriggerProcessor<>(config, State.A, 2, 4);
+        processor.process(StreamingTriggerProcessor.lines(new BufferedReader(new StringReader(log)), new Func2<String, TriggerEvent<Trigger, Integer>>() {
+            @Override
+            public TriggerEvent<Trigger, Integer> call(String line) {
+                String[] fields = line.split(" ");
+                Object[] args = Arrays.copyOfRange(fields, 2, fields.length, Object[].class);
+                return new TriggerEvent<>(Integer.valueOf(fields[0]), Trigger.valueOf(fields[1]), args);
+            }
+        }));
+
+        assertEquals(State.A, processor.getState(1));
+        assertEquals(State.C, processor.getState(2));
+    }
+}
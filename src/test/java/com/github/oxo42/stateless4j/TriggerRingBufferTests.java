@@ -0,0 +1,147 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.helpers.StateStore;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class TriggerRingBufferTests {
+
+    final StateStore<State, Integer> states = new StateStore<>(State.A);
+
+    StateMachineConfig<State, Trigger, Integer> createConfig() {
+        StateMachineConfig<State, Trigger, Integer> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.B).permit(Trigger.Y, State.A);
+        config.freeze();
+        return config;
+    }
+
+    @Test
+    public void DrainFiresPublishedEventsInOrder() {
+        TriggerRingBuffer<State, Trigger, Integer> ring = new TriggerRingBuffer<>(
+                new CompiledStateMachine<>(states, states, createConfig()), 4);
+        ring.publish(1, Trigger.X);
+        ring.publish(1, Trigger.Y);
+        ring.publish(1, Trigger.X);
+
+        assertEquals(3, ring.getBacklog());
+        assertEquals(3, ring.drain());
+
+        assertEquals(State.B, states.call(1));
+        assertEquals(0, ring.getBacklog());
+        assertEquals(0, ring.drain());
+    }
+
+    @Test
+    public void TryPublishFailsWhenRingIsFull() {
+        TriggerRingBuffer<State, Trigger, Integer> ring = new TriggerRingBuffer<>(
+                new StateMachine<>(states, states, createConfig()), 2);
+
+        assertTrue(ring.tryPublish(1, Trigger.X));
+        assertTrue(ring.tryPublish(2, Trigger.X));
+        assertFalse(ring.tryPublish(3, Trigger.X));
+        ring.drain();
+
+        assertTrue(ring.tryPublish(3, Trigger.X));
+    }
+
+    @Test
+    public void ArgumentsAreCarriedInSlots() {
+        StateMachineConfig<State, Trigger, Integer> config = new StateMachineConfig<>();
+        TriggerWithParameters1<String, Trigger> x = config.setTriggerParameters(Trigger.X, String.class);
+        final List<String> received = new ArrayList<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.B).permit(Trigger.Y, State.A).onEntryFrom(x, new Action2<String, Transition<State, Trigger, Integer>>() {
+            @Override
+            public void doIt(String arg, Transition<State, Trigger, Integer> transition) {
+                received.add(arg);
+            }
+        }, String.class);
+        TriggerRingBuffer<State, Trigger, Integer> ring = new TriggerRingBuffer<>(
+                new StateMachine<>(states, states, config), 8);
+
+        ring.publish(1, Trigger.X, "first");
+        ring.publish(1, Trigger.Y);
+        ring.publish(1, Trigger.X, "second");
+        ring.drain();
+
+        assertEquals(Arrays.asList("first", "second"), received);
+    }
+
+    @Test
+    public void EventAnErrorEscapedFromIsNotFiredAgain() {
+        StateMachineConfig<State, Trigger, Integer> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.B).onEntry(new Action1<Transition<State, Trigger, Integer>>() {
+            @Override
+            public void doIt(Transition<State, Trigger, Integer> transition) {
+                if (transition.getContext() == 1) {
+                    throw new AssertionError("entry failed");
+                }
+            }
+        });
+        TriggerRingBuffer<State, Trigger, Integer> ring = new TriggerRingBuffer<>(
+                new StateMachine<>(states, states, config), 2);
+        ring.publish(1, Trigger.X);
+        ring.publish(2, Trigger.X);
+
+        try {
+            ring.drain();
+            fail("The error was swallowed");
+        } catch (AssertionError e) {
+            assertEquals("entry failed", e.getMessage());
+        }
+
+        assertEquals(1, ring.getBacklog());
+        assertTrue(ring.tryPublish(3, Trigger.X));
+        assertEquals(2, ring.drain());
+        assertEquals(State.B, states.call(2));
+        assertEquals(State.B, states.call(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void CapacityMustBePowerOfTwo() {
+        new TriggerRingBuffer<>(new StateMachine<>(states, states, createConfig()), 3);
+    }
+
+    @Test
+    public void ConcurrentProducersAreAllFired() throws InterruptedException {
+        final TriggerRingBuffer<State, Trigger, Integer> ring = new TriggerRingBuffer<>(
+                new CompiledStateMachine<>(states, states, createConfig()), 16);
+        ring.start("ring-consumer");
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            final int key = p;
+            producers[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        ring.publish(key, i % 2 == 0 ? Trigger.X : Trigger.Y);
+                    }
+                    ring.publish(key, Trigger.X);
+                }
+            });
+            producers[p].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        ring.stop();
+
+        assertEquals(0, ring.getFailedCount());
+        assertEquals(0, ring.getBacklog());
+        for (int key = 0; key < producers.length; key++) {
+            assertEquals(State.B, states.call(key));
+        }
+    }
+}
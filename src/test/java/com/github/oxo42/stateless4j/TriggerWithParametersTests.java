@@ -44,4 +44,18 @@ public class TriggerWithParametersTests {
         TriggerWithParameters2<String, String, Trigger> twp = new TriggerWithParameters2<>(Trigger.X, String.class, String.class);
         twp.validateParameters(new Object[]{"a", "b", "c"});
     }
+
+    @Test
+    public void ValidationCanBeDisabled() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.setTriggerParameters(Trigger.X, String.class);
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.disableParameterValidation();
+
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        sm.publicFire(Trigger.X, Context.M, 123);
+
+        assertEquals(State.B, sm.getState(Context.M));
+    }
 }
@@ -0,0 +1,161 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Action3;
+import com.github.oxo42.stateless4j.delegates.DoubleAction;
+import com.github.oxo42.stateless4j.delegates.IntAction;
+import com.github.oxo42.stateless4j.delegates.LongAction;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.TriggerWithDoubleParameter;
+import com.github.oxo42.stateless4j.triggers.TriggerWithIntParameter;
+import com.github.oxo42.stateless4j.triggers.TriggerWithLongParameter;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.Test;
+
+public class TryFireTests {
+
+    boolean unhandledCalled;
+    double received;
+
+    StateMachine<State, Trigger, Context> createMachine(StateMachineConfig<State, Trigger, Context> config, State initial) {
+        StateReference<State, Context> reference = new StateReference<>(initial);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+        sm.onUnhandledTrigger(new Action3<State, Trigger, Context>() {
+            @Override
+            public void doIt(State state, Trigger trigger, Context context) {
+                unhandledCalled = true;
+            }
+        });
+        return sm;
+    }
+
+    @Test
+    public void TransitionIsReported() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+        StateMachine<State, Trigger, Context> sm = createMachine(config, State.A);
+
+        assertEquals(FireResult.TRANSITIONED, sm.tryFire(Trigger.X, Context.M));
+        assertEquals(State.B, sm.getState(Context.M));
+    }
+
+    @Test
+    public void ReentryIsReported() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permitReentry(Trigger.X);
+        StateMachine<State, Trigger, Context> sm = createMachine(config, State.A);
+
+        assertEquals(FireResult.REENTERED, sm.tryFire(Trigger.X, Context.M));
+    }
+
+    @Test
+    public void IgnoredTriggerIsReported() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).ignore(Trigger.X);
+        StateMachine<State, Trigger, Context> sm = createMachine(config, State.A);
+
+        assertEquals(FireResult.IGNORED, sm.tryFire(Trigger.X, Context.M));
+        assertEquals(State.A, sm.getState(Context.M));
+    }
+
+    @Test
+    public void InternalTransitionIsReported() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permitInternal(Trigger.X, new Action1<Context>() {
+            @Override
+            public void doIt(Context context) {
+            }
+        });
+        StateMachine<State, Trigger, Context> sm = createMachine(config, State.A);
+
+        assertEquals(FireResult.INTERNAL, sm.tryFire(Trigger.X, Context.M));
+    }
+
+    @Test
+    public void UnhandledTriggerIsReportedWithoutUnhandledAction() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A).permit(Trigger.X, State.B);
+        StateMachine<State, Trigger, Context> sm = createMachine(config, State.A);
+
+        assertEquals(FireResult.UNHANDLED, sm.tryFire(Trigger.Y, Context.M));
+        assertFalse(unhandledCalled);
+        assertEquals(State.A, sm.getState(Context.M));
+    }
+
+    @Test
+    public void AmbiguousGuardsAreReportedWithoutException() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permitIf(Trigger.X, State.B, IgnoredTriggerBehaviourTests.returnTrue)
+                .permitIf(Trigger.X, State.C, IgnoredTriggerBehaviourTests.returnTrue);
+        StateMachine<State, Trigger, Context> sm = createMachine(config, State.A);
+
+        assertEquals(FireResult.AMBIGUOUS, sm.tryFire(Trigger.X, Context.M));
+        assertEquals(State.A, sm.getState(Context.M));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void FireStillThrowsOnAmbiguousGuards() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.configure(State.A)
+                .permitIf(Trigger.X, State.B, IgnoredTriggerBehaviourTests.returnTrue)
+                .permitIf(Trigger.X, State.C, IgnoredTriggerBehaviourTests.returnTrue);
+        StateMachine<State, Trigger, Context> sm = createMachine(config, State.A);
+
+        sm.fire(Trigger.X, Context.M);
+    }
+
+    @Test
+    public void ParameterisedTriggerIsFired() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        TriggerWithParameters1<String, Trigger> x = config.setTriggerParameters(Trigger.X, String.class);
+        config.configure(State.A).permit(Trigger.X, State.B);
+        StateMachine<State, Trigger, Context> sm = createMachine(config, State.A);
+
+        assertEquals(FireResult.TRANSITIONED, sm.tryFire(x, Context.M, "arg"));
+    }
+
+    @Test
+    public void PrimitiveTriggersAreFired() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        TriggerWithIntParameter<Trigger> x = config.setIntTriggerParameter(Trigger.X);
+        TriggerWithLongParameter<Trigger> y = config.setLongTriggerParameter(Trigger.Y);
+        TriggerWithDoubleParameter<Trigger> z = config.setDoubleTriggerParameter(Trigger.Z);
+        config.configure(State.A)
+                .permit(Trigger.X, State.B)
+                .onEntryFrom(z, new DoubleAction<Transition<State, Trigger, Context>>() {
+                    @Override
+                    public void doIt(double value, Transition<State, Trigger, Context> transition) {
+                        received = value;
+                    }
+                });
+        config.configure(State.B)
+                .permit(Trigger.Y, State.C)
+                .onEntryFrom(x, new IntAction<Transition<State, Trigger, Context>>() {
+                    @Override
+                    public void doIt(int value, Transition<State, Trigger, Context> transition) {
+                        received = value;
+                    }
+                });
+        config.configure(State.C)
+                .permit(Trigger.Z, State.A)
+                .onEntryFrom(y, new LongAction<Transition<State, Trigger, Context>>() {
+                    @Override
+                    public void doIt(long value, Transition<State, Trigger, Context> transition) {
+                        received = value;
+                    }
+                });
+        StateMachine<State, Trigger, Context> sm = createMachine(config, State.A);
+
+        assertEquals(FireResult.TRANSITIONED, sm.tryFire(x, Context.M, 1));
+        assertEquals(1, received, 0);
+        assertEquals(FireResult.UNHANDLED, sm.tryFire(z, Context.M, 2.5));
+        assertEquals(FireResult.TRANSITIONED, sm.tryFire(y, Context.M, 3L));
+        assertEquals(3, received, 0);
+        assertEquals(FireResult.TRANSITIONED, sm.tryFire(z, Context.M, 4.5));
+        assertEquals(4.5, received, 0);
+        assertFalse(unhandledCalled);
+    }
+}
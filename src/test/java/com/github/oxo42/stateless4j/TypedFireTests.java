@@ -0,0 +1,137 @@
+package com.github.oxo42.stateless4j;
+
+import com.github.oxo42.stateless4j.delegates.Action3;
+import com.github.oxo42.stateless4j.delegates.DoubleAction;
+import com.github.oxo42.stateless4j.delegates.Func4;
+import com.github.oxo42.stateless4j.delegates.IntAction;
+import com.github.oxo42.stateless4j.delegates.LongFunc;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import com.github.oxo42.stateless4j.triggers.TriggerWithDoubleParameter;
+import com.github.oxo42.stateless4j.triggers.TriggerWithIntParameter;
+import com.github.oxo42.stateless4j.triggers.TriggerWithLongParameter;
+import com.github.oxo42.stateless4j.triggers.TriggerWithParameters2;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class TypedFireTests {
+
+    int received;
+    double receivedDouble;
+    String receivedString;
+
+    @Test
+    public void IntArgumentIsPassedToEntryAction() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        TriggerWithIntParameter<Trigger> x = config.setIntTriggerParameter(Trigger.X);
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.B).onEntryFrom(x, new IntAction<Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(int value, Transition<State, Trigger, Context> transition) {
+                received = value;
+            }
+        });
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+
+        sm.fire(x, Context.M, 42);
+
+        assertEquals(State.B, sm.getState(Context.M));
+        assertEquals(42, received);
+    }
+
+    @Test
+    public void BoxedArgumentIsAcceptedForPrimitiveTrigger() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        TriggerWithIntParameter<Trigger> x = config.setIntTriggerParameter(Trigger.X);
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.B).onEntryFrom(x, new IntAction<Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(int value, Transition<State, Trigger, Context> transition) {
+                received = value;
+            }
+        });
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+
+        sm.publicFire(Trigger.X, Context.M, 7);
+
+        assertEquals(7, received);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void WrongTypeIsRejectedForPrimitiveTrigger() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        config.setIntTriggerParameter(Trigger.X);
+        config.configure(State.A).permit(Trigger.X, State.B);
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+
+        sm.publicFire(Trigger.X, Context.M, "7");
+    }
+
+    @Test
+    public void DoubleArgumentIsPassedToEntryActionOfCompiledMachine() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        TriggerWithDoubleParameter<Trigger> x = config.setDoubleTriggerParameter(Trigger.X);
+        config.configure(State.A).permit(Trigger.X, State.B);
+        config.configure(State.B).onEntryFrom(x, new DoubleAction<Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(double value, Transition<State, Trigger, Context> transition) {
+                receivedDouble = value;
+            }
+        });
+        config.freeze();
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        CompiledStateMachine<State, Trigger, Context> sm = new CompiledStateMachine<>(reference, reference, config);
+
+        sm.fire(x, Context.M, 2.5);
+
+        assertEquals(State.B, sm.getState(Context.M));
+        assertEquals(2.5, receivedDouble, 0.0);
+    }
+
+    @Test
+    public void LongArgumentSelectsDestination() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        TriggerWithLongParameter<Trigger> x = config.setLongTriggerParameter(Trigger.X);
+        config.configure(State.A).permitDynamic(x, new LongFunc<Context, State>() {
+            @Override
+            public State call(long value, Context context) {
+                return value > 10L ? State.C : State.B;
+            }
+        });
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+
+        sm.fire(x, Context.M, 11L);
+
+        assertEquals(State.C, sm.getState(Context.M));
+    }
+
+    @Test
+    public void TwoArgumentsArePassedWithoutArray() {
+        StateMachineConfig<State, Trigger, Context> config = new StateMachineConfig<>();
+        TriggerWithParameters2<String, Integer, Trigger> x = config.setTriggerParameters(Trigger.X, String.class, Integer.class);
+        config.configure(State.A).permitDynamic(x, new Func4<String, Integer, Context, State>() {
+            @Override
+            public State call(String name, Integer count, Context context) {
+                return count > 1 ? State.C : State.B;
+            }
+        });
+        config.configure(State.C).onEntryFrom(x, new Action3<String, Integer, Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(String name, Integer count, Transition<State, Trigger, Context> transition) {
+                receivedString = name;
+                received = count;
+            }
+        }, String.class, Integer.class);
+        StateReference<State, Context> reference = new StateReference<>(State.A);
+        StateMachine<State, Trigger, Context> sm = new StateMachine<>(reference, reference, config);
+
+        sm.fire(x, Context.M, "two", 2);
+
+        assertEquals(State.C, sm.getState(Context.M));
+        assertEquals("two", receivedString);
+        assertEquals(2, received);
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.oxo42.stateless4j.conversion;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class ParameterValidatorTests {
+
+    @Test
+    public void SubclassesAreAcceptedRepeatedly() {
+        ParameterValidator validator = new ParameterValidator(List.class, Number.class);
+        for (int i = 0; i < 3; i++) {
+            validator.validate(new Object[]{new ArrayList<>(), 1});
+            validator.validate(new Object[]{new LinkedList<>(), 1L});
+        }
+    }
+
+    @Test
+    public void NullArgumentsAreAccepted() {
+        new ParameterValidator(String.class).validate(new Object[]{null});
+    }
+
+    @Test
+    public void RejectionAfterAcceptanceIsStillReported() {
+        ParameterValidator validator = new ParameterValidator(Number.class);
+        validator.validate(new Object[]{1});
+        try {
+            validator.validate(new Object[]{"1"});
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("The argument in position 0 is of type class java.lang.String but must be of type class java.lang.Number.", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void FinalTypesRequireExactClass() {
+        new ParameterValidator(String.class).validate(new Object[]{new StringBuilder()});
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void MissingArgumentsAreRejected() {
+        new ParameterValidator(String.class, String.class).validate(new Object[]{"a"});
+    }
+}
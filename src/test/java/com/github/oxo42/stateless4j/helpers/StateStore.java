@@ -0,0 +1,34 @@
+package com.github.oxo42.stateless4j.helpers;
+
+import com.github.oxo42.stateless4j.delegates.Action2;
+import com.github.oxo42.stateless4j.delegates.Func2;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A state accessor and mutator that keep the state of each context in a map, for tests that fire in several contexts,
+ * possibly from several threads. Contexts that have not been stored are in the initial state.
+ *
+ * @param <S> Type of the state to store
+ * @param <C> Type of the contexts, which must not be null
+ */
+public class StateStore<S, C> implements Func2<C, S>, Action2<S, C> {
+
+    private final ConcurrentMap<C, S> states = new ConcurrentHashMap<>();
+    private final S initialState;
+
+    public StateStore(S initialState) {
+        this.initialState = initialState;
+    }
+
+    @Override
+    public S call(C context) {
+        S state = states.get(context);
+        return state == null ? initialState : state;
+    }
+
+    @Override
+    public void doIt(S state, C context) {
+        states.put(context, state);
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.oxo42.stateless4j.processor;
+
+import com.github.oxo42.stateless4j.Context;
+import com.github.oxo42.stateless4j.FireResult;
+import com.github.oxo42.stateless4j.State;
+import com.github.oxo42.stateless4j.StateMachine;
+import com.github.oxo42.stateless4j.StateReference;
+import com.github.oxo42.stateless4j.Trigger;
+import com.github.oxo42.stateless4j.delegates.Action1;
+import com.github.oxo42.stateless4j.delegates.Completion;
+import com.github.oxo42.stateless4j.timers.ManualTimingWheel;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class StateMachineProcessorTests {
+
+    final SwitchMachineSpec spec = new SwitchMachineSpec();
+
+    StateMachine<State, Trigger, Context> createMachine(State initial) {
+        StateReference<State, Context> reference = new StateReference<>(initial);
+        return new SwitchMachineSpecStateMachine(spec, reference, reference);
+    }
+
+    @Test
+    public void GuardsDecideWhetherTriggerCanFire() {
+        StateMachine<State, Trigger, Context> sm = createMachine(State.A);
+        spec.open = false;
+        assertFalse(sm.canFire(Trigger.X, Context.M));
+        assertTrue(sm.canFire(Trigger.Y, Context.M));
+        spec.open = true;
+        assertTrue(sm.canFire(Trigger.X, Context.M));
+    }
+
+    @Test
+    public void IgnoredTriggerLeavesStateUnchanged() {
+        StateMachine<State, Trigger, Context> sm = createMachine(State.A);
+        sm.fire(Trigger.Y, Context.M);
+        assertEquals(State.A, sm.getState(Context.M));
+        assertTrue(spec.actions.isEmpty());
+    }
+
+    @Test
+    public void EnteringSubstateRunsSuperstateEntryActionsFirst() {
+        StateMachine<State, Trigger, Context> sm = createMachine(State.A);
+        sm.fire(Trigger.X, Context.M);
+        assertEquals(State.B, sm.getState(Context.M));
+        assertTrue(sm.isInState(State.C, Context.M));
+        assertEquals(Arrays.asList("enterC", "enterB"), spec.actions);
+    }
+
+    @Test
+    public void SubstateInheritsSuperstateTransitions() {
+        StateMachine<State, Trigger, Context> sm = createMachine(State.B);
+        sm.fire(Trigger.X, Context.M);
+        assertEquals(State.A, sm.getState(Context.M));
+        assertEquals(Arrays.asList("exitB", "exitC"), spec.actions);
+    }
+
+    @Test
+    public void TransitionToSuperstateOnlyExitsSubstate() {
+        StateMachine<State, Trigger, Context> sm = createMachine(State.B);
+        sm.fire(Trigger.Z, Context.M);
+        assertEquals(State.C, sm.getState(Context.M));
+        assertEquals(Arrays.asList("exitB"), spec.actions);
+    }
+
+    @Test
+    public void ReentryRunsOwnExitAndEntryActions() {
+        StateMachine<State, Trigger, Context> sm = createMachine(State.C);
+        sm.fire(Trigger.Z, Context.M);
+        assertEquals(State.C, sm.getState(Context.M));
+        assertEquals(Arrays.asList("exitC", "enterC"), spec.actions);
+    }
+
+    @Test
+    public void PermittedTriggersIncludeSuperstatePermittedTriggers() {
+        StateMachine<State, Trigger, Context> sm = createMachine(State.B);
+        List<Trigger> permitted = sm.getPermittedTriggers(Context.M);
+        assertEquals(3, permitted.size());
+        assertTrue(permitted.containsAll(Arrays.asList(Trigger.X, Trigger.Y, Trigger.Z)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void UnhandledTriggerThrows() {
+        StateMachine<State, Trigger, Context> sm = createMachine(State.A);
+        sm.fire(Trigger.Z, Context.M);
+    }
+
+    @Test
+    public void TryFireReportsWhatTheGeneratedDispatchDid() {
+        StateMachine<State, Trigger, Context> sm = createMachine(State.A);
+        assertEquals(FireResult.IGNORED, sm.tryFire(Trigger.Y, Context.M));
+        assertEquals(FireResult.UNHANDLED, sm.tryFire(Trigger.Z, Context.M));
+        assertEquals(FireResult.TRANSITIONED, sm.tryFire(Trigger.X, Context.M));
+        assertEquals(State.B, sm.getState(Context.M));
+        assertEquals(FireResult.TRANSITIONED, sm.tryFire(Trigger.Z, Context.M));
+        assertEquals(FireResult.REENTERED, sm.tryFire(Trigger.Z, Context.M));
+        assertEquals(State.C, sm.getState(Context.M));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void FireAsyncIsRejected() {
+        StateMachine<State, Trigger, Context> sm = createMachine(State.A);
+        sm.fireAsync(Trigger.X, Context.M, new Completion() {
+            @Override
+            public void completed() {
+            }
+
+            @Override
+            public void failed(Throwable e) {
+            }
+        });
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void SimulateIsRejected() {
+        StateMachine<State, Trigger, Context> sm = createMachine(State.A);
+        sm.simulate(Trigger.X, Context.M);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void TransitionListenersAreRejected() {
+        StateMachine<State, Trigger, Context> sm = createMachine(State.A);
+        sm.onTransitioned(new Action1<Transition<State, Trigger, Context>>() {
+            @Override
+            public void doIt(Transition<State, Trigger, Context> transition) {
+            }
+        });
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void TimeoutsAreRejected() {
+        StateMachine<State, Trigger, Context> sm = createMachine(State.A);
+        sm.enableTimeouts(new ManualTimingWheel(1, TimeUnit.SECONDS, 8));
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.oxo42.stateless4j.processor;
+
+import com.github.oxo42.stateless4j.Context;
+import com.github.oxo42.stateless4j.State;
+import com.github.oxo42.stateless4j.Trigger;
+import com.github.oxo42.stateless4j.annotations.Ignore;
+import com.github.oxo42.stateless4j.annotations.OnEntry;
+import com.github.oxo42.stateless4j.annotations.OnExit;
+import com.github.oxo42.stateless4j.annotations.Permit;
+import com.github.oxo42.stateless4j.annotations.StateMachineDefinition;
+import com.github.oxo42.stateless4j.annotations.Substate;
+import com.github.oxo42.stateless4j.transitions.Transition;
+import java.util.ArrayList;
+import java.util.List;
+
+@StateMachineDefinition(
+        states = State.class,
+        triggers = Trigger.class,
+        context = Context.class,
+        substates = @Substate(state = "B", superstate = "C"),
+        permits = {
+                @Permit(state = "A", trigger = "X", destination = "B", guard = "isOpen"),
+                @Permit(state = "B", trigger = "Y", destination = "A"),
+                @Permit(state = "B", trigger = "Z", destination = "C"),
+                @Permit(state = "C", trigger = "X", destination = "A"),
+                @Permit(state = "C", trigger = "Y", destination = "B"),
+                @Permit(state = "C", trigger = "Z", destination = "C")
+        },
+        ignores = @Ignore(state = "A", trigger = "Y"))
+public class SwitchMachineSpec {
+
+    final List<String> actions = new ArrayList<>();
+    boolean open = true;
+
+    boolean isOpen(Context context) {
+        return open;
+    }
+
+    @OnEntry(state = "B", trigger = "X")
+    void enterBFromX(Transition<State, Trigger, Context> t) {
+        actions.add("enterB");
+    }
+
+    @OnEntry(state = "C")
+    void enterC(Transition<State, Trigger, Context> t) {
+        actions.add("enterC");
+    }
+
+    @OnExit(state = "B")
+    void exitB(Transition<State, Trigger, Context> t) {
+        actions.add("exitB");
+    }
+
+    @OnExit(state = "C")
+    void exitC(Transition<State, Trigger, Context> t) {
+        actions.add("exitC");
+    }
+}
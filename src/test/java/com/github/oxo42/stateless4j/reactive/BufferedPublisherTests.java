@@ -0,0 +1,262 @@
+package com.github.oxo42.stateless4j.reactive;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class BufferedPublisherTests {
+
+    static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    static class RecordingSubscriber implements Subscriber<Integer> {
+
+        final List<Integer> items = new ArrayList<>();
+        Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Test
+    public void ItemsAreDeliveredOnDemand() {
+        BufferedPublisher<Integer> publisher = new BufferedPublisher<>(DIRECT, 10, OverflowPolicy.DROP);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        publisher.publish(1);
+        publisher.publish(2);
+        publisher.publish(3);
+        assertTrue(subscriber.items.isEmpty());
+
+        subscriber.subscription.request(2);
+        assertEquals(Arrays.asList(1, 2), subscriber.items);
+        publisher.publish(4);
+        subscriber.subscription.request(5);
+        assertEquals(Arrays.asList(1, 2, 3, 4), subscriber.items);
+    }
+
+    @Test
+    public void DropDiscardsNewItems() {
+        BufferedPublisher<Integer> publisher = new BufferedPublisher<>(DIRECT, 2, OverflowPolicy.DROP);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        for (int i = 1; i <= 5; i++) {
+            publisher.publish(i);
+        }
+        assertEquals(3, publisher.getDroppedCount());
+        subscriber.subscription.request(10);
+        assertEquals(Arrays.asList(1, 2), subscriber.items);
+    }
+
+    @Test
+    public void LatestDiscardsOldestItems() {
+        BufferedPublisher<Integer> publisher = new BufferedPublisher<>(DIRECT, 2, OverflowPolicy.LATEST);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        for (int i = 1; i <= 5; i++) {
+            publisher.publish(i);
+        }
+        subscriber.subscription.request(10);
+        assertEquals(Arrays.asList(4, 5), subscriber.items);
+    }
+
+    @Test
+    public void BlockWaitsForSubscriber() throws InterruptedException {
+        final BufferedPublisher<Integer> publisher = new BufferedPublisher<>(DIRECT, 1, OverflowPolicy.BLOCK);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        final CountDownLatch published = new CountDownLatch(1);
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                publisher.publish(1);
+                publisher.publish(2);
+                published.countDown();
+            }
+        });
+        producer.start();
+
+        assertFalse(published.await(100, TimeUnit.MILLISECONDS));
+        subscriber.subscription.request(1);
+        assertTrue(published.await(5, TimeUnit.SECONDS));
+        producer.join();
+        subscriber.subscription.request(1);
+        assertEquals(Arrays.asList(1, 2), subscriber.items);
+    }
+
+    @Test
+    public void SlowSubscriberDoesNotHoldBackOthers() {
+        BufferedPublisher<Integer> publisher = new BufferedPublisher<>(DIRECT, 1, OverflowPolicy.DROP);
+        RecordingSubscriber slow = new RecordingSubscriber();
+        RecordingSubscriber fast = new RecordingSubscriber();
+        publisher.subscribe(slow);
+        publisher.subscribe(fast);
+        fast.subscription.request(Long.MAX_VALUE);
+
+        publisher.publish(1);
+        publisher.publish(2);
+
+        assertEquals(Arrays.asList(1, 2), fast.items);
+        assertTrue(slow.items.isEmpty());
+    }
+
+    @Test
+    public void CloseCompletesAfterBufferedItems() {
+        BufferedPublisher<Integer> publisher = new BufferedPublisher<>(DIRECT, 10, OverflowPolicy.DROP);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        publisher.publish(1);
+        publisher.close();
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(1);
+        assertEquals(Arrays.asList(1), subscriber.items);
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void SubscriberOfClosingPublisherIsCompleted() {
+        final BufferedPublisher<Integer> publisher = new BufferedPublisher<>(DIRECT, 10, OverflowPolicy.DROP);
+        RecordingSubscriber subscriber = new RecordingSubscriber() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                super.onSubscribe(subscription);
+                publisher.close();
+            }
+        };
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(1);
+        assertTrue(subscriber.completed);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    public void NonPositiveRequestIsAnError() {
+        BufferedPublisher<Integer> publisher = new BufferedPublisher<>(DIRECT, 10, OverflowPolicy.DROP);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    public void ThrowingSubscriberIsCancelledAndDoesNotBlockPublisher() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final BufferedPublisher<Integer> publisher = new BufferedPublisher<>(executor, 1, OverflowPolicy.BLOCK);
+            final CountDownLatch failed = new CountDownLatch(1);
+            publisher.subscribe(new Subscriber<Integer>() {
+                @Override
+                public void onSubscribe(Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(Integer item) {
+                    throw new IllegalStateException("sink failed");
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    failed.countDown();
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+            final CountDownLatch published = new CountDownLatch(1);
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100; i++) {
+                        publisher.publish(i);
+                    }
+                    published.countDown();
+                }
+            });
+            producer.setDaemon(true);
+            producer.start();
+
+            assertTrue(failed.await(5, TimeUnit.SECONDS));
+            assertTrue(published.await(5, TimeUnit.SECONDS));
+            assertEquals(0, publisher.getSubscriberCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void ItemsAreDeliveredOnExecutor() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            BufferedPublisher<Integer> publisher = new BufferedPublisher<>(executor, 100, OverflowPolicy.BLOCK);
+            final CountDownLatch received = new CountDownLatch(1000);
+            publisher.subscribe(new Subscriber<Integer>() {
+                @Override
+                public void onSubscribe(Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(Integer item) {
+                    received.countDown();
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+            for (int i = 0; i < 1000; i++) {
+                publisher.publish(i);
+            }
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
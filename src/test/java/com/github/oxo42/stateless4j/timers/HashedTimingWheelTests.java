@@ -0,0 +1,88 @@
+package com.github.oxo42.stateless4j.timers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class HashedTimingWheelTests {
+
+    final List<String> ran = new ArrayList<>();
+
+    Runnable record(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                ran.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void TasksRunOnceTheirDeadlineHasPassed() {
+        ManualTimingWheel wheel = new ManualTimingWheel(10, TimeUnit.MILLISECONDS, 8);
+        wheel.schedule(record("late"), 50, TimeUnit.MILLISECONDS);
+        wheel.schedule(record("early"), 20, TimeUnit.MILLISECONDS);
+
+        assertEquals(0, wheel.advanceBy(10, TimeUnit.MILLISECONDS));
+        assertEquals(1, wheel.advanceBy(10, TimeUnit.MILLISECONDS));
+        assertEquals(Arrays.asList("early"), ran);
+        assertEquals(1, wheel.advanceBy(30, TimeUnit.MILLISECONDS));
+        assertEquals(Arrays.asList("early", "late"), ran);
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    public void TasksBeyondOneRotationWaitForTheirRound() {
+        ManualTimingWheel wheel = new ManualTimingWheel(10, TimeUnit.MILLISECONDS, 4);
+        Timeout timeout = wheel.schedule(record("task"), 100, TimeUnit.MILLISECONDS);
+
+        wheel.advanceBy(90, TimeUnit.MILLISECONDS);
+        assertTrue(ran.isEmpty());
+        wheel.advanceBy(10, TimeUnit.MILLISECONDS);
+        assertEquals(Arrays.asList("task"), ran);
+        assertTrue(timeout.isExpired());
+    }
+
+    @Test
+    public void CancelledTasksDoNotRun() {
+        ManualTimingWheel wheel = new ManualTimingWheel(10, TimeUnit.MILLISECONDS, 8);
+        Timeout first = wheel.schedule(record("first"), 20, TimeUnit.MILLISECONDS);
+        wheel.schedule(record("second"), 20, TimeUnit.MILLISECONDS);
+        Timeout third = wheel.schedule(record("third"), 20, TimeUnit.MILLISECONDS);
+
+        assertTrue(first.cancel());
+        assertTrue(third.cancel());
+        assertFalse(third.cancel());
+        assertEquals(1, wheel.pendingTimeouts());
+
+        wheel.advanceBy(20, TimeUnit.MILLISECONDS);
+        assertEquals(Arrays.asList("second"), ran);
+        assertTrue(first.isCancelled());
+    }
+
+    @Test
+    public void ExpiredTasksCannotBeCancelled() {
+        ManualTimingWheel wheel = new ManualTimingWheel(10, TimeUnit.MILLISECONDS, 8);
+        Timeout timeout = wheel.schedule(record("task"), 0, TimeUnit.MILLISECONDS);
+
+        wheel.advanceBy(0, TimeUnit.MILLISECONDS);
+        assertFalse(timeout.cancel());
+        assertEquals(Arrays.asList("task"), ran);
+    }
+
+    @Test
+    public void ManyTimersCanBePending() {
+        ManualTimingWheel wheel = new ManualTimingWheel(1, TimeUnit.MILLISECONDS, 512);
+        Runnable task = record("task");
+        for (int i = 0; i < 100000; i++) {
+            wheel.schedule(task, i % 1000, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(100000, wheel.pendingTimeouts());
+        assertEquals(100000, wheel.advanceBy(1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.oxo42.stateless4j.timers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing wheel driven by a clock that only moves when told to
+ */
+public class ManualTimingWheel extends HashedTimingWheel {
+
+    private long now;
+
+    public ManualTimingWheel(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        super(tickDuration, unit, ticksPerWheel);
+    }
+
+    @Override
+    protected long currentTime() {
+        return now;
+    }
+
+    public int advanceBy(long duration, TimeUnit unit) {
+        now += unit.toNanos(duration);
+        return advance();
+    }
+}